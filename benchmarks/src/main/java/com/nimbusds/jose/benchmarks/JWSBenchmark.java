@@ -0,0 +1,189 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.benchmarks;
+
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Provider;
+import java.security.interfaces.ECPublicKey;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.nimbusds.jose.*;
+import com.nimbusds.jose.crypto.*;
+import com.nimbusds.jose.crypto.bc.BouncyCastleProviderSingleton;
+import com.nimbusds.jose.jwk.*;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.OctetKeyPairGenerator;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+
+
+/**
+ * Throughput benchmark of {@link JWSObject#sign} and {@link JWSObject#verify}
+ * for all standard JWS algorithms, with the default JCA provider and
+ * BouncyCastle.
+ *
+ * <p>Run with the GC profiler to also get the allocation rate:
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar JWSBenchmark -prof gc
+ * </pre>
+ *
+ * <p>Combinations not supported by the JCA provider, such as ES256K with a
+ * recent JDK and the default provider, fail in the setup and are skipped.
+ * EdDSA is implemented with Tink and not affected by the provider choice.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JWSBenchmark {
+
+
+	/**
+	 * The JWS algorithm name.
+	 */
+	@Param({
+		"HS256", "HS384", "HS512",
+		"RS256", "RS384", "RS512",
+		"PS256", "PS384", "PS512",
+		"ES256", "ES256K", "ES384", "ES512",
+		"EdDSA"
+	})
+	public String alg;
+
+
+	/**
+	 * The JCA provider, {@code default} or {@code BC}.
+	 */
+	@Param({"default", "BC"})
+	public String provider;
+
+
+	/**
+	 * The JWS header.
+	 */
+	private JWSHeader header;
+
+
+	/**
+	 * The payload.
+	 */
+	private Payload payload;
+
+
+	/**
+	 * The signer.
+	 */
+	private JWSSigner signer;
+
+
+	/**
+	 * The verifier.
+	 */
+	private JWSVerifier verifier;
+
+
+	/**
+	 * JWS object signed with {@link #signer}, for the verification
+	 * benchmark.
+	 */
+	private JWSObject signedJWSObject;
+
+
+	@Setup
+	public void setUp()
+		throws Exception {
+
+		JWSAlgorithm jwsAlg = JWSAlgorithm.parse(alg);
+
+		header = new JWSHeader.Builder(jwsAlg).keyID("1").build();
+		payload = new Payload("{\"iss\":\"https://c2id.com\",\"sub\":\"alice\",\"exp\":1893456000}");
+
+		if (JWSAlgorithm.Family.HMAC_SHA.contains(jwsAlg)) {
+			OctetSequenceKey jwk = new OctetSequenceKeyGenerator(512).generate();
+			signer = new MACSigner(jwk);
+			verifier = new MACVerifier(jwk);
+		} else if (JWSAlgorithm.Family.RSA.contains(jwsAlg)) {
+			RSAKey jwk = new RSAKeyGenerator(2048).generate();
+			signer = new RSASSASigner(jwk);
+			verifier = new RSASSAVerifier(jwk.toPublicJWK());
+		} else if (JWSAlgorithm.Family.EC.contains(jwsAlg)) {
+			Curve curve = Curve.forJWSAlgorithm(jwsAlg).iterator().next();
+			ECKey jwk;
+			if ("BC".equals(provider)) {
+				// Also for curves not supported by the default provider
+				KeyPairGenerator generator = KeyPairGenerator.getInstance("EC", BouncyCastleProviderSingleton.getInstance());
+				generator.initialize(curve.toECParameterSpec());
+				KeyPair keyPair = generator.generateKeyPair();
+				jwk = new ECKey.Builder(curve, (ECPublicKey) keyPair.getPublic())
+					.privateKey(keyPair.getPrivate())
+					.build();
+			} else {
+				jwk = new ECKeyGenerator(curve).generate();
+			}
+			signer = new ECDSASigner(jwk);
+			verifier = new ECDSAVerifier(jwk.toPublicJWK());
+		} else if (JWSAlgorithm.Family.ED.contains(jwsAlg)) {
+			OctetKeyPair jwk = new OctetKeyPairGenerator(Curve.Ed25519).generate();
+			signer = new Ed25519Signer(jwk);
+			verifier = new Ed25519Verifier(jwk.toPublicJWK());
+		} else {
+			throw new IllegalArgumentException("Unsupported JWS algorithm: " + alg);
+		}
+
+		if ("BC".equals(provider)) {
+			Provider bc = BouncyCastleProviderSingleton.getInstance();
+			signer.getJCAContext().setProvider(bc);
+			verifier.getJCAContext().setProvider(bc);
+		}
+
+		signedJWSObject = new JWSObject(header, payload);
+		signedJWSObject.sign(signer);
+
+		if (! signedJWSObject.verify(verifier)) {
+			throw new IllegalStateException("Signature verification failed");
+		}
+	}
+
+
+	@Benchmark
+	public JWSObject sign()
+		throws JOSEException {
+
+		JWSObject jwsObject = new JWSObject(header, payload);
+		jwsObject.sign(signer);
+		return jwsObject;
+	}
+
+
+	@Benchmark
+	public boolean verify()
+		throws JOSEException {
+
+		return signedJWSObject.verify(verifier);
+	}
+}
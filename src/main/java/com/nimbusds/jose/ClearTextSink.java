@@ -0,0 +1,76 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.nimbusds.jose;
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+/**
+ * Staging sink for the clear text of a JSON Web Encryption (JWE) object
+ * decrypted from a stream. The authentication tag follows the cipher text,
+ * so the clear text is written to a staging output stream and released to
+ * the application only after the tag has been verified.
+ *
+ * <p>After obtaining the {@link #getOutputStream staging output stream} the
+ * decrypter calls {@link #commit} on a successful tag check, else
+ * {@link #discard}, also when the commit failed.
+ *
+ * @see com.nimbusds.jose.util.FileClearTextSink
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+public interface ClearTextSink {
+
+
+	/**
+	 * Returns the staging output stream for the unverified clear text.
+	 * Called once, before the decryption starts. The clear text written
+	 * to it must not be released to the application before
+	 * {@link #commit}.
+	 *
+	 * @return The staging output stream.
+	 *
+	 * @throws IOException If the staging output stream couldn't be
+	 *                     opened.
+	 */
+	OutputStream getOutputStream()
+		throws IOException;
+
+
+	/**
+	 * Releases the staged clear text to the application, after the
+	 * authentication tag has been verified. The staging output stream
+	 * is closed by the sink.
+	 *
+	 * @throws IOException If releasing the clear text failed.
+	 */
+	void commit()
+		throws IOException;
+
+
+	/**
+	 * Discards the staged clear text, if the authentication tag is
+	 * invalid or the decryption failed for some other reason. Must not
+	 * throw an exception.
+	 */
+	void discard();
+}
@@ -0,0 +1,409 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose;
+
+
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+
+import net.jcip.annotations.Immutable;
+
+import com.nimbusds.jose.util.Base64URL;
+
+
+/**
+ * Offset-based view of a compact serialised JOSE object, split into its
+ * Base64URL-encoded parts (three for unsecured and JWS objects, five for JWE
+ * objects). The split doesn't copy the underlying characters, the parts can
+ * be decoded straight into caller supplied byte arrays. Strings and
+ * {@link Base64URL} objects are created only on request.
+ *
+ * <p>The source may be a {@link CharSequence}, such as a {@code String} or
+ * a {@code CharBuffer}, or a {@code byte[]} / {@link ByteBuffer} with the
+ * ASCII characters, e.g. as taken from an HTTP header. A byte source must
+ * not be modified while the view is in use. The part indices are relative
+ * to the start of the source, for a byte source that is the start of the
+ * array or buffer.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ * CompactSerialization cs = CompactSerialization.split(bytes, 0, len);
+ * byte[] header = cs.decodePart(0);
+ * </pre>
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@Immutable
+public final class CompactSerialization {
+
+
+	/**
+	 * ASCII character sequence view of a byte buffer.
+	 */
+	private static final class AsciiCharSequence implements CharSequence {
+
+
+		private final ByteBuffer buf;
+
+
+		private final int offset;
+
+
+		private final int length;
+
+
+		private AsciiCharSequence(final ByteBuffer buf, final int offset, final int length) {
+			this.buf = buf;
+			this.offset = offset;
+			this.length = length;
+		}
+
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+
+		@Override
+		public char charAt(final int index) {
+			if (index < 0 || index >= length) {
+				throw new IndexOutOfBoundsException();
+			}
+			return (char) (buf.get(offset + index) & 0xff);
+		}
+
+
+		@Override
+		public CharSequence subSequence(final int start, final int end) {
+			if (start < 0 || end > length || start > end) {
+				throw new IndexOutOfBoundsException();
+			}
+			return new AsciiCharSequence(buf, offset + start, end - start);
+		}
+
+
+		@Override
+		public String toString() {
+			char[] chars = new char[length];
+			for (int i=0; i < length; i++) {
+				chars[i] = charAt(i);
+			}
+			return new String(chars);
+		}
+	}
+
+
+	/**
+	 * The source character sequence.
+	 */
+	private final CharSequence src;
+
+
+	/**
+	 * The part start (inclusive) and end (exclusive) indices, in pairs.
+	 */
+	private final int[] bounds;
+
+
+	/**
+	 * Creates a new compact serialisation view.
+	 *
+	 * @param src    The source character sequence.
+	 * @param bounds The part bounds.
+	 */
+	private CompactSerialization(final CharSequence src, final int[] bounds) {
+		this.src = src;
+		this.bounds = bounds;
+	}
+
+
+	/**
+	 * Splits the specified compact serialised JOSE object into its
+	 * Base64URL-encoded parts. Leading and trailing whitespace is ignored.
+	 *
+	 * @param s The compact serialised JOSE object to split. Must not be
+	 *          {@code null}.
+	 *
+	 * @return The compact serialisation view.
+	 *
+	 * @throws ParseException If the specified character sequence couldn't
+	 *                        be split into three or five parts.
+	 */
+	public static CompactSerialization split(final CharSequence s)
+		throws ParseException {
+
+		return split(s, 0, s.length());
+	}
+
+
+	/**
+	 * Splits the specified character sequence range into Base64URL-encoded
+	 * parts.
+	 *
+	 * @param s    The character sequence.
+	 * @param from The start index, inclusive.
+	 * @param to   The end index, exclusive.
+	 *
+	 * @return The compact serialisation view.
+	 *
+	 * @throws ParseException If the range couldn't be split into three or
+	 *                        five parts.
+	 */
+	private static CompactSerialization split(final CharSequence s, final int from, final int to)
+		throws ParseException {
+
+		// Trim, as String.trim()
+		int start = from;
+		int end = to;
+		while (start < end && s.charAt(start) <= ' ') {
+			start++;
+		}
+		while (start < end && s.charAt(end - 1) <= ' ') {
+			end--;
+		}
+
+		// We must have 2 (JWS) or 4 dots (JWE)
+		int[] dots = new int[4];
+		int numDots = 0;
+
+		for (int i=start; i < end; i++) {
+
+			if (s.charAt(i) != '.') {
+				continue;
+			}
+
+			if (numDots == 4) {
+				throw new ParseException("Invalid serialized unsecured/JWS/JWE object: Too many part delimiters", 0);
+			}
+
+			dots[numDots++] = i;
+		}
+
+		switch (numDots) {
+			case 0:
+				throw new ParseException("Invalid serialized unsecured/JWS/JWE object: Missing part delimiters", 0);
+			case 1:
+				throw new ParseException("Invalid serialized unsecured/JWS/JWE object: Missing second delimiter", 0);
+			case 3:
+				throw new ParseException("Invalid serialized JWE object: Missing fourth delimiter", 0);
+			default:
+				// 2 or 4
+		}
+
+		int[] bounds = new int[(numDots + 1) * 2];
+		bounds[0] = start;
+		for (int i=0; i < numDots; i++) {
+			bounds[i * 2 + 1] = dots[i];
+			bounds[i * 2 + 2] = dots[i] + 1;
+		}
+		bounds[bounds.length - 1] = end;
+
+		return new CompactSerialization(s, bounds);
+	}
+
+
+	/**
+	 * Splits the specified compact serialised JOSE object, as ASCII
+	 * bytes, into its Base64URL-encoded parts. Leading and trailing
+	 * whitespace is ignored.
+	 *
+	 * @param bytes  The byte array. Must not be {@code null}.
+	 * @param offset The offset of the compact serialised JOSE object.
+	 * @param length The length of the compact serialised JOSE object.
+	 *
+	 * @return The compact serialisation view.
+	 *
+	 * @throws ParseException If the specified bytes couldn't be split into
+	 *                        three or five parts.
+	 */
+	public static CompactSerialization split(final byte[] bytes, final int offset, final int length)
+		throws ParseException {
+
+		if (offset < 0 || length < 0 || offset + length > bytes.length) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		return split(new AsciiCharSequence(ByteBuffer.wrap(bytes), 0, bytes.length), offset, offset + length);
+	}
+
+
+	/**
+	 * Splits the remaining bytes of the specified buffer, the ASCII
+	 * characters of a compact serialised JOSE object, into its
+	 * Base64URL-encoded parts. The buffer position is not changed. Leading
+	 * and trailing whitespace is ignored.
+	 *
+	 * @param buf The byte buffer. Must not be {@code null}.
+	 *
+	 * @return The compact serialisation view.
+	 *
+	 * @throws ParseException If the specified bytes couldn't be split into
+	 *                        three or five parts.
+	 */
+	public static CompactSerialization split(final ByteBuffer buf)
+		throws ParseException {
+
+		return split(new AsciiCharSequence(buf, 0, buf.limit()), buf.position(), buf.limit());
+	}
+
+
+	/**
+	 * Returns the number of parts.
+	 *
+	 * @return The number of parts, three for unsecured and JWS objects,
+	 *         five for JWE objects.
+	 */
+	public int getPartCount() {
+
+		return bounds.length / 2;
+	}
+
+
+	/**
+	 * Returns the start index of the specified part in the source.
+	 *
+	 * @param part The part index.
+	 *
+	 * @return The start index, inclusive.
+	 */
+	public int getPartStart(final int part) {
+
+		return bounds[part * 2];
+	}
+
+
+	/**
+	 * Returns the end index of the specified part in the source.
+	 *
+	 * @param part The part index.
+	 *
+	 * @return The end index, exclusive.
+	 */
+	public int getPartEnd(final int part) {
+
+		return bounds[part * 2 + 1];
+	}
+
+
+	/**
+	 * Returns the Base64URL-encoded length of the specified part.
+	 *
+	 * @param part The part index.
+	 *
+	 * @return The encoded length, zero if the part is empty.
+	 */
+	public int getPartLength(final int part) {
+
+		return getPartEnd(part) - getPartStart(part);
+	}
+
+
+	/**
+	 * Returns the maximum decoded length of the specified part, exact for
+	 * valid unpadded Base64URL.
+	 *
+	 * @param part The part index.
+	 *
+	 * @return The maximum decoded length.
+	 */
+	public int getMaxDecodedPartLength(final int part) {
+
+		return Base64URL.computeMaxDecodedLength(getPartLength(part));
+	}
+
+
+	/**
+	 * Decodes the specified part into the specified byte array.
+	 *
+	 * @param part      The part index.
+	 * @param dst       The destination byte array. Must have at least
+	 *                  {@link #getMaxDecodedPartLength} bytes available
+	 *                  from the offset.
+	 * @param dstOffset The destination offset.
+	 *
+	 * @return The number of decoded bytes.
+	 */
+	public int decodePart(final int part, final byte[] dst, final int dstOffset) {
+
+		return Base64URL.decode(src, getPartStart(part), getPartEnd(part), dst, dstOffset);
+	}
+
+
+	/**
+	 * Decodes the specified part.
+	 *
+	 * @param part The part index.
+	 *
+	 * @return The decoded bytes, empty if the part is empty.
+	 */
+	public byte[] decodePart(final int part) {
+
+		return Base64URL.decode(src, getPartStart(part), getPartEnd(part));
+	}
+
+
+	/**
+	 * Returns the specified part as a Base64URL-encoded object.
+	 *
+	 * @param part The part index.
+	 *
+	 * @return The Base64URL-encoded part.
+	 */
+	public Base64URL getPart(final int part) {
+
+		return new Base64URL(src.subSequence(getPartStart(part), getPartEnd(part)).toString());
+	}
+
+
+	/**
+	 * Returns all parts as Base64URL-encoded objects.
+	 *
+	 * @return The Base64URL-encoded parts.
+	 */
+	public Base64URL[] getParts() {
+
+		Base64URL[] parts = new Base64URL[getPartCount()];
+		for (int i=0; i < parts.length; i++) {
+			parts[i] = getPart(i);
+		}
+		return parts;
+	}
+
+
+	/**
+	 * Returns the ASCII bytes of the JWS signing input, i.e. the first
+	 * two parts with the delimiter between them, without intermediate
+	 * strings.
+	 *
+	 * @return The signing input bytes.
+	 */
+	public byte[] getSigningInput() {
+
+		final int start = getPartStart(0);
+		final int end = getPartEnd(1);
+
+		byte[] out = new byte[end - start];
+		for (int i=0; i < out.length; i++) {
+			out[i] = (byte) src.charAt(start + i);
+		}
+		return out;
+	}
+}
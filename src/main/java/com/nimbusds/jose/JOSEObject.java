@@ -24,6 +24,7 @@ import java.util.Map;
 
 import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.jose.util.JSONObjectUtils;
+import com.nimbusds.jose.util.StandardCharset;
 
 
 /**
@@ -32,7 +33,7 @@ import com.nimbusds.jose.util.JSONObjectUtils;
  * serialisable to compact encoding.
  *
  * @author Vladimir Dzhuvinov
- * @version 2021-10-05
+ * @version 2022-06-01
  */
 public abstract class JOSEObject implements Serializable {
 	
@@ -201,7 +202,8 @@ public abstract class JOSEObject implements Serializable {
 
 	/**
 	 * Splits a compact serialised JOSE object into its Base64URL-encoded
-	 * parts.
+	 * parts. See {@link CompactSerialization} for an offset-based split
+	 * which doesn't copy the parts.
 	 *
 	 * @param s The compact serialised JOSE object to split. Must not be
 	 *          {@code null}.
@@ -215,55 +217,7 @@ public abstract class JOSEObject implements Serializable {
 	public static Base64URL[] split(final String s)
 		throws ParseException {
 
-		final String t = s.trim();
-		
-		// We must have 2 (JWS) or 4 dots (JWE)
-
-		// String.split() cannot handle empty parts
-		final int dot1 = t.indexOf(".");
-
-		if (dot1 == -1) {
-			throw new ParseException("Invalid serialized unsecured/JWS/JWE object: Missing part delimiters", 0);
-		}
-
-		final int dot2 = t.indexOf(".", dot1 + 1);
-
-		if (dot2 == -1) {
-			throw new ParseException("Invalid serialized unsecured/JWS/JWE object: Missing second delimiter", 0);
-		}
-
-		// Third dot for JWE only
-		final int dot3 = t.indexOf(".", dot2 + 1);
-
-		if (dot3 == -1) {
-
-			// Two dots only? -> We have a JWS
-			Base64URL[] parts = new Base64URL[3];
-			parts[0] = new Base64URL(t.substring(0, dot1));
-			parts[1] = new Base64URL(t.substring(dot1 + 1, dot2));
-			parts[2] = new Base64URL(t.substring(dot2 + 1));
-			return parts;
-		}
-
-		// Fourth final dot for JWE
-		final int dot4 = t.indexOf(".", dot3 + 1);
-
-		if (dot4 == -1) {
-			throw new ParseException("Invalid serialized JWE object: Missing fourth delimiter", 0);
-		}
-
-		if (dot4 != -1 && t.indexOf(".", dot4 + 1) != -1) {
-			throw new ParseException("Invalid serialized unsecured/JWS/JWE object: Too many part delimiters", 0);
-		}
-
-		// Four dots -> five parts
-		Base64URL[] parts = new Base64URL[5];
-		parts[0] = new Base64URL(t.substring(0, dot1));
-		parts[1] = new Base64URL(t.substring(dot1 + 1, dot2));
-		parts[2] = new Base64URL(t.substring(dot2 + 1, dot3));
-		parts[3] = new Base64URL(t.substring(dot3 + 1, dot4));
-		parts[4] = new Base64URL(t.substring(dot4 + 1));
-		return parts;
+		return CompactSerialization.split(s).getParts();
 	}
 
 
@@ -281,12 +235,12 @@ public abstract class JOSEObject implements Serializable {
 	public static JOSEObject parse(final String s) 
 		throws ParseException {
 
-		Base64URL[] parts = split(s);
+		CompactSerialization cs = CompactSerialization.split(s);
 
 		Map<String, Object> jsonObject;
 
 		try {
-			jsonObject = JSONObjectUtils.parse(parts[0].decodeToString());
+			jsonObject = JSONObjectUtils.parse(new String(cs.decodePart(0), StandardCharset.UTF_8));
 
 		} catch (ParseException e) {
 
@@ -74,7 +74,7 @@ import com.nimbusds.jose.util.X509CertChainUtils;
  * </pre>
  *
  * @author Vladimir Dzhuvinov
- * @version 2022-03-07
+ * @version 2022-06-01
  */
 @Immutable
 public final class JWEHeader extends CommonSEHeader {
@@ -1341,7 +1341,8 @@ public final class JWEHeader extends CommonSEHeader {
 
 
 	/**
-	 * Parses a JWE header from the specified Base64URL.
+	 * Parses a JWE header from the specified Base64URL. Repeatedly parsed
+	 * headers are served from the {@link ParsedHeaderCache}.
 	 *
 	 * @param base64URL The Base64URL to parse. Must not be {@code null}.
 	 *
@@ -1353,6 +1354,14 @@ public final class JWEHeader extends CommonSEHeader {
 	public static JWEHeader parse(final Base64URL base64URL)
 		throws ParseException {
 
-		return parse(base64URL.decodeToString(), base64URL);
+		JWEHeader header = ParsedHeaderCache.get(base64URL, JWEHeader.class);
+
+		if (header != null) {
+			return header;
+		}
+
+		header = parse(base64URL.decodeToString(), base64URL);
+		ParsedHeaderCache.put(base64URL, header);
+		return header;
 	}
 }
@@ -0,0 +1,70 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.nimbusds.jose;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+
+
+/**
+ * JSON Web Encryption (JWE) streaming decrypter. Reads a JWE in compact
+ * serialisation from an input stream and writes the decrypted clear text to
+ * a clear text sink, in memory independent of the clear text size.
+ *
+ * <p>The authentication tag follows the cipher text and can therefore only
+ * be verified after the clear text has been decrypted. The clear text is
+ * written to the staging output stream of the {@link ClearTextSink}, which
+ * is committed only after the tag has been verified, e.g. with a
+ * {@link com.nimbusds.jose.util.FileClearTextSink}.
+ *
+ * <p>Compression (zip) is not supported in streaming mode.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+public interface JWEStreamDecrypter extends JWEProvider {
+
+
+	/**
+	 * Decrypts the JWE read from the specified input stream and writes
+	 * the clear text to the specified sink. The input stream is not
+	 * closed. The sink is committed after the authentication tag has been
+	 * verified, else discarded.
+	 *
+	 * @param in        The input stream for the JWE in compact
+	 *                  serialisation. Must not be {@code null}.
+	 * @param clearText The clear text sink. Must not be {@code null}.
+	 *
+	 * @return The JWE header.
+	 *
+	 * @throws ParseException If the JWE couldn't be parsed.
+	 * @throws JOSEException  If the JWE algorithm or method is not
+	 *                        supported in streaming mode, if a critical
+	 *                        header parameter is not supported or marked
+	 *                        for deferral to the application, if the
+	 *                        authentication tag is invalid, or if
+	 *                        decryption failed for some other reason.
+	 * @throws IOException    If reading the JWE, or writing or committing
+	 *                        the clear text failed.
+	 */
+	JWEHeader decrypt(final InputStream in, final ClearTextSink clearText)
+		throws ParseException, JOSEException, IOException;
+}
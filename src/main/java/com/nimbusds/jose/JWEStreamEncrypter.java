@@ -0,0 +1,66 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.nimbusds.jose;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+
+/**
+ * JSON Web Encryption (JWE) streaming encrypter. Encrypts a clear text read
+ * from an input stream and writes the resulting JWE in compact serialisation
+ * to an output stream, in memory independent of the clear text size.
+ *
+ * <p>Compression (zip) is not supported in streaming mode.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+public interface JWEStreamEncrypter extends JWEProvider {
+
+
+	/**
+	 * Encrypts the clear text read from the specified input stream and
+	 * writes the resulting JWE in compact serialisation to the specified
+	 * output stream. The streams are not closed.
+	 *
+	 * @param header    The JSON Web Encryption (JWE) header. Must specify
+	 *                  a supported JWE algorithm and method. Must not be
+	 *                  {@code null}.
+	 * @param clearText The clear text input stream. Must not be
+	 *                  {@code null}.
+	 * @param out       The output stream for the JWE. Must not be
+	 *                  {@code null}.
+	 *
+	 * @return The JWE header as written, with any parameters added by
+	 *         the encrypter.
+	 *
+	 * @throws JOSEException If the JWE algorithm or method is not
+	 *                       supported in streaming mode or if encryption
+	 *                       failed for some other internal reason.
+	 * @throws IOException   If reading the clear text or writing the JWE
+	 *                       failed.
+	 */
+	JWEHeader encrypt(final JWEHeader header,
+			  final InputStream clearText,
+			  final OutputStream out)
+		throws JOSEException, IOException;
+}
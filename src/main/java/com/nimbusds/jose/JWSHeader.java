@@ -65,7 +65,7 @@ import com.nimbusds.jose.util.X509CertChainUtils;
  * </pre>
  *
  * @author Vladimir Dzhuvinov
- * @version 2022-03-07
+ * @version 2022-06-01
  */
 @Immutable
 public final class JWSHeader extends CommonSEHeader {
@@ -848,7 +848,8 @@ public final class JWSHeader extends CommonSEHeader {
 
 
 	/**
-	 * Parses a JWS header from the specified Base64URL.
+	 * Parses a JWS header from the specified Base64URL. Repeatedly parsed
+	 * headers are served from the {@link ParsedHeaderCache}.
 	 *
 	 * @param base64URL The Base64URL to parse. Must not be {@code null}.
 	 *
@@ -860,6 +861,14 @@ public final class JWSHeader extends CommonSEHeader {
 	public static JWSHeader parse(final Base64URL base64URL)
 		throws ParseException {
 
-		return parse(base64URL.decodeToString(), base64URL);
+		JWSHeader header = ParsedHeaderCache.get(base64URL, JWSHeader.class);
+
+		if (header != null) {
+			return header;
+		}
+
+		header = parse(base64URL.decodeToString(), base64URL);
+		ParsedHeaderCache.put(base64URL, header);
+		return header;
 	}
 }
@@ -0,0 +1,214 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose;
+
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.nimbusds.jose.util.Base64URL;
+
+
+/**
+ * Cache of parsed JWS and JWE headers, keyed by their Base64URL encoding.
+ * The protected header of the JWTs issued with a given key is typically
+ * identical across tokens, the cache saves its repeated decoding and JSON
+ * parsing in {@link JWSHeader#parse(Base64URL)} and
+ * {@link JWEHeader#parse(Base64URL)}, and thus in {@link JWSObject#parse},
+ * {@link com.nimbusds.jwt.SignedJWT#parse} and the JWE equivalents.
+ *
+ * <p>The cached headers are immutable and shared. Not cached are:
+ *
+ * <ul>
+ *     <li>Headers with a Base64URL encoding longer than
+ *         {@link #MAX_ENCODED_LENGTH}, e.g. with large X.509 certificate
+ *         chains.
+ *     <li>JWE headers with an ephemeral public key ("epk") or a PBES2 salt
+ *         ("p2s"), which are unique per JWE object.
+ *     <li>Headers with custom parameters that are JSON objects or arrays,
+ *         which are mutable.
+ * </ul>
+ *
+ * <p>The cache size is bounded, when the limit is reached the cache is
+ * reset and repopulated with the headers currently in use. Set the maximum
+ * size to zero to disable the cache.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@ThreadSafe
+public final class ParsedHeaderCache {
+
+
+	/**
+	 * The default maximum number of cached headers.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 100;
+
+
+	/**
+	 * The maximum Base64URL-encoded length of a cached header.
+	 */
+	public static final int MAX_ENCODED_LENGTH = 2048;
+
+
+	/**
+	 * The maximum number of cached headers, zero if disabled.
+	 */
+	private static volatile int maxSize = DEFAULT_MAX_SIZE;
+
+
+	/**
+	 * The cached headers, keyed by Base64URL encoding.
+	 */
+	private static final ConcurrentMap<String, Header> CACHE = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Returns the maximum number of cached headers.
+	 *
+	 * @return The maximum size, zero if the cache is disabled.
+	 */
+	public static int getMaxSize() {
+
+		return maxSize;
+	}
+
+
+	/**
+	 * Sets the maximum number of cached headers.
+	 *
+	 * @param maxSize The maximum size, zero to disable the cache. Must not
+	 *                be negative.
+	 */
+	public static void setMaxSize(final int maxSize) {
+
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("The maximum size must not be negative");
+		}
+		ParsedHeaderCache.maxSize = maxSize;
+		CACHE.clear();
+	}
+
+
+	/**
+	 * Returns the number of cached headers.
+	 *
+	 * @return The number of cached headers.
+	 */
+	public static int size() {
+
+		return CACHE.size();
+	}
+
+
+	/**
+	 * Clears the cache.
+	 */
+	public static void clear() {
+
+		CACHE.clear();
+	}
+
+
+	/**
+	 * Gets the cached header for the specified Base64URL encoding.
+	 *
+	 * @param base64URL The Base64URL-encoded header. Must not be
+	 *                  {@code null}.
+	 * @param clazz     The expected header class. Must not be
+	 *                  {@code null}.
+	 *
+	 * @return The cached header, {@code null} if none.
+	 */
+	static <T extends Header> T get(final Base64URL base64URL, final Class<T> clazz) {
+
+		if (maxSize == 0 || CACHE.isEmpty()) {
+			return null;
+		}
+
+		Header header = CACHE.get(base64URL.toString());
+
+		return clazz.isInstance(header) ? clazz.cast(header) : null;
+	}
+
+
+	/**
+	 * Caches the specified parsed header if eligible.
+	 *
+	 * @param base64URL The Base64URL-encoded header. Must not be
+	 *                  {@code null}.
+	 * @param header    The parsed header. Must not be {@code null}.
+	 */
+	static void put(final Base64URL base64URL, final Header header) {
+
+		final int max = maxSize;
+
+		if (max == 0 || ! isCacheable(base64URL, header)) {
+			return;
+		}
+
+		if (CACHE.size() >= max) {
+			// Drop the headers no longer in use
+			CACHE.clear();
+		}
+
+		CACHE.put(base64URL.toString(), header);
+	}
+
+
+	/**
+	 * Checks if the specified header is eligible for caching.
+	 *
+	 * @param base64URL The Base64URL-encoded header.
+	 * @param header    The parsed header.
+	 *
+	 * @return {@code true} if the header can be cached.
+	 */
+	private static boolean isCacheable(final Base64URL base64URL, final Header header) {
+
+		if (base64URL.toString().length() > MAX_ENCODED_LENGTH) {
+			return false;
+		}
+
+		if (header instanceof JWEHeader) {
+			JWEHeader jweHeader = (JWEHeader) header;
+			if (jweHeader.getEphemeralPublicKey() != null || jweHeader.getPBES2Salt() != null) {
+				return false;
+			}
+		}
+
+		for (Object value: header.getCustomParams().values()) {
+			if (value instanceof Map || value instanceof List) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Prevents public instantiation.
+	 */
+	private ParsedHeaderCache() {}
+}
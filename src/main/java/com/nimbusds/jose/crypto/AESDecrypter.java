@@ -71,7 +71,7 @@ import com.nimbusds.jose.util.Base64URL;
  *
  * @author Melisa Halsband
  * @author Vladimir Dzhuvinov
- * @version 2015-06-29
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class AESDecrypter extends AESCryptoProvider implements JWEDecrypter, CriticalHeaderParamsAware {
@@ -200,7 +200,7 @@ public class AESDecrypter extends AESCryptoProvider implements JWEDecrypter, Cri
 		    alg.equals(JWEAlgorithm.A192KW) ||
 		    alg.equals(JWEAlgorithm.A256KW))   {
 
-			cek = AESKW.unwrapCEK(getKey(), encryptedKey.decode(), getJCAContext().getKeyEncryptionProvider());
+			cek = AESKW.unwrapCEK(getKey(), encryptedKey.decode(), getJCAContext().getKeyEncryptionProvider(), getJCAContext().isEngineReuseEnabled());
 
 		} else if (alg.equals(JWEAlgorithm.A128GCMKW) ||
 			   alg.equals(JWEAlgorithm.A192GCMKW) ||
@@ -219,7 +219,7 @@ public class AESDecrypter extends AESCryptoProvider implements JWEDecrypter, Cri
 			byte[] keyTag = header.getAuthTag().decode();
 
 			AuthenticatedCipherText authEncrCEK = new AuthenticatedCipherText(encryptedKey.decode(), keyTag);
-			cek = AESGCMKW.decryptCEK(getKey(), keyIV, authEncrCEK, keyLength, getJCAContext().getKeyEncryptionProvider());
+			cek = AESGCMKW.decryptCEK(getKey(), keyIV, authEncrCEK, keyLength, getJCAContext().getKeyEncryptionProvider(), getJCAContext().isEngineReuseEnabled());
 
 		} else {
 
@@ -69,10 +69,15 @@ import net.jcip.annotations.ThreadSafe;
  *     <li>{@link com.nimbusds.jose.EncryptionMethod#XC20P}
  * </ul>
  *
+ * <p>The initialisation vectors for the AES/GCM key wrapping and content
+ * encryption are taken from the
+ * {@link com.nimbusds.jose.jca.JWEJCAContext#getAESGCMIVGenerator() IV
+ * generator} of the JCA context if set, else drawn at random.
+ *
  * @author Melisa Halsband
  * @author Vladimir Dzhuvinov
  * @author Dimitar A. Stoikov
- * @version 2017-06-01
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class AESEncrypter extends AESCryptoProvider implements JWEEncrypter {
@@ -201,13 +206,13 @@ public class AESEncrypter extends AESCryptoProvider implements JWEEncrypter {
 
 		if(AlgFamily.AESKW.equals(algFamily)) {
 
-			encryptedKey = Base64URL.encode(AESKW.wrapCEK(cek, getKey(), getJCAContext().getKeyEncryptionProvider()));
+			encryptedKey = Base64URL.encode(AESKW.wrapCEK(cek, getKey(), getJCAContext().getKeyEncryptionProvider(), getJCAContext().isEngineReuseEnabled()));
 			updatedHeader = header; // simply copy ref
 
 		} else if(AlgFamily.AESGCMKW.equals(algFamily)) {
 
-			final Container<byte[]> keyIV = new Container<>(AESGCM.generateIV(getJCAContext().getSecureRandom()));
-			final AuthenticatedCipherText authCiphCEK = AESGCMKW.encryptCEK(cek, keyIV, getKey(), getJCAContext().getKeyEncryptionProvider());
+			final Container<byte[]> keyIV = new Container<>(AESGCM.generateIV(getJCAContext()));
+			final AuthenticatedCipherText authCiphCEK = AESGCMKW.encryptCEK(cek, keyIV, getKey(), getJCAContext().getKeyEncryptionProvider(), getJCAContext().isEngineReuseEnabled());
 			encryptedKey = Base64URL.encode(authCiphCEK.getCipherText());
 
 			// Add iv and tag to the header
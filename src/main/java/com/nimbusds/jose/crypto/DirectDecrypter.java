@@ -18,6 +18,9 @@
 package com.nimbusds.jose.crypto;
 
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
 import java.util.Set;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
@@ -27,6 +30,8 @@ import com.nimbusds.jose.crypto.impl.AlgorithmSupportMessage;
 import com.nimbusds.jose.crypto.impl.ContentCryptoProvider;
 import com.nimbusds.jose.crypto.impl.CriticalHeaderParamsDeferral;
 import com.nimbusds.jose.crypto.impl.DirectCryptoProvider;
+import com.nimbusds.jose.crypto.impl.JWEStreamReader;
+import com.nimbusds.jose.crypto.impl.StreamingContentCryptoProvider;
 import com.nimbusds.jose.jwk.OctetSequenceKey;
 import com.nimbusds.jose.util.Base64URL;
 import net.jcip.annotations.ThreadSafe;
@@ -66,12 +71,15 @@ import net.jcip.annotations.ThreadSafe;
  * content encryption key (CEK) directly. The that mode the JWE algorithm
  * checks for ("alg":"dir") and encrypted key not being present will be
  * skipped.
+ *
+ * <p>Also supports {@link JWEStreamDecrypter streaming decryption} with the
+ * AES/CBC/HMAC-SHA2 and AES/GCM content encryption algorithms.
  * 
  * @author Vladimir Dzhuvinov
- * @version 2018-07-16
+ * @version 2022-06-01
  */
 @ThreadSafe
-public class DirectDecrypter extends DirectCryptoProvider implements JWEDecrypter, CriticalHeaderParamsAware {
+public class DirectDecrypter extends DirectCryptoProvider implements JWEDecrypter, JWEStreamDecrypter, CriticalHeaderParamsAware {
 	
 	
 	/**
@@ -237,12 +245,19 @@ public class DirectDecrypter extends DirectCryptoProvider implements JWEDecrypte
 	}
 
 
-	@Override
-	public byte[] decrypt(final JWEHeader header,
-		              final Base64URL encryptedKey,
-		              final Base64URL iv,
-		              final Base64URL cipherText,
-		              final Base64URL authTag) 
+	/**
+	 * Validates the specified JWE header and parts for decryption.
+	 *
+	 * @param header       The JWE header.
+	 * @param encryptedKey The encrypted key, {@code null} if none.
+	 * @param iv           The initialisation vector, {@code null} if
+	 *                     none.
+	 *
+	 * @throws JOSEException If validation failed.
+	 */
+	private void validate(final JWEHeader header,
+			      final Base64URL encryptedKey,
+			      final Base64URL iv)
 		throws JOSEException {
 
 		// Validate required JWE parts
@@ -263,12 +278,38 @@ public class DirectDecrypter extends DirectCryptoProvider implements JWEDecrypte
 			throw new JOSEException("Unexpected present JWE initialization vector (IV)");
 		}
 
+		critPolicy.ensureHeaderPasses(header);
+	}
+
+
+	@Override
+	public byte[] decrypt(final JWEHeader header,
+		              final Base64URL encryptedKey,
+		              final Base64URL iv,
+		              final Base64URL cipherText,
+		              final Base64URL authTag) 
+		throws JOSEException {
+
+		validate(header, encryptedKey, iv);
+
 		if (authTag == null) {
 			throw new JOSEException("Missing JWE authentication tag");
 		}
 
-		critPolicy.ensureHeaderPasses(header);
-
 		return ContentCryptoProvider.decrypt(header, null, iv, cipherText, authTag, getKey(), getJCAContext());
 	}
+
+
+	@Override
+	public JWEHeader decrypt(final InputStream in, final ClearTextSink clearText)
+		throws ParseException, JOSEException, IOException {
+
+		JWEStreamReader reader = new JWEStreamReader(in);
+
+		validate(reader.getHeader(), reader.getEncryptedKey(), reader.getIV());
+
+		StreamingContentCryptoProvider.decrypt(reader, getKey(), clearText, getJCAContext());
+
+		return reader.getHeader();
+	}
 }
@@ -18,12 +18,16 @@
 package com.nimbusds.jose.crypto;
 
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 
 import com.nimbusds.jose.crypto.impl.AlgorithmSupportMessage;
 import com.nimbusds.jose.crypto.impl.ContentCryptoProvider;
 import com.nimbusds.jose.crypto.impl.DirectCryptoProvider;
+import com.nimbusds.jose.crypto.impl.StreamingContentCryptoProvider;
 import net.jcip.annotations.ThreadSafe;
 
 import com.nimbusds.jose.*;
@@ -62,11 +66,21 @@ import com.nimbusds.jose.util.ByteUtils;
  *     <li>{@link com.nimbusds.jose.EncryptionMethod#XC20P} (requires 256 bit key)
  * </ul>
  *
+ * <p>Also supports {@link JWEStreamEncrypter streaming encryption} with the
+ * AES/CBC/HMAC-SHA2 and AES/GCM content encryption algorithms.
+ *
+ * <p>The AES/GCM initialisation vectors are random by default. Since the
+ * key is long-lived, a deterministic
+ * {@link com.nimbusds.jose.crypto.impl.CounterAESGCMIVGenerator} can be set
+ * in the {@link #getJCAContext() JCA context} to avoid contention on the
+ * secure random generator, with a fixed field unique among all encrypters
+ * of the key.
+ *
  * @author Vladimir Dzhuvinov
- * @version 2017-06-01
+ * @version 2022-06-01
  */
 @ThreadSafe
-public class DirectEncrypter extends DirectCryptoProvider implements JWEEncrypter {
+public class DirectEncrypter extends DirectCryptoProvider implements JWEEncrypter, JWEStreamEncrypter {
 
 
 	/**
@@ -123,8 +137,16 @@ public class DirectEncrypter extends DirectCryptoProvider implements JWEEncrypte
 	}
 
 
-	@Override
-	public JWECryptoParts encrypt(final JWEHeader header, final byte[] clearText)
+	/**
+	 * Ensures the specified JWE header is supported by this encrypter.
+	 *
+	 * @param header The JWE header.
+	 *
+	 * @throws JOSEException If the JWE algorithm is not supported or the
+	 *                       key length doesn't match the encryption
+	 *                       method.
+	 */
+	private void ensureSupported(final JWEHeader header)
 		throws JOSEException {
 
 		JWEAlgorithm alg = header.getAlgorithm();
@@ -139,9 +161,31 @@ public class DirectEncrypter extends DirectCryptoProvider implements JWEEncrypte
 		if (enc.cekBitLength() != ByteUtils.safeBitLength(getKey().getEncoded())) {
 			throw new KeyLengthException(enc.cekBitLength(), enc);
 		}
+	}
+
+
+	@Override
+	public JWECryptoParts encrypt(final JWEHeader header, final byte[] clearText)
+		throws JOSEException {
+
+		ensureSupported(header);
 
 		final Base64URL encryptedKey = null; // The second JWE part
 
 		return ContentCryptoProvider.encrypt(header, clearText, getKey(), encryptedKey, getJCAContext());
 	}
-}
\ No newline at end of file
+
+
+	@Override
+	public JWEHeader encrypt(final JWEHeader header, final InputStream clearText, final OutputStream out)
+		throws JOSEException, IOException {
+
+		ensureSupported(header);
+
+		final Base64URL encryptedKey = null; // The second JWE part
+
+		StreamingContentCryptoProvider.encrypt(header, clearText, getKey(), encryptedKey, out, getJCAContext());
+
+		return header;
+	}
+}
@@ -24,6 +24,7 @@ import com.nimbusds.jose.JWEEncrypter;
 import com.nimbusds.jose.JWEHeader;
 import com.nimbusds.jose.crypto.impl.ECDH1PU;
 import com.nimbusds.jose.crypto.impl.ECDH1PUCryptoProvider;
+import com.nimbusds.jose.crypto.utils.EphemeralKeyPool;
 import com.nimbusds.jose.jwk.Curve;
 import com.nimbusds.jose.jwk.OctetKeyPair;
 import com.nimbusds.jose.jwk.gen.OctetKeyPairGenerator;
@@ -50,6 +51,9 @@ import java.util.Set;
  *
  * <p>This class is thread-safe.
  *
+ * <p>The ephemeral key pairs can be taken from a pool of pre-generated key
+ * pairs, see {@link #setEphemeralKeyPool(EphemeralKeyPool)}.
+ *
  * <p>Supports the following key management algorithms:
  *
  * <ul>
@@ -90,7 +94,7 @@ import java.util.Set;
  * </ul>
  *
  * @author Alexander Martynov
- * @version 2021-08-03
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class ECDH1PUX25519Encrypter extends ECDH1PUCryptoProvider implements JWEEncrypter {
@@ -112,6 +116,12 @@ public class ECDH1PUX25519Encrypter extends ECDH1PUCryptoProvider implements JWE
      */
     private final SecretKey contentEncryptionKey;
 
+
+    /**
+     * The pool of ephemeral key pairs, {@code null} if none.
+     */
+    private volatile EphemeralKeyPool ephemeralKeyPool;
+
     /**
      * Creates a new Curve25519 Elliptic Curve Diffie-Hellman encrypter.
      *
@@ -184,11 +194,42 @@ public class ECDH1PUX25519Encrypter extends ECDH1PUCryptoProvider implements JWE
         return privateKey;
     }
 
+    /**
+     * Returns the pool of ephemeral key pairs.
+     *
+     * @return The pool, {@code null} if none.
+     */
+    public EphemeralKeyPool getEphemeralKeyPool() {
+
+        return ephemeralKeyPool;
+    }
+
+
+    /**
+     * Sets a pool of pre-generated ephemeral key pairs. If the pool
+     * doesn't supply key pairs for the curve of this encrypter, the
+     * ephemeral key pairs are generated on each encryption.
+     *
+     * @param ephemeralKeyPool The pool, {@code null} to generate the
+     *                         ephemeral key pairs on each encryption.
+     */
+    public void setEphemeralKeyPool(final EphemeralKeyPool ephemeralKeyPool) {
+
+        this.ephemeralKeyPool = ephemeralKeyPool;
+    }
+
+
     @Override
     public JWECryptoParts encrypt(final JWEHeader header, final byte[] clearText)
             throws JOSEException {
 
-        final OctetKeyPair ephemeralPrivateKey = new OctetKeyPairGenerator(getCurve()).generate();
+        final EphemeralKeyPool pool = ephemeralKeyPool;
+        final OctetKeyPair ephemeralPrivateKey;
+        if (pool != null && pool.supports(getCurve())) {
+            ephemeralPrivateKey = pool.takeX25519KeyPair();
+        } else {
+            ephemeralPrivateKey = new OctetKeyPairGenerator(getCurve()).generate();
+        }
         final OctetKeyPair ephemeralPublicKey = ephemeralPrivateKey.toPublicJWK();
 
         // Add the ephemeral public EC key to the header
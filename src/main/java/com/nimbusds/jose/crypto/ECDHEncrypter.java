@@ -38,6 +38,7 @@ import com.nimbusds.jose.JWEEncrypter;
 import com.nimbusds.jose.JWEHeader;
 import com.nimbusds.jose.crypto.impl.ECDH;
 import com.nimbusds.jose.crypto.impl.ECDHCryptoProvider;
+import com.nimbusds.jose.crypto.utils.EphemeralKeyPool;
 import com.nimbusds.jose.jwk.Curve;
 import com.nimbusds.jose.jwk.ECKey;
 
@@ -57,6 +58,9 @@ import net.jcip.annotations.ThreadSafe;
  *
  * <p>This class is thread-safe.
  *
+ * <p>The ephemeral key pairs can be taken from a pool of pre-generated key
+ * pairs, see {@link #setEphemeralKeyPool(EphemeralKeyPool)}.
+ *
  * <p>Supports the following key management algorithms:
  *
  * <ul>
@@ -91,7 +95,7 @@ import net.jcip.annotations.ThreadSafe;
  * @author Tim McLean
  * @author Vladimir Dzhuvinov
  * @author Fernando González Callejas
- * @version 2019-01-24
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class ECDHEncrypter extends ECDHCryptoProvider implements JWEEncrypter {
@@ -123,6 +127,12 @@ public class ECDHEncrypter extends ECDHCryptoProvider implements JWEEncrypter {
 	 */
 	private final SecretKey contentEncryptionKey;
 
+
+	/**
+	 * The pool of ephemeral key pairs, {@code null} if none.
+	 */
+	private volatile EphemeralKeyPool ephemeralKeyPool;
+
 	/**
 	 * Creates a new Elliptic Curve Diffie-Hellman encrypter.
 	 *
@@ -204,12 +214,43 @@ public class ECDHEncrypter extends ECDHCryptoProvider implements JWEEncrypter {
 	}
 
 
+	/**
+	 * Returns the pool of ephemeral key pairs.
+	 *
+	 * @return The pool, {@code null} if none.
+	 */
+	public EphemeralKeyPool getEphemeralKeyPool() {
+
+		return ephemeralKeyPool;
+	}
+
+
+	/**
+	 * Sets a pool of pre-generated ephemeral key pairs. If the pool
+	 * doesn't supply key pairs for the curve of this encrypter, the
+	 * ephemeral key pairs are generated on each encryption.
+	 *
+	 * @param ephemeralKeyPool The pool, {@code null} to generate the
+	 *                         ephemeral key pairs on each encryption.
+	 */
+	public void setEphemeralKeyPool(final EphemeralKeyPool ephemeralKeyPool) {
+
+		this.ephemeralKeyPool = ephemeralKeyPool;
+	}
+
+
 	@Override
 	public JWECryptoParts encrypt(final JWEHeader header, final byte[] clearText)
 		throws JOSEException {
 
 		// Generate ephemeral EC key pair on the same curve as the consumer's public key
-		KeyPair ephemeralKeyPair = generateEphemeralKeyPair(publicKey.getParams());
+		final EphemeralKeyPool pool = ephemeralKeyPool;
+		KeyPair ephemeralKeyPair;
+		if (pool != null && pool.supports(getCurve())) {
+			ephemeralKeyPair = pool.takeECKeyPair(getCurve());
+		} else {
+			ephemeralKeyPair = generateEphemeralKeyPair(publicKey.getParams());
+		}
 		ECPublicKey ephemeralPublicKey = (ECPublicKey)ephemeralKeyPair.getPublic();
 		ECPrivateKey ephemeralPrivateKey = (ECPrivateKey)ephemeralKeyPair.getPrivate();
 
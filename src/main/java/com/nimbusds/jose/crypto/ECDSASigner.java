@@ -20,6 +20,7 @@ package com.nimbusds.jose.crypto;
 
 import java.security.InvalidKeyException;
 import java.security.PrivateKey;
+import java.security.Provider;
 import java.security.Signature;
 import java.security.SignatureException;
 import java.security.interfaces.ECPrivateKey;
@@ -60,7 +61,7 @@ import com.nimbusds.jose.util.Base64URL;
  * 
  * @author Axel Nennker
  * @author Vladimir Dzhuvinov
- * @version 2016-11-30
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class ECDSASigner extends ECDSAProvider implements JWSSigner {
@@ -170,12 +171,22 @@ public class ECDSASigner extends ECDSAProvider implements JWSSigner {
 
 		// DER-encoded signature, according to JCA spec
 		final byte[] jcaSignature;
+		final Provider provider = getJCAContext().getProvider();
+		final boolean reuse = getJCAContext().isEngineReuseEnabled();
 		try {
-			Signature dsa = ECDSA.getSignerAndVerifier(alg, getJCAContext().getProvider());
-			dsa.initSign(privateKey, getJCAContext().getSecureRandom());
+			Signature dsa = reuse ? getSignaturePool().acquire(alg.getName(), provider) : null;
+			if (dsa == null) {
+				dsa = ECDSA.getSignerAndVerifier(alg, provider);
+				dsa.initSign(privateKey, getJCAContext().getSecureRandom());
+			}
 			dsa.update(signingInput);
 			jcaSignature = dsa.sign();
 
+			if (reuse) {
+				// The signer is reset for reuse with the same key
+				getSignaturePool().release(alg.getName(), provider, dsa);
+			}
+
 		} catch (InvalidKeyException | SignatureException e) {
 
 			throw new JOSEException(e.getMessage(), e);
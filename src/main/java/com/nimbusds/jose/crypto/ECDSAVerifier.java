@@ -19,6 +19,7 @@ package com.nimbusds.jose.crypto;
 
 
 import java.security.InvalidKeyException;
+import java.security.Provider;
 import java.security.Signature;
 import java.security.SignatureException;
 import java.security.interfaces.ECPublicKey;
@@ -59,7 +60,7 @@ import com.nimbusds.jose.util.Base64URL;
  * 
  * @author Axel Nennker
  * @author Vladimir Dzhuvinov
- * @version 2022-04-22
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class ECDSAVerifier extends ECDSAProvider implements JWSVerifier, CriticalHeaderParamsAware {
@@ -193,12 +194,24 @@ public class ECDSAVerifier extends ECDSAProvider implements JWSVerifier, Critica
 			return false;
 		}
 
-		Signature sig = ECDSA.getSignerAndVerifier(alg, getJCAContext().getProvider());
+		final Provider provider = getJCAContext().getProvider();
+		final boolean reuse = getJCAContext().isEngineReuseEnabled();
+
+		Signature sig = reuse ? getSignaturePool().acquire(alg.getName(), provider) : null;
 
 		try {
-			sig.initVerify(publicKey);
+			if (sig == null) {
+				sig = ECDSA.getSignerAndVerifier(alg, provider);
+				sig.initVerify(publicKey);
+			}
 			sig.update(signedContent);
-			return sig.verify(derSignature);
+			boolean valid = sig.verify(derSignature);
+
+			if (reuse) {
+				// The verifier is reset for reuse with the same key
+				getSignaturePool().release(alg.getName(), provider, sig);
+			}
+			return valid;
 
 		} catch (InvalidKeyException e) {
 			throw new JOSEException("Invalid EC public key: " + e.getMessage(), e);
@@ -25,7 +25,6 @@ import javax.crypto.SecretKey;
 
 import com.nimbusds.jose.*;
 import com.nimbusds.jose.crypto.impl.AlgorithmSupportMessage;
-import com.nimbusds.jose.crypto.impl.HMAC;
 import com.nimbusds.jose.crypto.impl.MACProvider;
 import com.nimbusds.jose.jwk.OctetSequenceKey;
 import com.nimbusds.jose.util.Base64URL;
@@ -54,7 +53,7 @@ import net.jcip.annotations.ThreadSafe;
  * </ul>
  * 
  * @author Vladimir Dzhuvinov
- * @version 2016-07-27
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class MACSigner extends MACProvider implements JWSSigner {
@@ -190,7 +189,7 @@ public class MACSigner extends MACProvider implements JWSSigner {
 		}
 
 		String jcaAlg = getJCAAlgorithmName(header.getAlgorithm());
-		byte[] hmac = HMAC.compute(jcaAlg, getSecret(), signingInput, getJCAContext().getProvider());
+		byte[] hmac = computeHMAC(jcaAlg, signingInput);
 		return Base64URL.encode(hmac);
 	}
 }
@@ -26,7 +26,6 @@ import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSHeader;
 import com.nimbusds.jose.JWSVerifier;
 import com.nimbusds.jose.crypto.impl.CriticalHeaderParamsDeferral;
-import com.nimbusds.jose.crypto.impl.HMAC;
 import com.nimbusds.jose.crypto.impl.MACProvider;
 import com.nimbusds.jose.crypto.utils.ConstantTimeUtils;
 import com.nimbusds.jose.jwk.OctetSequenceKey;
@@ -54,7 +53,7 @@ import net.jcip.annotations.ThreadSafe;
  * </ul>
  * 
  * @author Vladimir Dzhuvinov
- * @version 2016-06-26
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class MACVerifier extends MACProvider implements JWSVerifier, CriticalHeaderParamsAware {
@@ -196,7 +195,7 @@ public class MACVerifier extends MACProvider implements JWSVerifier, CriticalHea
 		}
 
 		String jcaAlg = getJCAAlgorithmName(header.getAlgorithm());
-		byte[] expectedHMAC = HMAC.compute(jcaAlg, getSecret(), signedContent, getJCAContext().getProvider());
+		byte[] expectedHMAC = computeHMAC(jcaAlg, signedContent);
 		return ConstantTimeUtils.areEqual(expectedHMAC, signature.decode());
 	}
 }
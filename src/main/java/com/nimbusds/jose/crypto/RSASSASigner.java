@@ -20,6 +20,7 @@ package com.nimbusds.jose.crypto;
 
 import java.security.InvalidKeyException;
 import java.security.PrivateKey;
+import java.security.Provider;
 import java.security.Signature;
 import java.security.SignatureException;
 import java.util.Collections;
@@ -82,7 +83,7 @@ import com.nimbusds.jose.util.Base64URL;
  * 
  * @author Vladimir Dzhuvinov
  * @author Omer Levi Hevroni
- * @version 2020-12-27
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class RSASSASigner extends RSASSAProvider implements JWSSigner {
@@ -233,10 +234,12 @@ public class RSASSASigner extends RSASSAProvider implements JWSSigner {
 	public Base64URL sign(final JWSHeader header, final byte[] signingInput)
 		throws JOSEException {
 
-		final Signature signer = getInitiatedSignature(header);
-		
 		if (OptionUtils.optionIsPresent(opts, UserAuthenticationRequired.class)) {
 			
+			// Not reused, the initiated signature requires user
+			// authentication
+			final Signature signer = getInitiatedSignature(header);
+			
 			throw new ActionRequiredForJWSCompletionException(
 				"Authenticate user to complete signing",
 				UserAuthenticationRequired.getInstance(),
@@ -249,7 +252,24 @@ public class RSASSASigner extends RSASSAProvider implements JWSSigner {
 			);
 		}
 		
-		return sign(signingInput, signer);
+		final String alg = header.getAlgorithm().getName();
+		final Provider provider = getJCAContext().getProvider();
+		final boolean reuse = getJCAContext().isEngineReuseEnabled();
+		
+		Signature signer = reuse ? getSignaturePool().acquire(alg, provider) : null;
+		
+		if (signer == null) {
+			signer = getInitiatedSignature(header);
+		}
+		
+		Base64URL signature = sign(signingInput, signer);
+		
+		if (reuse) {
+			// The signer is reset for reuse with the same key
+			getSignaturePool().release(alg, provider, signer);
+		}
+		
+		return signature;
 	}
 	
 	
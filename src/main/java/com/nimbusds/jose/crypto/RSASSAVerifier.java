@@ -19,6 +19,7 @@ package com.nimbusds.jose.crypto;
 
 
 import java.security.InvalidKeyException;
+import java.security.Provider;
 import java.security.Signature;
 import java.security.SignatureException;
 import java.security.interfaces.RSAPublicKey;
@@ -61,7 +62,7 @@ import com.nimbusds.jose.util.Base64URL;
  * BouncyCastle FIPS provider} for the PSxxx family of JWS algorithms.
  * 
  * @author Vladimir Dzhuvinov
- * @version 2015-06-02
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class RSASSAVerifier extends RSASSAProvider implements JWSVerifier, CriticalHeaderParamsAware {
@@ -160,18 +161,32 @@ public class RSASSAVerifier extends RSASSAProvider implements JWSVerifier, Criti
 			return false;
 		}
 
-		final Signature verifier = RSASSA.getSignerAndVerifier(header.getAlgorithm(), getJCAContext().getProvider());
+		final String alg = header.getAlgorithm().getName();
+		final Provider provider = getJCAContext().getProvider();
+		final boolean reuse = getJCAContext().isEngineReuseEnabled();
 
-		try {
-			verifier.initVerify(publicKey);
+		Signature verifier = reuse ? getSignaturePool().acquire(alg, provider) : null;
+
+		if (verifier == null) {
+			verifier = RSASSA.getSignerAndVerifier(header.getAlgorithm(), provider);
 
-		} catch (InvalidKeyException e) {
-			throw new JOSEException("Invalid public RSA key: " + e.getMessage(), e);
+			try {
+				verifier.initVerify(publicKey);
+
+			} catch (InvalidKeyException e) {
+				throw new JOSEException("Invalid public RSA key: " + e.getMessage(), e);
+			}
 		}
 
 		try {
 			verifier.update(signedContent);
-			return verifier.verify(signature.decode());
+			boolean valid = verifier.verify(signature.decode());
+
+			if (reuse) {
+				// The verifier is reset for reuse with the same key
+				getSignaturePool().release(alg, provider, verifier);
+			}
+			return valid;
 
 		} catch (SignatureException e) {
 			return false;
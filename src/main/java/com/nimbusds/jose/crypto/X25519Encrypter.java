@@ -27,6 +27,7 @@ import com.google.crypto.tink.subtle.X25519;
 import com.nimbusds.jose.*;
 import com.nimbusds.jose.crypto.impl.ECDH;
 import com.nimbusds.jose.crypto.impl.ECDHCryptoProvider;
+import com.nimbusds.jose.crypto.utils.EphemeralKeyPool;
 import com.nimbusds.jose.jwk.Curve;
 import com.nimbusds.jose.jwk.OctetKeyPair;
 import com.nimbusds.jose.util.Base64URL;
@@ -45,6 +46,9 @@ import net.jcip.annotations.ThreadSafe;
  *
  * <p>This class is thread-safe.
  *
+ * <p>The ephemeral key pairs can be taken from a pool of pre-generated key
+ * pairs, see {@link #setEphemeralKeyPool(EphemeralKeyPool)}.
+ *
  * <p>Supports the following key management algorithms:
  *
  * <ul>
@@ -75,7 +79,7 @@ import net.jcip.annotations.ThreadSafe;
  * </ul>
  *
  * @author Tim McLean
- * @version 2018-07-12
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class X25519Encrypter extends ECDHCryptoProvider implements JWEEncrypter {
@@ -87,6 +91,12 @@ public class X25519Encrypter extends ECDHCryptoProvider implements JWEEncrypter
 	private final OctetKeyPair publicKey;
 
 
+	/**
+	 * The pool of ephemeral key pairs, {@code null} if none.
+	 */
+	private volatile EphemeralKeyPool ephemeralKeyPool;
+
+
 	/**
 	 * Creates a new Curve25519 Elliptic Curve Diffie-Hellman encrypter.
 	 *
@@ -129,25 +139,43 @@ public class X25519Encrypter extends ECDHCryptoProvider implements JWEEncrypter
 	}
 
 
+	/**
+	 * Returns the pool of ephemeral key pairs.
+	 *
+	 * @return The pool, {@code null} if none.
+	 */
+	public EphemeralKeyPool getEphemeralKeyPool() {
+
+		return ephemeralKeyPool;
+	}
+
+
+	/**
+	 * Sets a pool of pre-generated ephemeral key pairs. If the pool
+	 * doesn't supply key pairs for the curve of this encrypter, the
+	 * ephemeral key pairs are generated on each encryption.
+	 *
+	 * @param ephemeralKeyPool The pool, {@code null} to generate the
+	 *                         ephemeral key pairs on each encryption.
+	 */
+	public void setEphemeralKeyPool(final EphemeralKeyPool ephemeralKeyPool) {
+
+		this.ephemeralKeyPool = ephemeralKeyPool;
+	}
+
+
 	@Override
 	public JWECryptoParts encrypt(final JWEHeader header, final byte[] clearText)
 		throws JOSEException {
 
 		// Generate ephemeral X25519 key pair
-		final byte[] ephemeralPrivateKeyBytes = X25519.generatePrivateKey();
-		final byte[] ephemeralPublicKeyBytes;
-		try {
-			ephemeralPublicKeyBytes = X25519.publicFromPrivate(ephemeralPrivateKeyBytes);
-
-		} catch (InvalidKeyException e) {
-			// Should never happen since we just generated this private key
-			throw new JOSEException(e.getMessage(), e);
+		final EphemeralKeyPool pool = ephemeralKeyPool;
+		final OctetKeyPair ephemeralPrivateKey;
+		if (pool != null && pool.supports(getCurve())) {
+			ephemeralPrivateKey = pool.takeX25519KeyPair();
+		} else {
+			ephemeralPrivateKey = generateEphemeralKeyPair();
 		}
-
-		final OctetKeyPair ephemeralPrivateKey =
-			new OctetKeyPair.Builder(getCurve(), Base64URL.encode(ephemeralPublicKeyBytes)).
-			d(Base64URL.encode(ephemeralPrivateKeyBytes)).
-			build();
 		final OctetKeyPair ephemeralPublicKey = ephemeralPrivateKey.toPublicJWK();
 
 		// Add the ephemeral public EC key to the header
@@ -160,4 +188,30 @@ public class X25519Encrypter extends ECDHCryptoProvider implements JWEEncrypter
 
 		return encryptWithZ(updatedHeader, Z, clearText);
 	}
+
+
+	/**
+	 * Generates a new ephemeral X25519 key pair.
+	 *
+	 * @return The private X25519 key pair.
+	 *
+	 * @throws JOSEException If the key pair couldn't be generated.
+	 */
+	private OctetKeyPair generateEphemeralKeyPair()
+		throws JOSEException {
+
+		final byte[] ephemeralPrivateKeyBytes = X25519.generatePrivateKey();
+		final byte[] ephemeralPublicKeyBytes;
+		try {
+			ephemeralPublicKeyBytes = X25519.publicFromPrivate(ephemeralPrivateKeyBytes);
+
+		} catch (InvalidKeyException e) {
+			// Should never happen since we just generated this private key
+			throw new JOSEException(e.getMessage(), e);
+		}
+
+		return new OctetKeyPair.Builder(getCurve(), Base64URL.encode(ephemeralPublicKeyBytes)).
+			d(Base64URL.encode(ephemeralPrivateKeyBytes)).
+			build();
+	}
 }
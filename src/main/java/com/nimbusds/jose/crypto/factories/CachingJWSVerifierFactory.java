@@ -0,0 +1,264 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.crypto.factories;
+
+
+import java.security.Key;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.proc.JWSVerifierFactory;
+
+
+/**
+ * Caching JSON Web Signature (JWS) verifier factory. Keeps the verifiers
+ * created by an underlying factory for reuse, keyed by key and JWS algorithm
+ * family. In the steady state no verifier objects are created and the key
+ * checks done by the verifier constructors, such as the EC point on curve
+ * check, are skipped.
+ *
+ * <p>The verifiers of the underlying factory must be thread-safe, which is
+ * the case for the {@link DefaultJWSVerifierFactory default one}.
+ *
+ * <p>The number of cached verifiers per algorithm family is bounded. When
+ * the limit is reached the least recently added verifier of the family is
+ * evicted, e.g. one for a key of a previous JWK set after a key rotation.
+ *
+ * <p>Note that verifiers for HMAC keys retain the secret key material in
+ * the cache.
+ *
+ * <p>Example setup with a JWT processor:
+ *
+ * <pre>
+ * jwtProcessor.setJWSVerifierFactory(new CachingJWSVerifierFactory());
+ * </pre>
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@ThreadSafe
+public class CachingJWSVerifierFactory implements JWSVerifierFactory {
+
+
+	/**
+	 * The default maximum number of cached verifiers per JWS algorithm
+	 * family.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 100;
+
+
+	/**
+	 * The JWS algorithm families for which verifiers are cached.
+	 */
+	private static final List<JWSAlgorithm.Family> FAMILIES = Arrays.asList(
+		JWSAlgorithm.Family.HMAC_SHA,
+		JWSAlgorithm.Family.RSA,
+		JWSAlgorithm.Family.EC,
+		JWSAlgorithm.Family.ED);
+
+
+	/**
+	 * The underlying verifier factory.
+	 */
+	private final JWSVerifierFactory factory;
+
+
+	/**
+	 * The maximum number of cached verifiers per algorithm family.
+	 */
+	private final int maxSize;
+
+
+	/**
+	 * The cached verifiers, in the order of {@link #FAMILIES}.
+	 */
+	private final List<ConcurrentMap<Key, JWSVerifier>> caches;
+
+
+	/**
+	 * The cached keys in order of addition, in the order of
+	 * {@link #FAMILIES}, guarded by this.
+	 */
+	private final List<Queue<Key>> insertionOrders;
+
+
+	/**
+	 * Creates a new caching JWS verifier factory backed by a
+	 * {@link DefaultJWSVerifierFactory}, with the
+	 * {@link #DEFAULT_MAX_SIZE default maximum size}.
+	 */
+	public CachingJWSVerifierFactory() {
+
+		this(new DefaultJWSVerifierFactory(), DEFAULT_MAX_SIZE);
+	}
+
+
+	/**
+	 * Creates a new caching JWS verifier factory.
+	 *
+	 * @param factory The underlying JWS verifier factory. Its verifiers
+	 *                must be thread-safe. Must not be {@code null}.
+	 * @param maxSize The maximum number of cached verifiers per JWS
+	 *                algorithm family. Must be positive.
+	 */
+	public CachingJWSVerifierFactory(final JWSVerifierFactory factory, final int maxSize) {
+
+		if (factory == null) {
+			throw new IllegalArgumentException("The JWS verifier factory must not be null");
+		}
+		this.factory = factory;
+
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("The maximum size must be positive");
+		}
+		this.maxSize = maxSize;
+
+		List<ConcurrentMap<Key, JWSVerifier>> cacheList = new ArrayList<>(FAMILIES.size());
+		List<Queue<Key>> orderList = new ArrayList<>(FAMILIES.size());
+		for (int i=0; i < FAMILIES.size(); i++) {
+			cacheList.add(new ConcurrentHashMap<Key, JWSVerifier>());
+			orderList.add(new ArrayDeque<Key>());
+		}
+		caches = Collections.unmodifiableList(cacheList);
+		insertionOrders = Collections.unmodifiableList(orderList);
+	}
+
+
+	/**
+	 * Returns the underlying JWS verifier factory.
+	 *
+	 * @return The JWS verifier factory.
+	 */
+	public JWSVerifierFactory getJWSVerifierFactory() {
+
+		return factory;
+	}
+
+
+	/**
+	 * Returns the maximum number of cached verifiers per JWS algorithm
+	 * family.
+	 *
+	 * @return The maximum size.
+	 */
+	public int getMaxSize() {
+
+		return maxSize;
+	}
+
+
+	/**
+	 * Returns the total number of cached verifiers.
+	 *
+	 * @return The number of cached verifiers.
+	 */
+	public int size() {
+
+		int size = 0;
+		for (ConcurrentMap<Key, JWSVerifier> cache: caches) {
+			size += cache.size();
+		}
+		return size;
+	}
+
+
+	/**
+	 * Clears the cached verifiers.
+	 */
+	public synchronized void clear() {
+
+		for (int i=0; i < caches.size(); i++) {
+			caches.get(i).clear();
+			insertionOrders.get(i).clear();
+		}
+	}
+
+
+	@Override
+	public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+
+		return factory.supportedJWSAlgorithms();
+	}
+
+
+	@Override
+	public JCAContext getJCAContext() {
+
+		return factory.getJCAContext();
+	}
+
+
+	@Override
+	public JWSVerifier createJWSVerifier(final JWSHeader header, final Key key)
+		throws JOSEException {
+
+		int index = -1;
+		for (int i=0; i < FAMILIES.size(); i++) {
+			if (FAMILIES.get(i).contains(header.getAlgorithm())) {
+				index = i;
+				break;
+			}
+		}
+
+		if (index < 0 || key == null) {
+			// Not cached
+			return factory.createJWSVerifier(header, key);
+		}
+
+		ConcurrentMap<Key, JWSVerifier> cache = caches.get(index);
+
+		JWSVerifier verifier = cache.get(key);
+
+		if (verifier != null && verifier.getJCAContext().getProvider() == getJCAContext().getProvider()) {
+			return verifier;
+		}
+
+		// Cache miss or JCA provider changed
+		verifier = factory.createJWSVerifier(header, key);
+
+		synchronized (this) {
+
+			if (cache.put(key, verifier) != null) {
+				// Replaced, the key is already in the insertion order
+				return verifier;
+			}
+
+			Queue<Key> insertionOrder = insertionOrders.get(index);
+			insertionOrder.add(key);
+			while (insertionOrder.size() > maxSize) {
+				cache.remove(insertionOrder.poll());
+			}
+		}
+
+		return verifier;
+	}
+}
@@ -42,7 +42,7 @@ import net.jcip.annotations.ThreadSafe;
  * {@link com.nimbusds.jose.crypto} package.
  *
  * @author Vladimir Dzhuvinov
- * @version 2020-10-30
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class DefaultJWSVerifierFactory implements JWSVerifierFactory {
@@ -126,6 +126,7 @@ public class DefaultJWSVerifierFactory implements JWSVerifierFactory {
 
 		// Apply JCA context, SecureRandom expensive and not needed for verification (iss #385)
 		verifier.getJCAContext().setProvider(jcaContext.getProvider());
+		verifier.getJCAContext().setEngineReuseEnabled(jcaContext.isEngineReuseEnabled());
 
 		return verifier;
 	}
@@ -18,11 +18,11 @@
 package com.nimbusds.jose.crypto.impl;
 
 
-import java.nio.ByteBuffer;
 import java.security.Provider;
 import java.security.SecureRandom;
 import java.util.Arrays;
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
@@ -48,7 +48,7 @@ import com.nimbusds.jose.util.StandardCharset;
  *
  * @author Vladimir Dzhuvinov
  * @author Axel Nennker
- * @version 2022-01-24
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class AESCBC {
@@ -60,6 +60,12 @@ public class AESCBC {
 	public static final int IV_BIT_LENGTH = 128;
 
 
+	/**
+	 * The JCA cipher transformation.
+	 */
+	private static final String TRANSFORMATION = "AES/CBC/PKCS5Padding";
+
+
 	/**
 	 * Generates a random 128 bit (16 byte) Initialisation Vector(IV) for
 	 * use in AES-CBC encryption.
@@ -87,19 +93,21 @@ public class AESCBC {
 	 *                      {@code null}.
 	 * @param provider      The JCA provider, or {@code null} to use the
 	 *                      default one.
+	 * @param reuse         {@code true} to reuse a pooled cipher instance.
 	 *
 	 * @return The AES/CBC/PKCS5Padding cipher.
 	 */
 	private static Cipher createAESCBCCipher(final SecretKey secretKey,
 		                                 final boolean forEncryption,
 		                                 final byte[] iv,
-		                                 final Provider provider)
+		                                 final Provider provider,
+		                                 final boolean reuse)
 		throws JOSEException {
 
 		Cipher cipher;
 
 		try {
-			cipher = CipherHelper.getInstance("AES/CBC/PKCS5Padding", provider);
+			cipher = CipherHelper.acquire(TRANSFORMATION, provider, reuse);
 
 			SecretKeySpec keyspec = new SecretKeySpec(secretKey.getEncoded(), "AES");
 
@@ -143,15 +151,49 @@ public class AESCBC {
 		                     final Provider provider)
 		throws JOSEException {
 
-		Cipher cipher = createAESCBCCipher(secretKey, true, iv, provider);
+		return encrypt(secretKey, iv, plainText, provider, false);
+	}
+
+
+	/**
+	 * Encrypts the specified plain text using AES/CBC/PKCS5Padding, with
+	 * the option to reuse a pooled cipher instance.
+	 *
+	 * @param secretKey The AES key. Must not be {@code null}.
+	 * @param iv        The initialisation vector (IV). Must not be
+	 *                  {@code null}.
+	 * @param plainText The plain text. Must not be {@code null}.
+	 * @param provider  The JCA provider, or {@code null} to use the
+	 *                  default one.
+	 * @param reuse     {@code true} to reuse a pooled cipher instance, see
+	 *                  {@link CipherHelper#acquire}.
+	 *
+	 * @return The cipher text.
+	 *
+	 * @throws JOSEException If encryption failed.
+	 */
+	public static byte[] encrypt(final SecretKey secretKey,
+		                     final byte[] iv,
+		                     final byte[] plainText,
+		                     final Provider provider,
+		                     final boolean reuse)
+		throws JOSEException {
+
+		Cipher cipher = createAESCBCCipher(secretKey, true, iv, provider, reuse);
+
+		byte[] cipherText;
 
 		try {
-			return cipher.doFinal(plainText);	
+			cipherText = cipher.doFinal(plainText);
 		
 		} catch (Exception e) {
 
 			throw new JOSEException(e.getMessage(), e);
 		}
+
+		CipherHelper.release(TRANSFORMATION, provider, cipher, reuse);
+
+		return cipherText;
 	}
 
 
@@ -187,25 +229,95 @@ public class AESCBC {
 								   final Provider macProvider)
 		throws JOSEException {
 
+		return encryptAuthenticated(secretKey, iv, plainText, aad, ceProvider, macProvider, false);
+	}
+
+
+	/**
+	 * Encrypts the specified plain text using AES/CBC/PKCS5Padding/
+	 * HMAC-SHA2, with the option to reuse pooled cipher and MAC
+	 * instances.
+	 *
+	 * @param secretKey   The secret key. Must be 256 or 512 bits long.
+	 *                    Must not be {@code null}.
+	 * @param iv          The initialisation vector (IV). Must not be
+	 *                    {@code null}.
+	 * @param plainText   The plain text. Must not be {@code null}.
+	 * @param aad         The additional authenticated data. Must not be
+	 *                    {@code null}.
+	 * @param ceProvider  The JCA provider for the content encryption, or
+	 *                    {@code null} to use the default one.
+	 * @param macProvider The JCA provider for the MAC computation, or
+	 *                    {@code null} to use the default one.
+	 * @param reuse       {@code true} to reuse pooled cipher and MAC
+	 *                    instances, see {@link CipherHelper#acquire}.
+	 *
+	 * @return The authenticated cipher text.
+	 *
+	 * @throws JOSEException If encryption failed.
+	 */
+	public static AuthenticatedCipherText encryptAuthenticated(final SecretKey secretKey,
+								   final byte[] iv,
+								   final byte[] plainText,
+								   final byte[] aad,
+								   final Provider ceProvider,
+								   final Provider macProvider,
+								   final boolean reuse)
+		throws JOSEException {
+
 		// Extract MAC + AES/CBC keys from input secret key
 		CompositeKey compositeKey = new CompositeKey(secretKey);
 
 		// Encrypt plain text
-		byte[] cipherText = encrypt(compositeKey.getAESKey(), iv, plainText, ceProvider);
-
-		// AAD length to 8 byte array
-		byte[] al = AAD.computeLength(aad);
+		byte[] cipherText = encrypt(compositeKey.getAESKey(), iv, plainText, ceProvider, reuse);
 
 		// Do MAC
-		int hmacInputLength = aad.length + iv.length + cipherText.length + al.length;
-		byte[] hmacInput = ByteBuffer.allocate(hmacInputLength).put(aad).put(iv).put(cipherText).put(al).array();
-		byte[] hmac = HMAC.compute(compositeKey.getMACKey(), hmacInput, macProvider);
+		byte[] hmac = computeHMAC(compositeKey, aad, iv, cipherText, macProvider, reuse);
 		byte[] authTag = Arrays.copyOf(hmac, compositeKey.getTruncatedMACByteLength());
 
 		return new AuthenticatedCipherText(cipherText, authTag);
 	}
 
 
+	/**
+	 * Computes the HMAC of the AAD, IV, cipher text and AAD length.
+	 *
+	 * @param compositeKey The composite key. Must not be {@code null}.
+	 * @param aad          The additional authenticated data. Must not be
+	 *                     {@code null}.
+	 * @param iv           The initialisation vector (IV). Must not be
+	 *                     {@code null}.
+	 * @param cipherText   The cipher text. Must not be {@code null}.
+	 * @param macProvider  The JCA provider for the MAC computation, or
+	 *                     {@code null} to use the default one.
+	 * @param reuse        {@code true} to reuse a pooled MAC instance.
+	 *
+	 * @return The HMAC, not truncated.
+	 *
+	 * @throws JOSEException If the HMAC computation failed.
+	 */
+	private static byte[] computeHMAC(final CompositeKey compositeKey,
+					  final byte[] aad,
+					  final byte[] iv,
+					  final byte[] cipherText,
+					  final Provider macProvider,
+					  final boolean reuse)
+		throws JOSEException {
+
+		// AAD length to 8 byte array
+		byte[] al = AAD.computeLength(aad);
+
+		Mac mac = HMAC.acquireInitMac(compositeKey.getMACKey(), macProvider, reuse);
+		mac.update(aad);
+		mac.update(iv);
+		mac.update(cipherText);
+		mac.update(al);
+		byte[] hmac = mac.doFinal(); // resets the MAC for reuse
+		HMAC.release(mac, macProvider, reuse);
+		return hmac;
+	}
+
+
 	/**
 	 * Encrypts the specified plain text using the deprecated concat KDF
 	 * from JOSE draft suite 09.
@@ -288,15 +400,49 @@ public class AESCBC {
 		                     final Provider provider)
 		throws JOSEException {
 
-		Cipher cipher = createAESCBCCipher(secretKey, false, iv, provider);
+		return decrypt(secretKey, iv, cipherText, provider, false);
+	}
+
+
+	/**
+	 * Decrypts the specified cipher text using AES/CBC/PKCS5Padding, with
+	 * the option to reuse a pooled cipher instance.
+	 *
+	 * @param secretKey  The AES key. Must not be {@code null}.
+	 * @param iv         The initialisation vector (IV). Must not be
+	 *                   {@code null}.
+	 * @param cipherText The cipher text. Must not be {@code null}.
+	 * @param provider   The JCA provider, or {@code null} to use the
+	 *                   default one.
+	 * @param reuse      {@code true} to reuse a pooled cipher instance,
+	 *                   see {@link CipherHelper#acquire}.
+	 *
+	 * @return The decrypted plain text.
+	 *
+	 * @throws JOSEException If decryption failed.
+	 */
+	public static byte[] decrypt(final SecretKey secretKey,
+		                     final byte[] iv,
+		                     final byte[] cipherText,
+		                     final Provider provider,
+		                     final boolean reuse)
+		throws JOSEException {
+
+		Cipher cipher = createAESCBCCipher(secretKey, false, iv, provider, reuse);
+
+		byte[] plainText;
 
 		try {
-			return cipher.doFinal(cipherText);
+			plainText = cipher.doFinal(cipherText);
 
 		} catch (Exception e) {
 
 			throw new JOSEException(e.getMessage(), e);
 		}
+
+		CipherHelper.release(TRANSFORMATION, provider, cipher, reuse);
+
+		return plainText;
 	}
 
 
@@ -334,22 +480,54 @@ public class AESCBC {
 						  final Provider macProvider)
 		throws JOSEException {
 
+		return decryptAuthenticated(secretKey, iv, cipherText, aad, authTag, ceProvider, macProvider, false);
+	}
+
+
+	/**
+	 * Decrypts the specified cipher text using AES/CBC/PKCS5Padding/
+	 * HMAC-SHA2, with the option to reuse pooled cipher and MAC
+	 * instances.
+	 * 
+	 * <p>See RFC 7518 (JWA), section 5.2.2.2
+	 *
+	 * <p>See draft-mcgrew-aead-aes-cbc-hmac-sha2-01
+	 *
+	 * @param secretKey   The secret key. Must be 256 or 512 bits long.
+	 *                    Must not be {@code null}.
+	 * @param iv          The initialisation vector (IV). Must not be
+	 *                    {@code null}.
+	 * @param cipherText  The cipher text. Must not be {@code null}.
+	 * @param aad         The additional authenticated data. Must not be
+	 *                    {@code null}.
+	 * @param authTag     The authentication tag. Must not be {@code null}.
+	 * @param ceProvider  The JCA provider for the content encryption, or
+	 *                    {@code null} to use the default one.
+	 * @param macProvider The JCA provider for the MAC computation, or
+	 *                    {@code null} to use the default one.
+	 * @param reuse       {@code true} to reuse pooled cipher and MAC
+	 *                    instances, see {@link CipherHelper#acquire}.
+	 *
+	 * @return The decrypted plain text.
+	 *
+	 * @throws JOSEException If decryption failed.
+	 */
+	public static byte[] decryptAuthenticated(final SecretKey secretKey,
+		                                  final byte[] iv,
+		                                  final byte[] cipherText,
+		                                  final byte[] aad,
+		                                  final byte[] authTag,
+		                                  final Provider ceProvider,
+		                                  final Provider macProvider,
+		                                  final boolean reuse)
+		throws JOSEException {
+
 
 		// Extract MAC + AES/CBC keys from input secret key
 		CompositeKey compositeKey = new CompositeKey(secretKey);
 
-		// AAD length to 8 byte array
-		byte[] al = AAD.computeLength(aad);
-
 		// Check MAC
-		int hmacInputLength = aad.length + iv.length + cipherText.length + al.length;
-		byte[] hmacInput = ByteBuffer.allocate(hmacInputLength).
-			put(aad).
-			put(iv).
-			put(cipherText).
-			put(al).
-			array();
-		byte[] hmac = HMAC.compute(compositeKey.getMACKey(), hmacInput, macProvider);
+		byte[] hmac = computeHMAC(compositeKey, aad, iv, cipherText, macProvider, reuse);
 
 		byte[] expectedAuthTag = Arrays.copyOf(hmac, compositeKey.getTruncatedMACByteLength());
 
@@ -357,7 +535,7 @@ public class AESCBC {
 			throw new JOSEException("MAC check failed");
 		}
 
-		return decrypt(compositeKey.getAESKey(), iv, cipherText, ceProvider);
+		return decrypt(compositeKey.getAESKey(), iv, cipherText, ceProvider, reuse);
 	}
 
 
@@ -24,6 +24,8 @@ import javax.crypto.*;
 import javax.crypto.spec.GCMParameterSpec;
 
 import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jca.AESGCMIVGenerator;
+import com.nimbusds.jose.jca.JWEJCAContext;
 import com.nimbusds.jose.util.ByteUtils;
 import com.nimbusds.jose.util.Container;
 import com.nimbusds.jose.util.KeyUtils;
@@ -39,7 +41,7 @@ import net.jcip.annotations.ThreadSafe;
  * @author Vladimir Dzhuvinov
  * @author Axel Nennker
  * @author Dimitar A. Stoikov
- * @version 2018-01-11
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class AESGCM {
@@ -57,6 +59,12 @@ public class AESGCM {
 	public static final int AUTH_TAG_BIT_LENGTH = 128;
 
 
+	/**
+	 * The JCA cipher transformation.
+	 */
+	private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+
 	/**
 	 * Generates a random 96 bit (12 byte) Initialisation Vector(IV) for
 	 * use in AES-GCM encryption.
@@ -76,6 +84,31 @@ public class AESGCM {
 	}
 
 
+	/**
+	 * Generates a 96 bit (12 byte) Initialisation Vector (IV) for use in
+	 * AES-GCM encryption, with the specific IV generator of the JCA
+	 * context if set, else at random with its secure random generator.
+	 *
+	 * @param jcaProvider The JWE JCA provider specification. Must not be
+	 *                    {@code null}.
+	 *
+	 * @return The 96 bit IV, as 12 byte array.
+	 *
+	 * @throws JOSEException If the IV generator failed.
+	 */
+	public static byte[] generateIV(final JWEJCAContext jcaProvider)
+		throws JOSEException {
+
+		AESGCMIVGenerator gcmIVGenerator = jcaProvider.getAESGCMIVGenerator();
+
+		if (gcmIVGenerator != null) {
+			return gcmIVGenerator.generateIV();
+		}
+
+		return generateIV(jcaProvider.getSecureRandom());
+	}
+
+
 	/**
 	 * Encrypts the specified plain text using AES/GCM/NoPadding.
 	 *
@@ -103,6 +136,39 @@ public class AESGCM {
 						      final Provider provider)
 		throws JOSEException {
 
+		return encrypt(secretKey, ivContainer, plainText, authData, provider, false);
+	}
+
+
+	/**
+	 * Encrypts the specified plain text using AES/GCM/NoPadding, with the
+	 * option to reuse a pooled cipher instance.
+	 *
+	 * @param secretKey   The AES key. Must not be {@code null}.
+	 * @param ivContainer The initialisation vector (IV). Must not be
+	 *                    {@code null}. This is both input and output
+	 *                    parameter. On input, it carries externally
+	 *                    generated IV; on output, it carries the IV the
+	 *                    cipher actually used.
+	 * @param plainText   The plain text. Must not be {@code null}.
+	 * @param authData    The authenticated data. Must not be {@code null}.
+	 * @param provider    The JCA provider, {@code null} to use the
+	 *                    default one.
+	 * @param reuse       {@code true} to reuse a pooled cipher instance,
+	 *                    see {@link CipherHelper#acquire}.
+	 *
+	 * @return The authenticated cipher text.
+	 *
+	 * @throws JOSEException If encryption failed.
+	 */
+	public static AuthenticatedCipherText encrypt(final SecretKey secretKey,
+						      final Container<byte[]> ivContainer,
+						      final byte[] plainText,
+						      final byte[] authData,
+						      final Provider provider,
+						      final boolean reuse)
+		throws JOSEException {
+
 		// Key alg must be "AES"
 		final SecretKey aesKey = KeyUtils.toAESKey(secretKey);
 		
@@ -111,11 +177,7 @@ public class AESGCM {
 		byte[] iv = ivContainer.get();
 
 		try {
-			if (provider != null) {
-				cipher = Cipher.getInstance("AES/GCM/NoPadding", provider);
-			} else {
-				cipher = Cipher.getInstance("AES/GCM/NoPadding");
-			}
+			cipher = CipherHelper.acquire(TRANSFORMATION, provider, reuse);
 
 			GCMParameterSpec gcmSpec = new GCMParameterSpec(AUTH_TAG_BIT_LENGTH, iv);
 			cipher.init(Cipher.ENCRYPT_MODE, aesKey, gcmSpec);
@@ -150,6 +212,8 @@ public class AESGCM {
 		// retrieve the actual IV used by the cipher -- it may be internally-generated.
 		ivContainer.set(actualIVOf(cipher));
 
+		CipherHelper.release(TRANSFORMATION, provider, cipher, reuse);
+
 		return new AuthenticatedCipherText(cipherText, authTag);
 	}
 
@@ -266,17 +330,45 @@ public class AESGCM {
 		                     final Provider provider)
 		throws JOSEException {
 		
+		return decrypt(secretKey, iv, cipherText, authData, authTag, provider, false);
+	}
+
+
+	/**
+	 * Decrypts the specified cipher text using AES/GCM/NoPadding, with the
+	 * option to reuse a pooled cipher instance.
+	 *
+	 * @param secretKey  The AES key. Must not be {@code null}.
+	 * @param iv         The initialisation vector (IV). Must not be
+	 *                   {@code null}.
+	 * @param cipherText The cipher text. Must not be {@code null}.
+	 * @param authData   The authenticated data. Must not be {@code null}.
+	 * @param authTag    The authentication tag. Must not be {@code null}.
+	 * @param provider   The JCA provider, {@code null} to use the default
+	 *                   one.
+	 * @param reuse      {@code true} to reuse a pooled cipher instance,
+	 *                   see {@link CipherHelper#acquire}.
+	 *
+	 * @return The decrypted plain text.
+	 *
+	 * @throws JOSEException If decryption failed.
+	 */
+	public static byte[] decrypt(final SecretKey secretKey, 
+		                     final byte[] iv,
+		                     final byte[] cipherText,
+		                     final byte[] authData,
+		                     final byte[] authTag,
+		                     final Provider provider,
+		                     final boolean reuse)
+		throws JOSEException {
+		
 		// Key alg must be "AES"
 		final SecretKey aesKey = KeyUtils.toAESKey(secretKey);
 		
 		Cipher cipher;
 
 		try {
-			if (provider != null) {
-				cipher = Cipher.getInstance("AES/GCM/NoPadding", provider);
-			} else {
-				cipher = Cipher.getInstance("AES/GCM/NoPadding");
-			}
+			cipher = CipherHelper.acquire(TRANSFORMATION, provider, reuse);
 
 			GCMParameterSpec gcmSpec = new GCMParameterSpec(AUTH_TAG_BIT_LENGTH, iv);
 			cipher.init(Cipher.DECRYPT_MODE, aesKey, gcmSpec);
@@ -293,13 +385,19 @@ public class AESGCM {
 
 		cipher.updateAAD(authData);
 
+		byte[] plainText;
+
 		try {
-			return cipher.doFinal(ByteUtils.concat(cipherText, authTag));
+			plainText = cipher.doFinal(ByteUtils.concat(cipherText, authTag));
 
 		} catch (IllegalBlockSizeException | BadPaddingException e) {
 
 			throw new JOSEException("AES/GCM/NoPadding decryption failed: " + e.getMessage(), e);
 		}
+
+		CipherHelper.release(TRANSFORMATION, provider, cipher, reuse);
+
+		return plainText;
 	}
 
 
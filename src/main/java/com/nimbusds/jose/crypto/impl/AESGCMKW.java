@@ -37,7 +37,7 @@ import net.jcip.annotations.ThreadSafe;
  *
  * @author Melisa Halsband
  * @author Vladimir Dzhuvinov
- * @version 2017-06-01
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class AESGCMKW {
@@ -66,7 +66,38 @@ public class AESGCMKW {
 							 Provider provider)
 		throws JOSEException {
 
-		return AESGCM.encrypt(kek, iv, cek.getEncoded(), new byte[0], provider);
+		return encryptCEK(cek, iv, kek, provider, false);
+	}
+
+
+	/**
+	 * Encrypts the specified Content Encryption Key (CEK), with the option
+	 * to reuse a pooled cipher instance.
+	 *
+	 * @param cek      The Content Encryption Key (CEK) to encrypt. Must
+	 *                 not be {@code null}.
+	 * @param iv       The initialisation vector (IV). Must not be
+	 *                 {@code null}. The contained IV must not be
+	 *                 {@code null} either.
+	 * @param kek      The AES Key Encryption Key (KEK). Must not be
+	 *                 {@code null}.
+	 * @param provider The specific JCA provider to use, {@code null}
+	 *                 implies the default system one.
+	 * @param reuse    {@code true} to reuse a pooled cipher instance, see
+	 *                 {@link CipherHelper#acquire}.
+	 *
+	 * @return The encrypted Content Encryption Key (CEK).
+	 *
+	 * @throws JOSEException If encryption failed.
+	 */
+	public static AuthenticatedCipherText encryptCEK(final SecretKey cek,
+							 final Container<byte[]> iv,
+							 final SecretKey kek,
+							 final Provider provider,
+							 final boolean reuse)
+		throws JOSEException {
+
+		return AESGCM.encrypt(kek, iv, cek.getEncoded(), new byte[0], provider, reuse);
 	}
 
 
@@ -94,7 +125,40 @@ public class AESGCMKW {
 					   final Provider provider)
 		throws JOSEException {
 
-		byte[] keyBytes = AESGCM.decrypt(kek, iv, authEncrCEK.getCipherText(), new byte[0], authEncrCEK.getAuthenticationTag(), provider);
+		return decryptCEK(kek, iv, authEncrCEK, keyLength, provider, false);
+	}
+
+
+	/**
+	 * Decrypts the specified encrypted Content Encryption Key (CEK), with
+	 * the option to reuse a pooled cipher instance.
+	 *
+	 * @param kek         The AES Key Encription Key. Must not be
+	 *                    {@code null}.
+	 * @param iv          The initialisation vector (IV). Must not be
+	 *                    {@code null}.
+	 * @param authEncrCEK The encrypted Content Encryption Key (CEK) to
+	 *                    decrypt and authentication tag. Must not be
+	 *                    {@code null}.
+	 * @param keyLength   The expected CEK length, in bits.
+	 * @param provider    The JCA provider, or {@code null} to use the
+	 *                    default one.
+	 * @param reuse       {@code true} to reuse a pooled cipher instance,
+	 *                    see {@link CipherHelper#acquire}.
+	 *
+	 * @return The decrypted Content Encryption Key (CEK).
+	 *
+	 * @throws JOSEException If decryption failed.
+	 */
+	public static SecretKey decryptCEK(final SecretKey kek,
+					   final byte[] iv,
+					   final AuthenticatedCipherText authEncrCEK,
+					   final int keyLength,
+					   final Provider provider,
+					   final boolean reuse)
+		throws JOSEException {
+
+		byte[] keyBytes = AESGCM.decrypt(kek, iv, authEncrCEK.getCipherText(), new byte[0], authEncrCEK.getAuthenticationTag(), provider, reuse);
 
 		if (ByteUtils.safeBitLength(keyBytes) != keyLength) {
 
@@ -39,12 +39,18 @@ import net.jcip.annotations.ThreadSafe;
  *
  * @author Melisa Halsband
  * @author Vladimir Dzhuvinov
- * @version 2018-03-09
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class AESKW {
 
 
+	/**
+	 * The JCA cipher transformation.
+	 */
+	private static final String TRANSFORMATION = "AESWrap";
+
+
 	/**
 	 * Wraps the specified Content Encryption Key (CEK).
 	 *
@@ -64,17 +70,39 @@ public class AESKW {
 				     final Provider provider)
 		throws JOSEException {
 
-		try {
-			Cipher cipher;
+		return wrapCEK(cek, kek, provider, false);
+	}
 
-			if (provider != null) {
-				cipher = Cipher.getInstance("AESWrap", provider);
-			} else {
-				cipher = Cipher.getInstance("AESWrap");
-			}
 
+	/**
+	 * Wraps the specified Content Encryption Key (CEK), with the option to
+	 * reuse a pooled cipher instance.
+	 *
+	 * @param cek      The Content Encryption Key (CEK) to wrap. Must not
+	 *                 be {@code null}.
+	 * @param kek      The AES Key Encryption Key (KEK) (wrapping key).
+	 *                 Must not be {@code null}.
+	 * @param provider The specific JCA provider to use, {@code null}
+	 *                 implies the default system one.
+	 * @param reuse    {@code true} to reuse a pooled cipher instance, see
+	 *                 {@link CipherHelper#acquire}.
+	 *
+	 * @return The wrapped Content Encryption Key (CEK).
+	 *
+	 * @throws JOSEException If wrapping failed.
+	 */
+	public static byte[] wrapCEK(final SecretKey cek,
+				     final SecretKey kek,
+				     final Provider provider,
+				     final boolean reuse)
+		throws JOSEException {
+
+		try {
+			Cipher cipher = CipherHelper.acquire(TRANSFORMATION, provider, reuse);
 			cipher.init(Cipher.WRAP_MODE, kek);
-			return cipher.wrap(cek);
+			byte[] wrappedCEK = cipher.wrap(cek);
+			CipherHelper.release(TRANSFORMATION, provider, cipher, reuse);
+			return wrappedCEK;
 
 		} catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeyException | IllegalBlockSizeException e) {
 			throw new JOSEException("Couldn't wrap AES key: " + e.getMessage(), e);
@@ -101,17 +129,39 @@ public class AESKW {
 					  final Provider provider)
 		throws JOSEException {
 
-		try {
-			Cipher cipher;
+		return unwrapCEK(kek, encryptedCEK, provider, false);
+	}
+
 
-			if (provider != null) {
-				cipher = Cipher.getInstance("AESWrap", provider);
-			} else {
-				cipher = Cipher.getInstance("AESWrap");
-			}
+	/**
+	 * Unwraps the specified encrypted Content Encryption Key (CEK), with
+	 * the option to reuse a pooled cipher instance.
+	 *
+	 * @param kek          The AES Key Encryption Key (KEK) (wrapping key).
+	 *                     Must not be {@code null}.
+	 * @param encryptedCEK The wrapped Content Encryption Key (CEK) with
+	 *                     authentication tag. Must not be {@code null}.
+	 * @param provider     The specific JCA provider to use, {@code null}
+	 *                     implies the default system one.
+	 * @param reuse        {@code true} to reuse a pooled cipher instance,
+	 *                     see {@link CipherHelper#acquire}.
+	 *
+	 * @return The unwrapped Content Encryption Key (CEK).
+	 *
+	 * @throws JOSEException If unwrapping failed.
+	 */
+	public static SecretKey unwrapCEK(final SecretKey kek,
+					  final byte[] encryptedCEK,
+					  final Provider provider,
+					  final boolean reuse)
+		throws JOSEException {
 
+		try {
+			Cipher cipher = CipherHelper.acquire(TRANSFORMATION, provider, reuse);
 			cipher.init(Cipher.UNWRAP_MODE, KeyUtils.toAESKey(kek)); // Make sure key alg is "AES"
-			return (SecretKey)cipher.unwrap(encryptedCEK, "AES", Cipher.SECRET_KEY);
+			SecretKey cek = (SecretKey)cipher.unwrap(encryptedCEK, "AES", Cipher.SECRET_KEY);
+			CipherHelper.release(TRANSFORMATION, provider, cipher, reuse);
+			return cek;
 
 		} catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeyException e) {
 
@@ -29,13 +29,28 @@ import net.jcip.annotations.ThreadSafe;
 /**
  * Helper utilities for instantiating ciphers.
  *
+ * <p>Also keeps a shared {@link JCAEnginePool pool} of cipher instances by
+ * transformation and provider, for reuse when
+ * {@link com.nimbusds.jose.jca.JCAContext#isEngineReuseEnabled() enabled}
+ * in the JCA context. A pooled cipher must be initialised before each use,
+ * with the key and parameters of the operation, which resets it. The AES
+ * key schedule of JCA providers which cache it, such as SunJCE, is kept
+ * when a cipher is initialised with the same key again.
+ *
  * @author Cedric Staub
- * @version 2014-01-22
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class CipherHelper {
 
 
+	/**
+	 * The pool of cipher instances, keyed by transformation.
+	 */
+	private static final JCAEnginePool<Cipher> CIPHER_POOL = new JCAEnginePool<>();
+
+
 	/**
 	 * Instantiates a cipher with an (optional) JCA provider.
 	 *
@@ -52,4 +67,42 @@ public class CipherHelper {
 			return Cipher.getInstance(name, provider);
 		}
 	}
+
+
+	/**
+	 * Takes a cipher out of the pool, or instantiates a new one if none
+	 * is available. The cipher must be initialised before use.
+	 *
+	 * @param name     The name of the cipher. Must not be {@code null}.
+	 * @param provider The JCA provider, or {@code null} to use the default
+	 *                 one.
+	 * @param reuse    {@code true} to take a pooled cipher if available,
+	 *                 {@code false} to always instantiate a new one.
+	 *
+	 * @return The cipher.
+	 */
+	public static Cipher acquire(final String name, final Provider provider, final boolean reuse)
+		throws NoSuchAlgorithmException, NoSuchPaddingException {
+
+		Cipher cipher = reuse ? CIPHER_POOL.acquire(name, provider) : null;
+		return cipher != null ? cipher : getInstance(name, provider);
+	}
+
+
+	/**
+	 * Returns a cipher to the pool, after a completed operation.
+	 *
+	 * @param name     The name of the cipher. Must not be {@code null}.
+	 * @param provider The JCA provider, or {@code null} for the default
+	 *                 one.
+	 * @param cipher   The cipher. Must not be {@code null}.
+	 * @param reuse    {@code true} to return the cipher to the pool,
+	 *                 {@code false} to discard it.
+	 */
+	public static void release(final String name, final Provider provider, final Cipher cipher, final boolean reuse) {
+
+		if (reuse) {
+			CIPHER_POOL.release(name, provider, cipher);
+		}
+	}
 }
@@ -34,8 +34,14 @@ import com.nimbusds.jose.util.IntegerOverflowException;
 /**
  * JWE content encryption / decryption provider.
  *
+ * <p>The AES/GCM and AES/CBC/HMAC-SHA2 cipher and MAC instances are reused
+ * if {@link JWEJCAContext#isEngineReuseEnabled() enabled} in the JCA
+ * context, for direct encryption ({@code "alg":"dir"}) only. With the other
+ * JWE algorithms the CEK is generated per message and pooled instances
+ * would retain it.
+ *
  * @author Vladimir Dzhuvinov
- * @version 2017-06-01
+ * @version 2022-06-01
  */
 public class ContentCryptoProvider {
 
@@ -126,7 +132,7 @@ public class ContentCryptoProvider {
 	 * @throws KeyLengthException If the CEK length doesn't match the
 	 *                            encryption method.
 	 */
-	private static void checkCEKLength(final SecretKey cek, final EncryptionMethod enc)
+	static void checkCEKLength(final SecretKey cek, final EncryptionMethod enc)
 		throws KeyLengthException {
 
 		try {
@@ -139,6 +145,25 @@ public class ContentCryptoProvider {
 	}
 
 
+	/**
+	 * Returns {@code true} if the cipher and MAC instances for the
+	 * content encryption of the specified JWE may be taken from and
+	 * returned to the shared pools. Only the long-lived key of direct
+	 * encryption is reused, a per-message CEK must not be retained by
+	 * pooled instances.
+	 *
+	 * @param header      The JWE header. Must not be {@code null}.
+	 * @param jcaProvider The JWE JCA provider specification. Must not be
+	 *                    {@code null}.
+	 *
+	 * @return {@code true} if the engines may be reused.
+	 */
+	static boolean isEngineReuse(final JWEHeader header, final JWEJCAContext jcaProvider) {
+
+		return jcaProvider.isEngineReuseEnabled() && JWEAlgorithm.DIR.equals(header.getAlgorithm());
+	}
+
+
 	/**
 	 * Encrypts the specified clear text (content).
 	 *
@@ -183,17 +208,19 @@ public class ContentCryptoProvider {
 			authCipherText = AESCBC.encryptAuthenticated(
 				cek, iv, plainText, aad,
 				jcaProvider.getContentEncryptionProvider(),
-				jcaProvider.getMACProvider());
+				jcaProvider.getMACProvider(),
+				isEngineReuse(header, jcaProvider));
 
 		} else if (header.getEncryptionMethod().equals(EncryptionMethod.A128GCM) ||
 			   header.getEncryptionMethod().equals(EncryptionMethod.A192GCM) ||
 			   header.getEncryptionMethod().equals(EncryptionMethod.A256GCM)    ) {
 
-			Container<byte[]> ivContainer = new Container<>(AESGCM.generateIV(jcaProvider.getSecureRandom()));
+			Container<byte[]> ivContainer = new Container<>(AESGCM.generateIV(jcaProvider));
 
 			authCipherText = AESGCM.encrypt(
 				cek, ivContainer, plainText, aad,
-				jcaProvider.getContentEncryptionProvider());
+				jcaProvider.getContentEncryptionProvider(),
+				isEngineReuse(header, jcaProvider));
 
 			iv = ivContainer.get();
 
@@ -280,7 +307,8 @@ public class ContentCryptoProvider {
 				aad,
 				authTag.decode(),
 				jcaProvider.getContentEncryptionProvider(),
-				jcaProvider.getMACProvider());
+				jcaProvider.getMACProvider(),
+				isEngineReuse(header, jcaProvider));
 
 		} else if (header.getEncryptionMethod().equals(EncryptionMethod.A128GCM) ||
 			header.getEncryptionMethod().equals(EncryptionMethod.A192GCM) ||
@@ -292,7 +320,8 @@ public class ContentCryptoProvider {
 				cipherText.decode(),
 				aad,
 				authTag.decode(),
-				jcaProvider.getContentEncryptionProvider());
+				jcaProvider.getContentEncryptionProvider(),
+				isEngineReuse(header, jcaProvider));
 
 		} else if (header.getEncryptionMethod().equals(EncryptionMethod.A128CBC_HS256_DEPRECATED) ||
 			header.getEncryptionMethod().equals(EncryptionMethod.A256CBC_HS512_DEPRECATED)) {
@@ -0,0 +1,241 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.nimbusds.jose.crypto.impl;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jca.AESGCMIVGenerator;
+
+
+/**
+ * Deterministic construction of AES/GCM Initialisation Vectors (IV), a 32 bit
+ * fixed field followed by a 64 bit invocation counter. The counter is
+ * incremented with an atomic operation, so IVs are generated without locking
+ * and without consuming secure random bytes.
+ *
+ * <p>The IVs are unique for a key only if no two generator lifetimes with
+ * the key share a fixed field and counter range. The counter of a new
+ * generator starts at the specified initial invocation, zero by default.
+ * A generator re-created with the same fixed field and initial invocation,
+ * for example after a restart or redeploy, repeats the IVs of its previous
+ * lifetime, which with AES/GCM breaks the confidentiality and integrity of
+ * the encrypted content. The application must therefore either assign a
+ * fixed field unique to each generator lifetime, for example from a
+ * persisted counter incremented on each start, or persist the
+ * {@link #getInvocations() invocations} and resume from them.
+ *
+ * <p>When the invocation counter reaches the maximum number of invocations
+ * the generator refuses to produce further IVs. The key must then be
+ * replaced, and a new generator created for the new key.
+ *
+ * <p>See NIST SP 800-38D, section 8.2.1.
+ *
+ * <p>Example use with a direct JWE encrypter, the fixed field being unique
+ * to this generator lifetime among all encrypters of the key:
+ *
+ * <pre>
+ * DirectEncrypter encrypter = new DirectEncrypter(key);
+ * encrypter.getJCAContext().setAESGCMIVGenerator(new CounterAESGCMIVGenerator(fixedField));
+ * </pre>
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@ThreadSafe
+public class CounterAESGCMIVGenerator implements AESGCMIVGenerator {
+
+
+	/**
+	 * The fixed field length in bytes.
+	 */
+	public static final int FIXED_FIELD_BYTE_LENGTH = 4;
+
+
+	/**
+	 * The default maximum number of invocations.
+	 */
+	public static final long DEFAULT_MAX_INVOCATIONS = Long.MAX_VALUE;
+
+
+	/**
+	 * The fixed field.
+	 */
+	private final byte[] fixedField;
+
+
+	/**
+	 * The maximum number of invocations.
+	 */
+	private final long maxInvocations;
+
+
+	/**
+	 * The invocation counter.
+	 */
+	private final AtomicLong counter;
+
+
+	/**
+	 * Creates a new counter based AES/GCM IV generator with the default
+	 * maximum number of invocations.
+	 *
+	 * @param fixedField The fixed field, unique among the generator
+	 *                   lifetimes with the key, as 4 byte array. Must not
+	 *                   be {@code null}.
+	 */
+	public CounterAESGCMIVGenerator(final byte[] fixedField) {
+
+		this(fixedField, 0L, DEFAULT_MAX_INVOCATIONS);
+	}
+
+
+	/**
+	 * Creates a new counter based AES/GCM IV generator.
+	 *
+	 * @param fixedField     The fixed field, unique among the generator
+	 *                       lifetimes with the key, as 4 byte array. Must
+	 *                       not be {@code null}.
+	 * @param maxInvocations The maximum number of invocations, after
+	 *                       which the key must be replaced. Must be
+	 *                       positive.
+	 */
+	public CounterAESGCMIVGenerator(final byte[] fixedField, final long maxInvocations) {
+
+		this(fixedField, 0L, maxInvocations);
+	}
+
+
+	/**
+	 * Creates a new counter based AES/GCM IV generator resuming from a
+	 * persisted invocation counter.
+	 *
+	 * @param fixedField        The fixed field, as 4 byte array. Must not
+	 *                          be {@code null}.
+	 * @param initialInvocation The initial invocation, not less than the
+	 *                          {@link #getInvocations() invocations}
+	 *                          persisted from all previous generator
+	 *                          lifetimes with the fixed field and key.
+	 *                          Must not be negative.
+	 * @param maxInvocations    The maximum number of invocations, after
+	 *                          which the key must be replaced. Must be
+	 *                          positive.
+	 */
+	public CounterAESGCMIVGenerator(final byte[] fixedField, final long initialInvocation, final long maxInvocations) {
+
+		if (fixedField == null) {
+			throw new IllegalArgumentException("The fixed field must not be null");
+		}
+
+		if (fixedField.length != FIXED_FIELD_BYTE_LENGTH) {
+			throw new IllegalArgumentException("The fixed field must be " + FIXED_FIELD_BYTE_LENGTH + " bytes long");
+		}
+		this.fixedField = fixedField.clone();
+
+		if (maxInvocations < 1) {
+			throw new IllegalArgumentException("The maximum number of invocations must be positive");
+		}
+		this.maxInvocations = maxInvocations;
+
+		if (initialInvocation < 0) {
+			throw new IllegalArgumentException("The initial invocation must not be negative");
+		}
+		counter = new AtomicLong(initialInvocation);
+	}
+
+
+	/**
+	 * Returns the maximum number of invocations.
+	 *
+	 * @return The maximum number of invocations.
+	 */
+	public long getMaxInvocations() {
+
+		return maxInvocations;
+	}
+
+
+	/**
+	 * Returns the fixed field.
+	 *
+	 * @return The fixed field, as 4 byte array.
+	 */
+	public byte[] getFixedField() {
+
+		return fixedField.clone();
+	}
+
+
+	/**
+	 * Returns the invocation counter, i.e. the initial invocation plus
+	 * the number of generated IVs. To be persisted if a later generator
+	 * lifetime resumes with the same fixed field.
+	 *
+	 * @return The invocation counter.
+	 */
+	public long getInvocations() {
+
+		return counter.get();
+	}
+
+
+	/**
+	 * Returns {@code true} if the maximum number of invocations has been
+	 * reached and the key must be replaced.
+	 *
+	 * @return {@code true} if exhausted.
+	 */
+	public boolean isExhausted() {
+
+		return counter.get() >= maxInvocations;
+	}
+
+
+	/**
+	 * Generates a new 96 bit IV.
+	 *
+	 * @return The IV, as 12 byte array.
+	 *
+	 * @throws JOSEException If the maximum number of invocations has been
+	 *                       reached, the key must be replaced.
+	 */
+	@Override
+	public byte[] generateIV()
+		throws JOSEException {
+
+		long invocation;
+		do {
+			invocation = counter.get();
+			if (invocation >= maxInvocations) {
+				throw new JOSEException("The AES/GCM IV counter is exhausted, the key must be replaced");
+			}
+		} while (! counter.compareAndSet(invocation, invocation + 1));
+
+		byte[] iv = new byte[AESGCM.IV_BIT_LENGTH / 8];
+		System.arraycopy(fixedField, 0, iv, 0, FIXED_FIELD_BYTE_LENGTH);
+		for (int i = iv.length - 1; i >= FIXED_FIELD_BYTE_LENGTH; i--) {
+			iv[i] = (byte) invocation;
+			invocation >>>= 8;
+		}
+		return iv;
+	}
+}
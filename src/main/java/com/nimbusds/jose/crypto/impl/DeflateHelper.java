@@ -29,8 +29,11 @@ import net.jcip.annotations.ThreadSafe;
  * Deflate (RFC 1951) helper methods, intended for use by JWE encrypters and
  * decrypters. This class is thread-safe.
  *
+ * <p>The decompressed plain text is limited to the
+ * {@link DeflateUtils#getMaxInflatedSize() maximum inflated size}.
+ *
  * @author Vladimir Dzhuvinov
- * @version 2014-07-08
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class DeflateHelper {
@@ -81,8 +84,10 @@ public class DeflateHelper {
 	 *
 	 * @return The output bytes, decompressed if requested.
 	 *
-	 * @throws JOSEException If decompression failed or the requested 
-	 *                       compression algorithm is not supported.
+	 * @throws JOSEException If decompression failed, the decompressed
+	 *                       plain text exceeds the maximum inflated size
+	 *                       or the requested compression algorithm is not
+	 *                       supported.
 	 */
 	public static byte[] applyDecompression(final JWEHeader jweHeader, final byte[] bytes)
 		throws JOSEException {
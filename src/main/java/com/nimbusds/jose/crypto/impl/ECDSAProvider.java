@@ -18,6 +18,7 @@
 package com.nimbusds.jose.crypto.impl;
 
 
+import java.security.Signature;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
@@ -42,7 +43,7 @@ import com.nimbusds.jose.JWSAlgorithm;
  * 
  * @author Axel Nennker
  * @author Vladimir Dzhuvinov
- * @version 2022-04-21
+ * @version 2022-06-01
  */
 public abstract class ECDSAProvider extends BaseJWSProvider {
 
@@ -63,6 +64,12 @@ public abstract class ECDSAProvider extends BaseJWSProvider {
 	}
 
 
+	/**
+	 * The pool of initialised JCA signature engines.
+	 */
+	private final JCAEnginePool<Signature> signaturePool = new JCAEnginePool<>();
+
+
 	/**
 	 * Creates a new Elliptic Curve Digital Signature Algorithm (ECDSA) 
 	 * provider.
@@ -94,5 +101,16 @@ public abstract class ECDSAProvider extends BaseJWSProvider {
 		
 		return supportedJWSAlgorithms().iterator().next();
 	}
-}
 
+
+	/**
+	 * Returns the pool of initialised JCA signature engines for this
+	 * signer / verifier.
+	 *
+	 * @return The signature engine pool.
+	 */
+	protected JCAEnginePool<Signature> getSignaturePool() {
+
+		return signaturePool;
+	}
+}
@@ -35,12 +35,18 @@ import net.jcip.annotations.ThreadSafe;
  *
  * @author Axel Nennker
  * @author Vladimir Dzhuvinov
- * @version 2015-04-23
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class HMAC {
 
 
+	/**
+	 * The pool of MAC instances, keyed by algorithm.
+	 */
+	private static final JCAEnginePool<Mac> MAC_POOL = new JCAEnginePool<>();
+
+
 	public static Mac getInitMac(final SecretKey secretKey,
 				     final Provider provider)
 		throws JOSEException {
@@ -69,6 +75,61 @@ public class HMAC {
 	}
 
 
+	/**
+	 * Initialises a MAC service instance for the specified secret key,
+	 * taken out of a shared pool if reuse is enabled and one is
+	 * available.
+	 *
+	 * @param secretKey The secret key, with the appropriate HMAC
+	 *                  algorithm. Must not be {@code null}.
+	 * @param provider  The JCA provider, or {@code null} to use the
+	 *                  default one.
+	 * @param reuse     {@code true} to take a pooled MAC if available.
+	 *
+	 * @return The initialised MAC service instance.
+	 *
+	 * @throws JOSEException If the algorithm is not supported or the
+	 *                       MAC secret key is invalid.
+	 */
+	public static Mac acquireInitMac(final SecretKey secretKey,
+					 final Provider provider,
+					 final boolean reuse)
+		throws JOSEException {
+
+		Mac mac = reuse ? MAC_POOL.acquire(secretKey.getAlgorithm(), provider) : null;
+
+		if (mac == null) {
+			return getInitMac(secretKey, provider);
+		}
+
+		try {
+			mac.init(secretKey);
+		} catch (InvalidKeyException e) {
+			throw new JOSEException("Invalid HMAC key: " + e.getMessage(), e);
+		}
+
+		return mac;
+	}
+
+
+	/**
+	 * Returns a MAC service instance to the shared pool, after a
+	 * completed operation.
+	 *
+	 * @param mac      The MAC service instance. Must not be {@code null}.
+	 * @param provider The JCA provider, or {@code null} for the default
+	 *                 one.
+	 * @param reuse    {@code true} to return the MAC to the pool,
+	 *                 {@code false} to discard it.
+	 */
+	public static void release(final Mac mac, final Provider provider, final boolean reuse) {
+
+		if (reuse) {
+			MAC_POOL.release(mac.getAlgorithm(), provider, mac);
+		}
+	}
+
+
 	/**
 	 * Computes a Hash-based Message Authentication Code (HMAC) for the
 	 * specified secret and message.
@@ -0,0 +1,204 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.crypto.impl;
+
+
+import java.security.Provider;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.jcip.annotations.ThreadSafe;
+
+
+/**
+ * Striped pool of initialised Java Cryptography Architecture (JCA) engines,
+ * such as {@link java.security.Signature} and {@link javax.crypto.Mac}
+ * instances, keyed by algorithm name and provider. Intended to be held by
+ * a signer, verifier or other crypto provider instance, which implies the
+ * key the pooled engines are initialised with.
+ *
+ * <p>Each algorithm has a fixed number of slots, selected by the ID of the
+ * calling thread. An engine is taken out of its slot while in use, so it is
+ * never shared between threads. Engines in excess of the slot capacity are
+ * discarded on release.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@ThreadSafe
+public class JCAEnginePool<T> {
+
+
+	/**
+	 * The default number of slots per algorithm, the smallest power of
+	 * two not less than twice the number of available processors, up to
+	 * 64.
+	 */
+	public static final int DEFAULT_SLOTS;
+
+
+	static {
+		int slots = 1;
+		int target = Math.min(64, 2 * Runtime.getRuntime().availableProcessors());
+		while (slots < target) {
+			slots <<= 1;
+		}
+		DEFAULT_SLOTS = slots;
+	}
+
+
+	/**
+	 * The engine slots for an algorithm and provider.
+	 */
+	private static final class Slots<T> {
+
+
+		/**
+		 * The JCA provider, {@code null} for the default.
+		 */
+		private final Provider provider;
+
+
+		/**
+		 * The pooled engines.
+		 */
+		private final AtomicReferenceArray<T> engines;
+
+
+		private Slots(final Provider provider, final int size) {
+			this.provider = provider;
+			engines = new AtomicReferenceArray<>(size);
+		}
+	}
+
+
+	/**
+	 * The number of slots per algorithm, a power of two.
+	 */
+	private final int numSlots;
+
+
+	/**
+	 * The engine slots, keyed by algorithm name.
+	 */
+	private final ConcurrentMap<String, Slots<T>> slotsMap = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Creates a new JCA engine pool with the {@link #DEFAULT_SLOTS
+	 * default number of slots} per algorithm.
+	 */
+	public JCAEnginePool() {
+
+		this(DEFAULT_SLOTS);
+	}
+
+
+	/**
+	 * Creates a new JCA engine pool.
+	 *
+	 * @param numSlots The number of slots per algorithm, must be a
+	 *                 positive power of two.
+	 */
+	public JCAEnginePool(final int numSlots) {
+
+		if (numSlots < 1 || Integer.bitCount(numSlots) != 1) {
+			throw new IllegalArgumentException("The number of slots must be a positive power of two");
+		}
+		this.numSlots = numSlots;
+	}
+
+
+	/**
+	 * Returns the number of slots per algorithm.
+	 *
+	 * @return The number of slots.
+	 */
+	public int getNumSlots() {
+
+		return numSlots;
+	}
+
+
+	/**
+	 * Returns the slot index for the calling thread.
+	 *
+	 * @return The slot index.
+	 */
+	private int slotIndex() {
+
+		return (int) Thread.currentThread().getId() & (numSlots - 1);
+	}
+
+
+	/**
+	 * Takes an engine for the specified algorithm and provider out of the
+	 * pool.
+	 *
+	 * @param alg      The algorithm name, e.g. the JCA or JOSE algorithm
+	 *                 name. Must not be {@code null}.
+	 * @param provider The JCA provider, {@code null} for the default.
+	 *
+	 * @return The engine, {@code null} if none is available and a new one
+	 *         must be created.
+	 */
+	public T acquire(final String alg, final Provider provider) {
+
+		Slots<T> slots = slotsMap.get(alg);
+
+		if (slots == null || slots.provider != provider) {
+			return null;
+		}
+
+		return slots.engines.getAndSet(slotIndex(), null);
+	}
+
+
+	/**
+	 * Returns an engine to the pool. The engine must be in a state
+	 * allowing its reuse, e.g. a {@link java.security.Signature} after a
+	 * completed sign or verify operation. Engines for a different provider
+	 * than the currently pooled ones replace them.
+	 *
+	 * @param alg      The algorithm name, e.g. the JCA or JOSE algorithm
+	 *                 name. Must not be {@code null}.
+	 * @param provider The JCA provider, {@code null} for the default.
+	 * @param engine   The engine. Must not be {@code null}.
+	 */
+	public void release(final String alg, final Provider provider, final T engine) {
+
+		Slots<T> slots = slotsMap.get(alg);
+
+		if (slots == null || slots.provider != provider) {
+			slots = new Slots<>(provider, numSlots);
+			slotsMap.put(alg, slots);
+		}
+
+		slots.engines.compareAndSet(slotIndex(), null, engine);
+	}
+
+
+	/**
+	 * Discards all pooled engines.
+	 */
+	public void clear() {
+
+		slotsMap.clear();
+	}
+}
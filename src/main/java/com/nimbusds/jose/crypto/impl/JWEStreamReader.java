@@ -0,0 +1,297 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.nimbusds.jose.crypto.impl;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import com.nimbusds.jose.Header;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.util.Base64URL;
+
+
+/**
+ * Reader of a JSON Web Encryption (JWE) object in compact serialisation from
+ * an input stream. The header, encrypted key and initialisation vector (IV)
+ * parts are read on construction, the cipher text is decoded in chunks and
+ * the authentication tag is read last.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@NotThreadSafe
+public class JWEStreamReader {
+
+
+	/**
+	 * The maximum length of the header, encrypted key, IV and
+	 * authentication tag parts, in characters.
+	 */
+	public static final int MAX_PART_LENGTH = 4 * ((Header.MAX_HEADER_STRING_LENGTH + 2) / 3);
+
+
+	/**
+	 * The cipher text chunk length, in characters. A multiple of 4.
+	 */
+	private static final int CHUNK_LENGTH = 8192;
+
+
+	/**
+	 * The input stream.
+	 */
+	private final InputStream in;
+
+
+	/**
+	 * The input buffer.
+	 */
+	private final byte[] buf = new byte[8192];
+
+
+	/**
+	 * The position and limit in the input buffer.
+	 */
+	private int pos, limit;
+
+
+	/**
+	 * The cipher text chunk characters.
+	 */
+	private final StringBuilder chunk = new StringBuilder(CHUNK_LENGTH);
+
+
+	/**
+	 * {@code true} when the cipher text has been read.
+	 */
+	private boolean cipherTextRead = false;
+
+
+	/**
+	 * The JWE header.
+	 */
+	private final JWEHeader header;
+
+
+	/**
+	 * The encrypted key, {@code null} if none.
+	 */
+	private final Base64URL encryptedKey;
+
+
+	/**
+	 * The IV, {@code null} if none.
+	 */
+	private final Base64URL iv;
+
+
+	/**
+	 * Creates a new JWE stream reader, reads the header, encrypted key and
+	 * IV parts.
+	 *
+	 * @param in The input stream for the JWE in compact serialisation.
+	 *           Must not be {@code null}.
+	 *
+	 * @throws IOException    If reading failed.
+	 * @throws ParseException If the JWE header, encrypted key or IV
+	 *                        couldn't be parsed.
+	 */
+	public JWEStreamReader(final InputStream in)
+		throws IOException, ParseException {
+
+		if (in == null) {
+			throw new IllegalArgumentException("The input stream must not be null");
+		}
+		this.in = in;
+
+		Base64URL encodedHeader = readPart(false);
+		if (encodedHeader == null) {
+			throw new ParseException("Missing JWE header", 0);
+		}
+
+		try {
+			header = JWEHeader.parse(encodedHeader);
+		} catch (ParseException e) {
+			throw new ParseException("Invalid JWE header: " + e.getMessage(), 0);
+		}
+
+		encryptedKey = readPart(false);
+		iv = readPart(false);
+	}
+
+
+	/**
+	 * Returns the JWE header.
+	 *
+	 * @return The JWE header.
+	 */
+	public JWEHeader getHeader() {
+
+		return header;
+	}
+
+
+	/**
+	 * Returns the encrypted key.
+	 *
+	 * @return The encrypted key, {@code null} if none.
+	 */
+	public Base64URL getEncryptedKey() {
+
+		return encryptedKey;
+	}
+
+
+	/**
+	 * Returns the initialisation vector (IV).
+	 *
+	 * @return The IV, {@code null} if none.
+	 */
+	public Base64URL getIV() {
+
+		return iv;
+	}
+
+
+	/**
+	 * Reads and decodes the next cipher text chunk.
+	 *
+	 * @return The decoded chunk, {@code null} at the end of the cipher
+	 *         text.
+	 *
+	 * @throws IOException    If reading failed.
+	 * @throws ParseException If the cipher text is not valid Base64URL or
+	 *                        isn't followed by an authentication tag part.
+	 */
+	public byte[] readCipherText()
+		throws IOException, ParseException {
+
+		if (cipherTextRead) {
+			return null;
+		}
+
+		chunk.setLength(0);
+
+		while (chunk.length() < CHUNK_LENGTH) {
+
+			int c = read();
+
+			if (c == '.') {
+				cipherTextRead = true;
+				break;
+			} else if (c == -1) {
+				throw new ParseException("Unexpected number of Base64URL parts, must be five", 0);
+			} else if (! isBase64URLChar(c)) {
+				throw new ParseException("Invalid JWE cipher text: Illegal Base64URL character", 0);
+			}
+
+			chunk.append((char) c);
+		}
+
+		if (chunk.length() % 4 == 1) {
+			throw new ParseException("Invalid JWE cipher text: Illegal Base64URL length", 0);
+		}
+
+		if (cipherTextRead && chunk.length() == 0) {
+			return null;
+		}
+
+		return new Base64URL(chunk.toString()).decode();
+	}
+
+
+	/**
+	 * Reads the authentication tag, which must be the last part. Must be
+	 * called after the cipher text has been read.
+	 *
+	 * @return The authentication tag, {@code null} if none.
+	 *
+	 * @throws IOException    If reading failed.
+	 * @throws ParseException If the authentication tag couldn't be read.
+	 */
+	public Base64URL readAuthTag()
+		throws IOException, ParseException {
+
+		if (! cipherTextRead) {
+			throw new IllegalStateException("The cipher text must be read first");
+		}
+
+		return readPart(true);
+	}
+
+
+	/**
+	 * Reads a part up to the next dot, or to the end of the stream if the
+	 * part is the last.
+	 *
+	 * @param last {@code true} if the part is the last.
+	 *
+	 * @return The part, {@code null} if empty.
+	 */
+	private Base64URL readPart(final boolean last)
+		throws IOException, ParseException {
+
+		StringBuilder sb = new StringBuilder();
+
+		while (true) {
+
+			int c = read();
+
+			if (c == '.' && ! last || c == -1 && last) {
+				break;
+			} else if (c == '.' || c == -1) {
+				throw new ParseException("Unexpected number of Base64URL parts, must be five", 0);
+			} else if (! isBase64URLChar(c)) {
+				throw new ParseException("Invalid JWE: Illegal Base64URL character", 0);
+			}
+
+			if (sb.length() == MAX_PART_LENGTH) {
+				throw new ParseException("Invalid JWE: Part exceeds " + MAX_PART_LENGTH + " characters", 0);
+			}
+
+			sb.append((char) c);
+		}
+
+		return sb.length() > 0 ? new Base64URL(sb.toString()) : null;
+	}
+
+
+	private int read()
+		throws IOException {
+
+		if (pos == limit) {
+			limit = in.read(buf);
+			pos = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+		return buf[pos++] & 0xff;
+	}
+
+
+	private static boolean isBase64URLChar(final int c) {
+
+		return c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-' || c == '_';
+	}
+}
@@ -18,9 +18,11 @@
 package com.nimbusds.jose.crypto.impl;
 
 
+import java.security.Provider;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 
@@ -43,7 +45,7 @@ import com.nimbusds.jose.util.StandardCharset;
  * </ul>
  * 
  * @author Vladimir Dzhuvinov
- * @version 2016-07-27
+ * @version 2022-06-01
  */
 public abstract class MACProvider extends BaseJWSProvider {
 
@@ -95,6 +97,12 @@ public abstract class MACProvider extends BaseJWSProvider {
 	 * The secret.
 	 */
 	private final byte[] secret;
+	
+	
+	/**
+	 * The pool of initialised MAC engines.
+	 */
+	private final JCAEnginePool<Mac> macPool = new JCAEnginePool<>();
 
 
 	/**
@@ -144,6 +152,41 @@ public abstract class MACProvider extends BaseJWSProvider {
 	}
 
 
+	/**
+	 * Computes the HMAC of the specified input with the secret. Reuses
+	 * the initialised MAC engines if enabled in the JCA context.
+	 *
+	 * @param jcaAlg The JCA HMAC algorithm name. Must not be
+	 *               {@code null}.
+	 * @param input  The input. Must not be {@code null}.
+	 *
+	 * @return The HMAC.
+	 *
+	 * @throws JOSEException If the algorithm is not supported or the
+	 *                       secret is invalid.
+	 */
+	protected byte[] computeHMAC(final String jcaAlg, final byte[] input)
+		throws JOSEException {
+		
+		final Provider provider = getJCAContext().getProvider();
+		
+		if (! getJCAContext().isEngineReuseEnabled()) {
+			return HMAC.compute(jcaAlg, secret, input, provider);
+		}
+		
+		Mac mac = macPool.acquire(jcaAlg, provider);
+		
+		if (mac == null) {
+			mac = HMAC.getInitMac(new SecretKeySpec(secret, jcaAlg), provider);
+		}
+		
+		mac.update(input);
+		byte[] hmac = mac.doFinal(); // resets the MAC for reuse
+		macPool.release(jcaAlg, provider, mac);
+		return hmac;
+	}
+
+
 	/**
 	 * Gets the secret as a UTF-8 encoded string.
 	 *
@@ -18,6 +18,7 @@
 package com.nimbusds.jose.crypto.impl;
 
 
+import java.security.Signature;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
@@ -41,7 +42,7 @@ import com.nimbusds.jose.JWSAlgorithm;
  * </ul>
  * 
  * @author Vladimir Dzhuvinov
- * @version 2015-05-31
+ * @version 2022-06-01
  */
 public abstract class RSASSAProvider extends BaseJWSProvider {
 
@@ -64,6 +65,12 @@ public abstract class RSASSAProvider extends BaseJWSProvider {
 	}
 
 
+	/**
+	 * The pool of initialised JCA signature engines.
+	 */
+	private final JCAEnginePool<Signature> signaturePool = new JCAEnginePool<>();
+
+
 	/**
 	 * Creates a new RSASSA provider.
 	 */
@@ -71,5 +78,16 @@ public abstract class RSASSAProvider extends BaseJWSProvider {
 
 		super(SUPPORTED_ALGORITHMS);
 	}
-}
 
+
+	/**
+	 * Returns the pool of initialised JCA signature engines for this
+	 * signer / verifier.
+	 *
+	 * @return The signature engine pool.
+	 */
+	protected JCAEnginePool<Signature> getSignaturePool() {
+
+		return signaturePool;
+	}
+}
@@ -0,0 +1,491 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.nimbusds.jose.crypto.impl;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.spec.AlgorithmParameterSpec;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.nimbusds.jose.*;
+import com.nimbusds.jose.crypto.utils.ConstantTimeUtils;
+import com.nimbusds.jose.jca.JWEJCAContext;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jose.util.ByteUtils;
+import com.nimbusds.jose.util.KeyUtils;
+
+
+/**
+ * JWE content encryption / decryption provider for streams, with memory
+ * independent of the clear text size.
+ *
+ * <p>Supports the following content encryption algorithms:
+ *
+ * <ul>
+ *     <li>{@link com.nimbusds.jose.EncryptionMethod#A128CBC_HS256}
+ *     <li>{@link com.nimbusds.jose.EncryptionMethod#A192CBC_HS384}
+ *     <li>{@link com.nimbusds.jose.EncryptionMethod#A256CBC_HS512}
+ *     <li>{@link com.nimbusds.jose.EncryptionMethod#A128GCM}
+ *     <li>{@link com.nimbusds.jose.EncryptionMethod#A192GCM}
+ *     <li>{@link com.nimbusds.jose.EncryptionMethod#A256GCM}
+ * </ul>
+ *
+ * <p>The cipher text is encrypted and Base64URL-encoded in chunks. On
+ * decryption the authentication tag follows the cipher text, the clear text
+ * is therefore written to the staging output stream of a
+ * {@link ClearTextSink} which is committed only after the tag has been
+ * verified. For AES/CBC/HMAC-SHA2 the padding of
+ * the last block is checked only after a successful HMAC check. For AES/GCM,
+ * for which a JCA decrypting cipher may buffer the entire cipher text, the
+ * cipher text is decrypted in AES/CTR mode and the authentication tag is
+ * computed by re-encrypting the clear text with AES/GCM.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@ThreadSafe
+public class StreamingContentCryptoProvider {
+
+
+	/**
+	 * The supported encryption methods in streaming mode.
+	 */
+	public static final Set<EncryptionMethod> SUPPORTED_ENCRYPTION_METHODS;
+
+
+	static {
+		Set<EncryptionMethod> methods = new LinkedHashSet<>();
+		methods.add(EncryptionMethod.A128CBC_HS256);
+		methods.add(EncryptionMethod.A192CBC_HS384);
+		methods.add(EncryptionMethod.A256CBC_HS512);
+		methods.add(EncryptionMethod.A128GCM);
+		methods.add(EncryptionMethod.A192GCM);
+		methods.add(EncryptionMethod.A256GCM);
+		SUPPORTED_ENCRYPTION_METHODS = Collections.unmodifiableSet(methods);
+	}
+
+
+	/**
+	 * The maximum AES/GCM clear text length, in bytes (NIST SP 800-38D).
+	 */
+	static final long MAX_GCM_CLEAR_TEXT_LENGTH = ((1L << 32) - 2) * 16;
+
+
+	/**
+	 * The clear text chunk length, in bytes. A multiple of 3 and of the
+	 * AES block size.
+	 */
+	private static final int CHUNK_LENGTH = 6144;
+
+
+	/**
+	 * The AES/GCM authentication tag length, in bytes.
+	 */
+	private static final int GCM_TAG_LENGTH = ByteUtils.byteLength(AESGCM.AUTH_TAG_BIT_LENGTH);
+
+
+	/**
+	 * Streaming Base64URL encoder of a JWE part.
+	 */
+	private static final class Base64URLWriter {
+
+
+		private final OutputStream out;
+
+
+		private final byte[] buf = new byte[CHUNK_LENGTH];
+
+
+		private int len = 0;
+
+
+		private Base64URLWriter(final OutputStream out) {
+			this.out = out;
+		}
+
+
+		private void write(final byte[] b) throws IOException {
+
+			if (b == null) {
+				return;
+			}
+
+			int off = 0;
+			while (off < b.length) {
+				int n = Math.min(b.length - off, buf.length - len);
+				System.arraycopy(b, off, buf, len, n);
+				len += n;
+				off += n;
+				if (len == buf.length) {
+					flush();
+				}
+			}
+		}
+
+
+		private void flush() throws IOException {
+
+			if (len == 0) {
+				return;
+			}
+
+			byte[] data = len == buf.length ? buf : Arrays.copyOf(buf, len);
+			out.write(Base64URL.encode(data).toString().getBytes(StandardCharsets.US_ASCII));
+			len = 0;
+		}
+	}
+
+
+	/**
+	 * Checks the specified JWE header is supported in streaming mode.
+	 *
+	 * @param header The JWE header.
+	 *
+	 * @throws JOSEException If the header is not supported.
+	 */
+	public static void ensureSupported(final JWEHeader header)
+		throws JOSEException {
+
+		if (! SUPPORTED_ENCRYPTION_METHODS.contains(header.getEncryptionMethod())) {
+			throw new JOSEException(AlgorithmSupportMessage.unsupportedEncryptionMethod(
+				header.getEncryptionMethod(),
+				SUPPORTED_ENCRYPTION_METHODS));
+		}
+
+		if (header.getCompressionAlgorithm() != null) {
+			throw new JOSEException("Compression is not supported in streaming mode");
+		}
+	}
+
+
+	private static boolean isGCM(final EncryptionMethod enc) {
+
+		return EncryptionMethod.Family.AES_GCM.contains(enc);
+	}
+
+
+	private static Cipher createCipher(final String transformation,
+					   final int mode,
+					   final SecretKey key,
+					   final AlgorithmParameterSpec paramSpec,
+					   final JWEJCAContext jcaProvider)
+		throws JOSEException {
+
+		try {
+			Cipher cipher = CipherHelper.getInstance(transformation, jcaProvider.getContentEncryptionProvider());
+			cipher.init(mode, key, paramSpec);
+			return cipher;
+		} catch (GeneralSecurityException e) {
+			throw new JOSEException("Couldn't create " + transformation + " cipher: " + e.getMessage(), e);
+		}
+	}
+
+
+	/**
+	 * Encrypts the clear text read from the specified input stream and
+	 * writes the JWE in compact serialisation to the specified output
+	 * stream.
+	 *
+	 * @param header       The JWE header. Must not be {@code null}.
+	 * @param clearText    The clear text input stream. Must not be
+	 *                     {@code null}.
+	 * @param cek          The Content Encryption Key (CEK). Must not be
+	 *                     {@code null}.
+	 * @param encryptedKey The encrypted CEK, {@code null} if not required.
+	 * @param out          The output stream for the JWE. Must not be
+	 *                     {@code null}.
+	 * @param jcaProvider  The JWE JCA provider specification. Must not be
+	 *                     {@code null}.
+	 *
+	 * @throws JOSEException If encryption failed.
+	 * @throws IOException   If reading or writing failed.
+	 */
+	public static void encrypt(final JWEHeader header,
+				   final InputStream clearText,
+				   final SecretKey cek,
+				   final Base64URL encryptedKey,
+				   final OutputStream out,
+				   final JWEJCAContext jcaProvider)
+		throws JOSEException, IOException {
+
+		ensureSupported(header);
+		ContentCryptoProvider.checkCEKLength(cek, header.getEncryptionMethod());
+
+		final Base64URL encodedHeader = header.toBase64URL();
+		final byte[] aad = AAD.compute(encodedHeader);
+		final boolean gcm = isGCM(header.getEncryptionMethod());
+
+		final byte[] iv;
+		final Cipher cipher;
+		final Mac mac;
+		final CompositeKey compositeKey;
+
+		if (gcm) {
+			iv = AESGCM.generateIV(jcaProvider);
+			cipher = createCipher("AES/GCM/NoPadding", Cipher.ENCRYPT_MODE, KeyUtils.toAESKey(cek),
+				new GCMParameterSpec(AESGCM.AUTH_TAG_BIT_LENGTH, iv), jcaProvider);
+			cipher.updateAAD(aad);
+			mac = null;
+			compositeKey = null;
+		} else {
+			iv = AESCBC.generateIV(jcaProvider.getSecureRandom());
+			compositeKey = new CompositeKey(cek);
+			cipher = createCipher("AES/CBC/PKCS5Padding", Cipher.ENCRYPT_MODE,
+				new SecretKeySpec(compositeKey.getAESKey().getEncoded(), "AES"),
+				new IvParameterSpec(iv), jcaProvider);
+			mac = HMAC.getInitMac(compositeKey.getMACKey(), jcaProvider.getMACProvider());
+			mac.update(aad);
+			mac.update(iv);
+		}
+
+		StringBuilder prefix = new StringBuilder(encodedHeader.toString()).append('.');
+		if (encryptedKey != null) {
+			prefix.append(encryptedKey);
+		}
+		prefix.append('.').append(Base64URL.encode(iv)).append('.');
+		out.write(prefix.toString().getBytes(StandardCharsets.US_ASCII));
+
+		Base64URLWriter cipherTextWriter = new Base64URLWriter(out);
+
+		byte[] buf = new byte[CHUNK_LENGTH];
+		long total = 0;
+		int n;
+		while ((n = clearText.read(buf)) != -1) {
+
+			total += n;
+			if (gcm && total > MAX_GCM_CLEAR_TEXT_LENGTH) {
+				throw new JOSEException("The clear text exceeds the maximum AES/GCM length");
+			}
+
+			byte[] cipherText = cipher.update(buf, 0, n);
+			if (mac != null && cipherText != null) {
+				mac.update(cipherText);
+			}
+			cipherTextWriter.write(cipherText);
+		}
+
+		byte[] authTag;
+		try {
+			byte[] last = cipher.doFinal();
+			if (gcm) {
+				int tagPos = last.length - GCM_TAG_LENGTH;
+				cipherTextWriter.write(ByteUtils.subArray(last, 0, tagPos));
+				authTag = ByteUtils.subArray(last, tagPos, GCM_TAG_LENGTH);
+			} else {
+				mac.update(last);
+				cipherTextWriter.write(last);
+				mac.update(AAD.computeLength(aad));
+				authTag = Arrays.copyOf(mac.doFinal(), compositeKey.getTruncatedMACByteLength());
+			}
+		} catch (GeneralSecurityException e) {
+			throw new JOSEException(e.getMessage(), e);
+		}
+
+		cipherTextWriter.flush();
+
+		out.write('.');
+		out.write(Base64URL.encode(authTag).toString().getBytes(StandardCharsets.US_ASCII));
+	}
+
+
+	/**
+	 * Decrypts the cipher text read from the specified JWE stream reader
+	 * and writes the clear text to the staging output stream of the
+	 * specified sink. The sink is committed after the authentication tag
+	 * has been verified, else discarded.
+	 *
+	 * @param reader      The JWE stream reader, positioned at the cipher
+	 *                    text. Must not be {@code null}.
+	 * @param cek         The Content Encryption Key (CEK). Must not be
+	 *                    {@code null}.
+	 * @param clearText   The clear text sink. Must not be {@code null}.
+	 * @param jcaProvider The JWE JCA provider specification. Must not be
+	 *                    {@code null}.
+	 *
+	 * @throws ParseException If the cipher text or authentication tag
+	 *                        couldn't be parsed.
+	 * @throws JOSEException  If decryption failed or the authentication
+	 *                        tag is invalid.
+	 * @throws IOException    If reading or writing failed.
+	 */
+	public static void decrypt(final JWEStreamReader reader,
+				   final SecretKey cek,
+				   final ClearTextSink clearText,
+				   final JWEJCAContext jcaProvider)
+		throws ParseException, JOSEException, IOException {
+
+		boolean committed = false;
+		try {
+			decrypt(reader, cek, clearText.getOutputStream(), jcaProvider);
+			clearText.commit();
+			committed = true;
+		} finally {
+			if (! committed) {
+				clearText.discard();
+			}
+		}
+	}
+
+
+	/**
+	 * Decrypts the cipher text read from the specified JWE stream reader
+	 * and writes the clear text to the specified staging output stream.
+	 * The clear text is unverified if an exception is thrown.
+	 *
+	 * @param reader      The JWE stream reader, positioned at the cipher
+	 *                    text. Must not be {@code null}.
+	 * @param cek         The Content Encryption Key (CEK). Must not be
+	 *                    {@code null}.
+	 * @param clearText   The staging output stream. Must not be
+	 *                    {@code null}.
+	 * @param jcaProvider The JWE JCA provider specification. Must not be
+	 *                    {@code null}.
+	 *
+	 * @throws ParseException If the cipher text or authentication tag
+	 *                        couldn't be parsed.
+	 * @throws JOSEException  If decryption failed or the authentication
+	 *                        tag is invalid.
+	 * @throws IOException    If reading or writing failed.
+	 */
+	private static void decrypt(final JWEStreamReader reader,
+				    final SecretKey cek,
+				    final OutputStream clearText,
+				    final JWEJCAContext jcaProvider)
+		throws ParseException, JOSEException, IOException {
+
+		final JWEHeader header = reader.getHeader();
+
+		ensureSupported(header);
+		ContentCryptoProvider.checkCEKLength(cek, header.getEncryptionMethod());
+
+		if (reader.getIV() == null) {
+			throw new JOSEException("Missing JWE initialization vector (IV)");
+		}
+
+		final byte[] iv = reader.getIV().decode();
+		final byte[] aad = AAD.compute(header.toBase64URL());
+		final boolean gcm = isGCM(header.getEncryptionMethod());
+
+		final Cipher cipher;
+		final Cipher tagCipher;
+		final Mac mac;
+		final CompositeKey compositeKey;
+
+		if (gcm) {
+			if (ByteUtils.safeBitLength(iv) != AESGCM.IV_BIT_LENGTH) {
+				throw new JOSEException(String.format("IV length of %d bits is required, got %d", AESGCM.IV_BIT_LENGTH, ByteUtils.safeBitLength(iv)));
+			}
+			SecretKey aesKey = KeyUtils.toAESKey(cek);
+			// The GCM keystream starts at counter block IV || 2
+			byte[] counter = Arrays.copyOf(iv, 16);
+			counter[15] = 2;
+			cipher = createCipher("AES/CTR/NoPadding", Cipher.DECRYPT_MODE, aesKey, new IvParameterSpec(counter), jcaProvider);
+			tagCipher = createCipher("AES/GCM/NoPadding", Cipher.ENCRYPT_MODE, aesKey,
+				new GCMParameterSpec(AESGCM.AUTH_TAG_BIT_LENGTH, iv), jcaProvider);
+			tagCipher.updateAAD(aad);
+			mac = null;
+			compositeKey = null;
+		} else {
+			if (ByteUtils.safeBitLength(iv) != AESCBC.IV_BIT_LENGTH) {
+				throw new JOSEException(String.format("IV length of %d bits is required, got %d", AESCBC.IV_BIT_LENGTH, ByteUtils.safeBitLength(iv)));
+			}
+			compositeKey = new CompositeKey(cek);
+			cipher = createCipher("AES/CBC/PKCS5Padding", Cipher.DECRYPT_MODE,
+				new SecretKeySpec(compositeKey.getAESKey().getEncoded(), "AES"),
+				new IvParameterSpec(iv), jcaProvider);
+			tagCipher = null;
+			mac = HMAC.getInitMac(compositeKey.getMACKey(), jcaProvider.getMACProvider());
+			mac.update(aad);
+			mac.update(iv);
+		}
+
+		long total = 0;
+		byte[] cipherText;
+		while ((cipherText = reader.readCipherText()) != null) {
+
+			total += cipherText.length;
+
+			if (gcm) {
+				if (total > MAX_GCM_CLEAR_TEXT_LENGTH) {
+					throw new JOSEException("The cipher text exceeds the maximum AES/GCM length");
+				}
+				byte[] plainText = cipher.update(cipherText);
+				if (plainText != null) {
+					tagCipher.update(plainText);
+					clearText.write(plainText);
+				}
+			} else {
+				mac.update(cipherText);
+				byte[] plainText = cipher.update(cipherText);
+				if (plainText != null) {
+					clearText.write(plainText);
+				}
+			}
+		}
+
+		Base64URL authTag = reader.readAuthTag();
+		if (authTag == null) {
+			throw new JOSEException("Missing JWE authentication tag");
+		}
+
+		try {
+			if (gcm) {
+				byte[] last = cipher.doFinal();
+				tagCipher.update(last);
+				byte[] tagOutput = tagCipher.doFinal();
+				byte[] expectedAuthTag = ByteUtils.subArray(tagOutput, tagOutput.length - GCM_TAG_LENGTH, GCM_TAG_LENGTH);
+				if (! ConstantTimeUtils.areEqual(expectedAuthTag, authTag.decode())) {
+					throw new JOSEException("AES/GCM/NoPadding decryption failed: Tag mismatch");
+				}
+				clearText.write(last);
+			} else {
+				mac.update(AAD.computeLength(aad));
+				byte[] expectedAuthTag = Arrays.copyOf(mac.doFinal(), compositeKey.getTruncatedMACByteLength());
+				if (! ConstantTimeUtils.areEqual(expectedAuthTag, authTag.decode())) {
+					throw new JOSEException("MAC check failed");
+				}
+				clearText.write(cipher.doFinal());
+			}
+		} catch (GeneralSecurityException e) {
+			throw new JOSEException(e.getMessage(), e);
+		}
+	}
+
+
+	/**
+	 * Prevents public instantiation.
+	 */
+	private StreamingContentCryptoProvider() { }
+}
@@ -0,0 +1,462 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.crypto.utils;
+
+
+import java.io.Closeable;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.spec.ECParameterSpec;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.gen.OctetKeyPairGenerator;
+
+
+/**
+ * Pool of pre-generated ephemeral key pairs for the ECDH-ES and ECDH-1PU
+ * JWE encrypters, so that the key generation doesn't add to the encryption
+ * latency. The pool of each curve is refilled by a background task when it
+ * falls below half its capacity. When the pool of a curve is empty, e.g.
+ * during a burst, the key pair is generated by the calling thread.
+ *
+ * <p>Each key pair is handed out once only and is not retained by the pool.
+ * The pooled key pairs are discarded on {@link #close()}.
+ *
+ * <p>Supported curves:
+ *
+ * <ul>
+ *     <li>{@link Curve#P_256}
+ *     <li>{@link Curve#P_384}
+ *     <li>{@link Curve#P_521}
+ *     <li>{@link Curve#X25519}
+ * </ul>
+ *
+ * <p>The EC key pairs are generated with the specified JCA provider, which
+ * should be the key encryption provider of the encrypters, or the default.
+ *
+ * <p>Example pool for P-256 and X25519 with a refill thread for each curve:
+ *
+ * <pre>
+ * Set&lt;Curve&gt; curves = new HashSet&lt;&gt;(Arrays.asList(Curve.P_256, Curve.X25519));
+ * EphemeralKeyPool pool = new EphemeralKeyPool(curves, 1000, Executors.newFixedThreadPool(2));
+ *
+ * ECDHEncrypter encrypter = new ECDHEncrypter(ecJWK);
+ * encrypter.setEphemeralKeyPool(pool);
+ * </pre>
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@ThreadSafe
+public class EphemeralKeyPool implements Closeable {
+	
+	
+	/**
+	 * The supported curves.
+	 */
+	public static final Set<Curve> SUPPORTED_CURVES;
+	
+	
+	static {
+		Set<Curve> curves = new LinkedHashSet<>();
+		curves.add(Curve.P_256);
+		curves.add(Curve.P_384);
+		curves.add(Curve.P_521);
+		curves.add(Curve.X25519);
+		SUPPORTED_CURVES = Collections.unmodifiableSet(curves);
+	}
+	
+	
+	/**
+	 * The default capacity of the pool for each curve.
+	 */
+	public static final int DEFAULT_CAPACITY = 100;
+	
+	
+	/**
+	 * The pool for a curve.
+	 */
+	private final class CurvePool implements Runnable {
+		
+		
+		/**
+		 * The curve.
+		 */
+		private final Curve crv;
+		
+		
+		/**
+		 * The pooled key pairs, {@link KeyPair}s for EC curves,
+		 * private {@link OctetKeyPair}s for X25519.
+		 */
+		private final Queue<Object> keyPairs = new ConcurrentLinkedQueue<>();
+		
+		
+		/**
+		 * The number of pooled key pairs.
+		 */
+		private final AtomicInteger size = new AtomicInteger();
+		
+		
+		/**
+		 * Guards against concurrent refills.
+		 */
+		private final AtomicBoolean refillInProgress = new AtomicBoolean();
+		
+		
+		CurvePool(final Curve crv) {
+			this.crv = crv;
+		}
+		
+		
+		/**
+		 * Takes a key pair from the pool, or generates one if the pool
+		 * is empty. Triggers a refill if the pool is below half its
+		 * capacity.
+		 */
+		Object take()
+			throws JOSEException {
+			
+			Object keyPair = keyPairs.poll();
+			
+			if (keyPair != null) {
+				size.decrementAndGet();
+			}
+			
+			if (size.get() < (capacity + 1) / 2) {
+				triggerRefill();
+			}
+			
+			return keyPair != null ? keyPair : generate(crv);
+		}
+		
+		
+		void triggerRefill() {
+			
+			if (closed.get() || ! refillInProgress.compareAndSet(false, true)) {
+				return;
+			}
+			
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				refillInProgress.set(false);
+			}
+		}
+		
+		
+		@Override
+		public void run() {
+			
+			try {
+				while (! closed.get() && size.get() < capacity) {
+					keyPairs.add(generate(crv));
+					size.incrementAndGet();
+				}
+			} catch (JOSEException e) {
+				// Ignore, the key pairs are generated on demand
+			} finally {
+				refillInProgress.set(false);
+			}
+			
+			if (closed.get()) {
+				clear();
+			}
+		}
+		
+		
+		void clear() {
+			
+			while (keyPairs.poll() != null) {
+				size.decrementAndGet();
+			}
+		}
+	}
+	
+	
+	/**
+	 * The pool capacity for each curve.
+	 */
+	private final int capacity;
+	
+	
+	/**
+	 * The executor for the refill tasks.
+	 */
+	private final Executor executor;
+	
+	
+	/**
+	 * The JCA provider for the EC key pairs, {@code null} for the default.
+	 */
+	private final Provider provider;
+	
+	
+	/**
+	 * The pools by curve.
+	 */
+	private final Map<Curve, CurvePool> pools;
+	
+	
+	/**
+	 * {@code true} if the pool is closed.
+	 */
+	private final AtomicBoolean closed = new AtomicBoolean();
+	
+	
+	/**
+	 * Creates a new ephemeral key pool. The EC key pairs are generated
+	 * with the default JCA provider. The initial fill is started
+	 * immediately.
+	 *
+	 * @param curves   The curves. Must not be empty or {@code null}.
+	 * @param capacity The pool capacity for each curve. Must be
+	 *                 positive.
+	 * @param executor The executor for the refill tasks. Must not be
+	 *                 {@code null}.
+	 */
+	public EphemeralKeyPool(final Set<Curve> curves, final int capacity, final Executor executor) {
+		
+		this(curves, capacity, executor, null);
+	}
+	
+	
+	/**
+	 * Creates a new ephemeral key pool. The initial fill is started
+	 * immediately.
+	 *
+	 * @param curves   The curves. Must not be empty or {@code null}.
+	 * @param capacity The pool capacity for each curve. Must be
+	 *                 positive.
+	 * @param executor The executor for the refill tasks. Must not be
+	 *                 {@code null}.
+	 * @param provider The JCA provider for the EC key pairs,
+	 *                 {@code null} for the default.
+	 */
+	public EphemeralKeyPool(final Set<Curve> curves,
+				final int capacity,
+				final Executor executor,
+				final Provider provider) {
+		
+		if (curves == null || curves.isEmpty()) {
+			throw new IllegalArgumentException("The curves must not be null or empty");
+		}
+		
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The capacity must be positive");
+		}
+		this.capacity = capacity;
+		
+		if (executor == null) {
+			throw new IllegalArgumentException("The executor must not be null");
+		}
+		this.executor = executor;
+		
+		this.provider = provider;
+		
+		Map<Curve, CurvePool> map = new HashMap<>();
+		for (Curve crv: curves) {
+			if (! SUPPORTED_CURVES.contains(crv)) {
+				throw new IllegalArgumentException("Unsupported curve: " + crv);
+			}
+			map.put(crv, new CurvePool(crv));
+		}
+		pools = Collections.unmodifiableMap(map);
+		
+		for (CurvePool pool: pools.values()) {
+			pool.triggerRefill();
+		}
+	}
+	
+	
+	/**
+	 * Returns the curves of the pool.
+	 *
+	 * @return The curves.
+	 */
+	public Set<Curve> getCurves() {
+		
+		return pools.keySet();
+	}
+	
+	
+	/**
+	 * Returns the pool capacity for each curve.
+	 *
+	 * @return The capacity.
+	 */
+	public int getCapacity() {
+		
+		return capacity;
+	}
+	
+	
+	/**
+	 * Returns the JCA provider for the EC key pairs.
+	 *
+	 * @return The JCA provider, {@code null} for the default.
+	 */
+	public Provider getProvider() {
+		
+		return provider;
+	}
+	
+	
+	/**
+	 * Returns {@code true} if the pool supplies key pairs for the
+	 * specified curve.
+	 *
+	 * @param crv The curve.
+	 *
+	 * @return {@code true} if supported.
+	 */
+	public boolean supports(final Curve crv) {
+		
+		return pools.containsKey(crv);
+	}
+	
+	
+	/**
+	 * Returns the number of pooled key pairs for the specified curve.
+	 *
+	 * @param crv The curve.
+	 *
+	 * @return The number of pooled key pairs, zero if the curve is not
+	 *         supported.
+	 */
+	public int size(final Curve crv) {
+		
+		CurvePool pool = pools.get(crv);
+		return pool != null ? pool.size.get() : 0;
+	}
+	
+	
+	/**
+	 * Takes an ephemeral EC key pair for the specified curve from the
+	 * pool, or generates one if the pool is empty.
+	 *
+	 * @param crv The curve, P-256, P-384 or P-521. Must be one of the
+	 *            pool curves.
+	 *
+	 * @return The EC key pair, not handed out before.
+	 *
+	 * @throws JOSEException If the key pair couldn't be generated.
+	 */
+	public KeyPair takeECKeyPair(final Curve crv)
+		throws JOSEException {
+		
+		if (Curve.X25519.equals(crv)) {
+			throw new IllegalArgumentException("Not an EC curve: " + crv);
+		}
+		
+		return (KeyPair) getPool(crv).take();
+	}
+	
+	
+	/**
+	 * Takes an ephemeral X25519 key pair from the pool, or generates one
+	 * if the pool is empty.
+	 *
+	 * @return The private X25519 key pair, not handed out before.
+	 *
+	 * @throws JOSEException If the key pair couldn't be generated.
+	 */
+	public OctetKeyPair takeX25519KeyPair()
+		throws JOSEException {
+		
+		return (OctetKeyPair) getPool(Curve.X25519).take();
+	}
+	
+	
+	private CurvePool getPool(final Curve crv) {
+		
+		CurvePool pool = pools.get(crv);
+		
+		if (pool == null) {
+			throw new IllegalArgumentException("Unsupported curve: " + crv);
+		}
+		
+		return pool;
+	}
+	
+	
+	/**
+	 * Generates a key pair for the specified curve.
+	 *
+	 * @param crv The curve.
+	 *
+	 * @return The key pair, a {@link KeyPair} for an EC curve, a private
+	 *         {@link OctetKeyPair} for X25519.
+	 *
+	 * @throws JOSEException If the key pair couldn't be generated.
+	 */
+	private Object generate(final Curve crv)
+		throws JOSEException {
+		
+		if (Curve.X25519.equals(crv)) {
+			return new OctetKeyPairGenerator(crv).generate();
+		}
+		
+		ECParameterSpec ecParameterSpec = crv.toECParameterSpec();
+		
+		try {
+			KeyPairGenerator generator;
+			
+			if (provider != null) {
+				generator = KeyPairGenerator.getInstance("EC", provider);
+			} else {
+				generator = KeyPairGenerator.getInstance("EC");
+			}
+			
+			generator.initialize(ecParameterSpec);
+			return generator.generateKeyPair();
+		} catch (NoSuchAlgorithmException | InvalidAlgorithmParameterException e) {
+			throw new JOSEException("Couldn't generate ephemeral EC key pair: " + e.getMessage(), e);
+		}
+	}
+	
+	
+	/**
+	 * Closes the pool. The pooled key pairs are discarded and no more
+	 * refills are started, key pairs taken from a closed pool are
+	 * generated on demand. The executor is not shut down, this is left to
+	 * the caller which supplied it.
+	 */
+	@Override
+	public void close() {
+		
+		closed.set(true);
+		
+		for (CurvePool pool: pools.values()) {
+			pool.clear();
+		}
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jca;
+
+
+import com.nimbusds.jose.JOSEException;
+
+
+/**
+ * Generator of 96 bit (12 byte) Initialisation Vectors (IV) for AES/GCM
+ * encryption. Implementations must be thread-safe and must not return the
+ * same IV twice for a given key.
+ *
+ * <p>See NIST SP 800-38D, section 8.2.
+ *
+ * <p>Set in the {@link JWEJCAContext}, if not set the IVs are drawn from its
+ * secure random generator. Implementations:
+ *
+ * <ul>
+ *     <li>{@link com.nimbusds.jose.crypto.impl.CounterAESGCMIVGenerator} --
+ *         deterministic IV construction.
+ * </ul>
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+public interface AESGCMIVGenerator {
+
+
+	/**
+	 * Generates a new 96 bit IV.
+	 *
+	 * @return The IV, as 12 byte array.
+	 *
+	 * @throws JOSEException If no more unique IVs can be generated for
+	 *                       the key.
+	 */
+	byte[] generateIV()
+		throws JOSEException;
+}
@@ -27,8 +27,14 @@ import java.security.SecureRandom;
  * {@link java.security.Provider provider} and
  * {@link java.security.SecureRandom secure random generator}.
  *
+ * <p>Crypto providers which support it keep their initialised JCA engines,
+ * such as {@link java.security.Signature}, {@link javax.crypto.Mac} and
+ * {@link javax.crypto.Cipher} instances, for reuse in subsequent operations.
+ * The engine reuse can be disabled for JCA providers whose engines aren't
+ * reusable.
+ *
  * @author Vladimir Dzhuvinov
- * @version 2015-06-08
+ * @version 2022-06-01
  */
 public class JCAContext {
 
@@ -43,6 +49,12 @@ public class JCAContext {
 	 * The secure random generator.
 	 */
 	private SecureRandom randomGen;
+	
+	
+	/**
+	 * {@code true} if the reuse of initialised JCA engines is enabled.
+	 */
+	private boolean engineReuse = true;
 
 
 	/**
@@ -120,4 +132,32 @@ public class JCAContext {
 
 		this.randomGen = randomGen;
 	}
+	
+	
+	/**
+	 * Returns {@code true} if the reuse of initialised JCA engines, such
+	 * as {@link java.security.Signature} and {@link javax.crypto.Mac}
+	 * instances, is enabled. Enabled by default.
+	 *
+	 * @return {@code true} if JCA engine reuse is enabled.
+	 */
+	public boolean isEngineReuseEnabled() {
+		
+		return engineReuse;
+	}
+	
+	
+	/**
+	 * Enables or disables the reuse of initialised JCA engines, such as
+	 * {@link java.security.Signature} and {@link javax.crypto.Mac}
+	 * instances. Should be disabled for JCA providers whose engines cannot
+	 * be reused after a completed operation.
+	 *
+	 * @param enable {@code true} to enable JCA engine reuse, {@code false}
+	 *               to create a new engine for each operation.
+	 */
+	public void setEngineReuseEnabled(final boolean enable) {
+		
+		this.engineReuse = enable;
+	}
 }
@@ -22,13 +22,29 @@ import java.security.Provider;
 import java.security.SecureRandom;
 
 
+
 /**
  * Java Cryptography Architecture (JCA) context intended specifically for
  * JSON Web Encryption (JWE) providers. Allows setting of more specific JCA
  * providers for key encryption, content encryption and MAC computation.
  *
+ * <p>With {@link #isEngineReuseEnabled() engine reuse} enabled, the default,
+ * the AES key wrap {@link javax.crypto.Cipher} instances, and the AES/GCM,
+ * AES/CBC and HMAC {@link javax.crypto.Mac} instances for direct content
+ * encryption ({@code "alg":"dir"}), are taken from shared pools, per thread
+ * slot, transformation and provider, and initialised for each operation
+ * with its key, IV and AAD. These are the long-lived keys, instances
+ * initialised with a per-message content encryption key (CEK) are not
+ * pooled. Disable it for JCA providers whose ciphers cannot be
+ * re-initialised.
+ *
+ * <p>The initialisation vectors for AES/GCM content and key encryption are
+ * drawn from the {@link #getSecureRandom() secure random generator}, unless
+ * a specific {@link AESGCMIVGenerator} is set, such as the lock-free
+ * {@link com.nimbusds.jose.crypto.impl.CounterAESGCMIVGenerator}.
+ *
  * @author Vladimir Dzhuvinov
- * @version 2015-06-08
+ * @version 2022-06-01
  */
 public final class JWEJCAContext extends JCAContext {
 
@@ -51,6 +67,12 @@ public final class JWEJCAContext extends JCAContext {
 	private Provider macProvider;
 
 
+	/**
+	 * The AES/GCM IV generator, {@code null} if not specified.
+	 */
+	private AESGCMIVGenerator gcmIVGenerator;
+
+
 	/**
 	 * Creates a new default JCA context for JWE.
 	 */
@@ -179,4 +201,30 @@ public final class JWEJCAContext extends JCAContext {
 
 		return macProvider != null ? macProvider : getProvider();
 	}
+
+
+	/**
+	 * Sets a specific generator of the initialisation vectors (IV) for
+	 * AES/GCM content and key encryption.
+	 *
+	 * @param gcmIVGenerator The AES/GCM IV generator, {@code null} to use
+	 *                       random IVs from the secure random generator.
+	 */
+	public void setAESGCMIVGenerator(final AESGCMIVGenerator gcmIVGenerator) {
+
+		this.gcmIVGenerator = gcmIVGenerator;
+	}
+
+
+	/**
+	 * Gets the generator of the initialisation vectors (IV) for AES/GCM
+	 * content and key encryption.
+	 *
+	 * @return The specific AES/GCM IV generator, {@code null} if not set
+	 *         and random IVs are drawn from the secure random generator.
+	 */
+	public AESGCMIVGenerator getAESGCMIVGenerator() {
+
+		return gcmIVGenerator;
+	}
 }
@@ -26,8 +26,12 @@ import net.jcip.annotations.Immutable;
 /**
  * Selects (filters) one or more JSON Web Keys (JWKs) from a JWK set.
  *
+ * <p>If the matcher constrains the key ID, X.509 certificate SHA-256
+ * thumbprint, key type, use or algorithm the candidate keys of a larger JWK
+ * set are looked up in its indexes, else all keys are scanned.
+ *
  * @author Vladimir Dzhuvinov
- * @version 2015-04-15
+ * @version 2022-06-01
  */
 @Immutable
 public final class JWKSelector {
@@ -82,7 +86,18 @@ public final class JWKSelector {
 		if (jwkSet == null)
 			return selectedKeys;
 
-		for (JWK key: jwkSet.getKeys()) {
+		List<JWK> candidates = null;
+
+		JWKSetIndex index = jwkSet.getIndex();
+		if (index != null) {
+			candidates = index.getCandidates(matcher);
+		}
+
+		if (candidates == null) {
+			candidates = jwkSet.getKeys();
+		}
+
+		for (JWK key: candidates) {
 
 			if (matcher.matches(key)) {
 				selectedKeys.add(key);
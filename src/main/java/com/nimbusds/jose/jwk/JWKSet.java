@@ -68,9 +68,15 @@ import com.nimbusds.jose.util.*;
  * }
  * </pre>
  *
+ * <p>The lookups of keys by key ID, X.509 certificate SHA-256 thumbprint and
+ * JWK thumbprint, and the selections with a {@link JWKSelector} constraining
+ * the key ID, X.509 certificate SHA-256 thumbprint, key type, use or
+ * algorithm, use lazily computed indexes of larger JWK sets instead of a
+ * scan of all keys.
+ *
  * @author Vladimir Dzhuvinov
  * @author Vedran Pavic
- * @version 2021-02-01
+ * @version 2022-06-01
  */
 @Immutable
 public class JWKSet implements Serializable {
@@ -98,6 +104,12 @@ public class JWKSet implements Serializable {
 	private final Map<String,Object> customMembers;
 
 
+	/**
+	 * The lazily computed key indexes, {@code null} if not created yet.
+	 */
+	private transient volatile JWKSetIndex index;
+
+
 	/**
 	 * Creates a new empty JSON Web Key (JWK) set.
 	 */
@@ -143,11 +155,28 @@ public class JWKSet implements Serializable {
 	 */
 	public JWKSet(final List<JWK> keys, final Map<String,Object> customMembers) {
 
+		this(keys, customMembers, true);
+	}
+
+
+	/**
+	 * Creates a new JSON Web Key (JWK) set with the specified keys and
+	 * additional custom members.
+	 *
+	 * @param keys          The JWK list. Must not be {@code null}.
+	 * @param customMembers The additional custom members. Must not be
+	 *                      {@code null}.
+	 * @param copyKeys      If {@code false} the JWK list is used as is,
+	 *                      it must be unmodifiable and support random
+	 *                      access.
+	 */
+	JWKSet(final List<JWK> keys, final Map<String,Object> customMembers, final boolean copyKeys) {
+
 		if (keys == null) {
 			throw new IllegalArgumentException("The JWK list must not be null");
 		}
 
-		this.keys = Collections.unmodifiableList(keys);
+		this.keys = copyKeys ? Collections.unmodifiableList(new ArrayList<>(keys)) : keys;
 
 		this.customMembers = Collections.unmodifiableMap(customMembers);
 	}
@@ -163,6 +192,27 @@ public class JWKSet implements Serializable {
 		return keys;
 	}
 
+
+	/**
+	 * Returns the key indexes.
+	 *
+	 * @return The key indexes, {@code null} if the JWK set is too small
+	 *         for them to be used.
+	 */
+	JWKSetIndex getIndex() {
+
+		if (keys.size() < JWKSetIndex.MIN_SIZE) {
+			return null;
+		}
+
+		JWKSetIndex i = index;
+		if (i == null) {
+			i = new JWKSetIndex(keys);
+			index = i;
+		}
+		return i;
+	}
+
 	
 	/**
 	 * Gets the key from this JSON Web Key (JWK) set as identified by its 
@@ -177,6 +227,15 @@ public class JWKSet implements Serializable {
 	 *         exists.
 	 */
 	public JWK getKeyByKeyId(String kid) {
+
+		if (kid == null) {
+			return null;
+		}
+
+		JWKSetIndex i = getIndex();
+		if (i != null) {
+			return i.getFirst(JWKSetIndex.Field.KEY_ID, kid);
+		}
 		
 		for (JWK key : getKeys()) {
 	        
@@ -203,14 +262,39 @@ public class JWKSet implements Serializable {
 	 */
 	public boolean containsJWK(final JWK jwk) throws JOSEException {
 		
-		Base64URL thumbprint = jwk.computeThumbprint();
-		
+		return getKeyByThumbprint(jwk.computeThumbprint()) != null;
+	}
+
+
+	/**
+	 * Gets the key from this JSON Web Key (JWK) set as identified by its
+	 * SHA-256 JWK thumbprint (RFC 7638).
+	 *
+	 * <p>If more than one key exists in the JWK Set with the same
+	 * thumbprint, e.g. the public and the private key, this function
+	 * returns only the first one in the set.
+	 *
+	 * @param thumbprint The SHA-256 JWK thumbprint. Must not be
+	 *                   {@code null}.
+	 *
+	 * @return The key with the thumbprint or {@code null} if no key
+	 *         exists.
+	 *
+	 * @throws JOSEException If thumbprint computation failed.
+	 */
+	public JWK getKeyByThumbprint(final Base64URL thumbprint) throws JOSEException {
+
+		JWKSetIndex i = getIndex();
+		if (i != null) {
+			return i.getFirst(JWKSetIndex.Field.THUMBPRINT, thumbprint);
+		}
+
 		for (JWK k: getKeys()) {
 			if (thumbprint.equals(k.computeThumbprint())) {
-				return true; // found
+				return k; // found
 			}
 		}
-		return false;
+		return null;
 	}
 
 
@@ -0,0 +1,248 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk;
+
+
+import java.util.*;
+
+import net.jcip.annotations.Immutable;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.util.Base64URL;
+
+
+/**
+ * Difference between a previous and an updated JSON Web Key (JWK) set, e.g.
+ * on a refresh of a remote JWK set.
+ *
+ * <p>The keys are identified by key ID (kid), or by SHA-256 JWK thumbprint
+ * (RFC 7638) if they have no key ID. A key of the updated JWK set which is
+ * equal to a key of the previous JWK set with the same identifier, in all
+ * parameters, is retained: the merged JWK set holds the previous instance
+ * of the key, so that the state derived from it, such as the
+ * {@link KeyConversionCache cached Java key} or the parsed X.509 certificate
+ * chain, is preserved. A key with changed parameters is reported as removed
+ * and added.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@Immutable
+public final class JWKSetDiff {
+
+
+	/**
+	 * The merged JWK set.
+	 */
+	private final JWKSet jwkSet;
+
+
+	/**
+	 * The added keys.
+	 */
+	private final List<JWK> addedKeys;
+
+
+	/**
+	 * The removed keys.
+	 */
+	private final List<JWK> removedKeys;
+
+
+	/**
+	 * The number of retained keys.
+	 */
+	private final int retainedKeyCount;
+
+
+	/**
+	 * Creates a new JWK set difference.
+	 *
+	 * @param jwkSet           The merged JWK set.
+	 * @param addedKeys        The added keys.
+	 * @param removedKeys      The removed keys.
+	 * @param retainedKeyCount The number of retained keys.
+	 */
+	private JWKSetDiff(final JWKSet jwkSet,
+			   final List<JWK> addedKeys,
+			   final List<JWK> removedKeys,
+			   final int retainedKeyCount) {
+		this.jwkSet = jwkSet;
+		this.addedKeys = Collections.unmodifiableList(addedKeys);
+		this.removedKeys = Collections.unmodifiableList(removedKeys);
+		this.retainedKeyCount = retainedKeyCount;
+	}
+
+
+	/**
+	 * Returns the merged JWK set, with the keys of the updated JWK set in
+	 * their order, the retained keys as the previous instances. If nothing
+	 * changed this is the previous JWK set.
+	 *
+	 * @return The merged JWK set.
+	 */
+	public JWKSet getJWKSet() {
+
+		return jwkSet;
+	}
+
+
+	/**
+	 * Returns the keys of the updated JWK set which are not in the
+	 * previous JWK set.
+	 *
+	 * @return The added keys, empty list if none.
+	 */
+	public List<JWK> getAddedKeys() {
+
+		return addedKeys;
+	}
+
+
+	/**
+	 * Returns the keys of the previous JWK set which are not in the
+	 * updated JWK set.
+	 *
+	 * @return The removed keys, empty list if none.
+	 */
+	public List<JWK> getRemovedKeys() {
+
+		return removedKeys;
+	}
+
+
+	/**
+	 * Returns the number of retained keys.
+	 *
+	 * @return The number of retained keys.
+	 */
+	public int getRetainedKeyCount() {
+
+		return retainedKeyCount;
+	}
+
+
+	/**
+	 * Returns {@code true} if keys were added or removed.
+	 *
+	 * @return {@code true} if the keys changed.
+	 */
+	public boolean hasChanges() {
+
+		return ! addedKeys.isEmpty() || ! removedKeys.isEmpty();
+	}
+
+
+	/**
+	 * Returns the identifier of the specified key.
+	 *
+	 * @param jwk The key.
+	 *
+	 * @return The identifier, {@code null} if the key has no key ID and
+	 *         its thumbprint couldn't be computed.
+	 */
+	private static String identify(final JWK jwk) {
+
+		if (jwk.getKeyID() != null) {
+			return "kid:" + jwk.getKeyID();
+		}
+
+		try {
+			Base64URL thumbprint = jwk.computeThumbprint();
+			return "jkt:" + thumbprint;
+		} catch (JOSEException e) {
+			return null;
+		}
+	}
+
+
+	/**
+	 * Computes the difference between the specified JWK sets.
+	 *
+	 * @param previous The previous JWK set, {@code null} if none.
+	 * @param updated  The updated JWK set. Must not be {@code null}.
+	 *
+	 * @return The JWK set difference.
+	 */
+	public static JWKSetDiff compute(final JWKSet previous, final JWKSet updated) {
+
+		if (previous == null) {
+			return new JWKSetDiff(updated, new ArrayList<>(updated.getKeys()), Collections.<JWK>emptyList(), 0);
+		}
+
+		Map<String, List<JWK>> previousKeys = new HashMap<>();
+		for (JWK jwk: previous.getKeys()) {
+			String id = identify(jwk);
+			List<JWK> list = previousKeys.get(id);
+			if (list == null) {
+				list = new LinkedList<>();
+				previousKeys.put(id, list);
+			}
+			list.add(jwk);
+		}
+
+		List<JWK> mergedKeys = new ArrayList<>(updated.getKeys().size());
+		List<JWK> addedKeys = new LinkedList<>();
+		Set<JWK> retainedKeys = Collections.newSetFromMap(new IdentityHashMap<JWK, Boolean>());
+
+		for (JWK jwk: updated.getKeys()) {
+
+			JWK retained = null;
+
+			List<JWK> candidates = previousKeys.get(identify(jwk));
+			if (candidates != null) {
+				Iterator<JWK> it = candidates.iterator();
+				while (it.hasNext()) {
+					JWK candidate = it.next();
+					if (candidate.equals(jwk)) {
+						retained = candidate;
+						it.remove();
+						break;
+					}
+				}
+			}
+
+			if (retained != null) {
+				mergedKeys.add(retained);
+				retainedKeys.add(retained);
+			} else {
+				mergedKeys.add(jwk);
+				addedKeys.add(jwk);
+			}
+		}
+
+		List<JWK> removedKeys = new LinkedList<>();
+		for (JWK jwk: previous.getKeys()) {
+			if (! retainedKeys.contains(jwk)) {
+				removedKeys.add(jwk);
+			}
+		}
+
+		JWKSet jwkSet;
+		if (addedKeys.isEmpty() && removedKeys.isEmpty()
+			&& mergedKeys.equals(previous.getKeys())
+			&& previous.getAdditionalMembers().equals(updated.getAdditionalMembers())) {
+			// Nothing changed, also keep the indexes of the JWK set
+			jwkSet = previous;
+		} else {
+			jwkSet = new JWKSet(mergedKeys, updated.getAdditionalMembers());
+		}
+
+		return new JWKSetDiff(jwkSet, addedKeys, removedKeys, retainedKeys.size());
+	}
+}
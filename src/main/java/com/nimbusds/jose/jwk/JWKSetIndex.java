@@ -0,0 +1,346 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk;
+
+
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jose.util.X509CertUtils;
+
+
+/**
+ * Lazily computed, immutable indexes of the keys of a {@link JWKSet} by key
+ * ID (kid), X.509 certificate SHA-256 thumbprint (x5t#S256), key type
+ * (kty), key use (use), algorithm (alg) and RFC 7638 SHA-256 thumbprint. An
+ * index maps a parameter value to the positions of the keys with it in the
+ * JWK set, in ascending order. Each index is built on first use, concurrent
+ * builds are benign.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@ThreadSafe
+final class JWKSetIndex {
+
+
+	/**
+	 * The minimum number of keys in a JWK set for the indexes to be used,
+	 * a scan of fewer keys is cheaper than building them.
+	 */
+	static final int MIN_SIZE = 16;
+
+
+	/**
+	 * The indexed key parameters.
+	 */
+	enum Field {
+
+
+		KEY_ID(true) {
+			@Override
+			void addValues(final JWK jwk, final Collection<Object> values) {
+				values.add(jwk.getKeyID());
+			}
+		},
+
+
+		KEY_TYPE(true) {
+			@Override
+			void addValues(final JWK jwk, final Collection<Object> values) {
+				values.add(jwk.getKeyType());
+			}
+		},
+
+
+		KEY_USE(true) {
+			@Override
+			void addValues(final JWK jwk, final Collection<Object> values) {
+				values.add(jwk.getKeyUse());
+			}
+		},
+
+
+		ALGORITHM(true) {
+			@Override
+			void addValues(final JWK jwk, final Collection<Object> values) {
+				values.add(jwk.getAlgorithm());
+			}
+		},
+
+
+		X5T_S256(false) {
+			@Override
+			void addValues(final JWK jwk, final Collection<Object> values) {
+				// As in JWKMatcher.matches, the x5t#S256 parameter
+				// and the thumbprint of the first certificate
+				values.add(jwk.getX509CertSHA256Thumbprint());
+				if (jwk.getX509CertChain() != null && ! jwk.getX509CertChain().isEmpty()) {
+					try {
+						X509Certificate cert = X509CertUtils.parseWithException(jwk.getX509CertChain().get(0).decode());
+						values.add(X509CertUtils.computeSHA256Thumbprint(cert));
+					} catch (CertificateException e) {
+						// Ignore
+					}
+				}
+			}
+		},
+
+
+		THUMBPRINT(false) {
+			@Override
+			void addValues(final JWK jwk, final Collection<Object> values) {
+				try {
+					values.add(jwk.computeThumbprint());
+				} catch (JOSEException e) {
+					// Ignore
+				}
+			}
+		};
+
+
+		/**
+		 * {@code true} if the parameter is available without parsing
+		 * the key in a {@link LazyJWKSet}.
+		 */
+		private final boolean parsedUpfront;
+
+
+		Field(final boolean parsedUpfront) {
+			this.parsedUpfront = parsedUpfront;
+		}
+
+
+		/**
+		 * Adds the indexed values of the specified key.
+		 *
+		 * @param jwk    The key.
+		 * @param values The values to add to.
+		 */
+		abstract void addValues(final JWK jwk, final Collection<Object> values);
+	}
+
+
+	/**
+	 * Empty positions.
+	 */
+	private static final int[] NONE = new int[0];
+
+
+	/**
+	 * The indexed keys.
+	 */
+	private final List<JWK> keys;
+
+
+	/**
+	 * The indexes, by field ordinal, {@code null} if not built yet.
+	 */
+	private final AtomicReferenceArray<Map<Object, int[]>> indexes =
+		new AtomicReferenceArray<>(Field.values().length);
+
+
+	/**
+	 * Creates a new index for the specified keys.
+	 *
+	 * @param keys The keys, must support random access and not be
+	 *             modified.
+	 */
+	JWKSetIndex(final List<JWK> keys) {
+		this.keys = keys;
+	}
+
+
+	/**
+	 * Returns the index for the specified field, builds it if necessary.
+	 *
+	 * @param field The field.
+	 *
+	 * @return The index.
+	 */
+	private Map<Object, int[]> getIndex(final Field field) {
+
+		Map<Object, int[]> index = indexes.get(field.ordinal());
+
+		if (index != null) {
+			return index;
+		}
+
+		Map<Object, List<Integer>> positions = new HashMap<>();
+		Set<Object> values = new HashSet<>();
+
+		for (int i=0; i < keys.size(); i++) {
+			values.clear();
+			if (field.parsedUpfront && keys instanceof LazyJWKSet.LazyJWKList) {
+				// Don't parse the lazy key
+				values.add(((LazyJWKSet.LazyJWKList) keys).getParameter(i, field));
+			} else {
+				field.addValues(keys.get(i), values);
+			}
+			for (Object value: values) {
+				List<Integer> list = positions.get(value);
+				if (list == null) {
+					list = new ArrayList<>(1);
+					positions.put(value, list);
+				}
+				list.add(i);
+			}
+		}
+
+		index = new HashMap<>(positions.size() * 4 / 3 + 1);
+		for (Map.Entry<Object, List<Integer>> en: positions.entrySet()) {
+			int[] arr = new int[en.getValue().size()];
+			for (int i=0; i < arr.length; i++) {
+				arr[i] = en.getValue().get(i);
+			}
+			index.put(en.getKey(), arr);
+		}
+		index = Collections.unmodifiableMap(index);
+
+		indexes.set(field.ordinal(), index);
+		return index;
+	}
+
+
+	/**
+	 * Returns the positions of the keys with the specified value of a
+	 * field.
+	 *
+	 * @param field The field.
+	 * @param value The value, may be {@code null}.
+	 *
+	 * @return The positions in ascending order, empty array if none.
+	 */
+	int[] lookup(final Field field, final Object value) {
+
+		int[] positions = getIndex(field).get(value);
+		return positions != null ? positions : NONE;
+	}
+
+
+	/**
+	 * Returns the first key with the specified value of a field.
+	 *
+	 * @param field The field.
+	 * @param value The value, may be {@code null}.
+	 *
+	 * @return The first key, {@code null} if none.
+	 */
+	JWK getFirst(final Field field, final Object value) {
+
+		int[] positions = lookup(field, value);
+		return positions.length > 0 ? keys.get(positions[0]) : null;
+	}
+
+
+	/**
+	 * Returns the union of the positions of the keys with any of the
+	 * specified values of a field.
+	 *
+	 * @param field  The field.
+	 * @param values The values, may contain {@code null}.
+	 *
+	 * @return The positions in ascending order.
+	 */
+	private int[] lookupAny(final Field field, final Set<?> values) {
+
+		if (values.size() == 1) {
+			return lookup(field, values.iterator().next());
+		}
+
+		BitSet bits = new BitSet(keys.size());
+		for (Object value: values) {
+			for (int pos: lookup(field, value)) {
+				bits.set(pos);
+			}
+		}
+
+		int[] positions = new int[bits.cardinality()];
+		int n = 0;
+		for (int pos = bits.nextSetBit(0); pos >= 0; pos = bits.nextSetBit(pos + 1)) {
+			positions[n++] = pos;
+		}
+		return positions;
+	}
+
+
+	/**
+	 * Returns the candidate keys for the specified matcher, using the
+	 * most selective of the indexed fields it constrains. The candidates
+	 * must still be checked with {@link JWKMatcher#matches}.
+	 *
+	 * @param matcher The JWK matcher.
+	 *
+	 * @return The candidate keys in JWK set order, {@code null} if the
+	 *         matcher doesn't constrain an indexed field.
+	 */
+	List<JWK> getCandidates(final JWKMatcher matcher) {
+
+		int[] best = null;
+
+		if (matcher.getKeyIDs() != null) {
+			best = lookupAny(Field.KEY_ID, matcher.getKeyIDs());
+		}
+
+		if (matcher.getX509CertSHA256Thumbprints() != null && (best == null || best.length > 1)) {
+			best = mostSelective(best, lookupAny(Field.X5T_S256, matcher.getX509CertSHA256Thumbprints()));
+		}
+
+		if (matcher.getAlgorithms() != null && (best == null || best.length > 1)) {
+			best = mostSelective(best, lookupAny(Field.ALGORITHM, matcher.getAlgorithms()));
+		}
+
+		if (matcher.getKeyTypes() != null && (best == null || best.length > 1)) {
+			best = mostSelective(best, lookupAny(Field.KEY_TYPE, matcher.getKeyTypes()));
+		}
+
+		if (matcher.getKeyUses() != null && (best == null || best.length > 1)) {
+			best = mostSelective(best, lookupAny(Field.KEY_USE, matcher.getKeyUses()));
+		}
+
+		if (best == null) {
+			return null;
+		}
+
+		List<JWK> candidates = new ArrayList<>(best.length);
+		for (int pos: best) {
+			candidates.add(keys.get(pos));
+		}
+		return candidates;
+	}
+
+
+	/**
+	 * Returns the shorter of the specified positions.
+	 *
+	 * @param a The first positions, {@code null} if none.
+	 * @param b The second positions.
+	 *
+	 * @return The shorter positions.
+	 */
+	private static int[] mostSelective(final int[] a, final int[] b) {
+
+		return a == null || b.length < a.length ? b : a;
+	}
+}
@@ -0,0 +1,556 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk;
+
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Serializable;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import net.minidev.json.JSONValue;
+
+import com.nimbusds.jose.Algorithm;
+import com.nimbusds.jose.util.JSONObjectUtils;
+
+
+/**
+ * Streaming parser of JSON Web Key (JWK) sets. Reads the JWK set JSON object
+ * from a character stream without building a JSON tree of the keys: each
+ * entry of the "keys" array is captured as a JSON string, together with its
+ * key ID (kid), type (kty), use and algorithm (alg) parameters. Entries with
+ * an unsupported key type are skipped, as in {@link JWKSet#parse}. The
+ * remaining key parameters are validated when the entry is parsed to a
+ * {@link JWK}.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+final class JWKSetStreamParser {
+
+
+	/**
+	 * Captured entry of the "keys" array.
+	 */
+	static final class KeyEntry implements Serializable {
+
+
+		private static final long serialVersionUID = 1L;
+
+
+		/**
+		 * The position in the "keys" array.
+		 */
+		final int position;
+
+
+		/**
+		 * The JWK JSON object string.
+		 */
+		final String json;
+
+
+		/**
+		 * The key ID, {@code null} if not specified.
+		 */
+		final String kid;
+
+
+		/**
+		 * The key type.
+		 */
+		final KeyType kty;
+
+
+		/**
+		 * The key use, {@code null} if not specified.
+		 */
+		final KeyUse use;
+
+
+		/**
+		 * The algorithm, {@code null} if not specified.
+		 */
+		final Algorithm alg;
+
+
+		KeyEntry(final int position,
+			 final String json,
+			 final String kid,
+			 final KeyType kty,
+			 final KeyUse use,
+			 final Algorithm alg) {
+			this.position = position;
+			this.json = json;
+			this.kid = kid;
+			this.kty = kty;
+			this.use = use;
+			this.alg = alg;
+		}
+	}
+
+
+	/**
+	 * The parsed key entries.
+	 */
+	private final List<KeyEntry> keyEntries = new ArrayList<>();
+
+
+	/**
+	 * The parsed additional custom members.
+	 */
+	private Map<String, Object> customMembers;
+
+
+	/**
+	 * The character stream.
+	 */
+	private final Reader in;
+
+
+	/**
+	 * The peeked character, {@code -2} if none.
+	 */
+	private int peeked = -2;
+
+
+	/**
+	 * The number of consumed characters.
+	 */
+	private int offset = 0;
+
+
+	/**
+	 * The capture of the consumed characters, {@code null} if none.
+	 */
+	private StringBuilder capture;
+
+
+	/**
+	 * Creates a new streaming JWK set parser.
+	 *
+	 * @param in The character stream.
+	 */
+	private JWKSetStreamParser(final Reader in) {
+		this.in = in;
+	}
+
+
+	/**
+	 * Parses the JWK set JSON object from the specified character stream.
+	 *
+	 * @param in The character stream. Must not be {@code null}.
+	 *
+	 * @return The parser with the key entries and custom members.
+	 *
+	 * @throws IOException    If the stream couldn't be read.
+	 * @throws ParseException If the JWK set couldn't be parsed.
+	 */
+	static JWKSetStreamParser parse(final Reader in)
+		throws IOException, ParseException {
+
+		JWKSetStreamParser parser = new JWKSetStreamParser(in);
+		parser.parseJWKSet();
+		return parser;
+	}
+
+
+	/**
+	 * Returns the key entries, in "keys" array order.
+	 *
+	 * @return The key entries.
+	 */
+	List<KeyEntry> getKeyEntries() {
+
+		return keyEntries;
+	}
+
+
+	/**
+	 * Returns the additional custom members.
+	 *
+	 * @return The custom members, empty map if none.
+	 */
+	Map<String, Object> getCustomMembers() {
+
+		return customMembers;
+	}
+
+
+	private void parseJWKSet()
+		throws IOException, ParseException {
+
+		expect('{');
+
+		boolean keysFound = false;
+		StringBuilder customJSON = new StringBuilder("{");
+
+		if (peekNonWhitespace() == '}') {
+			read();
+		} else {
+			while (true) {
+				expect('"');
+				String name = readString();
+				expect(':');
+
+				if ("keys".equals(name) && ! keysFound) {
+					parseKeys();
+					keysFound = true;
+				} else {
+					capture = new StringBuilder();
+					skipValue();
+					if (customJSON.length() > 1) {
+						customJSON.append(',');
+					}
+					customJSON.append(JSONValue.toJSONString(name)).append(':').append(capture);
+					capture = null;
+				}
+
+				int c = readNonWhitespace();
+				if (c == '}') {
+					break;
+				} else if (c != ',') {
+					throw unexpected(c);
+				}
+			}
+		}
+
+		int c = readNonWhitespace();
+		if (c != -1) {
+			throw unexpected(c);
+		}
+
+		if (! keysFound) {
+			throw new ParseException("Missing required \"keys\" member", 0);
+		}
+
+		customMembers = JSONObjectUtils.parse(customJSON.append('}').toString());
+		customMembers.remove("keys");
+	}
+
+
+	private void parseKeys()
+		throws IOException, ParseException {
+
+		if (readNonWhitespace() != '[') {
+			throw new ParseException("Unexpected type of JSON object member with key keys", 0);
+		}
+
+		if (peekNonWhitespace() == ']') {
+			read();
+			return;
+		}
+
+		for (int i=0; ; i++) {
+
+			if (readNonWhitespace() != '{') {
+				throw new ParseException("The \"keys\" JSON array must contain JSON objects only", 0);
+			}
+
+			KeyEntry entry = parseKey(i);
+			if (entry != null) {
+				keyEntries.add(entry);
+			}
+
+			int c = readNonWhitespace();
+			if (c == ']') {
+				return;
+			} else if (c != ',') {
+				throw unexpected(c);
+			}
+		}
+	}
+
+
+	private KeyEntry parseKey(final int position)
+		throws IOException, ParseException {
+
+		capture = new StringBuilder("{");
+
+		String kid = null;
+		String kty = null;
+		String use = null;
+		String alg = null;
+
+		if (peekNonWhitespace() == '}') {
+			read();
+		} else {
+			while (true) {
+				expect('"');
+				String name = readString();
+				expect(':');
+
+				switch (name) {
+					case JWKParameterNames.KEY_ID:
+						kid = readStringOrNull(position, name);
+						break;
+					case JWKParameterNames.KEY_TYPE:
+						kty = readStringOrNull(position, name);
+						break;
+					case JWKParameterNames.PUBLIC_KEY_USE:
+						use = readStringOrNull(position, name);
+						break;
+					case JWKParameterNames.ALGORITHM:
+						alg = readStringOrNull(position, name);
+						break;
+					default:
+						skipValue();
+				}
+
+				int c = readNonWhitespace();
+				if (c == '}') {
+					break;
+				} else if (c != ',') {
+					throw unexpected(c);
+				}
+			}
+		}
+
+		String json = capture.toString();
+		capture = null;
+
+		if (kty == null) {
+			throw new ParseException("Invalid JWK at position " + position + ": Missing key type \"kty\" parameter", 0);
+		}
+
+		KeyType keyType = KeyType.parse(kty);
+
+		if (keyType != KeyType.EC && keyType != KeyType.RSA && keyType != KeyType.OCT && keyType != KeyType.OKP) {
+			// Ignore unknown key type
+			// https://tools.ietf.org/html/rfc7517#section-5
+			return null;
+		}
+
+		KeyUse keyUse;
+		try {
+			keyUse = KeyUse.parse(use);
+		} catch (ParseException e) {
+			throw new ParseException("Invalid JWK at position " + position + ": " + e.getMessage(), 0);
+		}
+
+		return new KeyEntry(position, json, kid, keyType, keyUse, Algorithm.parse(alg));
+	}
+
+
+	/**
+	 * Reads a JSON string or null value.
+	 *
+	 * @param position The JWK position, for the error message.
+	 * @param name     The member name, for the error message.
+	 *
+	 * @return The string, {@code null} for a JSON null.
+	 */
+	private String readStringOrNull(final int position, final String name)
+		throws IOException, ParseException {
+
+		if (peekNonWhitespace() == '"') {
+			read();
+			return readString();
+		}
+
+		int start = capture.length();
+		skipValue();
+
+		if ("null".equals(capture.substring(start).trim())) {
+			return null;
+		}
+
+		throw new ParseException("Invalid JWK at position " + position + ": Unexpected type of JSON object member with key " + name, 0);
+	}
+
+
+	/**
+	 * Skips a JSON value. Only the nesting of objects and arrays and the
+	 * strings are checked, the value is validated when parsed from the
+	 * capture.
+	 */
+	private void skipValue()
+		throws IOException, ParseException {
+
+		int c = readNonWhitespace();
+
+		if (c == '"') {
+			readString();
+			return;
+		}
+
+		if (c == '{' || c == '[') {
+			int depth = 1;
+			while (depth > 0) {
+				c = read();
+				if (c == -1) {
+					throw unexpected(c);
+				} else if (c == '"') {
+					readString();
+				} else if (c == '{' || c == '[') {
+					depth++;
+				} else if (c == '}' || c == ']') {
+					depth--;
+				}
+			}
+			return;
+		}
+
+		if (c == -1 || c == ',' || c == '}' || c == ']' || c == ':') {
+			throw unexpected(c);
+		}
+
+		// Number or literal
+		while (true) {
+			int p = peek();
+			if (p == -1 || p == ',' || p == '}' || p == ']' || isWhitespace(p)) {
+				return;
+			}
+			read();
+		}
+	}
+
+
+	/**
+	 * Reads a JSON string, after the opening quote.
+	 *
+	 * @return The decoded string.
+	 */
+	private String readString()
+		throws IOException, ParseException {
+
+		StringBuilder sb = new StringBuilder();
+
+		while (true) {
+			int c = read();
+
+			if (c == -1) {
+				throw unexpected(c);
+			} else if (c == '"') {
+				return sb.toString();
+			} else if (c != '\\') {
+				sb.append((char) c);
+				continue;
+			}
+
+			c = read();
+			switch (c) {
+				case '"':
+				case '\\':
+				case '/':
+					sb.append((char) c);
+					break;
+				case 'b':
+					sb.append('\b');
+					break;
+				case 'f':
+					sb.append('\f');
+					break;
+				case 'n':
+					sb.append('\n');
+					break;
+				case 'r':
+					sb.append('\r');
+					break;
+				case 't':
+					sb.append('\t');
+					break;
+				case 'u':
+					int code = 0;
+					for (int i=0; i < 4; i++) {
+						int digit = Character.digit(read(), 16);
+						if (digit < 0) {
+							throw new ParseException("Invalid JSON: Invalid unicode escape at position " + offset, 0);
+						}
+						code = code * 16 + digit;
+					}
+					sb.append((char) code);
+					break;
+				default:
+					throw unexpected(c);
+			}
+		}
+	}
+
+
+	private void expect(final char expected)
+		throws IOException, ParseException {
+
+		int c = readNonWhitespace();
+		if (c != expected) {
+			throw unexpected(c);
+		}
+	}
+
+
+	private ParseException unexpected(final int c) {
+
+		if (c == -1) {
+			return new ParseException("Invalid JSON: Unexpected end of input at position " + offset, 0);
+		}
+		return new ParseException("Invalid JSON: Unexpected character " + (char) c + " at position " + (offset - 1), 0);
+	}
+
+
+	private static boolean isWhitespace(final int c) {
+
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+	}
+
+
+	private int peek()
+		throws IOException {
+
+		if (peeked == -2) {
+			peeked = in.read();
+		}
+		return peeked;
+	}
+
+
+	private int peekNonWhitespace()
+		throws IOException {
+
+		while (isWhitespace(peek())) {
+			read();
+		}
+		return peek();
+	}
+
+
+	private int read()
+		throws IOException {
+
+		int c = peek();
+		peeked = -2;
+
+		if (c != -1) {
+			offset++;
+			if (capture != null) {
+				capture.append((char) c);
+			}
+		}
+		return c;
+	}
+
+
+	private int readNonWhitespace()
+		throws IOException {
+
+		peekNonWhitespace();
+		return read();
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk;
+
+
+import java.security.Key;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.jcip.annotations.ThreadSafe;
+
+
+/**
+ * Memoising converter of JSON Web Keys (JWK) to their standard Java class
+ * representation. The converted keys are cached by JWK equality, so that a
+ * JWK is converted only once, also when a JWK source returns new but equal
+ * JWK instances on each call.
+ *
+ * <p>The cache is bounded. When it fills up, the least recently added JWK
+ * is evicted, e.g. a key of a previous JWK set after a JWK set refresh.
+ *
+ * <p>Lookups are lock-free. A lookup computes the hash code of the JWK, over
+ * all its parameters, and on a hit compares the cached JWK for equality,
+ * unless it is the same instance. This is cheaper than a key conversion,
+ * but not free for large keys, such as RSA keys.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@ThreadSafe
+public class KeyConversionCache {
+
+
+	/**
+	 * The default maximum number of JWKs to cache conversions for.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 100;
+
+
+	/**
+	 * The maximum number of JWKs to cache conversions for.
+	 */
+	private final int maxSize;
+
+
+	/**
+	 * The cached conversions, keyed by JWK.
+	 */
+	private final ConcurrentMap<JWK, List<Key>> cache = new ConcurrentHashMap<>();
+
+
+	/**
+	 * The cached JWKs in order of addition, guarded by this.
+	 */
+	private final Queue<JWK> insertionOrder = new ArrayDeque<>();
+
+
+	/**
+	 * Creates a new key conversion cache with the
+	 * {@link #DEFAULT_MAX_SIZE default maximum size}.
+	 */
+	public KeyConversionCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+
+	/**
+	 * Creates a new key conversion cache.
+	 *
+	 * @param maxSize The maximum number of JWKs to cache conversions
+	 *                for. Must be positive.
+	 */
+	public KeyConversionCache(final int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("The maximum size must be positive");
+		}
+		this.maxSize = maxSize;
+	}
+
+
+	/**
+	 * Returns the maximum number of JWKs to cache conversions for.
+	 *
+	 * @return The maximum size.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+
+	/**
+	 * Returns the number of JWKs with cached conversions.
+	 *
+	 * @return The cache size.
+	 */
+	public int size() {
+		return cache.size();
+	}
+
+
+	/**
+	 * Clears the cache.
+	 */
+	public synchronized void clear() {
+		cache.clear();
+		insertionOrder.clear();
+	}
+
+
+	/**
+	 * Converts the specified JSON Web Key (JWK) to its standard Java class
+	 * representation, as {@link KeyConverter#toJavaKeys} does.
+	 *
+	 * @param jwk The JWK. Must not be {@code null}.
+	 *
+	 * @return The converted keys, as an unmodifiable list, empty if the
+	 *         conversion failed.
+	 */
+	public List<Key> toJavaKeys(final JWK jwk) {
+
+		List<Key> keys = cache.get(jwk);
+
+		if (keys != null) {
+			return keys;
+		}
+
+		keys = Collections.unmodifiableList(new ArrayList<>(KeyConverter.toJavaKeys(Collections.singletonList(jwk))));
+
+		synchronized (this) {
+			List<Key> existing = cache.putIfAbsent(jwk, keys);
+			if (existing != null) {
+				// Converted concurrently
+				return existing;
+			}
+			insertionOrder.add(jwk);
+			while (insertionOrder.size() > maxSize) {
+				cache.remove(insertionOrder.poll());
+			}
+		}
+
+		return keys;
+	}
+
+
+	/**
+	 * Converts the specified list of JSON Web Keys (JWK) to their
+	 * standard Java class representation, as
+	 * {@link KeyConverter#toJavaKeys} does.
+	 *
+	 * @param jwkList The JWK list. May be {@code null}.
+	 *
+	 * @return The converted keys, empty list if none or {@code null}.
+	 */
+	public List<Key> toJavaKeys(final List<JWK> jwkList) {
+
+		if (jwkList == null || jwkList.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		if (jwkList.size() == 1) {
+			return toJavaKeys(jwkList.get(0));
+		}
+
+		List<Key> out = new ArrayList<>();
+		for (JWK jwk: jwkList) {
+			out.addAll(toJavaKeys(jwk));
+		}
+		return out;
+	}
+}
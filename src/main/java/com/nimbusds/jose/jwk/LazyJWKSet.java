@@ -0,0 +1,302 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk;
+
+
+import java.io.*;
+import java.text.ParseException;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import net.jcip.annotations.Immutable;
+
+import com.nimbusds.jose.util.StandardCharset;
+
+
+/**
+ * JSON Web Key (JWK) set with lazily parsed keys, for large JWK sets of
+ * which only a few keys are used, such as aggregated JWK sets in a
+ * federation.
+ *
+ * <p>The JWK set is read with a streaming parser which doesn't build a JSON
+ * tree of the keys. Only the key ID (kid), type (kty), use and algorithm
+ * (alg) of each key are parsed upfront, a key is fully parsed, including any
+ * X.509 certificate chain, on its first access. Lookups by key ID and
+ * selections with a {@link JWKSelector} constraining the key ID, type, use or
+ * algorithm only parse the matching keys, provided the JWK set has at least
+ * 16 keys.
+ *
+ * <p>The key parameters other than kid, kty, use and alg are validated on
+ * first access of the key. An access to an invalid key throws an
+ * {@link IllegalStateException}, use {@link #validate()} to check all keys
+ * upfront.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ * LazyJWKSet jwkSet = LazyJWKSet.load(new File("federation-jwks.json"));
+ * JWK jwk = jwkSet.getKeyByKeyId("2022-06-01");
+ * </pre>
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@Immutable
+public class LazyJWKSet extends JWKSet {
+
+
+	private static final long serialVersionUID = 1L;
+
+
+	/**
+	 * Unmodifiable list of lazily parsed keys.
+	 */
+	static final class LazyJWKList extends AbstractList<JWK> implements RandomAccess, Serializable {
+
+
+		private static final long serialVersionUID = 1L;
+
+
+		/**
+		 * The key entries.
+		 */
+		private final JWKSetStreamParser.KeyEntry[] entries;
+
+
+		/**
+		 * The parsed keys, {@code null} elements if not parsed yet.
+		 */
+		private transient volatile JWK[] jwks;
+
+
+		/**
+		 * Creates a new list of lazily parsed keys.
+		 *
+		 * @param entries The key entries.
+		 */
+		LazyJWKList(final List<JWKSetStreamParser.KeyEntry> entries) {
+			this.entries = entries.toArray(new JWKSetStreamParser.KeyEntry[0]);
+			this.jwks = new JWK[this.entries.length];
+		}
+
+
+		@Override
+		public JWK get(final int index) {
+
+			JWK[] parsed = jwks;
+			if (parsed == null) {
+				// Deserialised
+				parsed = new JWK[entries.length];
+				jwks = parsed;
+			}
+
+			JWK jwk = parsed[index];
+			if (jwk != null) {
+				return jwk;
+			}
+
+			try {
+				jwk = JWK.parse(entries[index].json);
+			} catch (ParseException e) {
+				throw new IllegalStateException("Invalid JWK at position " + entries[index].position + ": " + e.getMessage(), e);
+			}
+
+			// Benign race, the keys are immutable
+			parsed[index] = jwk;
+			return jwk;
+		}
+
+
+		@Override
+		public int size() {
+
+			return entries.length;
+		}
+
+
+		/**
+		 * Returns the number of parsed keys.
+		 *
+		 * @return The number of parsed keys.
+		 */
+		int getParsedCount() {
+
+			JWK[] parsed = jwks;
+			if (parsed == null) {
+				return 0;
+			}
+
+			int count = 0;
+			for (JWK jwk: parsed) {
+				if (jwk != null) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+
+		/**
+		 * Returns the value of an indexed key parameter which is parsed
+		 * upfront, without parsing the key.
+		 *
+		 * @param index The key index.
+		 * @param field The key parameter.
+		 *
+		 * @return The parameter value.
+		 */
+		Object getParameter(final int index, final JWKSetIndex.Field field) {
+
+			switch (field) {
+				case KEY_ID:
+					return entries[index].kid;
+				case KEY_TYPE:
+					return entries[index].kty;
+				case KEY_USE:
+					return entries[index].use;
+				case ALGORITHM:
+					return entries[index].alg;
+				default:
+					throw new IllegalArgumentException("Unsupported key parameter: " + field);
+			}
+		}
+	}
+
+
+	/**
+	 * Creates a new lazily parsed JWK set.
+	 *
+	 * @param parser The streaming parser with the parsed JWK set.
+	 */
+	private LazyJWKSet(final JWKSetStreamParser parser) {
+
+		super(new LazyJWKList(parser.getKeyEntries()), parser.getCustomMembers(), false);
+	}
+
+
+	/**
+	 * Returns the number of keys that have been fully parsed.
+	 *
+	 * @return The number of parsed keys.
+	 */
+	public int getParsedKeyCount() {
+
+		return ((LazyJWKList) getKeys()).getParsedCount();
+	}
+
+
+	/**
+	 * Parses all keys of this JWK set.
+	 *
+	 * @throws ParseException If a key is invalid.
+	 */
+	public void validate()
+		throws ParseException {
+
+		for (int i=0; i < getKeys().size(); i++) {
+			try {
+				getKeys().get(i);
+			} catch (IllegalStateException e) {
+				throw new ParseException(e.getMessage(), 0);
+			}
+		}
+	}
+
+
+	/**
+	 * Parses the specified string representing a JSON Web Key (JWK) set.
+	 *
+	 * @param s The string to parse. Must not be {@code null}.
+	 *
+	 * @return The lazily parsed JWK set.
+	 *
+	 * @throws ParseException If the string couldn't be parsed to a valid
+	 *                        JSON Web Key (JWK) set.
+	 */
+	public static LazyJWKSet parse(final String s)
+		throws ParseException {
+
+		try {
+			return parse(new StringReader(s));
+		} catch (IOException e) {
+			// Not thrown by a string reader
+			throw new ParseException(e.getMessage(), 0);
+		}
+	}
+
+
+	/**
+	 * Parses a JSON Web Key (JWK) set from the specified character stream.
+	 * The stream is not closed.
+	 *
+	 * @param reader The character stream. Must not be {@code null}.
+	 *
+	 * @return The lazily parsed JWK set.
+	 *
+	 * @throws IOException    If the stream couldn't be read.
+	 * @throws ParseException If the stream couldn't be parsed to a valid
+	 *                        JSON Web Key (JWK) set.
+	 */
+	public static LazyJWKSet parse(final Reader reader)
+		throws IOException, ParseException {
+
+		Reader in = reader instanceof BufferedReader || reader instanceof StringReader ? reader : new BufferedReader(reader);
+		return new LazyJWKSet(JWKSetStreamParser.parse(in));
+	}
+
+
+	/**
+	 * Loads a JSON Web Key (JWK) set from the specified UTF-8 input stream.
+	 * The stream is not closed.
+	 *
+	 * @param inputStream The JWK set input stream. Must not be
+	 *                    {@code null}.
+	 *
+	 * @return The lazily parsed JWK set.
+	 *
+	 * @throws IOException    If the input stream couldn't be read.
+	 * @throws ParseException If the input stream couldn't be parsed to a
+	 *                        valid JSON Web Key (JWK) set.
+	 */
+	public static LazyJWKSet load(final InputStream inputStream)
+		throws IOException, ParseException {
+
+		return parse(new InputStreamReader(inputStream, StandardCharset.UTF_8));
+	}
+
+
+	/**
+	 * Loads a JSON Web Key (JWK) set from the specified UTF-8 file.
+	 *
+	 * @param file The JWK set file. Must not be {@code null}.
+	 *
+	 * @return The lazily parsed JWK set.
+	 *
+	 * @throws IOException    If the file couldn't be read.
+	 * @throws ParseException If the file couldn't be parsed to a valid
+	 *                        JSON Web Key (JWK) set.
+	 */
+	public static LazyJWKSet load(final File file)
+		throws IOException, ParseException {
+
+		try (InputStream in = new FileInputStream(file)) {
+			return load(in);
+		}
+	}
+}
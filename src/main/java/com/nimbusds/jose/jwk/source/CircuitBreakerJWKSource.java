@@ -0,0 +1,521 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk.source;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.RemoteKeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.proc.SecurityContext;
+
+
+/**
+ * Circuit breaker for a JSON Web Key (JWK) source, typically a
+ * {@link RemoteJWKSet}, so that requests fail fast while the JWK set URL is
+ * unavailable instead of each waiting for the HTTP timeouts.
+ *
+ * <p>The circuit breaker has three states:
+ *
+ * <ul>
+ *     <li>{@link State#CLOSED} -- The requests are passed to the wrapped JWK
+ *         source. The circuit breaker opens after a number of consecutive
+ *         failures, i.e. {@link KeySourceException}s, of the wrapped source.
+ *     <li>{@link State#OPEN} -- The wrapped JWK source is not called. The
+ *         keys are selected from the cached JWK set of a wrapped
+ *         {@link RemoteJWKSet}, including a stale one within the
+ *         stale-if-error time of a {@link DefaultJWKSetCache}, else from the
+ *         failover JWK source, else the request fails immediately.
+ *     <li>{@link State#HALF_OPEN} -- After the cool-down time a single trial
+ *         request is passed to the wrapped JWK source, the other requests
+ *         are handled as when open. The circuit breaker closes if the trial
+ *         succeeds, else opens again.
+ * </ul>
+ *
+ * <p>The failover JWK source is the one specified for the circuit breaker,
+ * which is also used when the wrapped JWK source fails, else the failover
+ * JWK source of a wrapped {@link RemoteJWKSet}. Note that
+ * failures of the wrapped {@link RemoteJWKSet} handled by its own failover
+ * JWK source are not seen by the circuit breaker, the failover should
+ * therefore be specified for the circuit breaker.
+ *
+ * <p>The state can be obtained for health checks with {@link #getState()}.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ * JWKSource&lt;SecurityContext&gt; jwkSource = new CircuitBreakerJWKSource&lt;&gt;(
+ *     new RemoteJWKSet&lt;&gt;(jwkSetURL),
+ *     5, 30, TimeUnit.SECONDS);
+ * </pre>
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@ThreadSafe
+public class CircuitBreakerJWKSource<C extends SecurityContext> implements JWKSource<C>, Closeable {
+	
+	
+	/**
+	 * Circuit breaker state.
+	 */
+	public enum State {
+		
+		
+		/**
+		 * Requests are passed to the wrapped JWK source.
+		 */
+		CLOSED,
+		
+		
+		/**
+		 * Requests fail fast.
+		 */
+		OPEN,
+		
+		
+		/**
+		 * A single trial request is passed to the wrapped JWK source.
+		 */
+		HALF_OPEN
+	}
+	
+	
+	/**
+	 * The default number of consecutive failures to open the circuit
+	 * breaker. Set to 5.
+	 */
+	public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+	
+	
+	/**
+	 * The default cool-down time before a trial request in the open state,
+	 * in milliseconds. Set to 30 seconds.
+	 */
+	public static final long DEFAULT_COOL_DOWN_TIME = 30 * 1000L;
+	
+	
+	/**
+	 * The wrapped JWK source.
+	 */
+	private final JWKSource<C> jwkSource;
+	
+	
+	/**
+	 * The failover JWK source, {@code null} if none.
+	 */
+	private final JWKSource<C> failoverJWKSource;
+	
+	
+	/**
+	 * The number of consecutive failures to open the circuit breaker.
+	 */
+	private final int failureThreshold;
+	
+	
+	/**
+	 * The cool-down time, in nanoseconds.
+	 */
+	private final long coolDownNanos;
+	
+	
+	/**
+	 * The state. Written while holding the lock of this.
+	 */
+	private volatile State state = State.CLOSED;
+	
+	
+	/**
+	 * The number of consecutive failures. Written while holding the lock
+	 * of this.
+	 */
+	private volatile int consecutiveFailures;
+	
+	
+	/**
+	 * The nano time when the circuit breaker was last opened. Guarded by
+	 * this.
+	 */
+	private long openedNanoTime;
+	
+	
+	/**
+	 * Creates a new circuit breaker with the
+	 * {@link #DEFAULT_FAILURE_THRESHOLD default failure threshold} and
+	 * {@link #DEFAULT_COOL_DOWN_TIME default cool-down time}.
+	 *
+	 * @param jwkSource The JWK source to wrap. Must not be {@code null}.
+	 */
+	public CircuitBreakerJWKSource(final JWKSource<C> jwkSource) {
+		
+		this(jwkSource, DEFAULT_FAILURE_THRESHOLD, DEFAULT_COOL_DOWN_TIME, TimeUnit.MILLISECONDS);
+	}
+	
+	
+	/**
+	 * Creates a new circuit breaker.
+	 *
+	 * @param jwkSource        The JWK source to wrap. Must not be
+	 *                         {@code null}.
+	 * @param failureThreshold The number of consecutive failures to open
+	 *                         the circuit breaker. Must be positive.
+	 * @param coolDownTime     The time in the open state before a trial
+	 *                         request. Must not be negative.
+	 * @param timeUnit         The cool-down time unit. Must not be
+	 *                         {@code null}.
+	 */
+	public CircuitBreakerJWKSource(final JWKSource<C> jwkSource,
+				       final int failureThreshold,
+				       final long coolDownTime,
+				       final TimeUnit timeUnit) {
+		
+		this(jwkSource, null, failureThreshold, coolDownTime, timeUnit);
+	}
+	
+	
+	/**
+	 * Creates a new circuit breaker.
+	 *
+	 * @param jwkSource         The JWK source to wrap. Must not be
+	 *                          {@code null}.
+	 * @param failoverJWKSource The failover JWK source in case the wrapped
+	 *                          JWK source fails or the circuit breaker is
+	 *                          open, {@code null} if none.
+	 * @param failureThreshold  The number of consecutive failures to open
+	 *                          the circuit breaker. Must be positive.
+	 * @param coolDownTime      The time in the open state before a trial
+	 *                          request. Must not be negative.
+	 * @param timeUnit          The cool-down time unit. Must not be
+	 *                          {@code null}.
+	 */
+	public CircuitBreakerJWKSource(final JWKSource<C> jwkSource,
+				       final JWKSource<C> failoverJWKSource,
+				       final int failureThreshold,
+				       final long coolDownTime,
+				       final TimeUnit timeUnit) {
+		
+		if (jwkSource == null) {
+			throw new IllegalArgumentException("The JWK source must not be null");
+		}
+		this.jwkSource = jwkSource;
+		
+		this.failoverJWKSource = failoverJWKSource;
+		
+		if (failureThreshold < 1) {
+			throw new IllegalArgumentException("The failure threshold must be positive");
+		}
+		this.failureThreshold = failureThreshold;
+		
+		if (coolDownTime < 0) {
+			throw new IllegalArgumentException("The cool-down time must not be negative");
+		}
+		this.coolDownNanos = timeUnit.toNanos(coolDownTime);
+	}
+	
+	
+	/**
+	 * Returns the wrapped JWK source.
+	 *
+	 * @return The wrapped JWK source.
+	 */
+	public JWKSource<C> getJWKSource() {
+		
+		return jwkSource;
+	}
+	
+	
+	/**
+	 * Returns the failover JWK source.
+	 *
+	 * @return The failover JWK source specified for the circuit breaker,
+	 *         else the failover JWK source of a wrapped
+	 *         {@link RemoteJWKSet}, {@code null} if none.
+	 */
+	public JWKSource<C> getFailoverJWKSource() {
+		
+		if (failoverJWKSource != null) {
+			return failoverJWKSource;
+		}
+		
+		if (jwkSource instanceof RemoteJWKSet) {
+			return ((RemoteJWKSet<C>) jwkSource).getFailoverJWKSource();
+		}
+		
+		return null;
+	}
+	
+	
+	/**
+	 * Returns the number of consecutive failures to open the circuit
+	 * breaker.
+	 *
+	 * @return The failure threshold.
+	 */
+	public int getFailureThreshold() {
+		
+		return failureThreshold;
+	}
+	
+	
+	/**
+	 * Returns the time in the open state before a trial request.
+	 *
+	 * @param timeUnit The time unit to use.
+	 *
+	 * @return The cool-down time.
+	 */
+	public long getCoolDownTime(final TimeUnit timeUnit) {
+		
+		return timeUnit.convert(coolDownNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	
+	/**
+	 * Returns the current state of the circuit breaker, e.g. for a health
+	 * check. An open circuit breaker whose cool-down time has elapsed is
+	 * reported as open until the next request.
+	 *
+	 * @return The state.
+	 */
+	public State getState() {
+		
+		return state;
+	}
+	
+	
+	/**
+	 * Returns the number of consecutive failures of the wrapped JWK
+	 * source.
+	 *
+	 * @return The number of consecutive failures, zero if the last
+	 *         request succeeded.
+	 */
+	public int getConsecutiveFailures() {
+		
+		return consecutiveFailures;
+	}
+	
+	
+	/**
+	 * Acquires a permission to call the wrapped JWK source.
+	 *
+	 * @return {@code true} if the wrapped JWK source may be called,
+	 *         {@code false} to fail fast.
+	 */
+	private boolean acquirePermission() {
+		
+		if (state == State.CLOSED) {
+			return true;
+		}
+		
+		synchronized (this) {
+			switch (state) {
+				case CLOSED:
+					return true;
+				case OPEN:
+					if (System.nanoTime() - openedNanoTime < coolDownNanos) {
+						return false;
+					}
+					// Permit a single trial request
+					state = State.HALF_OPEN;
+					return true;
+				default:
+					// Trial request in progress
+					return false;
+			}
+		}
+	}
+	
+	
+	/**
+	 * Records a successful call of the wrapped JWK source.
+	 */
+	private void recordSuccess() {
+		
+		if (state == State.CLOSED && consecutiveFailures == 0) {
+			return;
+		}
+		
+		synchronized (this) {
+			consecutiveFailures = 0;
+			state = State.CLOSED;
+		}
+	}
+	
+	
+	/**
+	 * Records a failed call of the wrapped JWK source, opens the circuit
+	 * breaker if the failure threshold is reached or the trial request
+	 * failed.
+	 */
+	private synchronized void recordFailure() {
+		
+		if (consecutiveFailures < Integer.MAX_VALUE) {
+			consecutiveFailures++;
+		}
+		
+		if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+			state = State.OPEN;
+			openedNanoTime = System.nanoTime();
+		}
+	}
+	
+	
+	/**
+	 * Returns the cached JWK set of a wrapped {@link RemoteJWKSet}.
+	 *
+	 * @return The cached JWK set, which may be stale within the
+	 *         stale-if-error time of a {@link DefaultJWKSetCache},
+	 *         {@code null} if none.
+	 */
+	private JWKSet getCachedJWKSet() {
+		
+		if (! (jwkSource instanceof RemoteJWKSet)) {
+			return null;
+		}
+		
+		JWKSetCache jwkSetCache = ((RemoteJWKSet<C>) jwkSource).getJWKSetCache();
+		
+		JWKSet jwkSet = null;
+		if (jwkSetCache instanceof DefaultJWKSetCache) {
+			jwkSet = ((DefaultJWKSetCache) jwkSetCache).getStale();
+		}
+		
+		return jwkSet != null ? jwkSet : jwkSetCache.get();
+	}
+	
+	
+	/**
+	 * Selects the keys from the failover JWK source.
+	 *
+	 * @param failover    The failover JWK source.
+	 * @param jwkSelector The JWK selector.
+	 * @param context     The context, {@code null} if not required.
+	 * @param message     The message of the failure.
+	 *
+	 * @return The matching JWKs.
+	 *
+	 * @throws KeySourceException If the failover JWK source failed.
+	 */
+	private List<JWK> failover(final JWKSource<C> failover,
+				   final JWKSelector jwkSelector,
+				   final C context,
+				   final String message)
+		throws KeySourceException {
+		
+		try {
+			return failover.get(jwkSelector, context);
+		} catch (KeySourceException e) {
+			throw new RemoteKeySourceException(
+				message + "; Failover JWK source retrieval failed with: " + e.getMessage(),
+				e
+			);
+		}
+	}
+	
+	
+	/**
+	 * Selects the keys without calling the wrapped JWK source, from the
+	 * cached JWK set, else from the failover JWK source.
+	 *
+	 * @param jwkSelector The JWK selector.
+	 * @param context     The context, {@code null} if not required.
+	 *
+	 * @return The matching JWKs.
+	 *
+	 * @throws KeySourceException If no cached JWK set and failover JWK
+	 *                            source are available, or the failover
+	 *                            JWK source failed.
+	 */
+	private List<JWK> failFast(final JWKSelector jwkSelector, final C context)
+		throws KeySourceException {
+		
+		List<JWK> cachedMatches = null;
+		
+		JWKSet jwkSet = getCachedJWKSet();
+		if (jwkSet != null) {
+			cachedMatches = jwkSelector.select(jwkSet);
+			if (! cachedMatches.isEmpty()) {
+				return cachedMatches;
+			}
+		}
+		
+		JWKSource<C> failover = getFailoverJWKSource();
+		if (failover != null) {
+			return failover(failover, jwkSelector, context, "JWK source circuit breaker is open");
+		}
+		
+		if (cachedMatches != null) {
+			return cachedMatches;
+		}
+		
+		throw new RemoteKeySourceException("JWK source circuit breaker is open", null);
+	}
+	
+	
+	@Override
+	public List<JWK> get(final JWKSelector jwkSelector, final C context)
+		throws KeySourceException {
+		
+		if (! acquirePermission()) {
+			return failFast(jwkSelector, context);
+		}
+		
+		List<JWK> matches;
+		try {
+			matches = jwkSource.get(jwkSelector, context);
+		} catch (KeySourceException e) {
+			recordFailure();
+			// The failover of a wrapped remote JWK set was
+			// already tried
+			if (failoverJWKSource != null) {
+				return failover(failoverJWKSource, jwkSelector, context, e.getMessage());
+			}
+			throw e;
+		} catch (RuntimeException e) {
+			recordFailure();
+			throw e;
+		}
+		
+		recordSuccess();
+		return matches;
+	}
+	
+	
+	/**
+	 * Closes the wrapped JWK source if it is {@link Closeable}.
+	 *
+	 * @throws IOException If closing failed.
+	 */
+	@Override
+	public void close()
+		throws IOException {
+		
+		if (jwkSource instanceof Closeable) {
+			((Closeable) jwkSource).close();
+		}
+	}
+}
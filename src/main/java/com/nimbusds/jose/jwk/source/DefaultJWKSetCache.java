@@ -20,6 +20,7 @@ package com.nimbusds.jose.jwk.source;
 
 import java.util.Date;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import net.jcip.annotations.ThreadSafe;
 
@@ -29,9 +30,22 @@ import com.nimbusds.jose.jwk.JWKSet;
 /**
  * JSON Web Key (JWK) set cache implementation.
  *
+ * <p>A JWK set can be put with a max-age, e.g. from the HTTP Cache-Control
+ * header of the JWK set URL response, which then overrides the configured
+ * refresh time for the cached JWK set. The lifespan is extended to the
+ * max-age if the max-age is longer.
+ *
+ * <p>An optional stale-if-error time can be set, during which an expired JWK
+ * set can still be obtained with {@link #getStale()}, for use when the JWK
+ * set couldn't be refreshed, e.g. during an outage of the JWK set URL.
+ *
+ * <p>The cache keeps counters of the hits, the served stale JWK sets and the
+ * recorded refresh errors, for monitoring. The cache hits, misses and served
+ * stale JWK sets can also be reported to a {@link JWKSourceEventListener}.
+ *
  * @author Vladimir Dzhuvinov
  * @author Sarvesh Sharma
- * @version 2021-01-08
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class DefaultJWKSetCache implements JWKSetCache {
@@ -61,6 +75,14 @@ public class DefaultJWKSetCache implements JWKSetCache {
 	 * negative means no refresh time.
 	 */
 	private final long refreshTime;
+	
+	
+	/**
+	 * The time after the expiration during which the cached JWK set can
+	 * still be served if it couldn't be refreshed, in {@link #timeUnit}s,
+	 * negative if not specified.
+	 */
+	private final long staleIfError;
 
 	
 	/**
@@ -75,6 +97,37 @@ public class DefaultJWKSetCache implements JWKSetCache {
 	private volatile JWKSetWithTimestamp jwkSetWithTimestamp;
 	
 	
+	/**
+	 * The max-age of the cached JWK set, in milliseconds, negative if not
+	 * specified. Written before {@link #jwkSetWithTimestamp}.
+	 */
+	private volatile long maxAge = -1L;
+	
+	
+	/**
+	 * The cache hit counter.
+	 */
+	private final AtomicLong hitCount = new AtomicLong();
+	
+	
+	/**
+	 * The served stale JWK set counter.
+	 */
+	private final AtomicLong staleCount = new AtomicLong();
+	
+	
+	/**
+	 * The refresh error counter.
+	 */
+	private final AtomicLong errorCount = new AtomicLong();
+	
+	
+	/**
+	 * The event listener.
+	 */
+	private final JWKSourceEventListener eventListener;
+	
+	
 	/**
 	 * Creates a new JWK set, the default lifespan of the cached JWK set is
 	 * set to 15 minutes, the refresh time to 5 minutes.
@@ -98,20 +151,90 @@ public class DefaultJWKSetCache implements JWKSetCache {
 	 */
 	public DefaultJWKSetCache(final long lifespan, final long refreshTime, final TimeUnit timeUnit) {
 		
+		this(lifespan, refreshTime, -1L, timeUnit);
+	}
+	
+	
+	/**
+	 * Creates a new JWK set cache.
+	 *
+	 * @param lifespan     The lifespan of the cached JWK set before it
+	 *                     expires, negative means no expiration.
+	 * @param refreshTime  The time after which the cached JWK set is
+	 *                     marked for refresh, negative if not specified.
+	 *                     Should be shorter or equal to the lifespan.
+	 * @param staleIfError The time after the expiration during which the
+	 *                     cached JWK set can still be obtained with
+	 *                     {@link #getStale()} if it couldn't be refreshed,
+	 *                     negative if not specified.
+	 * @param timeUnit     The lifespan time unit, may be {@code null} if
+	 *                     no expiration, refresh or stale-if-error time.
+	 */
+	public DefaultJWKSetCache(final long lifespan, final long refreshTime, final long staleIfError, final TimeUnit timeUnit) {
+		
+		this(lifespan, refreshTime, staleIfError, timeUnit, null);
+	}
+	
+	
+	/**
+	 * Creates a new JWK set cache.
+	 *
+	 * @param lifespan      The lifespan of the cached JWK set before it
+	 *                      expires, negative means no expiration.
+	 * @param refreshTime   The time after which the cached JWK set is
+	 *                      marked for refresh, negative if not specified.
+	 *                      Should be shorter or equal to the lifespan.
+	 * @param staleIfError  The time after the expiration during which the
+	 *                      cached JWK set can still be obtained with
+	 *                      {@link #getStale()} if it couldn't be
+	 *                      refreshed, negative if not specified.
+	 * @param timeUnit      The lifespan time unit, may be {@code null} if
+	 *                      no expiration, refresh or stale-if-error time.
+	 * @param eventListener The listener of the cache hits, misses and
+	 *                      served stale JWK sets, {@code null} if none.
+	 */
+	public DefaultJWKSetCache(final long lifespan,
+				  final long refreshTime,
+				  final long staleIfError,
+				  final TimeUnit timeUnit,
+				  final JWKSourceEventListener eventListener) {
+		
 		this.lifespan = lifespan;
 		this.refreshTime = refreshTime;
+		this.staleIfError = staleIfError;
 
-		if ((lifespan > -1 || refreshTime > -1) && timeUnit == null) {
+		if ((lifespan > -1 || refreshTime > -1 || staleIfError > -1) && timeUnit == null) {
 			throw new IllegalArgumentException("A time unit must be specified for non-negative lifespans or refresh times");
 		}
 		
 		this.timeUnit = timeUnit;
+		
+		this.eventListener = eventListener != null ? eventListener : NoOpJWKSourceEventListener.INSTANCE;
 	}
 	
 	
 	@Override
 	public void put(final JWKSet jwkSet) {
 		
+		put(jwkSet, -1L, TimeUnit.MILLISECONDS);
+	}
+	
+	
+	/**
+	 * Puts the specified JWK set into the cache with a max-age, e.g. from
+	 * the HTTP Cache-Control header of the JWK set URL response. The
+	 * max-age overrides the configured refresh time for the JWK set, the
+	 * lifespan is extended to the max-age if the max-age is longer.
+	 *
+	 * @param jwkSet   The JWK set to cache, {@code null} to clear the
+	 *                 cache.
+	 * @param maxAge   The max-age, zero or negative if not specified.
+	 * @param timeUnit The max-age time unit. Must not be {@code null}.
+	 */
+	public void put(final JWKSet jwkSet, final long maxAge, final TimeUnit timeUnit) {
+		
+		this.maxAge = maxAge > 0 ? TimeUnit.MILLISECONDS.convert(maxAge, timeUnit) : -1L;
+		
 		final JWKSetWithTimestamp updatedJWKSetWithTs;
 		if (jwkSet != null) {
 			updatedJWKSetWithTs = new JWKSetWithTimestamp(jwkSet);
@@ -127,20 +250,145 @@ public class DefaultJWKSetCache implements JWKSetCache {
 	@Override
 	public JWKSet get() {
 		
-		if (jwkSetWithTimestamp == null || isExpired()) {
+		final JWKSet jwkSet = peek();
+		
+		if (jwkSet == null) {
+			eventListener.cacheMiss();
+			return null;
+		}
+		
+		hitCount.incrementAndGet();
+		eventListener.cacheHit();
+		return jwkSet;
+	}
+	
+	
+	/**
+	 * Gets the cached JWK set without counting a cache hit or miss, e.g.
+	 * for a re-check after acquiring a lock.
+	 *
+	 * @return The cached JWK set, {@code null} if none or expired.
+	 */
+	JWKSet peek() {
+		
+		final JWKSetWithTimestamp jwkSetWithTs = jwkSetWithTimestamp;
+		
+		if (jwkSetWithTs == null || isExpired(jwkSetWithTs, 0L)) {
+			return null;
+		}
+		
+		return jwkSetWithTs.getJWKSet();
+	}
+	
+	
+	/**
+	 * Gets the cached JWK set for use when it couldn't be refreshed. An
+	 * expired JWK set is returned within the stale-if-error time. Only
+	 * the serving of an expired JWK set is counted, as stale, the request
+	 * was already counted as a cache hit or miss.
+	 *
+	 * @return The cached JWK set, {@code null} if none or expired beyond
+	 *         the stale-if-error time.
+	 */
+	public JWKSet getStale() {
+		
+		final JWKSetWithTimestamp jwkSetWithTs = jwkSetWithTimestamp;
+		
+		if (jwkSetWithTs == null) {
+			return null;
+		}
+		
+		if (! isExpired(jwkSetWithTs, 0L)) {
+			return jwkSetWithTs.getJWKSet();
+		}
+		
+		if (staleIfError < 0 || isExpired(jwkSetWithTs, TimeUnit.MILLISECONDS.convert(staleIfError, timeUnit))) {
 			return null;
 		}
 		
-		return jwkSetWithTimestamp.getJWKSet();
+		staleCount.incrementAndGet();
+		eventListener.staleJWKSetServed();
+		return jwkSetWithTs.getJWKSet();
+	}
+	
+	
+	/**
+	 * Records a failed refresh of the cached JWK set.
+	 */
+	public void recordError() {
+		
+		errorCount.incrementAndGet();
+	}
+	
+	
+	/**
+	 * Returns the event listener.
+	 *
+	 * @return The event listener, a {@link NoOpJWKSourceEventListener}
+	 *         if none was specified.
+	 */
+	public JWKSourceEventListener getEventListener() {
+		
+		return eventListener;
+	}
+	
+	
+	/**
+	 * Returns the number of cache hits, i.e. the number of times a
+	 * non-expired JWK set was obtained from the cache.
+	 *
+	 * @return The cache hit count.
+	 */
+	public long getHitCount() {
+		
+		return hitCount.get();
+	}
+	
+	
+	/**
+	 * Returns the number of times an expired JWK set was served within
+	 * the stale-if-error time.
+	 *
+	 * @return The stale count.
+	 */
+	public long getStaleCount() {
+		
+		return staleCount.get();
+	}
+	
+	
+	/**
+	 * Returns the number of recorded refresh errors.
+	 *
+	 * @return The error count.
+	 */
+	public long getErrorCount() {
+		
+		return errorCount.get();
 	}
 
 
 	@Override
 	public boolean requiresRefresh() {
 
-		return jwkSetWithTimestamp != null &&
-			refreshTime > -1 &&
-			new Date().getTime() > jwkSetWithTimestamp.getDate().getTime() + TimeUnit.MILLISECONDS.convert(refreshTime, timeUnit);
+		final JWKSetWithTimestamp jwkSetWithTs = jwkSetWithTimestamp;
+		
+		if (jwkSetWithTs == null) {
+			return false;
+		}
+		
+		final long maxAgeMs = maxAge;
+		
+		final long refreshTimeMs;
+		if (maxAgeMs > -1) {
+			refreshTimeMs = maxAgeMs;
+		} else if (refreshTime > -1) {
+			refreshTimeMs = TimeUnit.MILLISECONDS.convert(refreshTime, timeUnit);
+		} else {
+			return false;
+		}
+		
+		return new Date().getTime() > jwkSetWithTs.getDate().getTime() + refreshTimeMs;
 	}
 
 	
@@ -162,9 +410,66 @@ public class DefaultJWKSetCache implements JWKSetCache {
 	 */
 	public boolean isExpired() {
 	
-		return jwkSetWithTimestamp != null &&
-			lifespan > -1 &&
-			new Date().getTime() > jwkSetWithTimestamp.getDate().getTime() + TimeUnit.MILLISECONDS.convert(lifespan, timeUnit);
+		final JWKSetWithTimestamp jwkSetWithTs = jwkSetWithTimestamp;
+		
+		return jwkSetWithTs != null && isExpired(jwkSetWithTs, 0L);
+	}
+	
+	
+	/**
+	 * Returns {@code true} if the specified cached JWK set is expired.
+	 *
+	 * @param jwkSetWithTs The cached JWK set. Must not be {@code null}.
+	 * @param extension    Extension of the lifespan, in milliseconds.
+	 *
+	 * @return {@code true} if expired.
+	 */
+	private boolean isExpired(final JWKSetWithTimestamp jwkSetWithTs, final long extension) {
+		
+		if (lifespan < 0) {
+			return false;
+		}
+		
+		final long lifespanMs = Math.max(TimeUnit.MILLISECONDS.convert(lifespan, timeUnit), maxAge);
+		
+		return new Date().getTime() > jwkSetWithTs.getDate().getTime() + lifespanMs + extension;
+	}
+	
+	
+	/**
+	 * Returns the configured stale-if-error time of the cached JWK set.
+	 *
+	 * @param timeUnit The time unit to use.
+	 *
+	 * @return The configured stale-if-error time, negative if not
+	 *         specified.
+	 */
+	public long getStaleIfErrorTime(final TimeUnit timeUnit) {
+		
+		if (staleIfError < 0) {
+			return staleIfError;
+		}
+		
+		return timeUnit.convert(staleIfError, this.timeUnit);
+	}
+	
+	
+	/**
+	 * Returns the max-age of the cached JWK set.
+	 *
+	 * @param timeUnit The time unit to use.
+	 *
+	 * @return The max-age, negative if not specified.
+	 */
+	public long getMaxAge(final TimeUnit timeUnit) {
+		
+		final long maxAgeMs = maxAge;
+		
+		if (maxAgeMs < 0) {
+			return maxAgeMs;
+		}
+		
+		return timeUnit.convert(maxAgeMs, TimeUnit.MILLISECONDS);
 	}
 	
 	
@@ -0,0 +1,473 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk.source;
+
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.util.IOUtils;
+import com.nimbusds.jose.util.JSONObjectUtils;
+import com.nimbusds.jose.util.StandardCharset;
+
+
+/**
+ * JSON Web Key (JWK) set cache which persists each cached JWK set to a local
+ * file snapshot, for a warm start of a {@link RemoteJWKSet} after a restart.
+ *
+ * <p>The snapshot is a JSON object with the public keys of the JWK set and
+ * the time it was put into the cache:
+ *
+ * <pre>
+ * {
+ *   "timestamp" : 1654070400000,
+ *   "jwk_set"   : { "keys" : [ ... ] }
+ * }
+ * </pre>
+ *
+ * <p>The snapshot is written to a temporary file in the same directory which
+ * is then atomically renamed, so that a concurrent reader, e.g. another
+ * process starting up, never sees a partially written snapshot. Write
+ * failures are ignored, the snapshot is an optimisation only.
+ *
+ * <p>The snapshot is written asynchronously, by default in a shared daemon
+ * thread, so that the thread putting the JWK set, typically a request
+ * thread refreshing a {@link RemoteJWKSet}, doesn't block on file I/O.
+ * Pending writes are coalesced, only the latest JWK set is written. A JWK
+ * set instance which is put again, e.g. on a not modified (HTTP 304)
+ * refresh, is not written again, unless its snapshot is older than one half
+ * of the maximum snapshot age. Use {@link #flush()} to write a pending
+ * snapshot immediately, e.g. on shutdown.
+ *
+ * <p>On creation of the cache the snapshot, if present and not older than
+ * the maximum snapshot age, is loaded and served as a stale JWK set: it is
+ * returned by {@link #get()} while {@link #requiresRefresh()} returns
+ * {@code true} until a fresh JWK set is put into the cache. Combined with the
+ * refresh-ahead mode of {@link RemoteJWKSet} the requests at startup are
+ * served from the snapshot while the JWK set is refreshed in the background.
+ * Without refresh-ahead the first request refreshes the JWK set and falls
+ * back to the snapshot if the retrieval fails.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ * RemoteJWKSet&lt;SecurityContext&gt; jwkSource = new RemoteJWKSet.Builder&lt;&gt;(jwkSetURL)
+ *     .jwkSetCache(new FileJWKSetCache(new File("/var/cache/app/jwks.json")))
+ *     .refreshAhead(Executors.newSingleThreadScheduledExecutor())
+ *     .build();
+ * </pre>
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@ThreadSafe
+public class FileJWKSetCache extends DefaultJWKSetCache {
+
+
+	/**
+	 * The default maximum age of a loaded snapshot (24 hours).
+	 */
+	public static final long DEFAULT_MAX_SNAPSHOT_AGE_HOURS = 24;
+
+
+	/**
+	 * The snapshot file.
+	 */
+	private final File file;
+
+
+	/**
+	 * The maximum age of a loaded snapshot, in milliseconds, negative
+	 * means no limit.
+	 */
+	private final long maxSnapshotAge;
+
+
+	/**
+	 * The loaded snapshot, {@code null} if none or replaced by a fresh
+	 * JWK set.
+	 */
+	private volatile JWKSetWithTimestamp snapshot;
+
+
+	/**
+	 * The executor for writing the snapshot.
+	 */
+	private final Executor writeExecutor;
+
+
+	/**
+	 * The snapshot pending to be written, {@code null} if none.
+	 */
+	private final AtomicReference<JWKSetWithTimestamp> pendingSnapshot = new AtomicReference<>();
+
+
+	/**
+	 * The last snapshot submitted for writing, {@code null} if none.
+	 */
+	private volatile JWKSetWithTimestamp lastSnapshot;
+
+
+	/**
+	 * Lock for writing the snapshot file.
+	 */
+	private final Object writeLock = new Object();
+
+
+	/**
+	 * The task writing the pending snapshot.
+	 */
+	private final Runnable writeTask = new Runnable() {
+		@Override
+		public void run() {
+			flush();
+		}
+	};
+
+
+	/**
+	 * The default executor for writing the snapshots, a single daemon
+	 * thread which terminates when idle.
+	 */
+	private static final class DefaultWriteExecutor {
+
+
+		private static final ThreadPoolExecutor INSTANCE;
+
+
+		static {
+			INSTANCE = new ThreadPoolExecutor(
+				1, 1, 60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(final Runnable r) {
+						Thread thread = new Thread(r, "FileJWKSetCache-writer");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			INSTANCE.allowCoreThreadTimeOut(true);
+		}
+	}
+
+
+	/**
+	 * Creates a new file backed JWK set cache with the default lifespan
+	 * (15 minutes), refresh time (5 minutes) and maximum snapshot age (24
+	 * hours). Loads the snapshot if present.
+	 *
+	 * @param file The snapshot file. Must not be {@code null}. The
+	 *             directory must be writable.
+	 */
+	public FileJWKSetCache(final File file) {
+
+		this(file,
+			TimeUnit.MINUTES.toMillis(DEFAULT_LIFESPAN_MINUTES),
+			TimeUnit.MINUTES.toMillis(DEFAULT_REFRESH_TIME_MINUTES),
+			TimeUnit.HOURS.toMillis(DEFAULT_MAX_SNAPSHOT_AGE_HOURS),
+			TimeUnit.MILLISECONDS);
+	}
+
+
+	/**
+	 * Creates a new file backed JWK set cache. Loads the snapshot if
+	 * present.
+	 *
+	 * @param file           The snapshot file. Must not be {@code null}.
+	 *                       The directory must be writable.
+	 * @param lifespan       The lifespan of the cached JWK set before it
+	 *                       expires, negative means no expiration.
+	 * @param refreshTime    The time after which the cached JWK set is
+	 *                       marked for refresh, negative if not specified.
+	 *                       Should be shorter or equal to the lifespan.
+	 * @param maxSnapshotAge The maximum age of a loaded snapshot, since
+	 *                       the JWK set was put into the cache, negative
+	 *                       means no limit.
+	 * @param timeUnit       The time unit. Must not be {@code null}.
+	 */
+	public FileJWKSetCache(final File file,
+			       final long lifespan,
+			       final long refreshTime,
+			       final long maxSnapshotAge,
+			       final TimeUnit timeUnit) {
+
+		this(file, lifespan, refreshTime, maxSnapshotAge, timeUnit, null);
+	}
+
+
+	/**
+	 * Creates a new file backed JWK set cache. Loads the snapshot if
+	 * present.
+	 *
+	 * @param file           The snapshot file. Must not be {@code null}.
+	 *                       The directory must be writable.
+	 * @param lifespan       The lifespan of the cached JWK set before it
+	 *                       expires, negative means no expiration.
+	 * @param refreshTime    The time after which the cached JWK set is
+	 *                       marked for refresh, negative if not specified.
+	 *                       Should be shorter or equal to the lifespan.
+	 * @param maxSnapshotAge The maximum age of a loaded snapshot, since
+	 *                       the JWK set was put into the cache, negative
+	 *                       means no limit.
+	 * @param timeUnit       The time unit. Must not be {@code null}.
+	 * @param writeExecutor  The executor for writing the snapshot,
+	 *                       {@code null} to use a shared daemon thread.
+	 */
+	public FileJWKSetCache(final File file,
+			       final long lifespan,
+			       final long refreshTime,
+			       final long maxSnapshotAge,
+			       final TimeUnit timeUnit,
+			       final Executor writeExecutor) {
+
+		super(lifespan, refreshTime, timeUnit);
+
+		if (file == null) {
+			throw new IllegalArgumentException("The snapshot file must not be null");
+		}
+		this.file = file;
+
+		this.maxSnapshotAge = maxSnapshotAge < 0 ? -1L : timeUnit.toMillis(maxSnapshotAge);
+
+		this.writeExecutor = writeExecutor != null ? writeExecutor : DefaultWriteExecutor.INSTANCE;
+
+		snapshot = loadSnapshot();
+	}
+
+
+	/**
+	 * Returns the snapshot file.
+	 *
+	 * @return The snapshot file.
+	 */
+	public File getFile() {
+
+		return file;
+	}
+
+
+	/**
+	 * Returns the maximum age of a loaded snapshot.
+	 *
+	 * @param timeUnit The time unit to use.
+	 *
+	 * @return The maximum snapshot age, negative means no limit.
+	 */
+	public long getMaxSnapshotAge(final TimeUnit timeUnit) {
+
+		if (maxSnapshotAge < 0) {
+			return maxSnapshotAge;
+		}
+
+		return timeUnit.convert(maxSnapshotAge, TimeUnit.MILLISECONDS);
+	}
+
+
+	/**
+	 * Returns the timestamp of the loaded snapshot which is served until
+	 * a fresh JWK set is put into the cache.
+	 *
+	 * @return The snapshot timestamp, negative if no snapshot is served.
+	 */
+	public long getSnapshotTimestamp() {
+
+		JWKSetWithTimestamp s = snapshot;
+		return s != null ? s.getDate().getTime() : -1L;
+	}
+
+
+	@Override
+	public void put(final JWKSet jwkSet, final long maxAge, final TimeUnit timeUnit) {
+
+		super.put(jwkSet, maxAge, timeUnit);
+
+		snapshot = null;
+
+		if (jwkSet == null) {
+			return;
+		}
+
+		final long putTimestamp = getPutTimestamp();
+
+		JWKSetWithTimestamp last = lastSnapshot;
+		if (last != null && last.getJWKSet() == jwkSet &&
+			(maxSnapshotAge < 0 || putTimestamp - last.getDate().getTime() < maxSnapshotAge / 2)) {
+			// Unchanged
+			return;
+		}
+
+		JWKSetWithTimestamp s = new JWKSetWithTimestamp(jwkSet, new Date(putTimestamp));
+		lastSnapshot = s;
+
+		if (pendingSnapshot.getAndSet(s) == null) {
+			try {
+				writeExecutor.execute(writeTask);
+			} catch (RejectedExecutionException e) {
+				// Ignore, the snapshot is an optimisation only
+				pendingSnapshot.compareAndSet(s, null);
+				lastSnapshot = null;
+			}
+		}
+	}
+
+
+	/**
+	 * Writes the pending snapshot, if any, in the calling thread. Returns
+	 * after any snapshot write in progress has completed.
+	 */
+	public void flush() {
+
+		synchronized (writeLock) {
+			JWKSetWithTimestamp s = pendingSnapshot.getAndSet(null);
+			if (s != null) {
+				writeSnapshot(s);
+			}
+		}
+	}
+
+
+	@Override
+	JWKSet peek() {
+
+		JWKSet jwkSet = super.peek();
+
+		if (jwkSet != null) {
+			return jwkSet;
+		}
+
+		JWKSetWithTimestamp s = snapshot;
+
+		if (s == null || getPutTimestamp() > -1) {
+			return null;
+		}
+
+		if (isSnapshotExpired(s)) {
+			snapshot = null;
+			return null;
+		}
+
+		return s.getJWKSet();
+	}
+
+
+	@Override
+	public boolean requiresRefresh() {
+
+		if (snapshot != null && getPutTimestamp() < 0) {
+			// Serving the stale snapshot
+			return true;
+		}
+
+		return super.requiresRefresh();
+	}
+
+
+	/**
+	 * Returns {@code true} if the specified snapshot exceeds the maximum
+	 * age.
+	 *
+	 * @param s The snapshot.
+	 *
+	 * @return {@code true} if the snapshot is expired.
+	 */
+	private boolean isSnapshotExpired(final JWKSetWithTimestamp s) {
+
+		return maxSnapshotAge > -1 && new Date().getTime() > s.getDate().getTime() + maxSnapshotAge;
+	}
+
+
+	/**
+	 * Loads the snapshot from the file.
+	 *
+	 * @return The snapshot, {@code null} if none, invalid or expired.
+	 */
+	private JWKSetWithTimestamp loadSnapshot() {
+
+		if (! file.isFile()) {
+			return null;
+		}
+
+		JWKSetWithTimestamp s;
+		try {
+			Map<String, Object> jsonObject = JSONObjectUtils.parse(IOUtils.readFileToString(file, StandardCharset.UTF_8));
+			long timestamp = JSONObjectUtils.getLong(jsonObject, "timestamp");
+			Map<String, Object> jwkSetObject = JSONObjectUtils.getJSONObject(jsonObject, "jwk_set");
+			if (jwkSetObject == null) {
+				return null;
+			}
+			s = new JWKSetWithTimestamp(JWKSet.parse(jwkSetObject), new Date(timestamp));
+		} catch (IOException | ParseException e) {
+			// Ignore unreadable or corrupted snapshot
+			return null;
+		}
+
+		return isSnapshotExpired(s) ? null : s;
+	}
+
+
+	/**
+	 * Writes the specified snapshot to a temporary file which is then
+	 * atomically renamed to the snapshot file. Failures are ignored.
+	 *
+	 * @param s The snapshot.
+	 */
+	private void writeSnapshot(final JWKSetWithTimestamp s) {
+
+		Map<String, Object> jsonObject = JSONObjectUtils.newJSONObject();
+		jsonObject.put("timestamp", s.getDate().getTime());
+		jsonObject.put("jwk_set", s.getJWKSet().toJSONObject(true));
+		byte[] content = JSONObjectUtils.toJSONString(jsonObject).getBytes(StandardCharset.UTF_8);
+
+		File dir = file.getAbsoluteFile().getParentFile();
+
+		File tmpFile = null;
+		try {
+			tmpFile = File.createTempFile(file.getName(), ".tmp", dir);
+
+			try (OutputStream out = new FileOutputStream(tmpFile)) {
+				out.write(content);
+			}
+
+			try {
+				Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+
+		} catch (IOException e) {
+			// Ignore, the snapshot is an optimisation only
+			if (tmpFile != null) {
+				tmpFile.delete();
+			}
+		}
+	}
+}
@@ -0,0 +1,476 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk.source;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.proc.SecurityContext;
+
+
+/**
+ * Registry of JSON Web Key (JWK) sources for multiple issuers, e.g. the
+ * tenants of a multi-tenant application. The JWK set URL of an issuer is
+ * resolved with a {@link JWKSetURLResolver} and the JWK source for it, by
+ * default a {@link RemoteJWKSet} with its own cache, is created lazily on the
+ * first request for the issuer.
+ *
+ * <p>The resolution and creation of the JWK source for an issuer is
+ * single-flight: concurrent requests for an issuer not yet in the registry
+ * wait for a single resolution. A failed resolution is not remembered, the
+ * next request for the issuer retries it.
+ *
+ * <p>The number of JWK sources in the registry is bounded. When the limit is
+ * reached the JWK sources which have been idle for longer than the idle
+ * time, if configured, are evicted, else the least recently used one. The
+ * evicted JWK sources which are {@link Closeable}, such as
+ * {@link RemoteJWKSet}, are closed.
+ *
+ * <p>See {@link com.nimbusds.jwt.proc.MultiIssuerJWSKeySelector} for
+ * selecting the keys to verify a JWT by its issuer.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@ThreadSafe
+public class IssuerJWKSourceRegistry<C extends SecurityContext> implements Closeable {
+
+
+	/**
+	 * The default maximum number of issuer JWK sources in the registry.
+	 */
+	public static final int DEFAULT_MAX_ISSUERS = 100;
+
+
+	/**
+	 * Factory of issuer JWK sources.
+	 */
+	public interface JWKSourceFactory<C extends SecurityContext> {
+
+
+		/**
+		 * Creates a JWK source for the specified issuer.
+		 *
+		 * @param issuer    The issuer. Not {@code null}.
+		 * @param jwkSetURL The resolved JWK set URL. Not {@code null}.
+		 *
+		 * @return The JWK source.
+		 */
+		JWKSource<C> createJWKSource(final String issuer, final URL jwkSetURL);
+	}
+
+
+	/**
+	 * Registry entry.
+	 */
+	private static final class Entry<C extends SecurityContext> {
+
+
+		/**
+		 * The single-flight resolution of the JWK source, yields
+		 * {@code null} if the issuer is not accepted.
+		 */
+		private final FutureTask<JWKSource<C>> task;
+
+
+		/**
+		 * The last access time, in milliseconds since the Unix epoch.
+		 */
+		private volatile long lastAccessTime;
+
+
+		private Entry(final FutureTask<JWKSource<C>> task, final long now) {
+			this.task = task;
+			this.lastAccessTime = now;
+		}
+	}
+
+
+	/**
+	 * The JWK set URL resolver.
+	 */
+	private final JWKSetURLResolver jwkSetURLResolver;
+
+
+	/**
+	 * The JWK source factory.
+	 */
+	private final JWKSourceFactory<C> jwkSourceFactory;
+
+
+	/**
+	 * The maximum number of issuer JWK sources.
+	 */
+	private final int maxIssuers;
+
+
+	/**
+	 * The idle time after which an issuer JWK source is evicted, in
+	 * milliseconds, zero if not specified.
+	 */
+	private final long idleTime;
+
+
+	/**
+	 * The registry entries, keyed by issuer.
+	 */
+	private final ConcurrentMap<String, Entry<C>> entries = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Creates a new issuer JWK source registry creating a
+	 * {@link RemoteJWKSet} with the default settings for each issuer, with
+	 * the {@link #DEFAULT_MAX_ISSUERS default maximum number of issuers}
+	 * and no idle time.
+	 *
+	 * @param jwkSetURLResolver The JWK set URL resolver. Must not be
+	 *                          {@code null}.
+	 */
+	public IssuerJWKSourceRegistry(final JWKSetURLResolver jwkSetURLResolver) {
+
+		this(jwkSetURLResolver, null, DEFAULT_MAX_ISSUERS, 0L, TimeUnit.MILLISECONDS);
+	}
+
+
+	/**
+	 * Creates a new issuer JWK source registry.
+	 *
+	 * @param jwkSetURLResolver The JWK set URL resolver. Must not be
+	 *                          {@code null}.
+	 * @param jwkSourceFactory  The JWK source factory, {@code null} to
+	 *                          create a {@link RemoteJWKSet} with the
+	 *                          default settings for each issuer.
+	 * @param maxIssuers        The maximum number of issuer JWK sources.
+	 *                          Must be positive.
+	 * @param idleTime          The idle time after which an issuer JWK
+	 *                          source is evicted, zero if not specified.
+	 *                          Must not be negative.
+	 * @param timeUnit          The idle time unit. Must not be
+	 *                          {@code null}.
+	 */
+	public IssuerJWKSourceRegistry(final JWKSetURLResolver jwkSetURLResolver,
+				       final JWKSourceFactory<C> jwkSourceFactory,
+				       final int maxIssuers,
+				       final long idleTime,
+				       final TimeUnit timeUnit) {
+
+		if (jwkSetURLResolver == null) {
+			throw new IllegalArgumentException("The JWK set URL resolver must not be null");
+		}
+		this.jwkSetURLResolver = jwkSetURLResolver;
+
+		if (jwkSourceFactory != null) {
+			this.jwkSourceFactory = jwkSourceFactory;
+		} else {
+			this.jwkSourceFactory = new JWKSourceFactory<C>() {
+				@Override
+				public JWKSource<C> createJWKSource(final String issuer, final URL jwkSetURL) {
+					return new RemoteJWKSet<>(jwkSetURL);
+				}
+			};
+		}
+
+		if (maxIssuers < 1) {
+			throw new IllegalArgumentException("The maximum number of issuers must be positive");
+		}
+		this.maxIssuers = maxIssuers;
+
+		if (idleTime < 0) {
+			throw new IllegalArgumentException("The idle time must not be negative");
+		}
+		this.idleTime = timeUnit.toMillis(idleTime);
+	}
+
+
+	/**
+	 * Returns the JWK set URL resolver.
+	 *
+	 * @return The JWK set URL resolver.
+	 */
+	public JWKSetURLResolver getJWKSetURLResolver() {
+
+		return jwkSetURLResolver;
+	}
+
+
+	/**
+	 * Returns the maximum number of issuer JWK sources.
+	 *
+	 * @return The maximum number of issuers.
+	 */
+	public int getMaxIssuers() {
+
+		return maxIssuers;
+	}
+
+
+	/**
+	 * Returns the idle time after which an issuer JWK source is evicted.
+	 *
+	 * @param timeUnit The time unit to use.
+	 *
+	 * @return The idle time, zero if not specified.
+	 */
+	public long getIdleTime(final TimeUnit timeUnit) {
+
+		return timeUnit.convert(idleTime, TimeUnit.MILLISECONDS);
+	}
+
+
+	/**
+	 * Returns the number of issuers in the registry, including those with
+	 * a pending resolution.
+	 *
+	 * @return The number of issuers.
+	 */
+	public int size() {
+
+		return entries.size();
+	}
+
+
+	/**
+	 * Gets the JWK source for the specified issuer. If not in the registry
+	 * the JWK set URL is resolved and the JWK source created.
+	 *
+	 * @param issuer The issuer. Must not be {@code null}.
+	 *
+	 * @return The JWK source, {@code null} if the issuer is not accepted.
+	 *
+	 * @throws KeySourceException If the JWK set URL resolution failed.
+	 */
+	public JWKSource<C> getJWKSource(final String issuer)
+		throws KeySourceException {
+
+		final long now = System.currentTimeMillis();
+
+		Entry<C> entry = entries.get(issuer);
+
+		if (entry != null && isIdle(entry, now)) {
+			if (entries.remove(issuer, entry)) {
+				closeQuietly(entry);
+			}
+			entry = null;
+		}
+
+		if (entry == null) {
+
+			Entry<C> newEntry = new Entry<>(new FutureTask<>(new Callable<JWKSource<C>>() {
+				@Override
+				public JWKSource<C> call()
+					throws KeySourceException {
+
+					URL jwkSetURL = jwkSetURLResolver.resolveJWKSetURL(issuer);
+
+					if (jwkSetURL == null) {
+						return null;
+					}
+
+					return jwkSourceFactory.createJWKSource(issuer, jwkSetURL);
+				}
+			}), now);
+
+			entry = entries.putIfAbsent(issuer, newEntry);
+
+			if (entry == null) {
+				// Won the race, resolve in this thread
+				entry = newEntry;
+				entry.task.run();
+				if (isAccepted(entry)) {
+					// Unaccepted or failed issuers must not
+					// evict the accepted ones
+					evictIfFull(now);
+				}
+			}
+		}
+
+		entry.lastAccessTime = now;
+
+		JWKSource<C> jwkSource;
+		try {
+			jwkSource = entry.task.get();
+		} catch (ExecutionException e) {
+			entries.remove(issuer, entry);
+			if (e.getCause() instanceof KeySourceException) {
+				throw (KeySourceException) e.getCause();
+			}
+			throw new KeySourceException("Couldn't resolve the JWK source for issuer " + issuer + ": " + e.getCause().getMessage(), e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new KeySourceException("Interrupted while resolving the JWK source for issuer " + issuer, e);
+		}
+
+		if (jwkSource == null) {
+			// Issuer not accepted, don't occupy a slot
+			entries.remove(issuer, entry);
+		}
+
+		return jwkSource;
+	}
+
+
+	/**
+	 * Returns {@code true} if the specified entry has been idle for longer
+	 * than the idle time.
+	 *
+	 * @param entry The entry.
+	 * @param now   The current time, in milliseconds since the Unix
+	 *              epoch.
+	 *
+	 * @return {@code true} if idle.
+	 */
+	private boolean isIdle(final Entry<C> entry, final long now) {
+
+		return idleTime > 0 && entry.task.isDone() && now - entry.lastAccessTime > idleTime;
+	}
+
+
+	/**
+	 * Returns {@code true} if the specified entry is resolved to a JWK
+	 * source, i.e. the issuer was accepted.
+	 *
+	 * @param entry The entry.
+	 *
+	 * @return {@code true} if the issuer was accepted, {@code false} if
+	 *         not accepted, the resolution failed or is pending.
+	 */
+	private static boolean isAccepted(final Entry<?> entry) {
+
+		if (! entry.task.isDone()) {
+			return false;
+		}
+
+		try {
+			return entry.task.get() != null;
+		} catch (ExecutionException | InterruptedException | CancellationException e) {
+			return false;
+		}
+	}
+
+
+	/**
+	 * Returns the number of accepted issuers in the registry.
+	 *
+	 * @return The number of accepted issuers.
+	 */
+	private int countAccepted() {
+
+		int count = 0;
+		for (Entry<C> entry: entries.values()) {
+			if (isAccepted(entry)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+
+	/**
+	 * Evicts the idle entries if the registry is over the maximum number
+	 * of accepted issuers, else the least recently used ones. Pending,
+	 * unaccepted and failed entries are not counted, they are removed by
+	 * the resolving thread.
+	 *
+	 * @param now The current time, in milliseconds since the Unix epoch.
+	 */
+	private synchronized void evictIfFull(final long now) {
+
+		if (countAccepted() <= maxIssuers) {
+			return;
+		}
+
+		for (Map.Entry<String, Entry<C>> en: entries.entrySet()) {
+			if (isIdle(en.getValue(), now) && entries.remove(en.getKey(), en.getValue())) {
+				closeQuietly(en.getValue());
+			}
+		}
+
+		while (countAccepted() > maxIssuers) {
+
+			Map.Entry<String, Entry<C>> lru = null;
+
+			for (Map.Entry<String, Entry<C>> en: entries.entrySet()) {
+				if (! isAccepted(en.getValue())) {
+					// Resolution pending, unaccepted or failed
+					continue;
+				}
+				if (lru == null || en.getValue().lastAccessTime < lru.getValue().lastAccessTime) {
+					lru = en;
+				}
+			}
+
+			if (lru == null) {
+				return;
+			}
+
+			if (entries.remove(lru.getKey(), lru.getValue())) {
+				closeQuietly(lru.getValue());
+			}
+		}
+	}
+
+
+	/**
+	 * Closes the JWK source of the specified entry if {@link Closeable}.
+	 *
+	 * @param entry The entry.
+	 */
+	private void closeQuietly(final Entry<C> entry) {
+
+		if (! entry.task.isDone()) {
+			return;
+		}
+
+		try {
+			JWKSource<C> jwkSource = entry.task.get();
+			if (jwkSource instanceof Closeable) {
+				((Closeable) jwkSource).close();
+			}
+		} catch (ExecutionException | InterruptedException | IOException e) {
+			// Ignore
+		}
+	}
+
+
+	/**
+	 * Removes all issuer JWK sources from the registry, closing those
+	 * which are {@link Closeable}.
+	 */
+	@Override
+	public void close() {
+
+		for (Map.Entry<String, Entry<C>> en: entries.entrySet()) {
+			if (entries.remove(en.getKey(), en.getValue())) {
+				closeQuietly(en.getValue());
+			}
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk.source;
+
+
+import java.net.URL;
+
+import com.nimbusds.jose.KeySourceException;
+
+
+/**
+ * Resolver of the JSON Web Key (JWK) set URL of an issuer, for use with the
+ * {@link IssuerJWKSourceRegistry}.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+public interface JWKSetURLResolver {
+
+
+	/**
+	 * Resolves the JWK set URL of the specified issuer.
+	 *
+	 * @param issuer The issuer. Must not be {@code null}.
+	 *
+	 * @return The JWK set URL, {@code null} if the issuer is not
+	 *         accepted.
+	 *
+	 * @throws KeySourceException If the resolution failed, e.g. on a
+	 *                            remote metadata retrieval.
+	 */
+	URL resolveJWKSetURL(final String issuer)
+		throws KeySourceException;
+}
@@ -0,0 +1,46 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk.source;
+
+
+import java.net.URL;
+
+import com.nimbusds.jose.jwk.JWKSetDiff;
+
+
+/**
+ * Listener of the keys added to and removed from a {@link RemoteJWKSet} on
+ * refresh, e.g. for a targeted invalidation of downstream caches.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+public interface JWKSetUpdateListener {
+
+
+	/**
+	 * Called when keys were added or removed on a JWK set retrieval,
+	 * including the first. Called by the retrieving thread while holding
+	 * the lock of the remote JWK set, implementations should return
+	 * quickly. Runtime exceptions are ignored.
+	 *
+	 * @param jwkSetURL The JWK set URL.
+	 * @param diff      The JWK set difference.
+	 */
+	void jwkSetUpdated(final URL jwkSetURL, final JWKSetDiff diff);
+}
@@ -0,0 +1,98 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk.source;
+
+
+/**
+ * Listener of the runtime events of a {@link RemoteJWKSet} and its
+ * {@link DefaultJWKSetCache}, e.g. for bridging to a metrics or tracing
+ * system. A listener instance is intended for a single JWK source.
+ *
+ * <p>The methods are called synchronously by the thread causing the event,
+ * some while holding the lock of the remote JWK set, implementations should
+ * return quickly and must not throw exceptions. Extend
+ * {@link NoOpJWKSourceEventListener} to handle only selected events.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+public interface JWKSourceEventListener {
+	
+	
+	/**
+	 * Called when a non-expired JWK set is obtained from the cache.
+	 */
+	void cacheHit();
+	
+	
+	/**
+	 * Called when the cache has no JWK set or it is expired.
+	 */
+	void cacheMiss();
+	
+	
+	/**
+	 * Called when an expired JWK set is obtained from the cache within
+	 * its stale-if-error time, because it couldn't be refreshed.
+	 */
+	void staleJWKSetServed();
+	
+	
+	/**
+	 * Called when a retrieval of the JWK set from its URL is started.
+	 */
+	void refreshStarted();
+	
+	
+	/**
+	 * Called when the JWK set was retrieved and cached.
+	 *
+	 * @param durationMillis The duration of the retrieval and parsing, in
+	 *                       milliseconds.
+	 * @param byteSize       The size of the retrieved UTF-8 JWK set, in
+	 *                       bytes, zero if not modified (HTTP 304).
+	 */
+	void refreshCompleted(final long durationMillis, final long byteSize);
+	
+	
+	/**
+	 * Called when a retrieval of the JWK set failed.
+	 *
+	 * @param durationMillis The duration until the failure, in
+	 *                       milliseconds.
+	 * @param exception      The exception.
+	 */
+	void refreshFailed(final long durationMillis, final Exception exception);
+	
+	
+	/**
+	 * Called when the keys are obtained from the failover JWK source.
+	 *
+	 * @param cause The exception of the JWK set retrieval.
+	 */
+	void failoverUsed(final Exception cause);
+	
+	
+	/**
+	 * Called when the JWK set is re-fetched because a key ID (kid) was
+	 * not found in the cached JWK set.
+	 *
+	 * @param keyID The unknown key ID.
+	 */
+	void unknownKeyIDRefetch(final String keyID);
+}
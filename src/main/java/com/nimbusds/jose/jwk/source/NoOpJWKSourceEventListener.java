@@ -0,0 +1,80 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk.source;
+
+
+import net.jcip.annotations.Immutable;
+
+
+/**
+ * JWK source event listener which ignores all events. The default of
+ * {@link RemoteJWKSet} and {@link DefaultJWKSetCache}. May be extended to
+ * handle selected events only.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@Immutable
+public class NoOpJWKSourceEventListener implements JWKSourceEventListener {
+	
+	
+	/**
+	 * Shared instance.
+	 */
+	static final NoOpJWKSourceEventListener INSTANCE = new NoOpJWKSourceEventListener();
+	
+	
+	@Override
+	public void cacheHit() {
+	}
+	
+	
+	@Override
+	public void cacheMiss() {
+	}
+	
+	
+	@Override
+	public void staleJWKSetServed() {
+	}
+	
+	
+	@Override
+	public void refreshStarted() {
+	}
+	
+	
+	@Override
+	public void refreshCompleted(final long durationMillis, final long byteSize) {
+	}
+	
+	
+	@Override
+	public void refreshFailed(final long durationMillis, final Exception exception) {
+	}
+	
+	
+	@Override
+	public void failoverUsed(final Exception cause) {
+	}
+	
+	
+	@Override
+	public void unknownKeyIDRefetch(final String keyID) {
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk.source;
+
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.nimbusds.jose.RemoteKeySourceException;
+import com.nimbusds.jose.util.JSONObjectUtils;
+import com.nimbusds.jose.util.Resource;
+import com.nimbusds.jose.util.ResourceRetriever;
+
+
+/**
+ * Resolver of issuer JSON Web Key (JWK) set URLs from the OpenID Connect
+ * discovery document (OpenID provider metadata) of the issuer, at
+ * {@code [issuer]/.well-known/openid-configuration}. Also works with OAuth
+ * 2.0 authorisation servers publishing their metadata at this location.
+ *
+ * <p>Only the specified issuers are accepted, since the issuer of a JWT is
+ * not yet verified when its key is resolved and a retrieval for an arbitrary
+ * issuer URL would be a request forgery vector. The issuer in the retrieved
+ * metadata must match the issuer.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@ThreadSafe
+public class OpenIDDiscoveryJWKSetURLResolver implements JWKSetURLResolver {
+
+
+	/**
+	 * The well-known path of the OpenID provider metadata.
+	 */
+	public static final String WELL_KNOWN_PATH = "/.well-known/openid-configuration";
+
+
+	/**
+	 * The accepted issuers.
+	 */
+	private final Set<String> issuers;
+
+
+	/**
+	 * The metadata retriever.
+	 */
+	private final ResourceRetriever retriever;
+
+
+	/**
+	 * Creates a new OpenID discovery JWK set URL resolver.
+	 *
+	 * @param issuers   The accepted issuers. Must not be {@code null}.
+	 * @param retriever The retriever of the issuer metadata. Must not be
+	 *                  {@code null}.
+	 */
+	public OpenIDDiscoveryJWKSetURLResolver(final Set<String> issuers, final ResourceRetriever retriever) {
+
+		if (issuers == null) {
+			throw new IllegalArgumentException("The issuers must not be null");
+		}
+		this.issuers = Collections.unmodifiableSet(new HashSet<>(issuers));
+
+		if (retriever == null) {
+			throw new IllegalArgumentException("The resource retriever must not be null");
+		}
+		this.retriever = retriever;
+	}
+
+
+	/**
+	 * Returns the accepted issuers.
+	 *
+	 * @return The accepted issuers.
+	 */
+	public Set<String> getIssuers() {
+
+		return issuers;
+	}
+
+
+	/**
+	 * Returns the retriever of the issuer metadata.
+	 *
+	 * @return The resource retriever.
+	 */
+	public ResourceRetriever getResourceRetriever() {
+
+		return retriever;
+	}
+
+
+	/**
+	 * Returns the OpenID provider metadata URL for the specified issuer.
+	 *
+	 * @param issuer The issuer. Must not be {@code null}.
+	 *
+	 * @return The metadata URL.
+	 *
+	 * @throws MalformedURLException If the issuer is not a valid URL.
+	 */
+	static URL getMetadataURL(final String issuer)
+		throws MalformedURLException {
+
+		String base = issuer.endsWith("/") ? issuer.substring(0, issuer.length() - 1) : issuer;
+		return new URL(base + WELL_KNOWN_PATH);
+	}
+
+
+	@Override
+	public URL resolveJWKSetURL(final String issuer)
+		throws RemoteKeySourceException {
+
+		if (! issuers.contains(issuer)) {
+			return null;
+		}
+
+		Resource resource;
+		try {
+			resource = retriever.retrieveResource(getMetadataURL(issuer));
+		} catch (IOException e) {
+			throw new RemoteKeySourceException("Couldn't retrieve OpenID provider metadata for issuer " + issuer + ": " + e.getMessage(), e);
+		}
+
+		try {
+			Map<String, Object> metadata = JSONObjectUtils.parse(resource.getContent());
+
+			if (! issuer.equals(JSONObjectUtils.getString(metadata, "issuer"))) {
+				throw new ParseException("The issuer in the metadata doesn't match " + issuer, 0);
+			}
+
+			URI jwkSetURI = JSONObjectUtils.getURI(metadata, "jwks_uri");
+			if (jwkSetURI == null) {
+				throw new ParseException("Missing jwks_uri", 0);
+			}
+			return jwkSetURI.toURL();
+
+		} catch (ParseException | MalformedURLException | IllegalArgumentException e) {
+			throw new RemoteKeySourceException("Invalid OpenID provider metadata for issuer " + issuer + ": " + e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd and contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk.source;
+
+
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.ThreadSafe;
+
+
+/**
+ * Token bucket rate limiter. Permits up to a maximum number of events within
+ * a time interval, the tokens are replenished gradually as time passes.
+ *
+ * <p>Used by {@link RemoteJWKSet} to limit the JWK set re-fetches triggered
+ * by tokens with an unknown key ID (kid).
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@ThreadSafe
+public class RateLimiter {
+
+
+	/**
+	 * The maximum number of events (bucket capacity).
+	 */
+	private final int maxEvents;
+
+
+	/**
+	 * The interval, in nanoseconds.
+	 */
+	private final long intervalNanos;
+
+
+	/**
+	 * The available tokens.
+	 */
+	private double tokens;
+
+
+	/**
+	 * The nano time of the last token refill.
+	 */
+	private long lastRefill;
+
+
+	/**
+	 * Creates a new token bucket rate limiter. The bucket is initially
+	 * full.
+	 *
+	 * @param maxEvents The maximum number of events permitted within the
+	 *                  interval. Must be positive.
+	 * @param interval  The interval. Must be positive.
+	 * @param timeUnit  The interval time unit. Must not be {@code null}.
+	 */
+	public RateLimiter(final int maxEvents, final long interval, final TimeUnit timeUnit) {
+
+		if (maxEvents < 1) {
+			throw new IllegalArgumentException("The maximum number of events must be positive");
+		}
+		this.maxEvents = maxEvents;
+
+		if (interval < 1) {
+			throw new IllegalArgumentException("The interval must be positive");
+		}
+		intervalNanos = timeUnit.toNanos(interval);
+
+		tokens = maxEvents;
+		lastRefill = System.nanoTime();
+	}
+
+
+	/**
+	 * Returns the maximum number of events permitted within the interval.
+	 *
+	 * @return The maximum number of events.
+	 */
+	public int getMaxEvents() {
+
+		return maxEvents;
+	}
+
+
+	/**
+	 * Returns the interval.
+	 *
+	 * @param timeUnit The time unit to use.
+	 *
+	 * @return The interval.
+	 */
+	public long getInterval(final TimeUnit timeUnit) {
+
+		return timeUnit.convert(intervalNanos, TimeUnit.NANOSECONDS);
+	}
+
+
+	/**
+	 * Attempts to acquire a permit for an event.
+	 *
+	 * @return {@code true} if the event is permitted, {@code false} if the
+	 *         rate limit is exceeded.
+	 */
+	public synchronized boolean tryAcquire() {
+
+		final long now = System.nanoTime();
+
+		tokens = Math.min(maxEvents, tokens + (now - lastRefill) * (double) maxEvents / intervalNanos);
+		lastRefill = now;
+
+		if (tokens < 1.0d) {
+			return false;
+		}
+
+		tokens -= 1.0d;
+		return true;
+	}
+}
@@ -18,11 +18,21 @@
 package com.nimbusds.jose.jwk.source;
 
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.URL;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import net.jcip.annotations.ThreadSafe;
 
@@ -32,10 +42,14 @@ import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKMatcher;
 import com.nimbusds.jose.jwk.JWKSelector;
 import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.JWKSetDiff;
 import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.AsyncResourceRetriever;
+import com.nimbusds.jose.util.ConditionalResourceRetriever;
 import com.nimbusds.jose.util.DefaultResourceRetriever;
 import com.nimbusds.jose.util.Resource;
 import com.nimbusds.jose.util.ResourceRetriever;
+import com.nimbusds.jose.util.ResourceRetrieverUtils;
 
 
 /**
@@ -69,12 +83,75 @@ import com.nimbusds.jose.util.ResourceRetriever;
  * unavailable (HTTP 404) or times out. The failover JWK source can be another
  * URL or some other object.
  *
+ * <p>A refresh-ahead mode can be enabled with the {@link Builder} by
+ * supplying a {@link ScheduledExecutorService}. In this mode the JWK set is
+ * refreshed by a background task scheduled some time before the cache
+ * refresh time is due, and request threads are served the currently cached
+ * JWK set without blocking on the HTTP retrieval. A blocking retrieval will
+ * still occur when there is no cached JWK set, e.g. on the first request.
+ *
+ * <p>The re-fetches of the JWK set triggered by key IDs (kid) not found in
+ * the cached JWK set can be rate limited with the {@link Builder}.
+ * Concurrent requests for unknown key IDs share a single re-fetch. Key IDs
+ * that remain unknown after a re-fetch can be remembered for a short time to
+ * prevent further re-fetches for them.
+ *
+ * <p>If the resource retriever is a {@link ConditionalResourceRetriever},
+ * such as the {@link DefaultResourceRetriever default one}, JWK set refreshes
+ * are made with a conditional HTTP GET based on the ETag and Last-Modified of
+ * the previous response. When the JWK set is not modified (HTTP 304) the
+ * lifetime of the cached JWK set is extended without parsing it again. A
+ * subclass of the retriever which overrides the single-argument
+ * {@link ResourceRetriever#retrieveResource(URL) retrieveResource} method,
+ * e.g. to set custom HTTP headers, is always called with that method, see
+ * {@link ResourceRetrieverUtils#supportsConditionalRetrieval}. Optionally,
+ * the max-age of the Cache-Control response header can be used to determine
+ * the refresh time of the {@link DefaultJWKSetCache}.
+ *
+ * <p>An {@link AsyncResourceRetriever} can be set with the {@link Builder}
+ * for the background refreshes. The refreshes are then started by the
+ * request thread, or by the refresh-ahead scheduler, without waiting for the
+ * retrieval, so that no thread other than those of the asynchronous
+ * retriever is occupied by it. This mode also works without a refresh-ahead
+ * scheduler. The blocking {@link ResourceRetriever} is still used when there
+ * is no cached JWK set to serve, or when a key ID is not found.
+ *
+ * <p>After a failed JWK set retrieval further refreshes are deferred by an
+ * exponential backoff with jitter, during which the currently cached JWK set
+ * is served. If the {@link DefaultJWKSetCache} has a stale-if-error time an
+ * expired JWK set is also served during the backoff, and when the retrieval
+ * fails. In refresh-ahead mode the retries are made in the background. The
+ * retry backoff is configured with the {@link Builder}, the remote JWK sets
+ * created with the constructors don't defer retries.
+ *
+ * <p>A retrieved JWK set is compared with the previous one, see
+ * {@link JWKSetDiff}. The unchanged keys are kept as the previous instances,
+ * so that their converted Java keys and other derived state remain cached. A
+ * {@link JWKSetUpdateListener} can be set with the {@link Builder} to be
+ * notified of the added and removed keys.
+ *
+ * <p>The cache hits and misses, the JWK set refreshes with their duration
+ * and size, the refresh failures, the failover uses and the re-fetches for
+ * unknown key IDs can be reported to a {@link JWKSourceEventListener} set
+ * with the {@link Builder}, e.g. for bridging to a metrics system.
+ *
+ * <p>Example remote JWK set with refresh-ahead and a re-fetch limit of 3 per
+ * minute:
+ *
+ * <pre>
+ * RemoteJWKSet&lt;SecurityContext&gt; jwkSource = new RemoteJWKSet.Builder&lt;&gt;(jwkSetURL)
+ *     .refreshAhead(Executors.newSingleThreadScheduledExecutor())
+ *     .unknownKeyIDRefetchLimit(3, 1, TimeUnit.MINUTES)
+ *     .unknownKeyIDCache(30, TimeUnit.SECONDS)
+ *     .build();
+ * </pre>
+ *
  * @author Vladimir Dzhuvinov
  * @author Andreas Huber
- * @version 2022-01-30
+ * @version 2022-06-01
  */
 @ThreadSafe
-public class RemoteJWKSet<C extends SecurityContext> implements JWKSource<C> {
+public class RemoteJWKSet<C extends SecurityContext> implements JWKSource<C>, Closeable {
 
 
 	/**
@@ -98,6 +175,35 @@ public class RemoteJWKSet<C extends SecurityContext> implements JWKSource<C> {
 	public static final int DEFAULT_HTTP_SIZE_LIMIT = 50 * 1024;
 	
 	
+	/**
+	 * The default time before the cache refresh time at which a
+	 * refresh-ahead of the JWK set is scheduled, in milliseconds. Set to
+	 * 30 seconds.
+	 */
+	public static final long DEFAULT_REFRESH_AHEAD_TIME = 30 * 1000L;
+	
+	
+	/**
+	 * The default maximum number of unknown key IDs to remember. Set to
+	 * 1000.
+	 */
+	public static final int DEFAULT_UNKNOWN_KEY_ID_CACHE_SIZE = 1000;
+	
+	
+	/**
+	 * The default initial backoff for retrying a failed JWK set
+	 * retrieval, in milliseconds. Set to 1 second.
+	 */
+	public static final long DEFAULT_RETRY_BACKOFF_INITIAL = 1000L;
+	
+	
+	/**
+	 * The default maximum backoff for retrying a failed JWK set
+	 * retrieval, in milliseconds. Set to 1 minute.
+	 */
+	public static final long DEFAULT_RETRY_BACKOFF_MAX = 60 * 1000L;
+	
+	
 	/**
 	 * Resolves the default HTTP connect timeout for JWK set retrieval, in
 	 * milliseconds.
@@ -179,6 +285,139 @@ public class RemoteJWKSet<C extends SecurityContext> implements JWKSource<C> {
 	 * The JWK set retriever.
 	 */
 	private final ResourceRetriever jwkSetRetriever;
+	
+	
+	/**
+	 * The asynchronous JWK set retriever for the background refreshes,
+	 * {@code null} if not specified.
+	 */
+	private final AsyncResourceRetriever asyncJWKSetRetriever;
+	
+	
+	/**
+	 * The scheduler for refresh-ahead of the JWK set, {@code null} if
+	 * refresh-ahead is disabled.
+	 */
+	private final ScheduledExecutorService refreshAheadScheduler;
+	
+	
+	/**
+	 * The time before the cache refresh time at which a refresh-ahead is
+	 * scheduled, in milliseconds.
+	 */
+	private final long refreshAheadTime;
+	
+	
+	/**
+	 * Guards against concurrent background refreshes.
+	 */
+	private final AtomicBoolean backgroundRefreshInProgress = new AtomicBoolean(false);
+	
+	
+	/**
+	 * The currently scheduled refresh-ahead, {@code null} if none.
+	 */
+	private volatile ScheduledFuture<?> scheduledRefreshAhead;
+	
+	
+	/**
+	 * Set when the JWK source is closed, to stop refreshes in progress
+	 * from scheduling further refresh-aheads.
+	 */
+	private boolean closed;
+	
+	
+	/**
+	 * The rate limiter for JWK set re-fetches on unknown key IDs,
+	 * {@code null} if not limited.
+	 */
+	private final RateLimiter unknownKeyIDRefetchLimiter;
+	
+	
+	/**
+	 * The time to remember unknown key IDs, in milliseconds, zero if
+	 * unknown key IDs are not remembered.
+	 */
+	private final long unknownKeyIDCacheTime;
+	
+	
+	/**
+	 * The maximum number of unknown key IDs to remember.
+	 */
+	private final int unknownKeyIDCacheSize;
+	
+	
+	/**
+	 * The unknown key IDs with their expiration times.
+	 */
+	private final ConcurrentMap<String, Long> unknownKeyIDs = new ConcurrentHashMap<>();
+	
+	
+	/**
+	 * {@code true} if the Cache-Control max-age of the JWK set URL
+	 * response is used for the cache refresh time.
+	 */
+	private final boolean cacheControlMaxAge;
+	
+	
+	/**
+	 * The initial retry backoff after a failed JWK set retrieval, in
+	 * milliseconds, zero if retries are not deferred.
+	 */
+	private final long retryBackoffInitial;
+	
+	
+	/**
+	 * The maximum retry backoff after failed JWK set retrievals, in
+	 * milliseconds.
+	 */
+	private final long retryBackoffMax;
+	
+	
+	/**
+	 * The number of consecutive failed JWK set retrievals. Guarded by
+	 * this.
+	 */
+	private int consecutiveFailures;
+	
+	
+	/**
+	 * The time before which JWK set refreshes are deferred after a failed
+	 * retrieval, in milliseconds since the Unix epoch, zero if none.
+	 */
+	private volatile long nextRetryTime;
+	
+	
+	/**
+	 * The validators (ETag, Last-Modified) of the last retrieved JWK set,
+	 * without content, {@code null} if none.
+	 */
+	private volatile Resource lastResource;
+	
+	
+	/**
+	 * The last retrieved JWK set, {@code null} if none.
+	 */
+	private volatile JWKSet lastJWKSet;
+	
+	
+	/**
+	 * The number of successful JWK set retrievals, including not
+	 * modified (HTTP 304) responses. Incremented under the lock.
+	 */
+	private volatile long retrievalCount;
+	
+	
+	/**
+	 * The JWK set update listener, {@code null} if none.
+	 */
+	private final JWKSetUpdateListener jwkSetUpdateListener;
+	
+	
+	/**
+	 * The event listener.
+	 */
+	private final JWKSourceEventListener eventListener;
 
 
 	/**
@@ -267,15 +506,30 @@ public class RemoteJWKSet<C extends SecurityContext> implements JWKSource<C> {
 			    final ResourceRetriever resourceRetriever,
 			    final JWKSetCache jwkSetCache) {
 		
-		if (jwkSetURL == null) {
+		this(new Builder<C>(jwkSetURL)
+			.failoverJWKSource(failoverJWKSource)
+			.resourceRetriever(resourceRetriever)
+			.jwkSetCache(jwkSetCache)
+			.retryBackoff(0L, 0L, TimeUnit.MILLISECONDS));
+	}
+	
+	
+	/**
+	 * Creates a new remote JWK set from the specified builder.
+	 *
+	 * @param builder The builder. Must not be {@code null}.
+	 */
+	protected RemoteJWKSet(final Builder<C> builder) {
+		
+		if (builder.jwkSetURL == null) {
 			throw new IllegalArgumentException("The JWK set URL must not be null");
 		}
-		this.jwkSetURL = jwkSetURL;
+		jwkSetURL = builder.jwkSetURL;
 		
-		this.failoverJWKSource = failoverJWKSource;
+		failoverJWKSource = builder.failoverJWKSource;
 
-		if (resourceRetriever != null) {
-			jwkSetRetriever = resourceRetriever;
+		if (builder.resourceRetriever != null) {
+			jwkSetRetriever = builder.resourceRetriever;
 		} else {
 			jwkSetRetriever = new DefaultResourceRetriever(
 				resolveDefaultHTTPConnectTimeout(),
@@ -283,16 +537,60 @@ public class RemoteJWKSet<C extends SecurityContext> implements JWKSource<C> {
 				resolveDefaultHTTPSizeLimit());
 		}
 		
-		if (jwkSetCache != null) {
-			this.jwkSetCache = jwkSetCache;
+		eventListener = builder.eventListener != null ? builder.eventListener : NoOpJWKSourceEventListener.INSTANCE;
+		
+		if (builder.jwkSetCache != null) {
+			jwkSetCache = builder.jwkSetCache;
 		} else {
-			this.jwkSetCache = new DefaultJWKSetCache();
+			jwkSetCache = new DefaultJWKSetCache(
+				DefaultJWKSetCache.DEFAULT_LIFESPAN_MINUTES,
+				DefaultJWKSetCache.DEFAULT_REFRESH_TIME_MINUTES,
+				-1L,
+				TimeUnit.MINUTES,
+				eventListener);
+		}
+		
+		asyncJWKSetRetriever = builder.asyncResourceRetriever;
+		
+		refreshAheadScheduler = builder.refreshAheadScheduler;
+		
+		if (builder.refreshAheadTime < 0) {
+			throw new IllegalArgumentException("The refresh-ahead time must not be negative");
+		}
+		refreshAheadTime = builder.refreshAheadTime;
+		
+		unknownKeyIDRefetchLimiter = builder.unknownKeyIDRefetchLimiter;
+		
+		if (builder.unknownKeyIDCacheTime < 0) {
+			throw new IllegalArgumentException("The unknown key ID cache time must not be negative");
+		}
+		unknownKeyIDCacheTime = builder.unknownKeyIDCacheTime;
+		
+		if (builder.unknownKeyIDCacheSize < 1) {
+			throw new IllegalArgumentException("The unknown key ID cache size must be positive");
+		}
+		unknownKeyIDCacheSize = builder.unknownKeyIDCacheSize;
+		
+		cacheControlMaxAge = builder.cacheControlMaxAge;
+		
+		if (builder.retryBackoffInitial < 0) {
+			throw new IllegalArgumentException("The initial retry backoff must not be negative");
+		}
+		retryBackoffInitial = builder.retryBackoffInitial;
+		
+		if (builder.retryBackoffMax < retryBackoffInitial) {
+			throw new IllegalArgumentException("The maximum retry backoff must not be shorter than the initial retry backoff");
 		}
+		retryBackoffMax = builder.retryBackoffMax;
+		
+		jwkSetUpdateListener = builder.jwkSetUpdateListener;
 	}
 
 
 	/**
-	 * Updates the cached JWK set from the configured URL.
+	 * Updates the cached JWK set from the configured URL. If the JWK set
+	 * was not modified since the last retrieval the last JWK set is put
+	 * into the cache again.
 	 *
 	 * @return The updated JWK set.
 	 *
@@ -300,156 +598,787 @@ public class RemoteJWKSet<C extends SecurityContext> implements JWKSource<C> {
 	 */
 	private JWKSet updateJWKSetFromURL()
 		throws RemoteKeySourceException {
+		
+		final long startTime = System.currentTimeMillis();
+		eventListener.refreshStarted();
+		
+		try {
+			JWKSet jwkSet = retrieveJWKSetFromURL(startTime);
+			consecutiveFailures = 0;
+			nextRetryTime = 0L;
+			return jwkSet;
+		} catch (RemoteKeySourceException e) {
+			eventListener.refreshFailed(System.currentTimeMillis() - startTime, e);
+			recordRetrievalFailure();
+			throw e;
+		}
+	}
+	
+	
+	/**
+	 * Retrieves the JWK set from the configured URL and puts it into the
+	 * cache.
+	 *
+	 * @param startTime The start time of the retrieval, in milliseconds
+	 *                  since the Unix epoch.
+	 *
+	 * @return The retrieved JWK set.
+	 *
+	 * @throws RemoteKeySourceException If JWK retrieval failed.
+	 */
+	private JWKSet retrieveJWKSetFromURL(final long startTime)
+		throws RemoteKeySourceException {
+		
+		final Resource previousResource = lastResource;
+		final JWKSet previousJWKSet = lastJWKSet;
+		
 		Resource res;
 		try {
-			res = jwkSetRetriever.retrieveResource(jwkSetURL);
+			res = ResourceRetrieverUtils.retrieveResource(
+				jwkSetRetriever,
+				jwkSetURL,
+				previousJWKSet != null ? previousResource : null);
 		} catch (IOException e) {
 			throw new RemoteKeySourceException("Couldn't retrieve remote JWK set: " + e.getMessage(), e);
 		}
+		return processRetrievedJWKSet(res, previousJWKSet, startTime);
+	}
+	
+	
+	/**
+	 * Parses the retrieved JWK set and puts it into the cache.
+	 *
+	 * @param res            The retrieved JWK set resource.
+	 * @param previousJWKSet The previously retrieved JWK set, for a not
+	 *                       modified resource and to retain the unchanged
+	 *                       keys, {@code null} if none.
+	 * @param startTime      The start time of the retrieval, in
+	 *                       milliseconds since the Unix epoch.
+	 *
+	 * @return The JWK set.
+	 *
+	 * @throws RemoteKeySourceException If parsing failed.
+	 */
+	private JWKSet processRetrievedJWKSet(final Resource res, final JWKSet previousJWKSet, final long startTime)
+		throws RemoteKeySourceException {
+		
 		JWKSet jwkSet;
-		try {
-			jwkSet = JWKSet.parse(res.getContent());
-		} catch (java.text.ParseException e) {
-			throw new RemoteKeySourceException("Couldn't parse remote JWK set: " + e.getMessage(), e);
+		long byteSize = 0L;
+		if (res.isNotModified() && previousJWKSet != null) {
+			// Not modified (HTTP 304), skip parsing
+			jwkSet = previousJWKSet;
+		} else {
+			byteSize = utf8Length(res.getContent());
+			try {
+				jwkSet = JWKSet.parse(res.getContent());
+			} catch (java.text.ParseException e) {
+				throw new RemoteKeySourceException("Couldn't parse remote JWK set: " + e.getMessage(), e);
+			}
+		}
+		
+		if (jwkSet != previousJWKSet) {
+			// Retain the unchanged keys
+			JWKSetDiff diff = JWKSetDiff.compute(previousJWKSet, jwkSet);
+			jwkSet = diff.getJWKSet();
+			notifyJWKSetUpdateListener(diff);
+		}
+		
+		if (res.getETag() != null || res.getLastModified() != null) {
+			// Keep the validators only, the JWK set is kept parsed
+			lastResource = new Resource("", res.getContentType(), res.getETag(), res.getLastModified(), res.getMaxAge(), false);
+		} else {
+			lastResource = null;
+		}
+		lastJWKSet = jwkSet;
+		retrievalCount++;
+		
+		if (cacheControlMaxAge && jwkSetCache instanceof DefaultJWKSetCache) {
+			((DefaultJWKSetCache) jwkSetCache).put(jwkSet, res.getMaxAge(), TimeUnit.SECONDS);
+		} else {
+			jwkSetCache.put(jwkSet);
 		}
-		jwkSetCache.put(jwkSet);
+		scheduleRefreshAhead();
+		eventListener.refreshCompleted(System.currentTimeMillis() - startTime, byteSize);
 		return jwkSet;
 	}
-
-
+	
+	
 	/**
-	 * Returns the JWK set URL.
+	 * Returns the UTF-8 encoded length of the specified string, without
+	 * encoding it.
 	 *
-	 * @return The JWK set URL.
+	 * @param s The string, {@code null} if none.
+	 *
+	 * @return The length in bytes.
 	 */
-	public URL getJWKSetURL() {
+	static long utf8Length(final String s) {
 		
-		return jwkSetURL;
+		if (s == null) {
+			return 0L;
+		}
+		
+		long length = 0L;
+		for (int i=0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				length += 1;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
 	}
 	
 	
 	/**
-	 * Returns the optional failover JWK source.
+	 * Notifies the JWK set update listener, if any, of added or removed
+	 * keys.
 	 *
-	 * @return The failover JWK source, {@code null} if not specified.
+	 * @param diff The JWK set difference.
 	 */
-	public JWKSource<C> getFailoverJWKSource() {
+	private void notifyJWKSetUpdateListener(final JWKSetDiff diff) {
 		
-		return failoverJWKSource;
+		if (jwkSetUpdateListener == null || ! diff.hasChanges()) {
+			return;
+		}
+		
+		try {
+			jwkSetUpdateListener.jwkSetUpdated(jwkSetURL, diff);
+		} catch (RuntimeException e) {
+			// Ignore
+		}
 	}
 	
 	
 	/**
-	 * Returns the HTTP resource retriever.
-	 *
-	 * @return The HTTP resource retriever.
+	 * Records a failed JWK set retrieval. Defers further refreshes by the
+	 * retry backoff and in refresh-ahead mode schedules the retry.
 	 */
-	public ResourceRetriever getResourceRetriever() {
-
-		return jwkSetRetriever;
+	private void recordRetrievalFailure() {
+		
+		if (jwkSetCache instanceof DefaultJWKSetCache) {
+			((DefaultJWKSetCache) jwkSetCache).recordError();
+		}
+		
+		if (retryBackoffInitial == 0) {
+			return;
+		}
+		
+		if (consecutiveFailures < Integer.MAX_VALUE) {
+			consecutiveFailures++;
+		}
+		
+		final long backoff = computeRetryBackoff(consecutiveFailures);
+		
+		nextRetryTime = System.currentTimeMillis() + backoff;
+		
+		if (refreshAheadScheduler != null) {
+			scheduleBackgroundRefresh(backoff);
+		}
 	}
 	
 	
 	/**
-	 * Returns the configured JWK set cache.
+	 * Computes the retry backoff after the specified number of
+	 * consecutive failed JWK set retrievals. The backoff doubles with
+	 * each failure up to the maximum, of which a random jitter of up to
+	 * one half is subtracted.
 	 *
-	 * @return The JWK set cache.
+	 * @param failures The number of consecutive failures, one or more.
+	 *
+	 * @return The retry backoff, in milliseconds.
 	 */
-	public JWKSetCache getJWKSetCache() {
+	long computeRetryBackoff(final int failures) {
 		
-		return jwkSetCache;
+		final int shift = Math.min(failures - 1, 30);
+		
+		final long backoff = Math.min(retryBackoffMax, retryBackoffInitial << shift);
+		
+		final long half = backoff / 2;
+		
+		return backoff - half + ThreadLocalRandom.current().nextLong(half + 1);
 	}
 	
 	
 	/**
-	 * Returns the cached JWK set.
+	 * Returns {@code true} if JWK set refreshes are deferred after a
+	 * failed retrieval.
 	 *
-	 * @return The cached JWK set, {@code null} if none or expired.
+	 * @return {@code true} if the retry backoff hasn't elapsed yet.
 	 */
-	public JWKSet getCachedJWKSet() {
+	private boolean isRetryDeferred() {
 		
-		return jwkSetCache.get();
+		return System.currentTimeMillis() < nextRetryTime;
 	}
-
-
+	
+	
 	/**
-	 * Returns the first specified key ID (kid) for a JWK matcher.
-	 *
-	 * @param jwkMatcher The JWK matcher. Must not be {@code null}.
+	 * Returns the cached JWK set for use when it couldn't be refreshed.
 	 *
-	 * @return The first key ID, {@code null} if none.
+	 * @return The JWK set, which may be expired within the stale-if-error
+	 *         time of the {@link DefaultJWKSetCache}, {@code null} if none.
 	 */
-	protected static String getFirstSpecifiedKeyID(final JWKMatcher jwkMatcher) {
-
-		Set<String> keyIDs = jwkMatcher.getKeyIDs();
-
-		if (keyIDs == null || keyIDs.isEmpty()) {
-			return null;
-		}
-
-		for (String id: keyIDs) {
-			if (id != null) {
-				return id;
-			}
+	private JWKSet getStaleJWKSet() {
+		
+		if (jwkSetCache instanceof DefaultJWKSetCache) {
+			return ((DefaultJWKSetCache) jwkSetCache).getStale();
 		}
-		return null; // No kid in matcher
+		
+		return null;
 	}
 	
 	
 	/**
-	 * Fails over to the configuration optional JWK source.
+	 * Schedules a refresh-ahead of the JWK set, if enabled and the
+	 * refresh time of the JWK set cache is known.
 	 */
-	private List<JWK> failover(final Exception exception, final JWKSelector jwkSelector, final C context)
-		throws RemoteKeySourceException{
+	private void scheduleRefreshAhead() {
 		
-		if (getFailoverJWKSource() == null) {
-			return null;
+		if (refreshAheadScheduler == null || ! (jwkSetCache instanceof DefaultJWKSetCache)) {
+			return;
 		}
 		
-		try {
-			return getFailoverJWKSource().get(jwkSelector, context);
-		} catch (KeySourceException kse) {
-			throw new RemoteKeySourceException(
-				exception.getMessage() +
-				"; Failover JWK source retrieval failed with: " + kse.getMessage(),
-				kse
-			);
+		DefaultJWKSetCache defaultJWKSetCache = (DefaultJWKSetCache) jwkSetCache;
+		
+		long refreshTime = defaultJWKSetCache.getMaxAge(TimeUnit.MILLISECONDS);
+		if (refreshTime < 0) {
+			refreshTime = defaultJWKSetCache.getRefreshTime(TimeUnit.MILLISECONDS);
 		}
-	}
-	
+		
+		if (refreshTime <= 0) {
+			// No refresh time, refresh-ahead not applicable
+			return;
+		}
+		
+		// Fall back to half the refresh time if the refresh-ahead
+		// time isn't shorter
+		scheduleBackgroundRefresh(refreshTime > refreshAheadTime ? refreshTime - refreshAheadTime : refreshTime / 2);
+	}
+	
+	
+	/**
+	 * Schedules a background refresh of the JWK set, replacing any
+	 * previously scheduled one.
+	 *
+	 * @param delay The delay, in milliseconds.
+	 */
+	private void scheduleBackgroundRefresh(final long delay) {
+		
+		synchronized (this) {
+			
+			if (closed) {
+				return;
+			}
+			
+			ScheduledFuture<?> previous = scheduledRefreshAhead;
+			if (previous != null) {
+				previous.cancel(false);
+			}
+			
+			try {
+				scheduledRefreshAhead = refreshAheadScheduler.schedule(
+					new Runnable() {
+						@Override
+						public void run() {
+							if (backgroundRefreshInProgress.compareAndSet(false, true)) {
+								refreshInBackground();
+							}
+						}
+					},
+					delay,
+					TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException e) {
+				// Scheduler shut down, refresh on demand
+				scheduledRefreshAhead = null;
+			}
+		}
+	}
+	
+	
+	/**
+	 * Refreshes the JWK set in a background task, unless a background
+	 * refresh is already in progress. Retrieval exceptions are swallowed,
+	 * the currently cached JWK set remains in use until it expires.
+	 */
+	private void triggerBackgroundRefresh() {
+		
+		if (! backgroundRefreshInProgress.compareAndSet(false, true)) {
+			return;
+		}
+		
+		if (asyncJWKSetRetriever != null) {
+			// Doesn't block
+			refreshInBackground();
+			return;
+		}
+		
+		try {
+			refreshAheadScheduler.execute(new Runnable() {
+				@Override
+				public void run() {
+					refreshInBackground();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			backgroundRefreshInProgress.set(false);
+		}
+	}
+	
+	
+	/**
+	 * Refreshes the JWK set from the configured URL, with the asynchronous
+	 * retriever if set, else in the calling (background) thread. Clears
+	 * the background refresh in progress flag on completion.
+	 */
+	private void refreshInBackground() {
+		
+		if (asyncJWKSetRetriever != null) {
+			refreshAsync();
+			return;
+		}
+		
+		try {
+			synchronized (this) {
+				updateJWKSetFromURL();
+			}
+		} catch (RemoteKeySourceException e) {
+			// Ignore, a refresh will be triggered again by the
+			// next request with the cache requiring a refresh
+		} finally {
+			backgroundRefreshInProgress.set(false);
+		}
+	}
+	
+	
+	/**
+	 * Starts an asynchronous refresh of the JWK set from the configured
+	 * URL. Clears the background refresh in progress flag on completion.
+	 */
+	private void refreshAsync() {
+		
+		final JWKSet previousJWKSet = lastJWKSet;
+		final Resource previousResource = lastResource;
+		
+		final long startTime = System.currentTimeMillis();
+		eventListener.refreshStarted();
+		
+		try {
+			asyncJWKSetRetriever.retrieveResourceAsync(jwkSetURL, previousResource, new AsyncResourceRetriever.Callback() {
+				
+				@Override
+				public void completed(final Resource resource) {
+					try {
+						synchronized (RemoteJWKSet.this) {
+							try {
+								processRetrievedJWKSet(resource, previousJWKSet, startTime);
+								consecutiveFailures = 0;
+								nextRetryTime = 0L;
+							} catch (RemoteKeySourceException e) {
+								eventListener.refreshFailed(System.currentTimeMillis() - startTime, e);
+								recordRetrievalFailure();
+							}
+						}
+					} finally {
+						backgroundRefreshInProgress.set(false);
+					}
+				}
+				
+				
+				@Override
+				public void failed(final Exception exception) {
+					try {
+						synchronized (RemoteJWKSet.this) {
+							eventListener.refreshFailed(System.currentTimeMillis() - startTime, exception);
+							recordRetrievalFailure();
+						}
+					} finally {
+						backgroundRefreshInProgress.set(false);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			eventListener.refreshFailed(System.currentTimeMillis() - startTime, e);
+			backgroundRefreshInProgress.set(false);
+		}
+	}
+
+
+	/**
+	 * Returns the JWK set URL.
+	 *
+	 * @return The JWK set URL.
+	 */
+	public URL getJWKSetURL() {
+		
+		return jwkSetURL;
+	}
+	
+	
+	/**
+	 * Returns the optional failover JWK source.
+	 *
+	 * @return The failover JWK source, {@code null} if not specified.
+	 */
+	public JWKSource<C> getFailoverJWKSource() {
+		
+		return failoverJWKSource;
+	}
+	
+	
+	/**
+	 * Returns the HTTP resource retriever.
+	 *
+	 * @return The HTTP resource retriever.
+	 */
+	public ResourceRetriever getResourceRetriever() {
+
+		return jwkSetRetriever;
+	}
+	
+	
+	/**
+	 * Returns the configured JWK set cache.
+	 *
+	 * @return The JWK set cache.
+	 */
+	public JWKSetCache getJWKSetCache() {
+		
+		return jwkSetCache;
+	}
+	
+	
+	/**
+	 * Returns the asynchronous resource retriever for the background
+	 * refreshes.
+	 *
+	 * @return The asynchronous resource retriever, {@code null} if not
+	 *         specified.
+	 */
+	public AsyncResourceRetriever getAsyncResourceRetriever() {
+		
+		return asyncJWKSetRetriever;
+	}
+	
+	
+	/**
+	 * Returns the scheduler for refresh-ahead of the JWK set.
+	 *
+	 * @return The refresh-ahead scheduler, {@code null} if refresh-ahead
+	 *         is disabled.
+	 */
+	public ScheduledExecutorService getRefreshAheadScheduler() {
+		
+		return refreshAheadScheduler;
+	}
+	
+	
+	/**
+	 * Returns the time before the cache refresh time at which a
+	 * refresh-ahead of the JWK set is scheduled.
+	 *
+	 * @param timeUnit The time unit to use.
+	 *
+	 * @return The refresh-ahead time.
+	 */
+	public long getRefreshAheadTime(final TimeUnit timeUnit) {
+		
+		return timeUnit.convert(refreshAheadTime, TimeUnit.MILLISECONDS);
+	}
+	
+	
+	/**
+	 * Returns the rate limiter for JWK set re-fetches triggered by
+	 * unknown key IDs.
+	 *
+	 * @return The rate limiter, {@code null} if the re-fetches are not
+	 *         limited.
+	 */
+	public RateLimiter getUnknownKeyIDRefetchLimiter() {
+		
+		return unknownKeyIDRefetchLimiter;
+	}
+	
+	
+	/**
+	 * Returns the time to remember key IDs which remained unknown after a
+	 * JWK set re-fetch.
+	 *
+	 * @param timeUnit The time unit to use.
+	 *
+	 * @return The unknown key ID cache time, zero if unknown key IDs are
+	 *         not remembered.
+	 */
+	public long getUnknownKeyIDCacheTime(final TimeUnit timeUnit) {
+		
+		return timeUnit.convert(unknownKeyIDCacheTime, TimeUnit.MILLISECONDS);
+	}
+	
+	
+	/**
+	 * Returns the initial backoff for retrying a failed JWK set
+	 * retrieval.
+	 *
+	 * @param timeUnit The time unit to use.
+	 *
+	 * @return The initial retry backoff, zero if retries are not
+	 *         deferred.
+	 */
+	public long getRetryBackoffInitial(final TimeUnit timeUnit) {
+		
+		return timeUnit.convert(retryBackoffInitial, TimeUnit.MILLISECONDS);
+	}
+	
+	
+	/**
+	 * Returns the maximum backoff for retrying a failed JWK set
+	 * retrieval.
+	 *
+	 * @param timeUnit The time unit to use.
+	 *
+	 * @return The maximum retry backoff.
+	 */
+	public long getRetryBackoffMax(final TimeUnit timeUnit) {
+		
+		return timeUnit.convert(retryBackoffMax, TimeUnit.MILLISECONDS);
+	}
+	
+	
+	/**
+	 * Returns the JWK set update listener.
+	 *
+	 * @return The JWK set update listener, {@code null} if none.
+	 */
+	public JWKSetUpdateListener getJWKSetUpdateListener() {
+		
+		return jwkSetUpdateListener;
+	}
+	
+	
+	/**
+	 * Returns the event listener.
+	 *
+	 * @return The event listener, a {@link NoOpJWKSourceEventListener}
+	 *         if none was specified.
+	 */
+	public JWKSourceEventListener getEventListener() {
+		
+		return eventListener;
+	}
+	
+	
+	/**
+	 * Returns {@code true} if the Cache-Control max-age of the JWK set
+	 * URL response is used for the refresh time of the
+	 * {@link DefaultJWKSetCache}.
+	 *
+	 * @return {@code true} if the Cache-Control max-age is used.
+	 */
+	public boolean usesCacheControlMaxAge() {
+		
+		return cacheControlMaxAge;
+	}
+	
+	
+	/**
+	 * Returns {@code true} if the specified key ID is remembered as
+	 * unknown after a recent JWK set re-fetch.
+	 *
+	 * @param keyID The key ID. Must not be {@code null}.
+	 *
+	 * @return {@code true} if the key ID is remembered as unknown.
+	 */
+	protected boolean isKnownUnknownKeyID(final String keyID) {
+		
+		Long expiration = unknownKeyIDs.get(keyID);
+		
+		if (expiration == null) {
+			return false;
+		}
+		
+		if (System.currentTimeMillis() > expiration) {
+			unknownKeyIDs.remove(keyID, expiration);
+			return false;
+		}
+		
+		return true;
+	}
+	
+	
+	/**
+	 * Remembers the specified key ID as unknown, if enabled.
+	 *
+	 * @param keyID The key ID. Must not be {@code null}.
+	 */
+	private void rememberUnknownKeyID(final String keyID) {
+		
+		if (unknownKeyIDCacheTime == 0) {
+			return;
+		}
+		
+		final long now = System.currentTimeMillis();
+		
+		if (unknownKeyIDs.size() >= unknownKeyIDCacheSize) {
+			// Purge expired entries first, then all if still full
+			for (Map.Entry<String, Long> en: unknownKeyIDs.entrySet()) {
+				if (now > en.getValue()) {
+					unknownKeyIDs.remove(en.getKey(), en.getValue());
+				}
+			}
+			if (unknownKeyIDs.size() >= unknownKeyIDCacheSize) {
+				unknownKeyIDs.clear();
+			}
+		}
+		
+		unknownKeyIDs.put(keyID, now + unknownKeyIDCacheTime);
+	}
+	
+	
+	/**
+	 * Returns the cached JWK set.
+	 *
+	 * @return The cached JWK set, {@code null} if none or expired.
+	 */
+	public JWKSet getCachedJWKSet() {
+		
+		return jwkSetCache.get();
+	}
+	
+	
+	/**
+	 * Returns the cached JWK set for a re-check after acquiring the lock,
+	 * without counting a cache hit or miss of the
+	 * {@link DefaultJWKSetCache}.
+	 *
+	 * @return The cached JWK set, {@code null} if none or expired.
+	 */
+	private JWKSet peekCachedJWKSet() {
+		
+		if (jwkSetCache instanceof DefaultJWKSetCache) {
+			return ((DefaultJWKSetCache) jwkSetCache).peek();
+		}
+		
+		return jwkSetCache.get();
+	}
+
+
+	/**
+	 * Returns the first specified key ID (kid) for a JWK matcher.
+	 *
+	 * @param jwkMatcher The JWK matcher. Must not be {@code null}.
+	 *
+	 * @return The first key ID, {@code null} if none.
+	 */
+	protected static String getFirstSpecifiedKeyID(final JWKMatcher jwkMatcher) {
+
+		Set<String> keyIDs = jwkMatcher.getKeyIDs();
+
+		if (keyIDs == null || keyIDs.isEmpty()) {
+			return null;
+		}
+
+		for (String id: keyIDs) {
+			if (id != null) {
+				return id;
+			}
+		}
+		return null; // No kid in matcher
+	}
+	
+	
+	/**
+	 * Fails over to the configuration optional JWK source.
+	 */
+	private List<JWK> failover(final Exception exception, final JWKSelector jwkSelector, final C context)
+		throws RemoteKeySourceException{
+		
+		if (getFailoverJWKSource() == null) {
+			return null;
+		}
+		
+		try {
+			List<JWK> matches = getFailoverJWKSource().get(jwkSelector, context);
+			eventListener.failoverUsed(exception);
+			return matches;
+		} catch (KeySourceException kse) {
+			throw new RemoteKeySourceException(
+				exception.getMessage() +
+				"; Failover JWK source retrieval failed with: " + kse.getMessage(),
+				kse
+			);
+		}
+	}
+	
 	
 	@Override
 	public List<JWK> get(final JWKSelector jwkSelector, final C context)
 		throws RemoteKeySourceException {
 
-		// Check the cache first
+		// Check the cache first, noting the retrievals so far
+		long retrievals = retrievalCount;
 		JWKSet jwkSet = jwkSetCache.get();
 		
-		if (jwkSetCache.requiresRefresh() || jwkSet == null) {
-			// JWK set update required
-			try {
-				// Prevent multiple cache updates in case of concurrent requests
-				// (with double-checked locking, i.e. locking on update required only)
-				synchronized (this) {
-					jwkSet = jwkSetCache.get();
-					if (jwkSetCache.requiresRefresh() || jwkSet == null) {
-						// Retrieve JWK set from URL
-						jwkSet = updateJWKSetFromURL();
+		if (jwkSet != null && (refreshAheadScheduler != null || asyncJWKSetRetriever != null) && jwkSetCache.requiresRefresh()) {
+			// Refresh-ahead or async mode, serve the cached JWK
+			// set while the refresh takes place in the background,
+			// unless a retry is deferred
+			if (! isRetryDeferred()) {
+				triggerBackgroundRefresh();
+			}
+			
+		} else if (jwkSetCache.requiresRefresh() || jwkSet == null) {
+			
+			if (jwkSet == null && isRetryDeferred()) {
+				// A recent retrieval failed, serve stale version
+				// if permitted until the retry backoff elapses
+				jwkSet = getStaleJWKSet();
+			}
+			
+			if (jwkSet == null || ! isRetryDeferred()) {
+				// JWK set update required
+				try {
+					// Prevent multiple cache updates in case of concurrent requests
+					// (with double-checked locking, i.e. locking on update required only)
+					synchronized (this) {
+						retrievals = retrievalCount;
+						jwkSet = peekCachedJWKSet();
+						if (jwkSetCache.requiresRefresh() || jwkSet == null) {
+							if (jwkSet == null && isRetryDeferred()) {
+								// A concurrent retrieval failed while
+								// waiting for the lock, serve stale
+								// version if permitted
+								jwkSet = getStaleJWKSet();
+							}
+							if (jwkSet == null || ! isRetryDeferred()) {
+								// Retrieve JWK set from URL
+								jwkSet = updateJWKSetFromURL();
+								retrievals = retrievalCount;
+							}
+						}
 					}
+				} catch (Exception e) {
+					
+					List<JWK> failoverMatches = failover(e, jwkSelector, context);
+					if (failoverMatches != null) {
+						return failoverMatches; // Failover success
+					}
+					
+					if (jwkSet == null) {
+						// Serve stale version if permitted
+						jwkSet = getStaleJWKSet();
+					}
+					
+					if (jwkSet == null) {
+						// Rethrow the received exception if expired
+						throw e;
+					}
+					
+					// Continue with cached version
 				}
-			} catch (Exception e) {
-				
-				List<JWK> failoverMatches = failover(e, jwkSelector, context);
-				if (failoverMatches != null) {
-					return failoverMatches; // Failover success
-				}
-				
-				if (jwkSet == null) {
-					// Rethrow the received exception if expired
-					throw e;
-				}
-				
-				// Continue with cached version
 			}
 		}
 
@@ -476,17 +1405,36 @@ public class RemoteJWKSet<C extends SecurityContext> implements JWKSource<C> {
 			return Collections.emptyList();
 		}
 		
+		if (isKnownUnknownKeyID(soughtKeyID)) {
+			// The key ID wasn't found after a recent re-fetch
+			return Collections.emptyList();
+		}
+		
 		try {
-			// If the jwkSet in the cache is not the same instance that was
-			// in the cache at the beginning of this method, then we know
-			// the cache was updated
+			// If the JWK set was retrieved since the beginning of this
+			// method the cache is up-to-date. The instance can't tell,
+			// an unchanged JWK set is retained. Concurrent requests for
+			// unknown key IDs thus share a single re-fetch.
 			synchronized (this) {
-				if (jwkSet == jwkSetCache.get()) {
+				if (isKnownUnknownKeyID(soughtKeyID)) {
+					// A concurrent re-fetch didn't find the key ID
+					return Collections.emptyList();
+				}
+				if (retrievals == retrievalCount) {
+					if (unknownKeyIDRefetchLimiter != null && ! unknownKeyIDRefetchLimiter.tryAcquire()) {
+						// Re-fetch rate limit exceeded, return no matches
+						return Collections.emptyList();
+					}
 					// Make new HTTP GET to the JWK set URL
+					eventListener.unknownKeyIDRefetch(soughtKeyID);
 					jwkSet = updateJWKSetFromURL();
+					
+					if (jwkSet.getKeyByKeyId(soughtKeyID) == null) {
+						rememberUnknownKeyID(soughtKeyID);
+					}
 				} else {
 					// Cache was updated recently, the cached value is up-to-date
-					jwkSet = jwkSetCache.get();
+					jwkSet = peekCachedJWKSet();
 				}
 			}
 		} catch (KeySourceException e) {
@@ -508,4 +1456,393 @@ public class RemoteJWKSet<C extends SecurityContext> implements JWKSource<C> {
 		// Repeat select, return final result (success or no matches)
 		return jwkSelector.select(jwkSet);
 	}
+	
+	
+	/**
+	 * Cancels the scheduled refresh-ahead, if any. A refresh in progress
+	 * is allowed to complete, but doesn't schedule another refresh-ahead.
+	 * The refresh-ahead scheduler is not shut down, this is left to the
+	 * caller which supplied it.
+	 */
+	@Override
+	public void close() {
+		
+		synchronized (this) {
+			
+			closed = true;
+			
+			ScheduledFuture<?> scheduled = scheduledRefreshAhead;
+			if (scheduled != null) {
+				scheduled.cancel(false);
+				scheduledRefreshAhead = null;
+			}
+		}
+	}
+	
+	
+	/**
+	 * Builder for constructing remote JWK sets.
+	 *
+	 * <p>Example usage:
+	 *
+	 * <pre>
+	 * RemoteJWKSet&lt;SecurityContext&gt; jwkSource = new RemoteJWKSet.Builder&lt;&gt;(jwkSetURL)
+	 *     .resourceRetriever(new DefaultResourceRetriever(250, 250))
+	 *     .refreshAhead(scheduler)
+	 *     .build();
+	 * </pre>
+	 */
+	public static class Builder<C extends SecurityContext> {
+		
+		
+		/**
+		 * The JWK set URL.
+		 */
+		private final URL jwkSetURL;
+		
+		
+		/**
+		 * The optional failover JWK source.
+		 */
+		private JWKSource<C> failoverJWKSource;
+		
+		
+		/**
+		 * The HTTP resource retriever, {@code null} for the default.
+		 */
+		private ResourceRetriever resourceRetriever;
+		
+		
+		/**
+		 * The JWK set cache, {@code null} for the default.
+		 */
+		private JWKSetCache jwkSetCache;
+		
+		
+		/**
+		 * The asynchronous resource retriever, {@code null} if none.
+		 */
+		private AsyncResourceRetriever asyncResourceRetriever;
+		
+		
+		/**
+		 * The refresh-ahead scheduler, {@code null} if none.
+		 */
+		private ScheduledExecutorService refreshAheadScheduler;
+		
+		
+		/**
+		 * The refresh-ahead time, in milliseconds.
+		 */
+		private long refreshAheadTime = DEFAULT_REFRESH_AHEAD_TIME;
+		
+		
+		/**
+		 * The rate limiter for re-fetches on unknown key IDs,
+		 * {@code null} if none.
+		 */
+		private RateLimiter unknownKeyIDRefetchLimiter;
+		
+		
+		/**
+		 * The unknown key ID cache time, in milliseconds.
+		 */
+		private long unknownKeyIDCacheTime = 0L;
+		
+		
+		/**
+		 * The unknown key ID cache size.
+		 */
+		private int unknownKeyIDCacheSize = DEFAULT_UNKNOWN_KEY_ID_CACHE_SIZE;
+		
+		
+		/**
+		 * {@code true} to use the Cache-Control max-age.
+		 */
+		private boolean cacheControlMaxAge = false;
+		
+		
+		/**
+		 * The initial retry backoff, in milliseconds.
+		 */
+		private long retryBackoffInitial = DEFAULT_RETRY_BACKOFF_INITIAL;
+		
+		
+		/**
+		 * The maximum retry backoff, in milliseconds.
+		 */
+		private long retryBackoffMax = DEFAULT_RETRY_BACKOFF_MAX;
+		
+		
+		/**
+		 * The JWK set update listener, {@code null} if none.
+		 */
+		private JWKSetUpdateListener jwkSetUpdateListener;
+		
+		
+		/**
+		 * The event listener, {@code null} if none.
+		 */
+		private JWKSourceEventListener eventListener;
+		
+		
+		/**
+		 * Creates a new remote JWK set builder.
+		 *
+		 * @param jwkSetURL The JWK set URL. Must not be {@code null}.
+		 */
+		public Builder(final URL jwkSetURL) {
+			this.jwkSetURL = jwkSetURL;
+		}
+		
+		
+		/**
+		 * Sets the failover JWK source.
+		 *
+		 * @param failoverJWKSource The failover JWK source in case
+		 *                          retrieval from the JWK set URL
+		 *                          fails, {@code null} if none.
+		 *
+		 * @return This builder.
+		 */
+		public Builder<C> failoverJWKSource(final JWKSource<C> failoverJWKSource) {
+			this.failoverJWKSource = failoverJWKSource;
+			return this;
+		}
+		
+		
+		/**
+		 * Sets the HTTP resource retriever.
+		 *
+		 * @param resourceRetriever The HTTP resource retriever,
+		 *                          {@code null} to use the
+		 *                          {@link DefaultResourceRetriever
+		 *                          default one}.
+		 *
+		 * @return This builder.
+		 */
+		public Builder<C> resourceRetriever(final ResourceRetriever resourceRetriever) {
+			this.resourceRetriever = resourceRetriever;
+			return this;
+		}
+		
+		
+		/**
+		 * Sets the JWK set cache.
+		 *
+		 * @param jwkSetCache The JWK set cache, {@code null} to use
+		 *                    the {@link DefaultJWKSetCache default
+		 *                    one}.
+		 *
+		 * @return This builder.
+		 */
+		public Builder<C> jwkSetCache(final JWKSetCache jwkSetCache) {
+			this.jwkSetCache = jwkSetCache;
+			return this;
+		}
+		
+		
+		/**
+		 * Sets an asynchronous resource retriever for the background
+		 * refreshes of the JWK set. The request threads then only start
+		 * a refresh of a cached JWK set requiring one, without waiting
+		 * for it.
+		 *
+		 * @param asyncResourceRetriever The asynchronous resource
+		 *                               retriever, {@code null} if
+		 *                               none.
+		 *
+		 * @return This builder.
+		 */
+		public Builder<C> asyncResourceRetriever(final AsyncResourceRetriever asyncResourceRetriever) {
+			this.asyncResourceRetriever = asyncResourceRetriever;
+			return this;
+		}
+		
+		
+		/**
+		 * Enables refresh-ahead of the JWK set with the
+		 * {@link #DEFAULT_REFRESH_AHEAD_TIME default refresh-ahead
+		 * time}.
+		 *
+		 * @param scheduler The scheduler for the background refresh
+		 *                  tasks, {@code null} to disable
+		 *                  refresh-ahead.
+		 *
+		 * @return This builder.
+		 */
+		public Builder<C> refreshAhead(final ScheduledExecutorService scheduler) {
+			return refreshAhead(scheduler, DEFAULT_REFRESH_AHEAD_TIME, TimeUnit.MILLISECONDS);
+		}
+		
+		
+		/**
+		 * Enables refresh-ahead of the JWK set.
+		 *
+		 * @param scheduler        The scheduler for the background
+		 *                         refresh tasks, {@code null} to
+		 *                         disable refresh-ahead.
+		 * @param refreshAheadTime The time before the cache refresh
+		 *                         time at which to schedule the
+		 *                         refresh. If not shorter than the
+		 *                         refresh time the refresh is
+		 *                         scheduled at half the refresh time.
+		 *                         Must not be negative.
+		 * @param timeUnit         The refresh-ahead time unit. Must not
+		 *                         be {@code null}.
+		 *
+		 * @return This builder.
+		 */
+		public Builder<C> refreshAhead(final ScheduledExecutorService scheduler,
+					       final long refreshAheadTime,
+					       final TimeUnit timeUnit) {
+			this.refreshAheadScheduler = scheduler;
+			this.refreshAheadTime = TimeUnit.MILLISECONDS.convert(refreshAheadTime, timeUnit);
+			return this;
+		}
+		
+		
+		/**
+		 * Limits the JWK set re-fetches triggered by key IDs not found
+		 * in the cached JWK set. Requests for unknown key IDs in
+		 * excess of the limit receive no matches.
+		 *
+		 * @param maxRefetches The maximum number of re-fetches within
+		 *                     the interval. Must be positive.
+		 * @param interval     The interval. Must be positive.
+		 * @param timeUnit     The interval time unit. Must not be
+		 *                     {@code null}.
+		 *
+		 * @return This builder.
+		 */
+		public Builder<C> unknownKeyIDRefetchLimit(final int maxRefetches,
+							   final long interval,
+							   final TimeUnit timeUnit) {
+			this.unknownKeyIDRefetchLimiter = new RateLimiter(maxRefetches, interval, timeUnit);
+			return this;
+		}
+		
+		
+		/**
+		 * Remembers key IDs which remain unknown after a JWK set
+		 * re-fetch, to prevent further re-fetches for them within the
+		 * specified time. Up to
+		 * {@link #DEFAULT_UNKNOWN_KEY_ID_CACHE_SIZE} key IDs are
+		 * remembered.
+		 *
+		 * @param cacheTime The time to remember an unknown key ID,
+		 *                  zero to disable. Must not be negative.
+		 * @param timeUnit  The time unit. Must not be {@code null}.
+		 *
+		 * @return This builder.
+		 */
+		public Builder<C> unknownKeyIDCache(final long cacheTime, final TimeUnit timeUnit) {
+			return unknownKeyIDCache(cacheTime, timeUnit, DEFAULT_UNKNOWN_KEY_ID_CACHE_SIZE);
+		}
+		
+		
+		/**
+		 * Remembers key IDs which remain unknown after a JWK set
+		 * re-fetch, to prevent further re-fetches for them within the
+		 * specified time.
+		 *
+		 * @param cacheTime The time to remember an unknown key ID,
+		 *                  zero to disable. Must not be negative.
+		 * @param timeUnit  The time unit. Must not be {@code null}.
+		 * @param maxSize   The maximum number of key IDs to remember.
+		 *                  Must be positive.
+		 *
+		 * @return This builder.
+		 */
+		public Builder<C> unknownKeyIDCache(final long cacheTime, final TimeUnit timeUnit, final int maxSize) {
+			this.unknownKeyIDCacheTime = TimeUnit.MILLISECONDS.convert(cacheTime, timeUnit);
+			this.unknownKeyIDCacheSize = maxSize;
+			return this;
+		}
+		
+		
+		/**
+		 * Sets the use of the Cache-Control max-age of the JWK set URL
+		 * response for the {@link DefaultJWKSetCache}. If enabled and
+		 * the response specifies a positive max-age, the max-age
+		 * overrides the configured cache refresh time, the cache
+		 * lifespan is extended to the max-age if the max-age is longer.
+		 * Has no effect with other {@link JWKSetCache}
+		 * implementations.
+		 *
+		 * @param enable {@code true} to use the Cache-Control max-age.
+		 *
+		 * @return This builder.
+		 */
+		public Builder<C> cacheControlMaxAge(final boolean enable) {
+			this.cacheControlMaxAge = enable;
+			return this;
+		}
+		
+		
+		/**
+		 * Sets the exponential backoff for retrying a failed JWK set
+		 * retrieval. The backoff doubles with each consecutive failure
+		 * up to the maximum, with a random jitter of up to one half.
+		 * During the backoff the cached JWK set, or a stale one within
+		 * the stale-if-error time of the {@link DefaultJWKSetCache}, is
+		 * served. The default is {@link #DEFAULT_RETRY_BACKOFF_INITIAL}
+		 * and {@link #DEFAULT_RETRY_BACKOFF_MAX}.
+		 *
+		 * @param initial  The initial backoff, zero to not defer
+		 *                 retries. Must not be negative.
+		 * @param max      The maximum backoff. Must not be shorter than
+		 *                 the initial.
+		 * @param timeUnit The time unit. Must not be {@code null}.
+		 *
+		 * @return This builder.
+		 */
+		public Builder<C> retryBackoff(final long initial, final long max, final TimeUnit timeUnit) {
+			this.retryBackoffInitial = TimeUnit.MILLISECONDS.convert(initial, timeUnit);
+			this.retryBackoffMax = TimeUnit.MILLISECONDS.convert(max, timeUnit);
+			return this;
+		}
+		
+		
+		/**
+		 * Sets a listener of the keys added to and removed from the
+		 * JWK set on retrieval.
+		 *
+		 * @param listener The JWK set update listener, {@code null} if
+		 *                 none.
+		 *
+		 * @return This builder.
+		 */
+		public Builder<C> jwkSetUpdateListener(final JWKSetUpdateListener listener) {
+			this.jwkSetUpdateListener = listener;
+			return this;
+		}
+		
+		
+		/**
+		 * Sets a listener of the runtime events of the remote JWK set.
+		 * The listener is also set for the default JWK set cache, a
+		 * {@link DefaultJWKSetCache} set with
+		 * {@link #jwkSetCache(JWKSetCache)} must be created with its
+		 * own listener to report the cache hits and misses.
+		 *
+		 * @param listener The event listener, {@code null} if none.
+		 *
+		 * @return This builder.
+		 */
+		public Builder<C> eventListener(final JWKSourceEventListener listener) {
+			this.eventListener = listener;
+			return this;
+		}
+		
+		
+		/**
+		 * Builds a new remote JWK set.
+		 *
+		 * @return The remote JWK set.
+		 */
+		public RemoteJWKSet<C> build() {
+			return new RemoteJWKSet<>(this);
+		}
+	}
 }
@@ -0,0 +1,77 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk.source;
+
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.jcip.annotations.Immutable;
+
+
+/**
+ * Resolver of issuer JSON Web Key (JWK) set URLs from a static map. Issuers
+ * not in the map are not accepted.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@Immutable
+public class StaticJWKSetURLResolver implements JWKSetURLResolver {
+
+
+	/**
+	 * The JWK set URLs, keyed by issuer.
+	 */
+	private final Map<String, URL> jwkSetURLs;
+
+
+	/**
+	 * Creates a new static JWK set URL resolver.
+	 *
+	 * @param jwkSetURLs The JWK set URLs, keyed by issuer. Must not be
+	 *                   {@code null}.
+	 */
+	public StaticJWKSetURLResolver(final Map<String, URL> jwkSetURLs) {
+
+		if (jwkSetURLs == null) {
+			throw new IllegalArgumentException("The JWK set URLs must not be null");
+		}
+		this.jwkSetURLs = Collections.unmodifiableMap(new HashMap<>(jwkSetURLs));
+	}
+
+
+	/**
+	 * Returns the JWK set URLs.
+	 *
+	 * @return The JWK set URLs, keyed by issuer.
+	 */
+	public Map<String, URL> getJWKSetURLs() {
+
+		return jwkSetURLs;
+	}
+
+
+	@Override
+	public URL resolveJWKSetURL(final String issuer) {
+
+		return jwkSetURLs.get(issuer);
+	}
+}
@@ -20,8 +20,8 @@ package com.nimbusds.jose.proc;
 
 import java.security.Key;
 import java.security.PublicKey;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import javax.crypto.SecretKey;
@@ -34,7 +34,7 @@ import com.nimbusds.jose.KeySourceException;
 import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKMatcher;
 import com.nimbusds.jose.jwk.JWKSelector;
-import com.nimbusds.jose.jwk.KeyConverter;
+import com.nimbusds.jose.jwk.KeyConversionCache;
 import com.nimbusds.jose.jwk.source.JWKSource;
 
 
@@ -42,9 +42,12 @@ import com.nimbusds.jose.jwk.source.JWKSource;
  * Key selector for verifying JWS objects, where the key candidates are
  * retrieved from a {@link JWKSource JSON Web Key (JWK) source}.
  *
+ * <p>The conversions of the selected JWKs to Java keys are cached by JWK,
+ * see {@link KeyConversionCache}.
+ *
  * @author Vladimir Dzhuvinov
  * @author Marco Vermeulen
- * @version 2020-06-02
+ * @version 2022-06-01
  */
 @ThreadSafe
 public class JWSVerificationKeySelector<C extends SecurityContext> extends AbstractJWKSelectorWithSource<C> implements JWSKeySelector<C> {
@@ -59,6 +62,13 @@ public class JWSVerificationKeySelector<C extends SecurityContext> extends Abstr
 	 * Present to maintain backward compatibility
 	 */
 	private final boolean singleJwsAlgConstructorWasCalled;
+	
+	
+	/**
+	 * The cache of JWK to Java key conversions.
+	 */
+	private final KeyConversionCache keyConversionCache = new KeyConversionCache();
+	
 
 	/**
 	 * Creates a new JWS verification key selector.
@@ -120,6 +130,17 @@ public class JWSVerificationKeySelector<C extends SecurityContext> extends Abstr
 		throw new UnsupportedOperationException("Since this class was constructed with multiple " +
 				"algorithms, the behavior of this method is undefined.");
 	}
+	
+	
+	/**
+	 * Returns the cache of JWK to Java key conversions.
+	 *
+	 * @return The key conversion cache.
+	 */
+	public KeyConversionCache getKeyConversionCache() {
+		return keyConversionCache;
+	}
+	
 
 	/**
 	 * Creates a JWK matcher for the expected JWS algorithm and the
@@ -156,9 +177,9 @@ public class JWSVerificationKeySelector<C extends SecurityContext> extends Abstr
 
 		List<JWK> jwkMatches = getJWKSource().get(new JWKSelector(jwkMatcher), context);
 
-		List<Key> sanitizedKeyList = new LinkedList<>();
+		List<Key> sanitizedKeyList = new ArrayList<>(jwkMatches.size());
 
-		for (Key key: KeyConverter.toJavaKeys(jwkMatches)) {
+		for (Key key: keyConversionCache.toJavaKeys(jwkMatches)) {
 			if (key instanceof PublicKey || key instanceof SecretKey) {
 				sanitizedKeyList.add(key);
 			} // skip asymmetric private keys
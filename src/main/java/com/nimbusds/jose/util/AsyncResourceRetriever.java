@@ -0,0 +1,85 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.util;
+
+
+import java.net.URL;
+import java.util.concurrent.Future;
+
+
+/**
+ * Asynchronous retriever of resources specified by URL. The retrieval doesn't
+ * occupy the calling thread, the result is delivered to an optional callback
+ * and through the returned future.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+public interface AsyncResourceRetriever {
+
+
+	/**
+	 * Callback for the completion of an asynchronous resource retrieval.
+	 * Invoked on a thread of the retriever, implementations should not
+	 * block.
+	 */
+	interface Callback {
+
+
+		/**
+		 * Invoked when the resource was successfully retrieved.
+		 *
+		 * @param resource The retrieved resource.
+		 */
+		void completed(final Resource resource);
+
+
+		/**
+		 * Invoked when the resource retrieval failed.
+		 *
+		 * @param exception The exception, typically an
+		 *                  {@link java.io.IOException}.
+		 */
+		void failed(final Exception exception);
+	}
+
+
+	/**
+	 * Starts the retrieval of the resource from the specified URL. If a
+	 * previously retrieved resource is specified and the retriever
+	 * supports it the retrieval is conditional, as with
+	 * {@link ConditionalResourceRetriever}.
+	 *
+	 * @param url              The URL of the resource. Its scheme may be
+	 *                         HTTP or HTTPS. Must not be {@code null}.
+	 * @param previousResource The previously retrieved resource,
+	 *                         {@code null} if none.
+	 * @param callback         The callback, {@code null} if not
+	 *                         required.
+	 *
+	 * @return The future for the retrieved resource. A failed retrieval
+	 *         results in an {@link java.util.concurrent.ExecutionException}
+	 *         with the cause.
+	 *
+	 * @throws java.util.concurrent.RejectedExecutionException If the
+	 *         retrieval couldn't be started.
+	 */
+	Future<Resource> retrieveResourceAsync(final URL url,
+					       final Resource previousResource,
+					       final Callback callback);
+}
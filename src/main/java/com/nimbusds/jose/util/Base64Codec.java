@@ -24,7 +24,7 @@ import java.util.Arrays;
 /**
  * @author Tim McLean
  * @author others
- * @version 2018-07-23
+ * @version 2022-06-01
  */
 final class Base64Codec {
 
@@ -345,26 +345,69 @@ final class Base64Codec {
 			return new byte[0];
 		}
 
-		final byte[] srcBytes = b64String.getBytes(StandardCharset.UTF_8);
-		final int sLen = srcBytes.length;
+		return decode(b64String, 0, b64String.length());
+	}
+
+
+	/**
+	 * Decodes a base 64 or base 64 URL-safe encoded character sequence
+	 * range. May contain line separators. Any illegal characters are
+	 * ignored.
+	 *
+	 * @param src  The character sequence. Must not be {@code null}.
+	 * @param from The start index, inclusive.
+	 * @param to   The end index, exclusive.
+	 *
+	 * @return The decoded byte array, empty if the range is empty or
+	 *         corrupted.
+	 */
+	public static byte[] decode(final CharSequence src, final int from, final int to) {
 
-		// Calculate output length assuming zero bytes are padding or separators
-		final int maxOutputLen = checkedCast((long)sLen * 6 >> 3);
+		// Allocate output array (may be too large if the input contains
+		// padding, separators or illegal characters)
+		final byte[] dstBytes = new byte[computeMaxDecodedLength(to - from)];
 
-		// Allocate output array (may be too large)
-		final byte[] dstBytes = new byte[maxOutputLen];
+		final int d = decode(src, from, to, dstBytes, 0);
 
-		// Process all input bytes
-		int d = 0;
-		for (int s = 0; s < srcBytes.length; ) {
+		if (d == dstBytes.length) {
+			return dstBytes;
+		}
+
+		// Copy dstBytes to new array of proper size
+		return Arrays.copyOf(dstBytes, d);
+	}
+
+
+	/**
+	 * Decodes a base 64 or base 64 URL-safe encoded character sequence
+	 * range into the specified byte array. May contain line separators.
+	 * Any illegal characters are ignored.
+	 *
+	 * @param src       The character sequence. Must not be
+	 *                  {@code null}.
+	 * @param from      The start index, inclusive.
+	 * @param to        The end index, exclusive.
+	 * @param dst       The destination byte array. Must have at least
+	 *                  {@link #computeMaxDecodedLength} bytes available
+	 *                  from the offset.
+	 * @param dstOffset The destination offset.
+	 *
+	 * @return The number of decoded bytes.
+	 */
+	public static int decode(final CharSequence src, final int from, final int to, final byte[] dst, final int dstOffset) {
+
+		// Process all input chars
+		int d = dstOffset;
+		for (int s = from; s < to; ) {
 			// Assemble three bytes into an int from four base 64
 			// characters
 			int i = 0;
 
 			int j = 0;
-			while (j < 4 && s < sLen) {
+			while (j < 4 && s < to) {
 				// j only increased if a valid char was found
-				final int c = decodeDigit(srcBytes[s++]);
+				final char ch = src.charAt(s++);
+				final int c = ch < 0x80 ? decodeDigit((byte) ch) : -1;
 				if (c >= 0) {
 					i |= c << (18 - j * 6);
 					j++;
@@ -375,22 +418,36 @@ final class Base64Codec {
 
 			// Add output bytes
 			if (j >= 2) {
-				dstBytes[d++] = (byte) (i >> 16);
+				dst[d++] = (byte) (i >> 16);
 				if (j >= 3) {
-					dstBytes[d++] = (byte) (i >> 8);
+					dst[d++] = (byte) (i >> 8);
 					if (j >= 4) {
-						dstBytes[d++] = (byte) i;
+						dst[d++] = (byte) i;
 					}
 				}
 			}
 		}
 
-		// d is now the number of output bytes written
+		// d - dstOffset is now the number of output bytes written
+		return d - dstOffset;
+	}
 
-		// Copy dstBytes to new array of proper size
-		return Arrays.copyOf(dstBytes, d);
+
+	/**
+	 * Computes the maximum decoded byte length for the specified base 64
+	 * encoded character length. Exact for unpadded base 64 URL-safe
+	 * input without separators.
+	 *
+	 * @param encodedLength The base 64 encoded character length.
+	 *
+	 * @return The maximum decoded byte length.
+	 */
+	public static int computeMaxDecodedLength(final int encodedLength) {
+
+		return checkedCast((long)encodedLength * 6 >> 3);
 	}
 
+
 	private static int checkedCast(long value) {
 		int result = (int) value;
 		if (result != value) {
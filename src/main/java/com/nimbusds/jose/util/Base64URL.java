@@ -33,7 +33,7 @@ import net.jcip.annotations.Immutable;
  * </ul>
  *
  * @author Vladimir Dzhuvinov
- * @version 2019-10-04
+ * @version 2022-06-01
  */
 @Immutable
 public class Base64URL extends Base64 {
@@ -125,4 +125,58 @@ public class Base64URL extends Base64 {
 
 		return encode(text.getBytes(StandardCharset.UTF_8));
 	}
+	
+	
+	/**
+	 * Decodes a Base64URL-encoded range of the specified character
+	 * sequence, without creating intermediate strings. Any illegal
+	 * characters are ignored.
+	 *
+	 * @param src  The character sequence. Must not be {@code null}.
+	 * @param from The start index, inclusive.
+	 * @param to   The end index, exclusive.
+	 *
+	 * @return The decoded bytes, empty if the range is empty or
+	 *         corrupted.
+	 */
+	public static byte[] decode(final CharSequence src, final int from, final int to) {
+		
+		return Base64Codec.decode(src, from, to);
+	}
+	
+	
+	/**
+	 * Decodes a Base64URL-encoded range of the specified character
+	 * sequence into the specified byte array, without creating
+	 * intermediate strings or arrays. Any illegal characters are ignored.
+	 *
+	 * @param src       The character sequence. Must not be
+	 *                  {@code null}.
+	 * @param from      The start index, inclusive.
+	 * @param to        The end index, exclusive.
+	 * @param dst       The destination byte array. Must have at least
+	 *                  {@link #computeMaxDecodedLength} bytes available
+	 *                  from the offset.
+	 * @param dstOffset The destination offset.
+	 *
+	 * @return The number of decoded bytes.
+	 */
+	public static int decode(final CharSequence src, final int from, final int to, final byte[] dst, final int dstOffset) {
+		
+		return Base64Codec.decode(src, from, to, dst, dstOffset);
+	}
+	
+	
+	/**
+	 * Computes the maximum decoded byte length for the specified
+	 * Base64URL-encoded character length. Exact for unpadded input.
+	 *
+	 * @param encodedLength The Base64URL-encoded character length.
+	 *
+	 * @return The maximum decoded byte length.
+	 */
+	public static int computeMaxDecodedLength(final int encodedLength) {
+		
+		return Base64Codec.computeMaxDecodedLength(encodedLength);
+	}
 }
@@ -0,0 +1,55 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.util;
+
+
+import java.io.IOException;
+import java.net.URL;
+
+
+/**
+ * Retriever of resources specified by URL which supports conditional
+ * retrieval with the HTTP If-None-Match and If-Modified-Since headers.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+public interface ConditionalResourceRetriever extends ResourceRetriever {
+
+
+	/**
+	 * Retrieves the resource from the specified URL, unless it wasn't
+	 * modified since the specified previously retrieved resource. The
+	 * entity tag (ETag) and last modification date (Last-Modified) of the
+	 * previous resource, if any, are used as validators.
+	 *
+	 * @param url              The URL of the resource. Its scheme may be
+	 *                         HTTP or HTTPS. Must not be {@code null}.
+	 * @param previousResource The previously retrieved resource,
+	 *                         {@code null} if none.
+	 *
+	 * @return The retrieved resource. If not modified (HTTP 304) a resource
+	 *         with the content of the previous resource and
+	 *         {@link Resource#isNotModified()} returning {@code true}.
+	 *
+	 * @throws IOException If the HTTP connection to the specified URL
+	 *                     failed or the resource couldn't be retrieved.
+	 */
+	Resource retrieveResource(final URL url, final Resource previousResource)
+		throws IOException;
+}
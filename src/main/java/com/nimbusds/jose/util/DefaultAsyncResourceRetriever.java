@@ -0,0 +1,137 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.util;
+
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import net.jcip.annotations.ThreadSafe;
+
+
+/**
+ * The default asynchronous retriever of resources specified by URL. Runs a
+ * {@link ResourceRetriever} on a dedicated {@link ExecutorService}, so that
+ * the calling thread, e.g. an event loop thread, is never occupied by the
+ * retrieval. With a {@link DefaultResourceRetriever} the HTTP timeouts, the
+ * entity size limit and the conditional retrieval are retained.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ * AsyncResourceRetriever retriever = new DefaultAsyncResourceRetriever(
+ *     new DefaultResourceRetriever(500, 500, 50 * 1024),
+ *     Executors.newFixedThreadPool(2));
+ * </pre>
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@ThreadSafe
+public class DefaultAsyncResourceRetriever implements AsyncResourceRetriever {
+
+
+	/**
+	 * The underlying blocking retriever.
+	 */
+	private final ResourceRetriever retriever;
+
+
+	/**
+	 * The executor service for the retrievals.
+	 */
+	private final ExecutorService executorService;
+
+
+	/**
+	 * Creates a new asynchronous resource retriever.
+	 *
+	 * @param retriever       The underlying blocking retriever. Must not
+	 *                        be {@code null}.
+	 * @param executorService The executor service for the retrievals.
+	 *                        Must not be {@code null}. Its shutdown is
+	 *                        left to the caller.
+	 */
+	public DefaultAsyncResourceRetriever(final ResourceRetriever retriever,
+					     final ExecutorService executorService) {
+
+		if (retriever == null) {
+			throw new IllegalArgumentException("The resource retriever must not be null");
+		}
+		this.retriever = retriever;
+
+		if (executorService == null) {
+			throw new IllegalArgumentException("The executor service must not be null");
+		}
+		this.executorService = executorService;
+	}
+
+
+	/**
+	 * Returns the underlying blocking retriever.
+	 *
+	 * @return The resource retriever.
+	 */
+	public ResourceRetriever getResourceRetriever() {
+
+		return retriever;
+	}
+
+
+	/**
+	 * Returns the executor service for the retrievals.
+	 *
+	 * @return The executor service.
+	 */
+	public ExecutorService getExecutorService() {
+
+		return executorService;
+	}
+
+
+	@Override
+	public Future<Resource> retrieveResourceAsync(final URL url,
+						      final Resource previousResource,
+						      final Callback callback) {
+
+		return executorService.submit(new Callable<Resource>() {
+			@Override
+			public Resource call()
+				throws IOException {
+
+				Resource resource;
+				try {
+					resource = ResourceRetrieverUtils.retrieveResource(retriever, url, previousResource);
+				} catch (IOException | RuntimeException e) {
+					if (callback != null) {
+						callback.failed(e);
+					}
+					throw e;
+				}
+
+				if (callback != null) {
+					callback.completed(resource);
+				}
+				return resource;
+			}
+		});
+	}
+}
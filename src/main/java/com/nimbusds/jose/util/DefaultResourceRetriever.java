@@ -35,15 +35,21 @@ import net.jcip.annotations.ThreadSafe;
 /**
  * The default retriever of resources specified by URL. Provides setting of a
  * HTTP proxy, HTTP connect and read timeouts as well as a size limit of the
- * retrieved entity. Caching header directives are not honoured.
+ * retrieved entity.
+ *
+ * <p>Supports conditional retrieval with the HTTP If-None-Match and
+ * If-Modified-Since headers, see
+ * {@link #retrieveResource(URL, Resource)}. The ETag, Last-Modified and
+ * Cache-Control max-age of the retrieved resources are recorded, the caching
+ * itself is left to the caller.
  *
  * @author Vladimir Dzhuvinov
  * @author Artun Subasi
  * @author Imre Paladji
- * @version 2020-12-14
+ * @version 2022-06-01
  */
 @ThreadSafe
-public class DefaultResourceRetriever extends AbstractRestrictedResourceRetriever implements RestrictedResourceRetriever {
+public class DefaultResourceRetriever extends AbstractRestrictedResourceRetriever implements RestrictedResourceRetriever, ConditionalResourceRetriever {
 	
 	
 	/**
@@ -234,6 +240,14 @@ public class DefaultResourceRetriever extends AbstractRestrictedResourceRetrieve
 	public Resource retrieveResource(final URL url)
 		throws IOException {
 
+		return retrieveResource(url, null);
+	}
+
+
+	@Override
+	public Resource retrieveResource(final URL url, final Resource previousResource)
+		throws IOException {
+
 		HttpURLConnection con = null;
 		try {
 			con = openConnection(url);
@@ -252,6 +266,15 @@ public class DefaultResourceRetriever extends AbstractRestrictedResourceRetrieve
 					}
 				}
 			}
+			
+			if (previousResource != null) {
+				if (previousResource.getETag() != null) {
+					con.setRequestProperty("If-None-Match", previousResource.getETag());
+				}
+				if (previousResource.getLastModified() != null) {
+					con.setRequestProperty("If-Modified-Since", previousResource.getLastModified());
+				}
+			}
 
 			final String content;
 			try (InputStream inputStream = getInputStream(con, getSizeLimit())) {
@@ -261,13 +284,34 @@ public class DefaultResourceRetriever extends AbstractRestrictedResourceRetrieve
 			// Check HTTP code + message
 			final int statusCode = con.getResponseCode();
 			final String statusMessage = con.getResponseMessage();
+			
+			final long maxAge = parseMaxAge(con.getHeaderField("Cache-Control"));
+			
+			if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED && previousResource != null) {
+				// Keep the previous validators unless updated
+				String eTag = con.getHeaderField("ETag");
+				String lastModified = con.getHeaderField("Last-Modified");
+				return new Resource(
+					previousResource.getContent(),
+					previousResource.getContentType(),
+					eTag != null ? eTag : previousResource.getETag(),
+					lastModified != null ? lastModified : previousResource.getLastModified(),
+					maxAge,
+					true);
+			}
 
 			// Ensure 2xx status code
 			if (statusCode > 299 || statusCode < 200) {
 				throw new IOException("HTTP " + statusCode + ": " + statusMessage);
 			}
 
-			return new Resource(content, con.getContentType());
+			return new Resource(
+				content,
+				con.getContentType(),
+				con.getHeaderField("ETag"),
+				con.getHeaderField("Last-Modified"),
+				maxAge,
+				false);
 
 		} catch (ClassCastException e) {
 			throw new IOException("Couldn't open HTTP(S) connection: " + e.getMessage(), e);
@@ -299,6 +343,46 @@ public class DefaultResourceRetriever extends AbstractRestrictedResourceRetrieve
 	}
 
 
+	/**
+	 * Parses the max-age directive from the specified Cache-Control
+	 * header value.
+	 *
+	 * @param cacheControl The Cache-Control header value, {@code null} if
+	 *                     not specified.
+	 *
+	 * @return The max-age, in seconds, -1 if not specified or invalid.
+	 */
+	static long parseMaxAge(final String cacheControl) {
+		
+		if (cacheControl == null) {
+			return -1L;
+		}
+		
+		for (String directive: cacheControl.split(",")) {
+			
+			String[] parts = directive.trim().split("=", 2);
+			
+			if (parts.length != 2 || ! "max-age".equalsIgnoreCase(parts[0].trim())) {
+				continue;
+			}
+			
+			String value = parts[1].trim();
+			if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+				value = value.substring(1, value.length() - 1);
+			}
+			
+			try {
+				long maxAge = Long.parseLong(value);
+				return maxAge < 0 ? -1L : maxAge;
+			} catch (NumberFormatException e) {
+				return -1L;
+			}
+		}
+		
+		return -1L;
+	}
+
+
 	private InputStream getInputStream(final HttpURLConnection con, final int sizeLimit)
 		throws IOException {
 
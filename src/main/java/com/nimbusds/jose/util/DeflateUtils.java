@@ -1,7 +1,7 @@
 /*
  * nimbus-jose-jwt
  *
- * Copyright 2012-2016, Connect2id Ltd.
+ * Copyright 2012-2022, Connect2id Ltd.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
  * this file except in compliance with the License. You may obtain a copy of the
@@ -15,23 +15,32 @@
  * specific language governing permissions and limitations under the License.
  */
 
+
 package com.nimbusds.jose.util;
 
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.InflaterInputStream;
 import java.util.zip.Inflater;
+import java.util.zip.ZipException;
 
 
 /**
  * Deflate (RFC 1951) utilities.
  *
+ * <p>The {@link Deflater} and {@link Inflater} instances are pooled and reset
+ * after use. The decompressed size is limited to a
+ * {@link #getMaxInflatedSize() maximum}, enforced while inflating, to protect
+ * against compressed-payload bombs.
+ *
  * @author Vladimir Dzhuvinov
- * @version 2013-04-16
+ * @version 2022-06-01
  */
 public class DeflateUtils {
 
@@ -44,6 +53,144 @@ public class DeflateUtils {
 	private static final boolean NOWRAP = true;
 
 
+	/**
+	 * The default maximum inflated size, in bytes (10 MiB).
+	 */
+	public static final int DEFAULT_MAX_INFLATED_SIZE = 10 * 1024 * 1024;
+
+
+	/**
+	 * The maximum number of pooled deflaters and inflaters, each, twice
+	 * the number of available processors.
+	 */
+	public static final int POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+
+
+	/**
+	 * The minimum output buffer size, in bytes.
+	 */
+	private static final int MIN_BUFFER_SIZE = 256;
+
+
+	/**
+	 * The maximum inflated size, in bytes.
+	 */
+	private static volatile int maxInflatedSize = DEFAULT_MAX_INFLATED_SIZE;
+
+
+	/**
+	 * Bounded pool of deflaters or inflaters.
+	 */
+	private static abstract class Pool<T> {
+
+
+		private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+
+
+		private final AtomicInteger size = new AtomicInteger();
+
+
+		T take() {
+
+			T t = queue.poll();
+			if (t == null) {
+				return create();
+			}
+			size.decrementAndGet();
+			return t;
+		}
+
+
+		void release(final T t) {
+
+			if (size.incrementAndGet() > POOL_SIZE) {
+				size.decrementAndGet();
+				end(t);
+				return;
+			}
+			reset(t);
+			queue.offer(t);
+		}
+
+
+		abstract T create();
+
+
+		abstract void reset(final T t);
+
+
+		abstract void end(final T t);
+	}
+
+
+	/**
+	 * The pooled deflaters.
+	 */
+	private static final Pool<Deflater> DEFLATERS = new Pool<Deflater>() {
+		@Override
+		Deflater create() {
+			return new Deflater(Deflater.DEFLATED, NOWRAP);
+		}
+
+		@Override
+		void reset(final Deflater deflater) {
+			deflater.reset();
+		}
+
+		@Override
+		void end(final Deflater deflater) {
+			deflater.end();
+		}
+	};
+
+
+	/**
+	 * The pooled inflaters.
+	 */
+	private static final Pool<Inflater> INFLATERS = new Pool<Inflater>() {
+		@Override
+		Inflater create() {
+			return new Inflater(NOWRAP);
+		}
+
+		@Override
+		void reset(final Inflater inflater) {
+			inflater.reset();
+		}
+
+		@Override
+		void end(final Inflater inflater) {
+			inflater.end();
+		}
+	};
+
+
+	/**
+	 * Returns the maximum inflated size for {@link #decompress(byte[])}.
+	 *
+	 * @return The maximum inflated size, in bytes.
+	 */
+	public static int getMaxInflatedSize() {
+
+		return maxInflatedSize;
+	}
+
+
+	/**
+	 * Sets the maximum inflated size for {@link #decompress(byte[])}.
+	 *
+	 * @param maxInflatedSize The maximum inflated size, in bytes. Must be
+	 *                        positive.
+	 */
+	public static void setMaxInflatedSize(final int maxInflatedSize) {
+
+		if (maxInflatedSize < 1) {
+			throw new IllegalArgumentException("The maximum inflated size must be positive");
+		}
+		DeflateUtils.maxInflatedSize = maxInflatedSize;
+	}
+
+
 	/**
 	 * Compresses the specified byte array according to the DEFLATE 
 	 * specification (RFC 1951).
@@ -57,66 +204,181 @@ public class DeflateUtils {
 	public static byte[] compress(final byte[] bytes)
 		throws IOException {
 
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Deflater deflater = DEFLATERS.take();
+		try {
+			deflater.setInput(bytes);
+			deflater.finish();
 
+			// Sized for a typical 2:1 ratio, grows if necessary
+			byte[] out = new byte[Math.max(MIN_BUFFER_SIZE, bytes.length / 2)];
+			int len = 0;
 
-		Deflater deflater = null;
-		DeflaterOutputStream def = null;
-		try {
-			deflater = new Deflater(Deflater.DEFLATED, NOWRAP);
-			def = new DeflaterOutputStream(out, deflater);
-			def.write(bytes);
-		} finally {
-			if(def != null) {
-				def.close();
-			}
-			if(deflater != null) {
-				deflater.end();
+			while (! deflater.finished()) {
+				if (len == out.length) {
+					out = Arrays.copyOf(out, out.length * 2);
+				}
+				len += deflater.deflate(out, len, out.length - len);
 			}
-		}
 
-		return out.toByteArray();
+			return len == out.length ? out : Arrays.copyOf(out, len);
+		} finally {
+			DEFLATERS.release(deflater);
+		}
 	}
 
 
 	/**
 	 * Decompresses the specified byte array according to the DEFLATE
-	 * specification (RFC 1951).
+	 * specification (RFC 1951). The inflated size is limited to the
+	 * {@link #getMaxInflatedSize() configured maximum}.
 	 *
 	 * @param bytes The byte array to decompress. Must not be {@code null}.
 	 *
 	 * @return The decompressed bytes.
 	 *
-	 * @throws IOException If decompression failed.
+	 * @throws IOException If decompression failed or the inflated size
+	 *                     exceeds the maximum.
 	 */
 	public static byte[] decompress(final byte[] bytes)
-			throws IOException {
+		throws IOException {
+
+		return decompress(bytes, maxInflatedSize);
+	}
 
-		Inflater inflater = null;
-		InflaterInputStream inf = null;
+
+	/**
+	 * Decompresses the specified byte array according to the DEFLATE
+	 * specification (RFC 1951).
+	 *
+	 * @param bytes           The byte array to decompress. Must not be
+	 *                        {@code null}.
+	 * @param maxInflatedSize The maximum inflated size, in bytes. Must be
+	 *                        positive.
+	 *
+	 * @return The decompressed bytes.
+	 *
+	 * @throws IOException If decompression failed or the inflated size
+	 *                     exceeds the maximum.
+	 */
+	public static byte[] decompress(final byte[] bytes, final int maxInflatedSize)
+		throws IOException {
+
+		if (maxInflatedSize < 1) {
+			throw new IllegalArgumentException("The maximum inflated size must be positive");
+		}
+
+		Inflater inflater = INFLATERS.take();
 		try {
-			inflater = new Inflater(NOWRAP);
-			inf = new InflaterInputStream(new ByteArrayInputStream(bytes), inflater);
+			inflater.setInput(bytes);
 
-			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			// Sized for a typical 1:3 ratio, grows if necessary
+			byte[] out = new byte[(int) Math.min(maxInflatedSize, Math.max(MIN_BUFFER_SIZE, 3L * bytes.length))];
+			int len = 0;
 
-			// Transfer bytes from the compressed array to the output
-			byte[] buf = new byte[1024];
+			while (true) {
+				len += inflate(inflater, out, len, out.length - len);
+				if (inflater.finished()) {
+					break;
+				} else if (len < out.length) {
+					continue;
+				} else if (len == maxInflatedSize) {
+					ensureFinished(inflater, maxInflatedSize);
+					break;
+				}
+				out = Arrays.copyOf(out, (int) Math.min(maxInflatedSize, 2L * out.length));
+			}
 
-			int len;
+			return len == out.length ? out : Arrays.copyOf(out, len);
+		} finally {
+			INFLATERS.release(inflater);
+		}
+	}
 
-			while ((len = inf.read(buf)) > 0) {
 
-				out.write(buf, 0, len);
+	/**
+	 * Decompresses the specified byte array according to the DEFLATE
+	 * specification (RFC 1951) into the specified buffer. The inflated
+	 * size is limited to the remaining buffer length.
+	 *
+	 * @param bytes  The byte array to decompress. Must not be
+	 *               {@code null}.
+	 * @param dst    The destination buffer. Must not be {@code null}.
+	 * @param offset The offset in the destination buffer.
+	 *
+	 * @return The number of decompressed bytes.
+	 *
+	 * @throws IOException If decompression failed or the inflated size
+	 *                     exceeds the remaining buffer length.
+	 */
+	public static int decompress(final byte[] bytes, final byte[] dst, final int offset)
+		throws IOException {
+
+		if (offset < 0 || offset > dst.length) {
+			throw new IllegalArgumentException("The offset must be within the destination buffer");
+		}
+
+		Inflater inflater = INFLATERS.take();
+		try {
+			inflater.setInput(bytes);
+
+			int len = 0;
+
+			while (true) {
+				len += inflate(inflater, dst, offset + len, dst.length - offset - len);
+				if (inflater.finished()) {
+					break;
+				} else if (offset + len == dst.length) {
+					ensureFinished(inflater, dst.length - offset);
+					break;
+				}
 			}
 
-			return out.toByteArray();
+			return len;
 		} finally {
-			if(inf != null) {
-				inf.close();
+			INFLATERS.release(inflater);
+		}
+	}
+
+
+	/**
+	 * Inflates into the specified buffer range.
+	 *
+	 * @return The number of inflated bytes.
+	 */
+	private static int inflate(final Inflater inflater, final byte[] buf, final int off, final int len)
+		throws IOException {
+
+		int n;
+		try {
+			n = inflater.inflate(buf, off, len);
+		} catch (DataFormatException e) {
+			String s = e.getMessage();
+			throw new ZipException(s != null ? s : "Invalid ZLIB data format");
+		}
+
+		if (n == 0 && ! inflater.finished() && len > 0) {
+			if (inflater.needsDictionary()) {
+				throw new ZipException("Unexpected ZLIB preset dictionary");
+			} else if (inflater.needsInput()) {
+				throw new EOFException("Unexpected end of ZLIB input stream");
 			}
-			if(inflater != null) {
-				inflater.end();
+		}
+
+		return n;
+	}
+
+
+	/**
+	 * Ensures the inflater has no more output once the maximum inflated
+	 * size is reached.
+	 */
+	private static void ensureFinished(final Inflater inflater, final int maxInflatedSize)
+		throws IOException {
+
+		byte[] probe = new byte[1];
+		while (! inflater.finished()) {
+			if (inflate(inflater, probe, 0, 1) > 0) {
+				throw new IOException("The inflated size exceeds the maximum of " + maxInflatedSize + " bytes");
 			}
 		}
 	}
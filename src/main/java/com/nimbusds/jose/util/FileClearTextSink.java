@@ -0,0 +1,157 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.nimbusds.jose.util;
+
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import com.nimbusds.jose.ClearTextSink;
+
+
+/**
+ * Clear text sink which stages the unverified clear text of a streamed JWE
+ * in a file. On commit the file is copied to the target output stream and
+ * deleted, on discard it is only deleted.
+ *
+ * <p>The staging file holds unauthenticated clear text. It is created with
+ * owner-only permissions and should be placed in a directory which only the
+ * application can access.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@NotThreadSafe
+public class FileClearTextSink implements ClearTextSink {
+
+
+	/**
+	 * The staging file.
+	 */
+	private final File stagingFile;
+
+
+	/**
+	 * The target output stream.
+	 */
+	private final OutputStream out;
+
+
+	/**
+	 * The staging output stream, {@code null} if not opened.
+	 */
+	private OutputStream stagingOut;
+
+
+	/**
+	 * Creates a new file clear text sink.
+	 *
+	 * @param stagingFile The staging file, replaced if it exists. Must not
+	 *                    be {@code null}.
+	 * @param out         The target output stream for the verified clear
+	 *                    text, not closed. Must not be {@code null}.
+	 */
+	public FileClearTextSink(final File stagingFile, final OutputStream out) {
+
+		if (stagingFile == null) {
+			throw new IllegalArgumentException("The staging file must not be null");
+		}
+		this.stagingFile = stagingFile;
+
+		if (out == null) {
+			throw new IllegalArgumentException("The output stream must not be null");
+		}
+		this.out = out;
+	}
+
+
+	/**
+	 * Returns the staging file.
+	 *
+	 * @return The staging file.
+	 */
+	public File getStagingFile() {
+
+		return stagingFile;
+	}
+
+
+	@Override
+	public OutputStream getOutputStream()
+		throws IOException {
+
+		if (stagingOut == null) {
+			Path path = stagingFile.toPath();
+			Files.deleteIfExists(path);
+			if (path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+				Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+			} else {
+				Files.createFile(path);
+				stagingFile.setReadable(false, false);
+				stagingFile.setReadable(true, true);
+				stagingFile.setWritable(false, false);
+				stagingFile.setWritable(true, true);
+			}
+			stagingOut = new BufferedOutputStream(Files.newOutputStream(path));
+		}
+		return stagingOut;
+	}
+
+
+	@Override
+	public void commit()
+		throws IOException {
+
+		if (stagingOut != null) {
+			stagingOut.close();
+			stagingOut = null;
+		}
+
+		try (InputStream in = new FileInputStream(stagingFile)) {
+			byte[] buf = new byte[8192];
+			int n;
+			while ((n = in.read(buf)) != -1) {
+				out.write(buf, 0, n);
+			}
+		}
+
+		// The clear text is released, the deletion is best-effort
+		stagingFile.delete();
+	}
+
+
+	@Override
+	public void discard() {
+
+		if (stagingOut != null) {
+			try {
+				stagingOut.close();
+			} catch (IOException e) {
+				// Ignore
+			}
+			stagingOut = null;
+		}
+
+		stagingFile.delete();
+	}
+}
@@ -22,7 +22,15 @@ import net.jcip.annotations.Immutable;
 
 
 /**
- * Resource with optional associated content type.
+ * Resource with optional associated content type and HTTP cache validators.
+ *
+ * <p>The entity tag (ETag) and last modification date (Last-Modified) can be
+ * used by a {@link ConditionalResourceRetriever} to make a conditional
+ * retrieval of the resource. The max-age directive of the Cache-Control
+ * header is also exposed.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
  */
 @Immutable
 public class Resource {
@@ -40,6 +48,32 @@ public class Resource {
 	private final String contentType;
 
 
+	/**
+	 * The entity tag (ETag), {@code null} if not specified.
+	 */
+	private final String eTag;
+
+
+	/**
+	 * The last modification date (Last-Modified), {@code null} if not
+	 * specified.
+	 */
+	private final String lastModified;
+
+
+	/**
+	 * The Cache-Control max-age, in seconds, -1 if not specified.
+	 */
+	private final long maxAge;
+
+
+	/**
+	 * {@code true} if the resource content was not modified since the
+	 * previous retrieval.
+	 */
+	private final boolean notModified;
+
+
 	/**
 	 * Creates a new resource with optional associated content type.
 	 *
@@ -50,12 +84,45 @@ public class Resource {
 	 */
 	public Resource(final String content, final String contentType) {
 
+		this(content, contentType, null, null, -1L, false);
+	}
+
+
+	/**
+	 * Creates a new resource with optional associated content type and
+	 * HTTP cache validators.
+	 *
+	 * @param content      The resource content, empty string if none.
+	 *                     Must not be {@code null}.
+	 * @param contentType  The resource content type, {@code null} if not
+	 *                     specified.
+	 * @param eTag         The entity tag (ETag), {@code null} if not
+	 *                     specified.
+	 * @param lastModified The last modification date (Last-Modified), as
+	 *                     received, {@code null} if not specified.
+	 * @param maxAge       The Cache-Control max-age, in seconds, -1 if not
+	 *                     specified.
+	 * @param notModified  {@code true} if the content was not modified
+	 *                     since the previous retrieval and was taken from
+	 *                     the previous resource (HTTP 304).
+	 */
+	public Resource(final String content,
+			final String contentType,
+			final String eTag,
+			final String lastModified,
+			final long maxAge,
+			final boolean notModified) {
+
 		if (content == null) {
 			throw new IllegalArgumentException("The resource content must not be null");
 		}
 
 		this.content = content;
 		this.contentType = contentType;
+		this.eTag = eTag;
+		this.lastModified = lastModified;
+		this.maxAge = maxAge;
+		this.notModified = notModified;
 	}
 
 
@@ -79,4 +146,51 @@ public class Resource {
 
 		return contentType;
 	}
+
+
+	/**
+	 * Gets the entity tag (ETag) of this resource.
+	 *
+	 * @return The entity tag, {@code null} if not specified.
+	 */
+	public String getETag() {
+
+		return eTag;
+	}
+
+
+	/**
+	 * Gets the last modification date (Last-Modified) of this resource,
+	 * as received.
+	 *
+	 * @return The last modification date, {@code null} if not specified.
+	 */
+	public String getLastModified() {
+
+		return lastModified;
+	}
+
+
+	/**
+	 * Gets the Cache-Control max-age of this resource.
+	 *
+	 * @return The max-age, in seconds, -1 if not specified.
+	 */
+	public long getMaxAge() {
+
+		return maxAge;
+	}
+
+
+	/**
+	 * Returns {@code true} if the content of this resource was not
+	 * modified since the previous retrieval (HTTP 304) and was taken from
+	 * the previous resource.
+	 *
+	 * @return {@code true} if not modified.
+	 */
+	public boolean isNotModified() {
+
+		return notModified;
+	}
 }
@@ -0,0 +1,100 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.util;
+
+
+import java.io.IOException;
+import java.net.URL;
+
+
+/**
+ * Resource retriever utilities.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+public class ResourceRetrieverUtils {
+
+
+	/**
+	 * Returns {@code true} if the specified resource retriever supports
+	 * conditional retrieval. A {@link ConditionalResourceRetriever} which
+	 * overrides the single-argument
+	 * {@link ResourceRetriever#retrieveResource(URL)} method in a subclass,
+	 * e.g. to set custom HTTP headers or credentials, doesn't, because a
+	 * conditional retrieval would bypass the override.
+	 *
+	 * @param retriever The resource retriever. Must not be {@code null}.
+	 *
+	 * @return {@code true} if conditional retrieval is supported.
+	 */
+	public static boolean supportsConditionalRetrieval(final ResourceRetriever retriever) {
+
+		if (! (retriever instanceof ConditionalResourceRetriever)) {
+			return false;
+		}
+
+		try {
+			Class<?> singleArgClass = retriever.getClass().getMethod("retrieveResource", URL.class).getDeclaringClass();
+			Class<?> conditionalClass = retriever.getClass().getMethod("retrieveResource", URL.class, Resource.class).getDeclaringClass();
+			// The single-argument method must not be overridden
+			// below the conditional one
+			return singleArgClass.isAssignableFrom(conditionalClass);
+		} catch (NoSuchMethodException | SecurityException e) {
+			return false;
+		}
+	}
+
+
+	/**
+	 * Retrieves the resource from the specified URL, conditionally if a
+	 * previously retrieved resource is specified and the retriever
+	 * {@link #supportsConditionalRetrieval supports conditional
+	 * retrieval}, else with the single-argument
+	 * {@link ResourceRetriever#retrieveResource(URL)} method.
+	 *
+	 * @param retriever        The resource retriever. Must not be
+	 *                         {@code null}.
+	 * @param url              The URL of the resource. Must not be
+	 *                         {@code null}.
+	 * @param previousResource The previously retrieved resource,
+	 *                         {@code null} if none.
+	 *
+	 * @return The retrieved resource.
+	 *
+	 * @throws IOException If the resource couldn't be retrieved.
+	 */
+	public static Resource retrieveResource(final ResourceRetriever retriever,
+						final URL url,
+						final Resource previousResource)
+		throws IOException {
+
+		if (previousResource != null && supportsConditionalRetrieval(retriever)) {
+			return ((ConditionalResourceRetriever) retriever).retrieveResource(url, previousResource);
+		}
+
+		return retriever.retrieveResource(url);
+	}
+
+
+	/**
+	 * Prevents public instantiation.
+	 */
+	private ResourceRetrieverUtils() {
+	}
+}
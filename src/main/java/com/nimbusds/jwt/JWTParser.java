@@ -27,6 +27,7 @@ import com.nimbusds.jose.JWEAlgorithm;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.jose.util.JSONObjectUtils;
+import com.nimbusds.jose.util.StandardCharset;
 
 
 /**
@@ -34,7 +35,7 @@ import com.nimbusds.jose.util.JSONObjectUtils;
  *
  * @author Vladimir Dzhuvinov
  * @author Junya Hayashi
- * @version 2015-06-14
+ * @version 2022-06-01
  */
 public final class JWTParser {
 
@@ -59,12 +60,10 @@ public final class JWTParser {
 		if (firstDotPos == -1)
 			throw new ParseException("Invalid JWT serialization: Missing dot delimiter(s)", 0);
 			
-		Base64URL header = new Base64URL(s.substring(0, firstDotPos));
-		
 		Map<String, Object> jsonObject;
 
 		try {
-			jsonObject = JSONObjectUtils.parse(header.decodeToString());
+			jsonObject = JSONObjectUtils.parse(new String(Base64URL.decode(s, 0, firstDotPos), StandardCharset.UTF_8));
 
 		} catch (ParseException e) {
 
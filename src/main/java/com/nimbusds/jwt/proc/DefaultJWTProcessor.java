@@ -20,13 +20,17 @@ package com.nimbusds.jwt.proc;
 
 import java.security.Key;
 import java.text.ParseException;
-import java.util.List;
-import java.util.ListIterator;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import com.nimbusds.jose.*;
 import com.nimbusds.jose.crypto.factories.DefaultJWEDecrypterFactory;
 import com.nimbusds.jose.crypto.factories.DefaultJWSVerifierFactory;
 import com.nimbusds.jose.proc.*;
+import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.jwt.*;
 
 
@@ -82,14 +86,31 @@ import com.nimbusds.jwt.*;
  * verifier may be extended to perform additional checks, such as issuer and
  * subject acceptance.
  *
+ * <p>Batches of JWTs can be processed in parallel with
+ * {@link #processAll(List, SecurityContext)}. Signed JWTs with identical
+ * headers, e.g. with the same key ID (kid), are grouped so that the key
+ * selection and the verifier creation are done once per group. The JWS
+ * verifiers must be thread-safe, which is the case for the
+ * {@link DefaultJWSVerifierFactory default ones}.
+ *
  * <p>To process generic JOSE objects (with arbitrary payloads) use the
  * {@link com.nimbusds.jose.proc.DefaultJOSEProcessor} class.
  *
  * @author Vladimir Dzhuvinov
- * @version 2021-06-05
+ * @version 2022-06-01
  */
 public class DefaultJWTProcessor<C extends SecurityContext> implements ConfigurableJWTProcessor<C> {
 
+
+	/**
+	 * Holder of the default executor for batch processing, a fork-join
+	 * pool with daemon threads, created on first use.
+	 */
+	private static class DefaultBatchExecutor {
+
+		private static final ExecutorService INSTANCE = new ForkJoinPool();
+	}
+
 	
 	/**
 	 * The JWS type verifier.
@@ -138,6 +159,13 @@ public class DefaultJWTProcessor<C extends SecurityContext> implements Configura
 	 * The claims verifier.
 	 */
 	private JWTClaimsSetVerifier<C> claimsVerifier = new DefaultJWTClaimsVerifier<>(null, null);
+
+
+
+	/**
+	 * The optional cache of verified JWTs, {@code null} if none.
+	 */
+	private VerifiedJWTCache verifiedJWTCache;
 	
 	
 	@Override
@@ -252,6 +280,33 @@ public class DefaultJWTProcessor<C extends SecurityContext> implements Configura
 	}
 	
 	
+	/**
+	 * Gets the cache of verified signed JWTs.
+	 *
+	 * @return The verified JWT cache, {@code null} if none.
+	 */
+	public VerifiedJWTCache getVerifiedJWTCache() {
+		
+		return verifiedJWTCache;
+	}
+	
+	
+	/**
+	 * Sets a cache of verified signed JWTs. The signature verification is
+	 * skipped for JWTs found in the cache if the key that verified the
+	 * signature is still among the selected key candidates. The JWT type
+	 * and claims checks are performed on every hit. The state of a
+	 * {@link SignedJWT} found in the cache is not changed to
+	 * {@link JWSObject.State#VERIFIED verified}.
+	 *
+	 * @param cache The verified JWT cache, {@code null} if none.
+	 */
+	public void setVerifiedJWTCache(final VerifiedJWTCache cache) {
+		
+		this.verifiedJWTCache = cache;
+	}
+	
+	
 	private JWTClaimsSet extractJWTClaimsSet(final JWT jwt)
 		throws BadJWTException {
 		
@@ -287,6 +342,77 @@ public class DefaultJWTProcessor<C extends SecurityContext> implements Configura
 	}
 
 
+	private void verifyJWSTypeAndConfiguration(final JWSHeader header, final C context)
+		throws BadJOSEException, JOSEException {
+		
+		if (jwsTypeVerifier == null) {
+			throw new BadJOSEException("Signed JWT rejected: No JWS header typ (type) verifier is configured");
+		}
+		
+		jwsTypeVerifier.verify(header.getType(), context);
+
+		if (getJWSKeySelector() == null && getJWTClaimsSetAwareJWSKeySelector() == null) {
+			// JWS key selector may have been deliberately omitted
+			throw new BadJOSEException("Signed JWT rejected: No JWS key selector is configured");
+		}
+
+		if (getJWSVerifierFactory() == null) {
+			throw new JOSEException("No JWS verifier is configured");
+		}
+	}
+	
+	
+	/**
+	 * Selects the keys and creates the JWS verifiers for a group of signed
+	 * JWTs with the specified header.
+	 */
+	private List<JWSVerifier> createJWSVerifiers(final JWSHeader header, final C context)
+		throws BadJOSEException, JOSEException {
+		
+		verifyJWSTypeAndConfiguration(header, context);
+		
+		List<? extends Key> keyCandidates = getJWSKeySelector().selectJWSKeys(header, context);
+		
+		if (keyCandidates == null || keyCandidates.isEmpty()) {
+			throw new BadJOSEException("Signed JWT rejected: Another algorithm expected, or no matching key(s) found");
+		}
+		
+		List<JWSVerifier> verifiers = new ArrayList<>(keyCandidates.size());
+		
+		for (Key key: keyCandidates) {
+			JWSVerifier verifier = getJWSVerifierFactory().createJWSVerifier(header, key);
+			if (verifier != null) {
+				verifiers.add(verifier);
+			}
+		}
+		
+		if (verifiers.isEmpty()) {
+			throw new BadJOSEException("JWS object rejected: No matching verifier(s) found");
+		}
+		
+		return verifiers;
+	}
+	
+	
+	/**
+	 * Processes a signed JWT from a group with the JWS verifiers created
+	 * for the group.
+	 */
+	private JWTClaimsSet process(final SignedJWT signedJWT, final List<JWSVerifier> verifiers, final C context)
+		throws BadJOSEException, JOSEException {
+		
+		JWTClaimsSet claimsSet = extractJWTClaimsSet(signedJWT);
+		
+		for (JWSVerifier verifier: verifiers) {
+			if (signedJWT.verify(verifier)) {
+				return verifyClaims(claimsSet, context);
+			}
+		}
+		
+		throw new BadJWSException("Signed JWT rejected: Invalid signature");
+	}
+
+
 	@Override
 	public JWTClaimsSet process(final String jwtString, final C context)
 		throws ParseException, BadJOSEException, JOSEException {
@@ -334,19 +460,24 @@ public class DefaultJWTProcessor<C extends SecurityContext> implements Configura
 	public JWTClaimsSet process(final SignedJWT signedJWT, final C context)
 		throws BadJOSEException, JOSEException {
 		
-		if (jwsTypeVerifier == null) {
-			throw new BadJOSEException("Signed JWT rejected: No JWS header typ (type) verifier is configured");
-		}
+		verifyJWSTypeAndConfiguration(signedJWT.getHeader(), context);
 		
-		jwsTypeVerifier.verify(signedJWT.getHeader().getType(), context);
-
-		if (getJWSKeySelector() == null && getJWTClaimsSetAwareJWSKeySelector() == null) {
-			// JWS key selector may have been deliberately omitted
-			throw new BadJOSEException("Signed JWT rejected: No JWS key selector is configured");
-		}
-
-		if (getJWSVerifierFactory() == null) {
-			throw new JOSEException("No JWS verifier is configured");
+		final VerifiedJWTCache cache = getVerifiedJWTCache();
+		String jwtString = null;
+		
+		if (cache != null && signedJWT.getState() != JWSObject.State.UNSIGNED) {
+			
+			jwtString = signedJWT.getParsedString() != null ? signedJWT.getParsedString() : signedJWT.serialize();
+			
+			VerifiedJWTCache.Entry entry = cache.get(jwtString);
+			
+			if (entry != null) {
+				List<? extends Key> keyCandidates = selectKeys(signedJWT.getHeader(), entry.claimsSet, context);
+				
+				if (keyCandidates != null && keyCandidates.contains(entry.key)) {
+					return verifyClaims(entry.claimsSet, context);
+				}
+			}
 		}
 		
 		JWTClaimsSet claimsSet = extractJWTClaimsSet(signedJWT);
@@ -361,7 +492,9 @@ public class DefaultJWTProcessor<C extends SecurityContext> implements Configura
 
 		while (it.hasNext()) {
 
-			JWSVerifier verifier = getJWSVerifierFactory().createJWSVerifier(signedJWT.getHeader(), it.next());
+			Key key = it.next();
+			
+			JWSVerifier verifier = getJWSVerifierFactory().createJWSVerifier(signedJWT.getHeader(), key);
 
 			if (verifier == null) {
 				continue;
@@ -370,7 +503,11 @@ public class DefaultJWTProcessor<C extends SecurityContext> implements Configura
 			final boolean validSignature = signedJWT.verify(verifier);
 
 			if (validSignature) {
-				return verifyClaims(claimsSet, context);
+				verifyClaims(claimsSet, context);
+				if (jwtString != null) {
+					cache.put(jwtString, claimsSet, key);
+				}
+				return claimsSet;
 			}
 
 			if (! it.hasNext()) {
@@ -451,4 +588,194 @@ public class DefaultJWTProcessor<C extends SecurityContext> implements Configura
 
 		throw new BadJOSEException("Encrypted JWT rejected: No matching decrypter(s) found");
 	}
+
+	/**
+	 * Processes the specified batch of JWTs in parallel, on a shared
+	 * fork-join pool. The processing doesn't stop at the first failure.
+	 *
+	 * @see #processAll(List, SecurityContext, ExecutorService)
+	 *
+	 * @param jwtStrings The JWTs to process, as strings. Must not be
+	 *                   {@code null}.
+	 * @param context    Optional context, {@code null} if not required.
+	 *
+	 * @return The processing results, in the order of the JWT strings.
+	 */
+	public List<JWTProcessingResult> processAll(final List<String> jwtStrings, final C context) {
+
+		return processAll(jwtStrings, context, DefaultBatchExecutor.INSTANCE);
+	}
+
+
+	/**
+	 * Processes the specified batch of JWTs in parallel, on the specified
+	 * executor. The processing doesn't stop at the first failure, the
+	 * result for each JWT holds its claims set or the exception that
+	 * caused its processing to fail.
+	 *
+	 * <p>Signed JWTs with identical headers, e.g. with the same algorithm
+	 * and key ID (kid), are grouped. The key selection and the creation of
+	 * the JWS verifiers are done once per group. Signed JWTs with a
+	 * {@link #setJWTClaimsSetAwareJWSKeySelector claims aware key
+	 * selector}, encrypted and plain JWTs are processed individually.
+	 *
+	 * <p>If the calling thread is interrupted while waiting for the
+	 * processing to complete the JWTs not yet processed get a
+	 * {@link JOSEException} result and the interrupt status is restored.
+	 * Tasks still running after the interrupt don't change the returned
+	 * results.
+	 *
+	 * @param jwtStrings The JWTs to process, as strings. Must not be
+	 *                   {@code null}.
+	 * @param context    Optional context, {@code null} if not required.
+	 * @param executor   The executor to use. Must not be {@code null}.
+	 *
+	 * @return The processing results, in the order of the JWT strings.
+	 */
+	public List<JWTProcessingResult> processAll(final List<String> jwtStrings,
+						    final C context,
+						    final ExecutorService executor) {
+
+		if (executor == null) {
+			throw new IllegalArgumentException("The executor must not be null");
+		}
+
+		final int n = jwtStrings.size();
+		final String[] inputs = jwtStrings.toArray(new String[n]);
+		final JWT[] jwts = new JWT[n];
+		// Written once, tasks still running after an interrupt mustn't
+		// overwrite the interrupted results
+		final AtomicReferenceArray<JWTProcessingResult> results = new AtomicReferenceArray<>(n);
+
+		// Parse and group the signed JWTs by header
+		final Map<Base64URL, List<Integer>> groups = new LinkedHashMap<>();
+		final List<Integer> singles = new ArrayList<>();
+
+		for (int i=0; i < n; i++) {
+			try {
+				jwts[i] = JWTParser.parse(inputs[i]);
+			} catch (ParseException | RuntimeException e) {
+				results.set(i, new JWTProcessingResult(inputs[i], e));
+				continue;
+			}
+
+			if (jwts[i] instanceof SignedJWT && getJWTClaimsSetAwareJWSKeySelector() == null) {
+				Base64URL groupKey = ((SignedJWT) jwts[i]).getHeader().getParsedBase64URL();
+				List<Integer> group = groups.get(groupKey);
+				if (group == null) {
+					group = new ArrayList<>();
+					groups.put(groupKey, group);
+				}
+				group.add(i);
+			} else {
+				singles.add(i);
+			}
+		}
+
+		// Select keys and create verifiers once per group
+		final List<List<Integer>> groupList = new ArrayList<>(groups.values());
+		final Object[] groupVerifiers = new Object[groupList.size()]; // List<JWSVerifier> or Exception
+		List<Callable<Void>> tasks = new ArrayList<>(groupList.size());
+
+		for (int g=0; g < groupList.size(); g++) {
+			final int groupIndex = g;
+			final JWSHeader header = ((SignedJWT) jwts[groupList.get(g).get(0)]).getHeader();
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					try {
+						groupVerifiers[groupIndex] = createJWSVerifiers(header, context);
+					} catch (Exception e) {
+						groupVerifiers[groupIndex] = e;
+					}
+					return null;
+				}
+			});
+		}
+
+		if (invokeAll(executor, tasks)) {
+
+			// Verify in chunks
+			final int chunkSize = Math.max(1, n / (4 * Runtime.getRuntime().availableProcessors()));
+			tasks = new ArrayList<>();
+
+			for (int g=0; g < groupList.size(); g++) {
+
+				final List<Integer> group = groupList.get(g);
+
+				if (groupVerifiers[g] instanceof Exception) {
+					for (int i: group) {
+						results.set(i, new JWTProcessingResult(inputs[i], (Exception) groupVerifiers[g]));
+					}
+					continue;
+				}
+
+				@SuppressWarnings("unchecked")
+				final List<JWSVerifier> verifiers = (List<JWSVerifier>) groupVerifiers[g];
+
+				for (int from=0; from < group.size(); from += chunkSize) {
+					final List<Integer> chunk = group.subList(from, Math.min(group.size(), from + chunkSize));
+					tasks.add(new Callable<Void>() {
+						@Override
+						public Void call() {
+							for (int i: chunk) {
+								try {
+									results.compareAndSet(i, null, new JWTProcessingResult(inputs[i], process((SignedJWT) jwts[i], verifiers, context)));
+								} catch (Exception e) {
+									results.compareAndSet(i, null, new JWTProcessingResult(inputs[i], e));
+								}
+							}
+							return null;
+						}
+					});
+				}
+			}
+
+			for (final int i: singles) {
+				tasks.add(new Callable<Void>() {
+					@Override
+					public Void call() {
+						try {
+							results.compareAndSet(i, null, new JWTProcessingResult(inputs[i], process(jwts[i], context)));
+						} catch (Exception e) {
+							results.compareAndSet(i, null, new JWTProcessingResult(inputs[i], e));
+						}
+						return null;
+					}
+				});
+			}
+
+			invokeAll(executor, tasks);
+		}
+
+		List<JWTProcessingResult> resultList = new ArrayList<>(n);
+		for (int i=0; i < n; i++) {
+			results.compareAndSet(i, null, new JWTProcessingResult(inputs[i], new JOSEException("JWT processing interrupted")));
+			resultList.add(results.get(i));
+		}
+
+		return resultList;
+	}
+
+
+	/**
+	 * Executes the specified tasks and waits for their completion.
+	 *
+	 * @return {@code true} if the tasks completed, {@code false} if the
+	 *         calling thread was interrupted.
+	 */
+	private static boolean invokeAll(final ExecutorService executor, final List<Callable<Void>> tasks) {
+
+		if (tasks.isEmpty()) {
+			return true;
+		}
+
+		try {
+			executor.invokeAll(tasks);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
 }
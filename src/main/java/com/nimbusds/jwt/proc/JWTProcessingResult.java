@@ -0,0 +1,137 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jwt.proc;
+
+
+import net.jcip.annotations.Immutable;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+
+
+/**
+ * The result of processing a JSON Web Token (JWT) in a batch. Holds either
+ * the claims set of the successfully processed JWT, or the exception that
+ * caused the processing to fail, such as a
+ * {@link java.text.ParseException}, {@link com.nimbusds.jose.proc.BadJOSEException}
+ * or {@link com.nimbusds.jose.JOSEException}.
+ *
+ * @see DefaultJWTProcessor#processAll
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@Immutable
+public final class JWTProcessingResult {
+
+
+	/**
+	 * The JWT string.
+	 */
+	private final String jwtString;
+
+
+	/**
+	 * The JWT claims set, {@code null} if processing failed.
+	 */
+	private final JWTClaimsSet claimsSet;
+
+
+	/**
+	 * The exception, {@code null} if processing succeeded.
+	 */
+	private final Exception exception;
+
+
+	/**
+	 * Creates a new result for a successfully processed JWT.
+	 *
+	 * @param jwtString The JWT string. Must not be {@code null}.
+	 * @param claimsSet The JWT claims set. Must not be {@code null}.
+	 */
+	public JWTProcessingResult(final String jwtString, final JWTClaimsSet claimsSet) {
+
+		if (claimsSet == null) {
+			throw new IllegalArgumentException("The JWT claims set must not be null");
+		}
+		this.jwtString = jwtString;
+		this.claimsSet = claimsSet;
+		this.exception = null;
+	}
+
+
+	/**
+	 * Creates a new result for a JWT which processing failed.
+	 *
+	 * @param jwtString The JWT string. Must not be {@code null}.
+	 * @param exception The exception. Must not be {@code null}.
+	 */
+	public JWTProcessingResult(final String jwtString, final Exception exception) {
+
+		if (exception == null) {
+			throw new IllegalArgumentException("The exception must not be null");
+		}
+		this.jwtString = jwtString;
+		this.claimsSet = null;
+		this.exception = exception;
+	}
+
+
+	/**
+	 * Returns the JWT string.
+	 *
+	 * @return The JWT string.
+	 */
+	public String getJWTString() {
+
+		return jwtString;
+	}
+
+
+	/**
+	 * Checks if the JWT was successfully processed.
+	 *
+	 * @return {@code true} if the JWT was successfully processed, else
+	 *         {@code false}.
+	 */
+	public boolean indicatesSuccess() {
+
+		return claimsSet != null;
+	}
+
+
+	/**
+	 * Returns the JWT claims set.
+	 *
+	 * @return The JWT claims set, {@code null} if processing failed.
+	 */
+	public JWTClaimsSet getJWTClaimsSet() {
+
+		return claimsSet;
+	}
+
+
+	/**
+	 * Returns the exception that caused the processing to fail.
+	 *
+	 * @return The exception, {@code null} if processing succeeded.
+	 */
+	public Exception getException() {
+
+		return exception;
+	}
+}
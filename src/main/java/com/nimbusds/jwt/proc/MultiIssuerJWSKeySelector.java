@@ -0,0 +1,173 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jwt.proc;
+
+
+import java.security.Key;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import javax.crypto.SecretKey;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.KeyConversionCache;
+import com.nimbusds.jose.jwk.source.IssuerJWKSourceRegistry;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+
+
+/**
+ * Key selector for verifying signed JWTs from multiple issuers, where the
+ * key candidates are retrieved from the JSON Web Key (JWK) source of the JWT
+ * issuer (iss) in an {@link IssuerJWKSourceRegistry}. JWTs without an issuer
+ * or from an issuer not accepted by the registry have no key candidates.
+ *
+ * <p>Example setup:
+ *
+ * <pre>
+ * IssuerJWKSourceRegistry&lt;SecurityContext&gt; registry = new IssuerJWKSourceRegistry&lt;&gt;(
+ *     new OpenIDDiscoveryJWKSetURLResolver(issuers, new DefaultResourceRetriever()));
+ *
+ * jwtProcessor.setJWTClaimsSetAwareJWSKeySelector(
+ *     new MultiIssuerJWSKeySelector&lt;&gt;(Collections.singleton(JWSAlgorithm.RS256), registry));
+ * </pre>
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@ThreadSafe
+public class MultiIssuerJWSKeySelector<C extends SecurityContext> implements JWTClaimsSetAwareJWSKeySelector<C> {
+
+
+	/**
+	 * The default maximum number of JWKs to cache conversions
+	 * for, shared by all issuers.
+	 */
+	public static final int DEFAULT_KEY_CONVERSION_CACHE_SIZE = 1000;
+
+
+	/**
+	 * The allowed JWS algorithms.
+	 */
+	private final Set<JWSAlgorithm> jwsAlgs;
+
+
+	/**
+	 * The issuer JWK source registry.
+	 */
+	private final IssuerJWKSourceRegistry<C> registry;
+
+
+	/**
+	 * The cache of JWK to Java key conversions.
+	 */
+	private final KeyConversionCache keyConversionCache = new KeyConversionCache(DEFAULT_KEY_CONVERSION_CACHE_SIZE);
+
+
+	/**
+	 * Creates a new multi-issuer JWS key selector.
+	 *
+	 * @param jwsAlgs  The allowed JWS algorithms for the JWTs to be
+	 *                 verified. Must not be empty or {@code null}.
+	 * @param registry The issuer JWK source registry. Must not be
+	 *                 {@code null}.
+	 */
+	public MultiIssuerJWSKeySelector(final Set<JWSAlgorithm> jwsAlgs, final IssuerJWKSourceRegistry<C> registry) {
+
+		if (jwsAlgs == null || jwsAlgs.isEmpty()) {
+			throw new IllegalArgumentException("The JWS algorithms must not be null or empty");
+		}
+		this.jwsAlgs = Collections.unmodifiableSet(jwsAlgs);
+
+		if (registry == null) {
+			throw new IllegalArgumentException("The issuer JWK source registry must not be null");
+		}
+		this.registry = registry;
+	}
+
+
+	/**
+	 * Returns the allowed JWS algorithms.
+	 *
+	 * @return The allowed JWS algorithms.
+	 */
+	public Set<JWSAlgorithm> getJWSAlgorithms() {
+
+		return jwsAlgs;
+	}
+
+
+	/**
+	 * Returns the issuer JWK source registry.
+	 *
+	 * @return The issuer JWK source registry.
+	 */
+	public IssuerJWKSourceRegistry<C> getIssuerJWKSourceRegistry() {
+
+		return registry;
+	}
+
+
+	@Override
+	public List<? extends Key> selectKeys(final JWSHeader header, final JWTClaimsSet claimsSet, final C context)
+		throws KeySourceException {
+
+		if (! jwsAlgs.contains(header.getAlgorithm())) {
+			// Unexpected JWS alg
+			return Collections.emptyList();
+		}
+
+		String issuer = claimsSet.getIssuer();
+		if (issuer == null) {
+			return Collections.emptyList();
+		}
+
+		JWKSource<C> jwkSource = registry.getJWKSource(issuer);
+		if (jwkSource == null) {
+			// Issuer not accepted
+			return Collections.emptyList();
+		}
+
+		JWKMatcher jwkMatcher = JWKMatcher.forJWSHeader(header);
+		if (jwkMatcher == null) {
+			return Collections.emptyList();
+		}
+
+		List<JWK> jwkMatches = jwkSource.get(new JWKSelector(jwkMatcher), context);
+
+		List<Key> sanitizedKeyList = new ArrayList<>(jwkMatches.size());
+
+		for (Key key: keyConversionCache.toJavaKeys(jwkMatches)) {
+			if (key instanceof PublicKey || key instanceof SecretKey) {
+				sanitizedKeyList.add(key);
+			} // skip asymmetric private keys
+		}
+
+		return sanitizedKeyList;
+	}
+}
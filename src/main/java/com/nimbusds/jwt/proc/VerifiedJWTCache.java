@@ -0,0 +1,313 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jwt.proc;
+
+
+import java.nio.ByteBuffer;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+import com.nimbusds.jose.util.StandardCharset;
+import com.nimbusds.jwt.JWTClaimsSet;
+
+
+/**
+ * Cache of verified signed JSON Web Tokens (JWTs), for use with the
+ * {@link DefaultJWTProcessor}. Saves the repeated signature verification of
+ * bearer tokens that are presented many times.
+ *
+ * <p>The entries are keyed by the SHA-256 digest of the compact JWT
+ * serialisation and hold the verified claims set and the key that verified
+ * the signature. An entry is kept until the earliest of the JWT expiration
+ * time (exp) and the configured time-to-live.
+ *
+ * <p>On each cache hit the {@link DefaultJWTProcessor} still performs the
+ * header type check, the key selection and the claims verification with the
+ * current time. A hit is honoured only if the key that verified the
+ * signature is still among the selected key candidates, so that a removal of
+ * the key from the JWK source, e.g. after a key rotation, invalidates the
+ * cached entries for the key.
+ *
+ * <p>The cache size is bounded. When the limit is reached the oldest entry
+ * is evicted, in constant time. Expired entries are removed on lookup.
+ *
+ * <p>Example setup:
+ *
+ * <pre>
+ * jwtProcessor.setVerifiedJWTCache(new VerifiedJWTCache(5, TimeUnit.MINUTES, 10_000));
+ * </pre>
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+@ThreadSafe
+public class VerifiedJWTCache {
+
+
+	/**
+	 * The default maximum number of cached JWTs.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 1000;
+
+
+	/**
+	 * Cache entry for a verified JWT.
+	 */
+	@Immutable
+	static final class Entry {
+
+
+		/**
+		 * The verified claims set.
+		 */
+		final JWTClaimsSet claimsSet;
+
+
+		/**
+		 * The key that verified the signature.
+		 */
+		final Key key;
+
+
+		/**
+		 * The expiration time, in milliseconds since the Unix epoch.
+		 */
+		final long expirationTime;
+
+
+		Entry(final JWTClaimsSet claimsSet, final Key key, final long expirationTime) {
+			this.claimsSet = claimsSet;
+			this.key = key;
+			this.expirationTime = expirationTime;
+		}
+	}
+
+
+	/**
+	 * The time-to-live of the cache entries, in milliseconds.
+	 */
+	private final long timeToLive;
+
+
+	/**
+	 * The maximum number of cached JWTs.
+	 */
+	private final int maxSize;
+
+
+	/**
+	 * The cached entries, keyed by digest of the compact JWT
+	 * serialisation.
+	 */
+	private final ConcurrentMap<ByteBuffer, Entry> cache = new ConcurrentHashMap<>();
+
+
+	/**
+	 * The cache keys in insertion order, for eviction. May include keys
+	 * of entries already removed on lookup. Guarded by this.
+	 */
+	private final ArrayDeque<ByteBuffer> insertionOrder = new ArrayDeque<>();
+
+
+	/**
+	 * Creates a new verified JWT cache with the
+	 * {@link #DEFAULT_MAX_SIZE default maximum size}.
+	 *
+	 * @param timeToLive The time-to-live of the cache entries. Must be
+	 *                   positive.
+	 * @param timeUnit   The time unit. Must not be {@code null}.
+	 */
+	public VerifiedJWTCache(final long timeToLive, final TimeUnit timeUnit) {
+
+		this(timeToLive, timeUnit, DEFAULT_MAX_SIZE);
+	}
+
+
+	/**
+	 * Creates a new verified JWT cache.
+	 *
+	 * @param timeToLive The time-to-live of the cache entries. Must be
+	 *                   positive.
+	 * @param timeUnit   The time unit. Must not be {@code null}.
+	 * @param maxSize    The maximum number of cached JWTs. Must be
+	 *                   positive.
+	 */
+	public VerifiedJWTCache(final long timeToLive, final TimeUnit timeUnit, final int maxSize) {
+
+		if (timeToLive < 1) {
+			throw new IllegalArgumentException("The time-to-live must be positive");
+		}
+		this.timeToLive = timeUnit.toMillis(timeToLive);
+
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("The maximum size must be positive");
+		}
+		this.maxSize = maxSize;
+	}
+
+
+	/**
+	 * Returns the time-to-live of the cache entries.
+	 *
+	 * @param timeUnit The time unit to use.
+	 *
+	 * @return The time-to-live.
+	 */
+	public long getTimeToLive(final TimeUnit timeUnit) {
+
+		return timeUnit.convert(timeToLive, TimeUnit.MILLISECONDS);
+	}
+
+
+	/**
+	 * Returns the maximum number of cached JWTs.
+	 *
+	 * @return The maximum size.
+	 */
+	public int getMaxSize() {
+
+		return maxSize;
+	}
+
+
+	/**
+	 * Returns the number of cached JWTs, including expired ones not
+	 * purged yet.
+	 *
+	 * @return The number of cached JWTs.
+	 */
+	public int size() {
+
+		return cache.size();
+	}
+
+
+	/**
+	 * Clears the cache.
+	 */
+	public synchronized void clear() {
+
+		cache.clear();
+		insertionOrder.clear();
+	}
+
+
+	/**
+	 * Computes the cache key for the specified compact JWT serialisation.
+	 *
+	 * @param jwtString The compact JWT serialisation. Must not be
+	 *                  {@code null}.
+	 *
+	 * @return The cache key.
+	 */
+	private static ByteBuffer computeKey(final String jwtString) {
+
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			return ByteBuffer.wrap(md.digest(jwtString.getBytes(StandardCharset.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			// Mandatory for all JCA implementations
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+
+	/**
+	 * Gets the cache entry for the specified JWT.
+	 *
+	 * @param jwtString The compact JWT serialisation. Must not be
+	 *                  {@code null}.
+	 *
+	 * @return The cache entry, {@code null} if none or expired.
+	 */
+	Entry get(final String jwtString) {
+
+		if (cache.isEmpty()) {
+			return null;
+		}
+
+		ByteBuffer cacheKey = computeKey(jwtString);
+		Entry entry = cache.get(cacheKey);
+
+		if (entry == null) {
+			return null;
+		}
+
+		if (entry.expirationTime <= System.currentTimeMillis()) {
+			cache.remove(cacheKey, entry);
+			return null;
+		}
+
+		return entry;
+	}
+
+
+	/**
+	 * Caches a verified JWT. JWTs which have already expired are not
+	 * cached.
+	 *
+	 * @param jwtString The compact JWT serialisation. Must not be
+	 *                  {@code null}.
+	 * @param claimsSet The verified claims set. Must not be
+	 *                  {@code null}.
+	 * @param key       The key that verified the signature. Must not be
+	 *                  {@code null}.
+	 */
+	void put(final String jwtString, final JWTClaimsSet claimsSet, final Key key) {
+
+		final long now = System.currentTimeMillis();
+
+		long expirationTime = now + timeToLive;
+
+		Date exp = claimsSet.getExpirationTime();
+		if (exp != null) {
+			expirationTime = Math.min(expirationTime, exp.getTime());
+		}
+
+		if (expirationTime <= now) {
+			return;
+		}
+
+		ByteBuffer cacheKey = computeKey(jwtString);
+		Entry entry = new Entry(claimsSet, key, expirationTime);
+
+		synchronized (this) {
+
+			if (cache.put(cacheKey, entry) != null) {
+				// Replaced, keep the insertion position
+				return;
+			}
+
+			insertionOrder.addLast(cacheKey);
+
+			// Evict the oldest
+			while (insertionOrder.size() > maxSize) {
+				cache.remove(insertionOrder.pollFirst());
+			}
+		}
+	}
+}
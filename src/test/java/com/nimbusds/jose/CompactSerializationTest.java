@@ -0,0 +1,187 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose;
+
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.text.ParseException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import junit.framework.TestCase;
+
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jose.util.StandardCharset;
+
+
+public class CompactSerializationTest extends TestCase {
+
+
+	private static JWSObject createJWSObject()
+		throws JOSEException {
+
+		JWSObject jwsObject = new JWSObject(new JWSHeader(JWSAlgorithm.HS256), new Payload("Hello, world!"));
+		jwsObject.sign(new MACSigner(new byte[32]));
+		return jwsObject;
+	}
+
+
+	private static void assertJWSParts(final JWSObject jwsObject, final CompactSerialization cs)
+		throws JOSEException {
+
+		assertEquals(3, cs.getPartCount());
+
+		assertArrayEquals(jwsObject.getHeader().toBase64URL().decode(), cs.decodePart(0));
+		assertArrayEquals(jwsObject.getPayload().toBytes(), cs.decodePart(1));
+		assertArrayEquals(jwsObject.getSignature().decode(), cs.decodePart(2));
+
+		assertEquals(jwsObject.getHeader().toBase64URL(), cs.getPart(0));
+		assertEquals(jwsObject.getPayload().toBase64URL(), cs.getPart(1));
+		assertEquals(jwsObject.getSignature(), cs.getPart(2));
+
+		assertArrayEquals(jwsObject.getSigningInput(), cs.getSigningInput());
+	}
+
+
+	public void testSplitString()
+		throws Exception {
+
+		JWSObject jwsObject = createJWSObject();
+		String s = jwsObject.serialize();
+
+		CompactSerialization cs = CompactSerialization.split(s);
+
+		assertJWSParts(jwsObject, cs);
+
+		assertEquals(0, cs.getPartStart(0));
+		assertEquals(s.indexOf('.'), cs.getPartEnd(0));
+		assertEquals(s.length(), cs.getPartEnd(2));
+		assertEquals(jwsObject.getSignature().toString().length(), cs.getPartLength(2));
+		assertEquals(32, cs.getMaxDecodedPartLength(2));
+
+		assertTrue(Arrays.equals(JOSEObject.split(s), cs.getParts()));
+	}
+
+
+	public void testSplitCharBuffer()
+		throws Exception {
+
+		JWSObject jwsObject = createJWSObject();
+
+		assertJWSParts(jwsObject, CompactSerialization.split(CharBuffer.wrap(jwsObject.serialize())));
+	}
+
+
+	public void testSplitBytes()
+		throws Exception {
+
+		JWSObject jwsObject = createJWSObject();
+
+		byte[] header = ("Authorization: Bearer " + jwsObject.serialize() + "\r\n").getBytes(StandardCharset.UTF_8);
+		int offset = "Authorization: Bearer ".length();
+
+		CompactSerialization cs = CompactSerialization.split(header, offset, header.length - offset);
+
+		assertJWSParts(jwsObject, cs);
+		assertEquals(offset, cs.getPartStart(0));
+	}
+
+
+	public void testSplitByteBuffer()
+		throws Exception {
+
+		JWSObject jwsObject = createJWSObject();
+
+		ByteBuffer buf = ByteBuffer.allocateDirect(1000);
+		buf.put(jwsObject.serialize().getBytes(StandardCharset.UTF_8));
+		buf.flip();
+
+		assertJWSParts(jwsObject, CompactSerialization.split(buf));
+		assertEquals(0, buf.position());
+	}
+
+
+	public void testDecodeIntoBuffer()
+		throws Exception {
+
+		JWSObject jwsObject = createJWSObject();
+
+		CompactSerialization cs = CompactSerialization.split(jwsObject.serialize());
+
+		byte[] buf = new byte[100];
+		int len = cs.decodePart(2, buf, 10);
+		assertEquals(32, len);
+		assertArrayEquals(jwsObject.getSignature().decode(), Arrays.copyOfRange(buf, 10, 10 + len));
+	}
+
+
+	public void testSplitJWE()
+		throws Exception {
+
+		CompactSerialization cs = CompactSerialization.split(" a.b.c.d.e\n");
+
+		assertEquals(5, cs.getPartCount());
+		assertEquals(new Base64URL("a"), cs.getPart(0));
+		assertEquals(new Base64URL("e"), cs.getPart(4));
+	}
+
+
+	public void testSplitEmptyParts()
+		throws Exception {
+
+		CompactSerialization cs = CompactSerialization.split("a..");
+
+		assertEquals(3, cs.getPartCount());
+		assertEquals(0, cs.getPartLength(1));
+		assertEquals(0, cs.decodePart(1).length);
+		assertEquals(new Base64URL(""), cs.getPart(2));
+	}
+
+
+	public void testSplitErrors() {
+
+		for (String s: Arrays.asList("abc", "a.b", "a.b.c.d", "a.b.c.d.e.f")) {
+			try {
+				CompactSerialization.split(s);
+				fail();
+			} catch (ParseException e) {
+				try {
+					JOSEObject.split(s);
+					fail();
+				} catch (ParseException e2) {
+					assertEquals(e2.getMessage(), e.getMessage());
+				}
+			}
+		}
+	}
+
+
+	public void testSplitBytes_outOfBounds()
+		throws ParseException {
+
+		try {
+			CompactSerialization.split(new byte[10], 5, 6);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			// ok
+		}
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose;
+
+
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+
+public class ParsedHeaderCacheTest extends TestCase {
+
+
+	@Override
+	public void setUp() {
+
+		ParsedHeaderCache.setMaxSize(ParsedHeaderCache.DEFAULT_MAX_SIZE);
+	}
+
+
+	@Override
+	public void tearDown() {
+
+		ParsedHeaderCache.setMaxSize(ParsedHeaderCache.DEFAULT_MAX_SIZE);
+	}
+
+
+	public void testDefaults() {
+
+		assertEquals(100, ParsedHeaderCache.DEFAULT_MAX_SIZE);
+		assertEquals(ParsedHeaderCache.DEFAULT_MAX_SIZE, ParsedHeaderCache.getMaxSize());
+		assertEquals(0, ParsedHeaderCache.size());
+	}
+
+
+	public void testJWSHeaderCached()
+		throws Exception {
+
+		Base64URL b64 = new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("1").build().toBase64URL();
+
+		JWSHeader header = JWSHeader.parse(b64);
+		assertEquals(JWSAlgorithm.RS256, header.getAlgorithm());
+		assertEquals("1", header.getKeyID());
+		assertEquals(1, ParsedHeaderCache.size());
+
+		assertSame(header, JWSHeader.parse(new Base64URL(b64.toString())));
+		assertEquals(b64, JWSHeader.parse(b64).toBase64URL());
+
+		// Different header
+		Base64URL b64_2 = new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("2").build().toBase64URL();
+		assertEquals("2", JWSHeader.parse(b64_2).getKeyID());
+		assertEquals(2, ParsedHeaderCache.size());
+	}
+
+
+	public void testSignedJWTParseUsesCache()
+		throws Exception {
+
+		JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.HS256).keyID("1").build();
+		MACSigner signer = new MACSigner(new byte[32]);
+
+		SignedJWT jwt1 = new SignedJWT(header, new JWTClaimsSet.Builder().subject("alice").build());
+		jwt1.sign(signer);
+		SignedJWT jwt2 = new SignedJWT(header, new JWTClaimsSet.Builder().subject("bob").build());
+		jwt2.sign(signer);
+
+		SignedJWT parsed1 = SignedJWT.parse(jwt1.serialize());
+		SignedJWT parsed2 = SignedJWT.parse(jwt2.serialize());
+
+		assertSame(parsed1.getHeader(), parsed2.getHeader());
+		assertEquals("alice", parsed1.getJWTClaimsSet().getSubject());
+		assertEquals("bob", parsed2.getJWTClaimsSet().getSubject());
+		assertEquals(jwt2.serialize(), parsed2.serialize());
+	}
+
+
+	public void testParseFailureNotCached() {
+
+		Base64URL b64 = Base64URL.encode("{\"alg\":\"RSA-OAEP-256\",\"enc\":\"A128GCM\"}");
+
+		try {
+			JWSHeader.parse(b64);
+			fail();
+		} catch (java.text.ParseException e) {
+			assertEquals("Not a JWS header", e.getMessage());
+		}
+		assertEquals(0, ParsedHeaderCache.size());
+	}
+
+
+	public void testJWEHeaderCached()
+		throws Exception {
+
+		Base64URL b64 = new JWEHeader(JWEAlgorithm.RSA_OAEP_256, EncryptionMethod.A128GCM).toBase64URL();
+
+		JWEHeader header = JWEHeader.parse(b64);
+		assertSame(header, JWEHeader.parse(b64));
+
+		// JWS parse of same encoding doesn't return JWE header
+		try {
+			JWSHeader.parse(b64);
+			fail();
+		} catch (java.text.ParseException e) {
+			assertEquals("Not a JWS header", e.getMessage());
+		}
+	}
+
+
+	public void testJWEHeaderWithEPKNotCached()
+		throws Exception {
+
+		ECKey epk = new ECKeyGenerator(Curve.P_256).generate().toPublicJWK();
+
+		Base64URL b64 = new JWEHeader.Builder(JWEAlgorithm.ECDH_ES, EncryptionMethod.A128GCM)
+			.ephemeralPublicKey(epk)
+			.build()
+			.toBase64URL();
+
+		JWEHeader header = JWEHeader.parse(b64);
+		assertEquals(epk, header.getEphemeralPublicKey());
+		assertEquals(0, ParsedHeaderCache.size());
+		assertNotSame(header, JWEHeader.parse(b64));
+	}
+
+
+	public void testHeaderWithJSONObjectCustomParamNotCached()
+		throws Exception {
+
+		Base64URL b64 = new JWSHeader.Builder(JWSAlgorithm.RS256)
+			.customParam("x", Collections.singletonMap("a", "b"))
+			.build()
+			.toBase64URL();
+
+		JWSHeader.parse(b64);
+		assertEquals(0, ParsedHeaderCache.size());
+
+		b64 = new JWSHeader.Builder(JWSAlgorithm.RS256)
+			.customParam("x", "a")
+			.build()
+			.toBase64URL();
+
+		JWSHeader.parse(b64);
+		assertEquals(1, ParsedHeaderCache.size());
+	}
+
+
+	public void testResetWhenFull()
+		throws Exception {
+
+		ParsedHeaderCache.setMaxSize(10);
+
+		for (int i=0; i < 25; i++) {
+			JWSHeader.parse(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("" + i).build().toBase64URL());
+			assertTrue(ParsedHeaderCache.size() <= 10);
+		}
+		assertEquals(5, ParsedHeaderCache.size());
+
+		ParsedHeaderCache.clear();
+		assertEquals(0, ParsedHeaderCache.size());
+	}
+
+
+	public void testDisable()
+		throws Exception {
+
+		ParsedHeaderCache.setMaxSize(0);
+		assertEquals(0, ParsedHeaderCache.getMaxSize());
+
+		Base64URL b64 = new JWSHeader(JWSAlgorithm.RS256).toBase64URL();
+		assertNotSame(JWSHeader.parse(b64), JWSHeader.parse(b64));
+		assertEquals(0, ParsedHeaderCache.size());
+	}
+
+
+	public void testRejectNegativeMaxSize() {
+
+		try {
+			ParsedHeaderCache.setMaxSize(-1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The maximum size must not be negative", e.getMessage());
+		}
+	}
+}
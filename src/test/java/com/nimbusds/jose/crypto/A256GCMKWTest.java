@@ -18,12 +18,15 @@
 package com.nimbusds.jose.crypto;
 
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import javax.crypto.spec.SecretKeySpec;
 
 import com.nimbusds.jose.*;
 import com.nimbusds.jose.crypto.bc.BouncyCastleProviderSingleton;
+import com.nimbusds.jose.crypto.impl.CounterAESGCMIVGenerator;
 import com.nimbusds.jose.jwk.OctetSequenceKey;
 import com.nimbusds.jwt.JWTClaimNames;
 import junit.framework.TestCase;
@@ -34,7 +37,7 @@ import org.junit.Assert;
  * Tests A256GCMKW JWE encryption and decryption.
  *
  * @author Melisa Halsband
- * @version 2015-09-18
+ * @version 2022-06-01
  */
 public class A256GCMKWTest extends TestCase {
 
@@ -525,6 +528,37 @@ public class A256GCMKWTest extends TestCase {
 	}
 
 
+	public void testCounterAESGCMIVGenerator()
+		throws Exception {
+
+		CounterAESGCMIVGenerator gen = new CounterAESGCMIVGenerator(new byte[]{0, 0, 0, 1});
+
+		AESEncrypter encrypter = new AESEncrypter(key256);
+		encrypter.getJCAContext().setAESGCMIVGenerator(gen);
+
+		AESDecrypter decrypter = new AESDecrypter(key256);
+
+		for (int i=0; i < 3; i++) {
+
+			JWEObject jweObject = new JWEObject(new JWEHeader(JWEAlgorithm.A256GCMKW, EncryptionMethod.A256GCM), new Payload("Hello world!"));
+			jweObject.encrypt(encrypter);
+
+			// Key wrap IV, then content encryption IV
+			byte[] keyIV = jweObject.getHeader().getIV().decode();
+			Assert.assertArrayEquals(gen.getFixedField(), Arrays.copyOf(keyIV, 4));
+			assertEquals(2 * i, ByteBuffer.wrap(keyIV, 4, 8).getLong());
+
+			byte[] iv = jweObject.getIV().decode();
+			Assert.assertArrayEquals(gen.getFixedField(), Arrays.copyOf(iv, 4));
+			assertEquals(2 * i + 1, ByteBuffer.wrap(iv, 4, 8).getLong());
+
+			jweObject = JWEObject.parse(jweObject.serialize());
+			jweObject.decrypt(decrypter);
+			assertEquals("Hello world!", jweObject.getPayload().toString());
+		}
+	}
+
+
 	// http://tools.ietf.org/html/rfc7520#section-5.7.5
 	public void testDecryptCookbookExample()
 		throws Exception {
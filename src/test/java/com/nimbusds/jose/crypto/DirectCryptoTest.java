@@ -18,6 +18,8 @@
 package com.nimbusds.jose.crypto;
 
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import javax.crypto.KeyGenerator;
@@ -26,7 +28,9 @@ import javax.crypto.spec.SecretKeySpec;
 
 import com.nimbusds.jose.*;
 import com.nimbusds.jose.crypto.bc.BouncyCastleProviderSingleton;
+import com.nimbusds.jose.crypto.impl.CounterAESGCMIVGenerator;
 import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.jose.util.ByteUtils;
 import com.nimbusds.jwt.JWTClaimNames;
 import junit.framework.TestCase;
@@ -36,7 +40,7 @@ import junit.framework.TestCase;
  * Tests direct JWE encryption and decryption.
  *
  * @author Vladimir Dzhuvinov
- * @version 2018-01-11
+ * @version 2022-06-01
  */
 public class DirectCryptoTest extends TestCase {
 
@@ -655,4 +659,31 @@ public class DirectCryptoTest extends TestCase {
 		jweObject.decrypt(new DirectDecrypter(secretKey));
 		assertEquals(plainText, jweObject.getPayload().toString());
 	}
+
+
+	public void testCounterAESGCMIVGenerator()
+		throws Exception {
+
+		CounterAESGCMIVGenerator gen = new CounterAESGCMIVGenerator(new byte[]{0, 0, 0, 1});
+
+		DirectEncrypter encrypter = new DirectEncrypter(key128);
+		encrypter.getJCAContext().setAESGCMIVGenerator(gen);
+
+		DirectDecrypter decrypter = new DirectDecrypter(key128);
+
+		for (long i=0; i < 3; i++) {
+
+			JWEObject jweObject = new JWEObject(new JWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A128GCM), new Payload("Hello world!"));
+			jweObject.encrypt(encrypter);
+
+			byte[] iv = jweObject.getIV().decode();
+			assertEquals(12, iv.length);
+			assertEquals(Base64URL.encode(gen.getFixedField()), Base64URL.encode(Arrays.copyOf(iv, 4)));
+			assertEquals(i, ByteBuffer.wrap(iv, 4, 8).getLong());
+
+			jweObject = JWEObject.parse(jweObject.serialize());
+			jweObject.decrypt(decrypter);
+			assertEquals("Hello world!", jweObject.getPayload().toString());
+		}
+	}
 }
@@ -0,0 +1,350 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.nimbusds.jose.crypto;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.text.ParseException;
+import java.util.Arrays;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import junit.framework.TestCase;
+
+import com.nimbusds.jose.*;
+import com.nimbusds.jose.util.ByteUtils;
+import com.nimbusds.jose.util.FileClearTextSink;
+
+
+/**
+ * Tests direct JWE streaming encryption and decryption.
+ *
+ * @author Vladimir Dzhuvinov
+ * @version 2022-06-01
+ */
+public class DirectStreamingCryptoTest extends TestCase {
+
+
+	private static final EncryptionMethod[] ENCS = {
+		EncryptionMethod.A128CBC_HS256,
+		EncryptionMethod.A192CBC_HS384,
+		EncryptionMethod.A256CBC_HS512,
+		EncryptionMethod.A128GCM,
+		EncryptionMethod.A192GCM,
+		EncryptionMethod.A256GCM
+	};
+
+
+	private static final int[] SIZES = { 0, 1, 15, 16, 17, 6143, 6144, 6145, 100_000 };
+
+
+	private static SecretKey generateKey(final EncryptionMethod enc) {
+
+		byte[] keyBytes = new byte[ByteUtils.byteLength(enc.cekBitLength())];
+		new SecureRandom().nextBytes(keyBytes);
+		return new SecretKeySpec(keyBytes, "AES");
+	}
+
+
+	private static byte[] generateClearText(final int size) {
+
+		byte[] clearText = new byte[size];
+		new SecureRandom().nextBytes(clearText);
+		return clearText;
+	}
+
+
+	private static String streamEncrypt(final JWEHeader header, final SecretKey key, final byte[] clearText)
+		throws Exception {
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new DirectEncrypter(key).encrypt(header, new ByteArrayInputStream(clearText), out);
+		return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+	}
+
+
+	/**
+	 * Clear text sink staging in memory, releasing the clear text to the
+	 * output on commit.
+	 */
+	private static class MemoryClearTextSink implements ClearTextSink {
+
+
+		final ByteArrayOutputStream staging = new ByteArrayOutputStream();
+
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+
+		boolean discarded = false;
+
+
+		@Override
+		public OutputStream getOutputStream() {
+			return staging;
+		}
+
+
+		@Override
+		public void commit() throws IOException {
+			staging.writeTo(out);
+		}
+
+
+		@Override
+		public void discard() {
+			discarded = true;
+		}
+	}
+
+
+	private static byte[] streamDecrypt(final String jwe, final SecretKey key)
+		throws Exception {
+
+		MemoryClearTextSink sink = new MemoryClearTextSink();
+		try {
+			new DirectDecrypter(key).decrypt(new ByteArrayInputStream(jwe.getBytes(StandardCharsets.US_ASCII)), sink);
+		} catch (JOSEException e) {
+			assertTrue(sink.discarded);
+			assertEquals(0, sink.out.size());
+			throw e;
+		}
+		assertFalse(sink.discarded);
+		return sink.out.toByteArray();
+	}
+
+
+	private static String tamper(final String jwe, final int part) {
+
+		String[] parts = jwe.split("\\.", -1);
+		char[] chars = parts[part].toCharArray();
+		chars[0] = chars[0] == 'A' ? 'B' : 'A';
+		parts[part] = new String(chars);
+
+		StringBuilder sb = new StringBuilder();
+		for (String p: parts) {
+			if (sb.length() > 0 || p != parts[0]) {
+				sb.append('.');
+			}
+			sb.append(p);
+		}
+		return sb.toString();
+	}
+
+
+	public void testRoundTrip()
+		throws Exception {
+
+		for (EncryptionMethod enc: ENCS) {
+
+			SecretKey key = generateKey(enc);
+			JWEHeader header = new JWEHeader.Builder(JWEAlgorithm.DIR, enc).contentType("application/octet-stream").build();
+
+			for (int size: SIZES) {
+
+				byte[] clearText = generateClearText(size);
+
+				String jwe = streamEncrypt(header, key, clearText);
+
+				assertTrue(Arrays.equals(clearText, streamDecrypt(jwe, key)));
+
+				// Compatible with the non-streaming decrypter
+				JWEObject jweObject = JWEObject.parse(jwe);
+				assertEquals(header.toJSONObject(), jweObject.getHeader().toJSONObject());
+				assertNull(jweObject.getEncryptedKey());
+				jweObject.decrypt(new DirectDecrypter(key));
+				assertTrue(Arrays.equals(clearText, jweObject.getPayload().toBytes()));
+			}
+		}
+	}
+
+
+	public void testDecryptNonStreamingJWE()
+		throws Exception {
+
+		for (EncryptionMethod enc: ENCS) {
+
+			SecretKey key = generateKey(enc);
+
+			for (int size: SIZES) {
+
+				if (size == 0) {
+					continue; // Empty payload not permitted
+				}
+
+				byte[] clearText = generateClearText(size);
+
+				JWEObject jweObject = new JWEObject(new JWEHeader(JWEAlgorithm.DIR, enc), new Payload(clearText));
+				jweObject.encrypt(new DirectEncrypter(key));
+
+				assertTrue(Arrays.equals(clearText, streamDecrypt(jweObject.serialize(), key)));
+			}
+		}
+	}
+
+
+	public void testReturnedHeader()
+		throws Exception {
+
+		SecretKey key = generateKey(EncryptionMethod.A128GCM);
+		JWEHeader header = new JWEHeader.Builder(JWEAlgorithm.DIR, EncryptionMethod.A128GCM).keyID("1").build();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertSame(header, new DirectEncrypter(key).encrypt(header, new ByteArrayInputStream(new byte[10]), out));
+
+		MemoryClearTextSink clearText = new MemoryClearTextSink();
+		JWEHeader decryptedHeader = new DirectDecrypter(key).decrypt(new ByteArrayInputStream(out.toByteArray()), clearText);
+		assertEquals("1", decryptedHeader.getKeyID());
+		assertEquals(10, clearText.out.size());
+	}
+
+
+	public void testFileClearTextSink()
+		throws Exception {
+
+		SecretKey key = generateKey(EncryptionMethod.A256GCM);
+		byte[] clearText = generateClearText(100_000);
+		String jwe = streamEncrypt(new JWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A256GCM), key, clearText);
+
+		File stagingFile = File.createTempFile("jwe", ".staging");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new DirectDecrypter(key).decrypt(new ByteArrayInputStream(jwe.getBytes(StandardCharsets.US_ASCII)), new FileClearTextSink(stagingFile, out));
+		assertTrue(Arrays.equals(clearText, out.toByteArray()));
+		assertFalse(stagingFile.exists());
+
+		out = new ByteArrayOutputStream();
+		try {
+			new DirectDecrypter(key).decrypt(new ByteArrayInputStream(tamper(jwe, 3).getBytes(StandardCharsets.US_ASCII)), new FileClearTextSink(stagingFile, out));
+			fail();
+		} catch (JOSEException e) {
+			assertEquals("AES/GCM/NoPadding decryption failed: Tag mismatch", e.getMessage());
+		}
+		assertEquals(0, out.size());
+		assertFalse(stagingFile.exists());
+	}
+
+
+	public void testTamperedCipherTextOrAuthTag()
+		throws Exception {
+
+		for (EncryptionMethod enc: ENCS) {
+
+			SecretKey key = generateKey(enc);
+			String jwe = streamEncrypt(new JWEHeader(JWEAlgorithm.DIR, enc), key, generateClearText(10_000));
+
+			for (int part: new int[]{3, 4}) {
+				try {
+					streamDecrypt(tamper(jwe, part), key);
+					fail();
+				} catch (JOSEException e) {
+					if (EncryptionMethod.Family.AES_GCM.contains(enc)) {
+						assertEquals("AES/GCM/NoPadding decryption failed: Tag mismatch", e.getMessage());
+					} else {
+						assertEquals("MAC check failed", e.getMessage());
+					}
+				}
+			}
+		}
+	}
+
+
+	public void testWrongKey()
+		throws Exception {
+
+		String jwe = streamEncrypt(new JWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A256GCM), generateKey(EncryptionMethod.A256GCM), new byte[100]);
+
+		try {
+			streamDecrypt(jwe, generateKey(EncryptionMethod.A256GCM));
+			fail();
+		} catch (JOSEException e) {
+			assertEquals("AES/GCM/NoPadding decryption failed: Tag mismatch", e.getMessage());
+		}
+	}
+
+
+	public void testCompressionNotSupported()
+		throws Exception {
+
+		JWEHeader header = new JWEHeader.Builder(JWEAlgorithm.DIR, EncryptionMethod.A128GCM)
+			.compressionAlgorithm(CompressionAlgorithm.DEF)
+			.build();
+
+		try {
+			streamEncrypt(header, generateKey(EncryptionMethod.A128GCM), new byte[10]);
+			fail();
+		} catch (JOSEException e) {
+			assertEquals("Compression is not supported in streaming mode", e.getMessage());
+		}
+	}
+
+
+	public void testEncryptionMethodNotSupported()
+		throws Exception {
+
+		try {
+			streamEncrypt(new JWEHeader(JWEAlgorithm.DIR, EncryptionMethod.XC20P), generateKey(EncryptionMethod.XC20P), new byte[10]);
+			fail();
+		} catch (JOSEException e) {
+			assertTrue(e.getMessage().startsWith("Unsupported JWE encryption method"));
+		}
+	}
+
+
+	public void testAlgorithmNotSupported()
+		throws Exception {
+
+		try {
+			streamEncrypt(new JWEHeader(JWEAlgorithm.A128KW, EncryptionMethod.A128GCM), generateKey(EncryptionMethod.A128GCM), new byte[10]);
+			fail();
+		} catch (JOSEException e) {
+			assertTrue(e.getMessage().startsWith("Unsupported JWE algorithm"));
+		}
+	}
+
+
+	public void testParseErrors()
+		throws Exception {
+
+		SecretKey key = generateKey(EncryptionMethod.A128GCM);
+		String jwe = streamEncrypt(new JWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A128GCM), key, new byte[100]);
+
+		for (String invalid: new String[]{
+			jwe.substring(0, jwe.lastIndexOf('.')),
+			jwe + ".",
+			jwe.substring(0, jwe.indexOf('.')),
+			"abc",
+			jwe.replaceFirst("\\.\\.", "..*"),
+			"e30..AAAA.AAAA.AAAA"}) {
+
+			try {
+				streamDecrypt(invalid, key);
+				fail(invalid);
+			} catch (ParseException e) {
+				assertNotNull(e.getMessage());
+			}
+		}
+	}
+}
@@ -333,4 +333,36 @@ public class ECDSATest extends TestCase {
 			}
 		}
 	}
+
+
+	public void testEngineReuse()
+		throws Exception {
+
+		for (Curve curve: Arrays.asList(Curve.P_256, Curve.P_384, Curve.P_521)) {
+
+			ECKey ecJWK = new ECKeyGenerator(curve).generate();
+
+			for (boolean reuse: new boolean[]{true, false}) {
+
+				ECDSASigner signer = new ECDSASigner(ecJWK);
+				signer.getJCAContext().setEngineReuseEnabled(reuse);
+
+				ECDSAVerifier verifier = new ECDSAVerifier(ecJWK.toPublicJWK());
+				verifier.getJCAContext().setEngineReuseEnabled(reuse);
+
+				JWSAlgorithm alg = ECDSA.resolveAlgorithm(curve);
+
+				for (int i=0; i < 10; i++) {
+					JWSObject jwsObject = new JWSObject(new JWSHeader(alg), new Payload("Hello, world " + i));
+					jwsObject.sign(signer);
+					assertTrue(jwsObject.verify(verifier));
+
+					JWSObject tampered = new JWSObject(jwsObject.getHeader().toBase64URL(), new Payload("Tampered"), jwsObject.getSignature());
+					assertFalse(tampered.verify(verifier));
+
+					assertTrue(jwsObject.verify(verifier));
+				}
+			}
+		}
+	}
 }
@@ -454,4 +454,33 @@ public class MACTest extends TestCase {
 		JWSObject jwsObject = new JWSObject(new JWSHeader(JWSAlgorithm.HS384), new Payload("Hello world!"));
 		jwsObject.sign(signer);
 	}
+
+
+	public void testEngineReuse()
+		throws Exception {
+
+		byte[] secret = new byte[64];
+		new SecureRandom().nextBytes(secret);
+
+		for (boolean reuse: new boolean[]{true, false}) {
+
+			MACSigner signer = new MACSigner(secret);
+			signer.getJCAContext().setEngineReuseEnabled(reuse);
+
+			MACVerifier verifier = new MACVerifier(secret);
+			verifier.getJCAContext().setEngineReuseEnabled(reuse);
+
+			for (int i=0; i < 10; i++) {
+				for (JWSAlgorithm alg: MACSigner.SUPPORTED_ALGORITHMS) {
+					JWSObject jwsObject = new JWSObject(new JWSHeader(alg), new Payload("Hello, world " + i));
+					jwsObject.sign(signer);
+					assertEquals(new MACSigner(secret).sign(jwsObject.getHeader(), jwsObject.getSigningInput()), jwsObject.getSignature());
+					assertTrue(jwsObject.verify(verifier));
+
+					JWSObject tampered = new JWSObject(jwsObject.getHeader().toBase64URL(), new Payload("Tampered"), jwsObject.getSignature());
+					assertFalse(tampered.verify(verifier));
+				}
+			}
+		}
+	}
 }
@@ -982,4 +982,41 @@ public class RSASSATest {
 		
 		assertTrue(parsedJWSObject.verify(jwsVerifier));
 	}
+
+	
+	
+	@Test
+	public void testEngineReuse()
+		throws Exception {
+
+		KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+		kpg.initialize(2048);
+		KeyPair kp = kpg.genKeyPair();
+
+		for (boolean reuse: new boolean[]{true, false}) {
+
+			RSASSASigner signer = new RSASSASigner(kp.getPrivate());
+			signer.getJCAContext().setEngineReuseEnabled(reuse);
+
+			RSASSAVerifier verifier = new RSASSAVerifier((RSAPublicKey) kp.getPublic());
+			verifier.getJCAContext().setEngineReuseEnabled(reuse);
+
+			for (int i=0; i < 5; i++) {
+				for (JWSAlgorithm alg: RSASSASigner.SUPPORTED_ALGORITHMS) {
+					JWSObject jwsObject = new JWSObject(new JWSHeader(alg), new Payload("Hello, world " + i));
+					jwsObject.sign(signer);
+					assertTrue(jwsObject.verify(verifier));
+
+					JWSObject tampered = new JWSObject(jwsObject.getHeader().toBase64URL(), new Payload("Tampered"), jwsObject.getSignature());
+					assertFalse(tampered.verify(verifier));
+
+					JWSObject truncated = new JWSObject(jwsObject.getHeader().toBase64URL(), jwsObject.getPayload().toBase64URL(), new Base64URL(jwsObject.getSignature().toString().substring(0, 10)));
+					assertFalse(truncated.verify(verifier));
+
+					// Engine state not affected by previous failures
+					assertTrue(jwsObject.verify(verifier));
+				}
+			}
+		}
+	}
 }
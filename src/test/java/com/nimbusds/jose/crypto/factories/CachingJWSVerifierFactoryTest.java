@@ -0,0 +1,198 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.crypto.factories;
+
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import junit.framework.TestCase;
+
+import com.nimbusds.jose.*;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.crypto.bc.BouncyCastleProviderSingleton;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.util.ByteUtils;
+
+
+public class CachingJWSVerifierFactoryTest extends TestCase {
+
+
+	public void testDefaultConstructor() {
+
+		CachingJWSVerifierFactory factory = new CachingJWSVerifierFactory();
+
+		assertEquals(100, CachingJWSVerifierFactory.DEFAULT_MAX_SIZE);
+		assertEquals(CachingJWSVerifierFactory.DEFAULT_MAX_SIZE, factory.getMaxSize());
+		assertTrue(factory.getJWSVerifierFactory() instanceof DefaultJWSVerifierFactory);
+		assertEquals(DefaultJWSVerifierFactory.SUPPORTED_ALGORITHMS, factory.supportedJWSAlgorithms());
+		assertSame(factory.getJWSVerifierFactory().getJCAContext(), factory.getJCAContext());
+		assertEquals(0, factory.size());
+	}
+
+
+	public void testIllegalArguments() {
+
+		try {
+			new CachingJWSVerifierFactory(null, 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The JWS verifier factory must not be null", e.getMessage());
+		}
+
+		try {
+			new CachingJWSVerifierFactory(new DefaultJWSVerifierFactory(), 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The maximum size must be positive", e.getMessage());
+		}
+	}
+
+
+	public void testReuseVerifiers()
+		throws Exception {
+
+		CachingJWSVerifierFactory factory = new CachingJWSVerifierFactory();
+
+		SecretKey macKey = new SecretKeySpec(ByteUtils.concat(new byte[32]), "HmacSHA256");
+		JWSVerifier macVerifier = factory.createJWSVerifier(new JWSHeader(JWSAlgorithm.HS256), macKey);
+		assertTrue(macVerifier instanceof MACVerifier);
+		assertSame(macVerifier, factory.createJWSVerifier(new JWSHeader(JWSAlgorithm.HS256), macKey));
+		assertSame(macVerifier, factory.createJWSVerifier(new JWSHeader(JWSAlgorithm.HS512), macKey));
+		// Equal key
+		assertSame(macVerifier, factory.createJWSVerifier(new JWSHeader(JWSAlgorithm.HS256), new SecretKeySpec(new byte[32], "HmacSHA256")));
+
+		KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
+		keyGen.initialize(2048);
+		KeyPair rsaKeyPair = keyGen.generateKeyPair();
+		RSAPublicKey rsaPublicKey = (RSAPublicKey) rsaKeyPair.getPublic();
+		JWSVerifier rsaVerifier = factory.createJWSVerifier(new JWSHeader(JWSAlgorithm.RS256), rsaPublicKey);
+		assertTrue(rsaVerifier instanceof RSASSAVerifier);
+		assertSame(rsaVerifier, factory.createJWSVerifier(new JWSHeader(JWSAlgorithm.PS256), rsaPublicKey));
+
+		ECKey ecJWK = new ECKeyGenerator(Curve.P_256).generate();
+		JWSVerifier ecVerifier = factory.createJWSVerifier(new JWSHeader(JWSAlgorithm.ES256), ecJWK.toECPublicKey());
+		assertTrue(ecVerifier instanceof ECDSAVerifier);
+		assertSame(ecVerifier, factory.createJWSVerifier(new JWSHeader(JWSAlgorithm.ES256), ecJWK.toECPublicKey()));
+
+		assertEquals(3, factory.size());
+
+		factory.clear();
+		assertEquals(0, factory.size());
+		assertNotSame(macVerifier, factory.createJWSVerifier(new JWSHeader(JWSAlgorithm.HS256), macKey));
+	}
+
+
+	public void testVerify()
+		throws Exception {
+
+		byte[] secret = new byte[32];
+		SecretKey macKey = new SecretKeySpec(secret, "HmacSHA256");
+
+		JWSObject jwsObject = new JWSObject(new JWSHeader(JWSAlgorithm.HS256), new Payload("Hello, world!"));
+		jwsObject.sign(new MACSigner(secret));
+
+		CachingJWSVerifierFactory factory = new CachingJWSVerifierFactory();
+
+		for (int i=0; i < 3; i++) {
+			assertTrue(jwsObject.verify(factory.createJWSVerifier(jwsObject.getHeader(), macKey)));
+		}
+		assertEquals(1, factory.size());
+	}
+
+
+	public void testKeyTypeExceptionNotCached()
+		throws Exception {
+
+		CachingJWSVerifierFactory factory = new CachingJWSVerifierFactory();
+
+		SecretKey macKey = new SecretKeySpec(new byte[32], "HmacSHA256");
+
+		try {
+			factory.createJWSVerifier(new JWSHeader(JWSAlgorithm.RS256), macKey);
+			fail();
+		} catch (KeyTypeException e) {
+			assertEquals("Invalid key: Must be an instance of interface java.security.interfaces.RSAPublicKey", e.getMessage());
+		}
+
+		assertEquals(0, factory.size());
+	}
+
+
+	public void testEviction()
+		throws Exception {
+
+		CachingJWSVerifierFactory factory = new CachingJWSVerifierFactory(new DefaultJWSVerifierFactory(), 2);
+
+		for (int i=0; i < 5; i++) {
+			factory.createJWSVerifier(new JWSHeader(JWSAlgorithm.HS256), new SecretKeySpec(ByteUtils.concat(new byte[31], new byte[]{(byte)i}), "HmacSHA256"));
+		}
+
+		assertEquals(2, factory.size());
+	}
+
+
+	public void testEvictOldest()
+		throws Exception {
+
+		CachingJWSVerifierFactory factory = new CachingJWSVerifierFactory(new DefaultJWSVerifierFactory(), 2);
+
+		SecretKey[] keys = new SecretKey[3];
+		JWSVerifier[] verifiers = new JWSVerifier[3];
+		for (int i=0; i < keys.length; i++) {
+			keys[i] = new SecretKeySpec(ByteUtils.concat(new byte[31], new byte[]{(byte)i}), "HmacSHA256");
+			verifiers[i] = factory.createJWSVerifier(new JWSHeader(JWSAlgorithm.HS256), keys[i]);
+		}
+
+		assertEquals(2, factory.size());
+
+		// The two most recently added are retained
+		assertSame(verifiers[1], factory.createJWSVerifier(new JWSHeader(JWSAlgorithm.HS256), keys[1]));
+		assertSame(verifiers[2], factory.createJWSVerifier(new JWSHeader(JWSAlgorithm.HS256), keys[2]));
+
+		// The first was evicted
+		assertNotSame(verifiers[0], factory.createJWSVerifier(new JWSHeader(JWSAlgorithm.HS256), keys[0]));
+		assertEquals(2, factory.size());
+	}
+
+
+	public void testProviderChangeReplacesVerifier()
+		throws Exception {
+
+		CachingJWSVerifierFactory factory = new CachingJWSVerifierFactory();
+
+		SecretKey macKey = new SecretKeySpec(new byte[32], "HmacSHA256");
+		JWSVerifier verifier = factory.createJWSVerifier(new JWSHeader(JWSAlgorithm.HS256), macKey);
+		assertNull(verifier.getJCAContext().getProvider());
+
+		factory.getJCAContext().setProvider(BouncyCastleProviderSingleton.getInstance());
+
+		JWSVerifier updated = factory.createJWSVerifier(new JWSHeader(JWSAlgorithm.HS256), macKey);
+		assertNotSame(verifier, updated);
+		assertEquals(BouncyCastleProviderSingleton.getInstance(), updated.getJCAContext().getProvider());
+		assertSame(updated, factory.createJWSVerifier(new JWSHeader(JWSAlgorithm.HS256), macKey));
+	}
+}
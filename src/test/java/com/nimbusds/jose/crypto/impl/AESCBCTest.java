@@ -187,6 +187,33 @@ public class AESCBCTest extends TestCase {
 	}
 	
 	
+	public void testAuthenticatedEncryptionWithReuse()
+		throws Exception {
+
+		SecretKey inputKey = new SecretKeySpec(INPUT_KEY_256, "AES");
+
+		for (int i=0; i < 3; i++) {
+
+			AuthenticatedCipherText act = AESCBC.encryptAuthenticated(inputKey, IV, PLAIN_TEXT, AAD, null, null, true);
+
+			Assert.assertArrayEquals("Cipher text", CIPHER_TEXT_256, act.getCipherText());
+			Assert.assertArrayEquals("Auth tag", AUTH_TAG_256, act.getAuthenticationTag());
+
+			Assert.assertArrayEquals(PLAIN_TEXT, AESCBC.decryptAuthenticated(inputKey, IV, CIPHER_TEXT_256, AAD, AUTH_TAG_256, null, null, true));
+
+			// Failed check doesn't affect the pooled instances
+			byte[] badAuthTag = Arrays.copyOf(AUTH_TAG_256, AUTH_TAG_256.length);
+			badAuthTag[0] ^= 0x01;
+			try {
+				AESCBC.decryptAuthenticated(inputKey, IV, CIPHER_TEXT_256, AAD, badAuthTag, null, null, true);
+				fail();
+			} catch (JOSEException e) {
+				assertEquals("MAC check failed", e.getMessage());
+			}
+		}
+	}
+	
+	
 	public void testCBCPaddingOracleAttack()
 		throws Exception {
 		
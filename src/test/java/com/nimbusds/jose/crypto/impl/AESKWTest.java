@@ -86,6 +86,22 @@ public class AESKWTest extends TestCase {
 	}
 	
 	
+	public void testWrapUnwrapWithReuse()
+		throws Exception {
+
+		final SecretKey kek = new SecretKeySpec(new byte[16], "AES");
+
+		for (int i=0; i < 3; i++) {
+			final SecretKey cek = new SecretKeySpec(new byte[]{(byte) i, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15}, "AES");
+
+			final byte[] encryptedCEK = AESKW.wrapCEK(cek, kek, null, true);
+			assertArrayEquals(AESKW.wrapCEK(cek, kek, null), encryptedCEK);
+
+			assertArrayEquals(cek.getEncoded(), AESKW.unwrapCEK(kek, encryptedCEK, null, true).getEncoded());
+		}
+	}
+	
+	
 	public void testUnwrapCEK_adjustKEKAlg()
 		throws Exception {
 		
@@ -0,0 +1,67 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.nimbusds.jose.crypto.impl;
+
+
+import javax.crypto.Cipher;
+
+import junit.framework.TestCase;
+
+import com.nimbusds.jose.crypto.bc.BouncyCastleProviderSingleton;
+
+
+public class CipherHelperTest extends TestCase {
+
+
+	public void testAcquireNew()
+		throws Exception {
+
+		Cipher cipher = CipherHelper.acquire("AES/CBC/PKCS5Padding", null, false);
+		assertEquals("AES/CBC/PKCS5Padding", cipher.getAlgorithm());
+
+		CipherHelper.release("AES/CBC/PKCS5Padding", null, cipher, false);
+		assertNotSame(cipher, CipherHelper.acquire("AES/CBC/PKCS5Padding", null, false));
+	}
+
+
+	public void testAcquireRelease()
+		throws Exception {
+
+		Cipher cipher = CipherHelper.acquire("AES/CTR/NoPadding", null, true);
+		assertEquals("AES/CTR/NoPadding", cipher.getAlgorithm());
+
+		CipherHelper.release("AES/CTR/NoPadding", null, cipher, true);
+		assertSame(cipher, CipherHelper.acquire("AES/CTR/NoPadding", null, true));
+
+		// Taken out of the pool
+		assertNotSame(cipher, CipherHelper.acquire("AES/CTR/NoPadding", null, true));
+	}
+
+
+	public void testAcquireOtherProvider()
+		throws Exception {
+
+		Cipher cipher = CipherHelper.acquire("AES/ECB/NoPadding", null, true);
+		CipherHelper.release("AES/ECB/NoPadding", null, cipher, true);
+
+		Cipher bcCipher = CipherHelper.acquire("AES/ECB/NoPadding", BouncyCastleProviderSingleton.getInstance(), true);
+		assertNotSame(cipher, bcCipher);
+		assertEquals(BouncyCastleProviderSingleton.getInstance(), bcCipher.getProvider());
+	}
+}
@@ -38,7 +38,7 @@ import com.nimbusds.jose.util.StandardCharset;
  * Tests the content encryption / decryption provider.
  *
  * @author Vladimir Dzhuvinov
- * @version 2022-01-24
+ * @version 2022-06-01
  */
 public class ContentCryptoProviderTest extends TestCase {
 
@@ -161,6 +161,58 @@ public class ContentCryptoProviderTest extends TestCase {
 	}
 
 
+	public void testEngineReuse()
+		throws Exception {
+
+		for (boolean reuse: new boolean[]{true, false}) {
+
+			final JWEJCAContext jcaProvider = new JWEJCAContext();
+			jcaProvider.setEngineReuseEnabled(reuse);
+
+			for (EncryptionMethod enc: new EncryptionMethod[]{EncryptionMethod.A256GCM, EncryptionMethod.A128CBC_HS256}) {
+
+				final JWEHeader header = new JWEHeader(JWEAlgorithm.DIR, enc);
+				final SecretKey cek = ContentCryptoProvider.generateCEK(enc, new SecureRandom());
+
+				for (int i=0; i < 3; i++) {
+
+					final byte[] clearText = ("Hello world " + i).getBytes(StandardCharset.UTF_8);
+
+					JWECryptoParts parts = ContentCryptoProvider.encrypt(header, clearText, cek, null, jcaProvider);
+
+					// Tampered auth tag
+					byte[] badAuthTag = parts.getAuthenticationTag().decode();
+					badAuthTag[0] ^= 0x01;
+					try {
+						ContentCryptoProvider.decrypt(header, null, parts.getInitializationVector(), parts.getCipherText(), Base64URL.encode(badAuthTag), cek, jcaProvider);
+						fail();
+					} catch (JOSEException e) {
+						// ok
+					}
+
+					assertArrayEquals(clearText, ContentCryptoProvider.decrypt(header, null, parts.getInitializationVector(), parts.getCipherText(), parts.getAuthenticationTag(), cek, jcaProvider));
+				}
+			}
+		}
+	}
+
+
+	public void testEngineReuseOnlyForDirectEncryption() {
+
+		JWEJCAContext jcaProvider = new JWEJCAContext();
+
+		assertTrue(ContentCryptoProvider.isEngineReuse(new JWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A256GCM), jcaProvider));
+
+		for (JWEAlgorithm alg: new JWEAlgorithm[]{JWEAlgorithm.RSA_OAEP_256, JWEAlgorithm.A128KW, JWEAlgorithm.A256GCMKW, JWEAlgorithm.ECDH_ES_A128KW, JWEAlgorithm.PBES2_HS256_A128KW}) {
+			// Per-message CEK
+			assertFalse(ContentCryptoProvider.isEngineReuse(new JWEHeader(alg, EncryptionMethod.A256GCM), jcaProvider));
+		}
+
+		jcaProvider.setEngineReuseEnabled(false);
+		assertFalse(ContentCryptoProvider.isEngineReuse(new JWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A256GCM), jcaProvider));
+	}
+
+
 	public void testKeyGen()
 		throws Exception {
 
@@ -0,0 +1,269 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.crypto.impl;
+
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import junit.framework.TestCase;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.util.Base64URL;
+
+
+public class CounterAESGCMIVGeneratorTest extends TestCase {
+
+
+	public void testConstants() {
+
+		assertEquals(4, CounterAESGCMIVGenerator.FIXED_FIELD_BYTE_LENGTH);
+		assertEquals(Long.MAX_VALUE, CounterAESGCMIVGenerator.DEFAULT_MAX_INVOCATIONS);
+	}
+
+
+	private static byte[] fixedField(final int i) {
+
+		return ByteBuffer.allocate(4).putInt(i).array();
+	}
+
+
+	public void testDefaultMaxInvocations()
+		throws Exception {
+
+		byte[] fixedField = new byte[]{1, 2, 3, 4};
+		CounterAESGCMIVGenerator gen = new CounterAESGCMIVGenerator(fixedField);
+
+		assertEquals(CounterAESGCMIVGenerator.DEFAULT_MAX_INVOCATIONS, gen.getMaxInvocations());
+		assertArrayEquals(fixedField, gen.getFixedField());
+		assertNotSame(fixedField, gen.getFixedField());
+		assertEquals(0L, gen.getInvocations());
+		assertFalse(gen.isExhausted());
+
+		for (long i=0; i < 300; i++) {
+			byte[] iv = gen.generateIV();
+			assertEquals(12, iv.length);
+			assertArrayEquals(fixedField, Arrays.copyOf(iv, 4));
+			assertEquals(i, ByteBuffer.wrap(iv, 4, 8).getLong());
+		}
+
+		assertEquals(300L, gen.getInvocations());
+		assertFalse(gen.isExhausted());
+	}
+
+
+	public void testFixedFieldCopied()
+		throws Exception {
+
+		byte[] fixedField = new byte[]{1, 2, 3, 4};
+		CounterAESGCMIVGenerator gen = new CounterAESGCMIVGenerator(fixedField);
+		fixedField[0] = 9;
+
+		assertArrayEquals(new byte[]{1, 2, 3, 4}, Arrays.copyOf(gen.generateIV(), 4));
+	}
+
+
+	public void testExhaustion()
+		throws Exception {
+
+		CounterAESGCMIVGenerator gen = new CounterAESGCMIVGenerator(fixedField(1), 3L);
+
+		assertEquals(3L, gen.getMaxInvocations());
+
+		for (long i=0; i < 3; i++) {
+			assertEquals(i, ByteBuffer.wrap(gen.generateIV(), 4, 8).getLong());
+		}
+
+		assertTrue(gen.isExhausted());
+
+		for (int i=0; i < 3; i++) {
+			try {
+				gen.generateIV();
+				fail();
+			} catch (JOSEException e) {
+				assertEquals("The AES/GCM IV counter is exhausted, the key must be replaced", e.getMessage());
+			}
+		}
+
+		assertEquals(3L, gen.getInvocations());
+		assertArrayEquals(fixedField(1), gen.getFixedField());
+	}
+
+
+	public void testNoRepeatAcrossManyFixedFields()
+		throws Exception {
+
+		Set<Base64URL> ivs = new HashSet<>();
+
+		for (int i=0; i < 1000; i++) {
+
+			CounterAESGCMIVGenerator gen = new CounterAESGCMIVGenerator(fixedField(i), 10L);
+
+			while (! gen.isExhausted()) {
+				assertTrue(ivs.add(Base64URL.encode(gen.generateIV())));
+			}
+
+			try {
+				gen.generateIV();
+				fail();
+			} catch (JOSEException e) {
+				// ok
+			}
+		}
+
+		assertEquals(1000 * 10, ivs.size());
+	}
+
+
+	public void testNoRepeatAcrossGeneratorLifetimes()
+		throws Exception {
+
+		Set<Base64URL> ivs = new HashSet<>();
+
+		// First lifetime, e.g. before a restart
+		CounterAESGCMIVGenerator gen = new CounterAESGCMIVGenerator(fixedField(1));
+		for (int i=0; i < 100; i++) {
+			assertTrue(ivs.add(Base64URL.encode(gen.generateIV())));
+		}
+		long persistedInvocations = gen.getInvocations();
+		assertEquals(100L, persistedInvocations);
+
+		// Second lifetime, resuming from the persisted counter
+		gen = new CounterAESGCMIVGenerator(fixedField(1), persistedInvocations, CounterAESGCMIVGenerator.DEFAULT_MAX_INVOCATIONS);
+		assertEquals(100L, ByteBuffer.wrap(gen.generateIV(), 4, 8).getLong());
+		for (int i=0; i < 100; i++) {
+			assertTrue(ivs.add(Base64URL.encode(gen.generateIV())));
+		}
+
+		// Third lifetime, with a new fixed field from zero
+		gen = new CounterAESGCMIVGenerator(fixedField(2));
+		for (int i=0; i < 300; i++) {
+			assertTrue(ivs.add(Base64URL.encode(gen.generateIV())));
+		}
+
+		assertEquals(500, ivs.size());
+	}
+
+
+	public void testRestartWithSameFixedFieldRepeatsIVs()
+		throws Exception {
+
+		byte[] iv = new CounterAESGCMIVGenerator(fixedField(1)).generateIV();
+
+		// The hazard the class documentation warns about
+		assertArrayEquals(iv, new CounterAESGCMIVGenerator(fixedField(1)).generateIV());
+	}
+
+
+	public void testInitialInvocation()
+		throws Exception {
+
+		CounterAESGCMIVGenerator gen = new CounterAESGCMIVGenerator(fixedField(1), 5L, 7L);
+		assertEquals(5L, gen.getInvocations());
+		assertEquals(5L, ByteBuffer.wrap(gen.generateIV(), 4, 8).getLong());
+		assertEquals(6L, ByteBuffer.wrap(gen.generateIV(), 4, 8).getLong());
+		assertTrue(gen.isExhausted());
+
+		try {
+			new CounterAESGCMIVGenerator(fixedField(1), -1L, 7L);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The initial invocation must not be negative", e.getMessage());
+		}
+	}
+
+
+	public void testUniqueAcrossThreads()
+		throws Exception {
+
+		final CounterAESGCMIVGenerator gen = new CounterAESGCMIVGenerator(fixedField(1), 30_000L);
+
+		final int threads = 8;
+		final int ivsPerThread = 5000;
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<List<Base64URL>>> futures = new ArrayList<>();
+		for (int i=0; i < threads; i++) {
+			futures.add(executor.submit(new Callable<List<Base64URL>>() {
+				@Override
+				public List<Base64URL> call() {
+					List<Base64URL> ivs = new ArrayList<>(ivsPerThread);
+					for (int j=0; j < ivsPerThread; j++) {
+						try {
+							ivs.add(Base64URL.encode(gen.generateIV()));
+						} catch (JOSEException e) {
+							// Exhausted
+						}
+					}
+					return ivs;
+				}
+			}));
+		}
+
+		Set<Base64URL> ivs = new HashSet<>();
+		int count = 0;
+		for (Future<List<Base64URL>> future: futures) {
+			List<Base64URL> threadIVs = future.get();
+			count += threadIVs.size();
+			ivs.addAll(threadIVs);
+		}
+		executor.shutdown();
+
+		assertEquals(30_000, count);
+		assertEquals(30_000, ivs.size());
+		assertTrue(gen.isExhausted());
+	}
+
+
+	public void testRejectNullFixedField() {
+
+		try {
+			new CounterAESGCMIVGenerator(null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The fixed field must not be null", e.getMessage());
+		}
+	}
+
+
+	public void testRejectInvalidFixedFieldLength() {
+
+		for (int len: new int[]{0, 3, 5, 12}) {
+			try {
+				new CounterAESGCMIVGenerator(new byte[len]);
+				fail();
+			} catch (IllegalArgumentException e) {
+				assertEquals("The fixed field must be 4 bytes long", e.getMessage());
+			}
+		}
+	}
+
+
+	public void testRejectNonPositiveMaxInvocations() {
+
+		try {
+			new CounterAESGCMIVGenerator(fixedField(1), 0L);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The maximum number of invocations must be positive", e.getMessage());
+		}
+	}
+}
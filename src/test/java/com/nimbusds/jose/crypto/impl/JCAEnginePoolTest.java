@@ -0,0 +1,137 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.crypto.impl;
+
+
+import java.security.Provider;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.crypto.Mac;
+
+import junit.framework.TestCase;
+
+import com.nimbusds.jose.crypto.bc.BouncyCastleProviderSingleton;
+
+
+public class JCAEnginePoolTest extends TestCase {
+
+
+	public void testDefaultSlots() {
+
+		assertEquals(1, Integer.bitCount(JCAEnginePool.DEFAULT_SLOTS));
+		assertTrue(JCAEnginePool.DEFAULT_SLOTS >= 2);
+		assertTrue(JCAEnginePool.DEFAULT_SLOTS <= 64);
+
+		assertEquals(JCAEnginePool.DEFAULT_SLOTS, new JCAEnginePool<Mac>().getNumSlots());
+	}
+
+
+	public void testIllegalNumSlots() {
+
+		for (int numSlots: new int[]{-1, 0, 3, 6}) {
+			try {
+				new JCAEnginePool<Mac>(numSlots);
+				fail();
+			} catch (IllegalArgumentException e) {
+				assertEquals("The number of slots must be a positive power of two", e.getMessage());
+			}
+		}
+	}
+
+
+	public void testAcquireRelease()
+		throws Exception {
+
+		JCAEnginePool<Mac> pool = new JCAEnginePool<>(1);
+
+		assertNull(pool.acquire("HmacSHA256", null));
+
+		Mac mac = Mac.getInstance("HmacSHA256");
+		pool.release("HmacSHA256", null, mac);
+
+		assertNull(pool.acquire("HmacSHA384", null));
+		assertSame(mac, pool.acquire("HmacSHA256", null));
+		assertNull(pool.acquire("HmacSHA256", null));
+
+		// Excess engines discarded
+		Mac other = Mac.getInstance("HmacSHA256");
+		pool.release("HmacSHA256", null, mac);
+		pool.release("HmacSHA256", null, other);
+		assertSame(mac, pool.acquire("HmacSHA256", null));
+
+		pool.release("HmacSHA256", null, mac);
+		pool.clear();
+		assertNull(pool.acquire("HmacSHA256", null));
+	}
+
+
+	public void testProviderChange()
+		throws Exception {
+
+		JCAEnginePool<Mac> pool = new JCAEnginePool<>(1);
+
+		Provider bc = BouncyCastleProviderSingleton.getInstance();
+
+		Mac defaultMac = Mac.getInstance("HmacSHA256");
+		pool.release("HmacSHA256", null, defaultMac);
+		assertNull(pool.acquire("HmacSHA256", bc));
+
+		Mac bcMac = Mac.getInstance("HmacSHA256", bc);
+		pool.release("HmacSHA256", bc, bcMac);
+		assertNull(pool.acquire("HmacSHA256", null));
+		assertSame(bcMac, pool.acquire("HmacSHA256", bc));
+	}
+
+
+	public void testNotSharedBetweenThreads()
+		throws Exception {
+
+		final JCAEnginePool<Mac> pool = new JCAEnginePool<>(4);
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+
+		Future<?>[] futures = new Future<?>[8];
+		for (int i=0; i < futures.length; i++) {
+			futures[i] = executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					for (int j=0; j < 1000; j++) {
+						Mac mac = pool.acquire("HmacSHA256", null);
+						if (mac == null) {
+							mac = Mac.getInstance("HmacSHA256");
+						}
+						synchronized (mac) {
+							// Fails if the engine is held by another thread
+							assertTrue(Thread.holdsLock(mac));
+						}
+						pool.release("HmacSHA256", null, mac);
+					}
+					return null;
+				}
+			});
+		}
+
+		for (Future<?> f: futures) {
+			f.get();
+		}
+
+		executor.shutdown();
+	}
+}
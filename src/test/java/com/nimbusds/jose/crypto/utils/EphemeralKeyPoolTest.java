@@ -0,0 +1,300 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.crypto.utils;
+
+
+import java.security.KeyPair;
+import java.security.interfaces.ECPublicKey;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import com.nimbusds.jose.*;
+import com.nimbusds.jose.crypto.*;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.OctetKeyPairGenerator;
+import com.nimbusds.jose.util.Base64URL;
+
+
+public class EphemeralKeyPoolTest extends TestCase {
+	
+	
+	private static final Executor CALLER_RUNS = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+	
+	
+	private static final Executor REJECTING = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			throw new java.util.concurrent.RejectedExecutionException();
+		}
+	};
+	
+	
+	public void testSupportedCurves() {
+		
+		assertEquals(new HashSet<>(Arrays.asList(Curve.P_256, Curve.P_384, Curve.P_521, Curve.X25519)), EphemeralKeyPool.SUPPORTED_CURVES);
+	}
+	
+	
+	public void testIllegalArguments() {
+		
+		Set<Curve> curves = Collections.singleton(Curve.P_256);
+		
+		try {
+			new EphemeralKeyPool(null, 10, CALLER_RUNS);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The curves must not be null or empty", e.getMessage());
+		}
+		
+		try {
+			new EphemeralKeyPool(Collections.<Curve>emptySet(), 10, CALLER_RUNS);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The curves must not be null or empty", e.getMessage());
+		}
+		
+		try {
+			new EphemeralKeyPool(curves, 0, CALLER_RUNS);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The capacity must be positive", e.getMessage());
+		}
+		
+		try {
+			new EphemeralKeyPool(curves, 10, null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The executor must not be null", e.getMessage());
+		}
+		
+		try {
+			new EphemeralKeyPool(Collections.singleton(Curve.SECP256K1), 10, CALLER_RUNS);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("Unsupported curve: secp256k1", e.getMessage());
+		}
+	}
+	
+	
+	public void testFillAndTake()
+		throws JOSEException {
+		
+		EphemeralKeyPool pool = new EphemeralKeyPool(new HashSet<>(Arrays.asList(Curve.P_256, Curve.X25519)), 4, CALLER_RUNS);
+		
+		assertEquals(new HashSet<>(Arrays.asList(Curve.P_256, Curve.X25519)), pool.getCurves());
+		assertEquals(4, pool.getCapacity());
+		assertNull(pool.getProvider());
+		assertTrue(pool.supports(Curve.P_256));
+		assertTrue(pool.supports(Curve.X25519));
+		assertFalse(pool.supports(Curve.P_384));
+		assertEquals(0, pool.size(Curve.P_384));
+		
+		assertEquals(4, pool.size(Curve.P_256));
+		assertEquals(4, pool.size(Curve.X25519));
+		
+		// Each key pair is handed out once
+		Set<Object> taken = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+		Set<Object> publicKeys = new HashSet<>();
+		for (int i=0; i < 20; i++) {
+			KeyPair ecKeyPair = pool.takeECKeyPair(Curve.P_256);
+			assertEquals(Curve.P_256, Curve.forECParameterSpec(((ECPublicKey) ecKeyPair.getPublic()).getParams()));
+			assertTrue(taken.add(ecKeyPair));
+			assertTrue(publicKeys.add(ecKeyPair.getPublic()));
+			
+			OctetKeyPair okp = pool.takeX25519KeyPair();
+			assertEquals(Curve.X25519, okp.getCurve());
+			assertTrue(okp.isPrivate());
+			assertTrue(taken.add(okp));
+			assertTrue(publicKeys.add(okp.getX()));
+		}
+		
+		// Refilled by the caller runs executor when below half
+		assertTrue(pool.size(Curve.P_256) >= 2);
+		assertTrue(pool.size(Curve.X25519) >= 2);
+		
+		try {
+			pool.takeECKeyPair(Curve.P_384);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("Unsupported curve: P-384", e.getMessage());
+		}
+		
+		try {
+			pool.takeECKeyPair(Curve.X25519);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("Not an EC curve: X25519", e.getMessage());
+		}
+		
+		pool.close();
+		assertEquals(0, pool.size(Curve.P_256));
+		assertEquals(0, pool.size(Curve.X25519));
+		
+		// Generated on demand
+		assertNotNull(pool.takeECKeyPair(Curve.P_256));
+		assertEquals(0, pool.size(Curve.P_256));
+	}
+	
+	
+	public void testGenerateOnDemandIfRejected()
+		throws JOSEException {
+		
+		EphemeralKeyPool pool = new EphemeralKeyPool(Collections.singleton(Curve.P_384), 10, REJECTING);
+		assertEquals(0, pool.size(Curve.P_384));
+		
+		KeyPair keyPair = pool.takeECKeyPair(Curve.P_384);
+		assertEquals(Curve.P_384, Curve.forECParameterSpec(((ECPublicKey) keyPair.getPublic()).getParams()));
+	}
+	
+	
+	public void testBackgroundRefill()
+		throws Exception {
+		
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		
+		try {
+			EphemeralKeyPool pool = new EphemeralKeyPool(new HashSet<>(Arrays.asList(Curve.P_256, Curve.X25519)), 50, executor);
+			
+			for (int i=0; i < 100 && (pool.size(Curve.P_256) < 50 || pool.size(Curve.X25519) < 50); i++) {
+				Thread.sleep(50L);
+			}
+			assertEquals(50, pool.size(Curve.P_256));
+			assertEquals(50, pool.size(Curve.X25519));
+			
+			for (int i=0; i < 40; i++) {
+				pool.takeECKeyPair(Curve.P_256);
+			}
+			
+			for (int i=0; i < 100 && pool.size(Curve.P_256) < 50; i++) {
+				Thread.sleep(50L);
+			}
+			assertEquals(50, pool.size(Curve.P_256));
+			
+			pool.close();
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(5L, TimeUnit.SECONDS);
+		}
+	}
+	
+	
+	public void testECDHCycle()
+		throws Exception {
+		
+		EphemeralKeyPool pool = new EphemeralKeyPool(new HashSet<>(Arrays.asList(Curve.P_256, Curve.X25519)), 2, CALLER_RUNS);
+		
+		ECKey ecJWK = new ECKeyGenerator(Curve.P_256).generate();
+		ECDHEncrypter encrypter = new ECDHEncrypter(ecJWK.toPublicJWK());
+		assertNull(encrypter.getEphemeralKeyPool());
+		encrypter.setEphemeralKeyPool(pool);
+		assertEquals(pool, encrypter.getEphemeralKeyPool());
+		
+		Set<Base64URL> epks = new HashSet<>();
+		for (int i=0; i < 5; i++) {
+			JWEObject jweObject = new JWEObject(new JWEHeader(JWEAlgorithm.ECDH_ES, EncryptionMethod.A128GCM), new Payload("Hello world!"));
+			jweObject.encrypt(encrypter);
+			assertTrue(epks.add(((ECKey) jweObject.getHeader().getEphemeralPublicKey()).getX()));
+			
+			jweObject = JWEObject.parse(jweObject.serialize());
+			jweObject.decrypt(new ECDHDecrypter(ecJWK));
+			assertEquals("Hello world!", jweObject.getPayload().toString());
+		}
+		
+		// Curve not in the pool, generated on demand
+		ECKey p384JWK = new ECKeyGenerator(Curve.P_384).generate();
+		encrypter = new ECDHEncrypter(p384JWK.toPublicJWK());
+		encrypter.setEphemeralKeyPool(pool);
+		JWEObject jweObject = new JWEObject(new JWEHeader(JWEAlgorithm.ECDH_ES_A128KW, EncryptionMethod.A128GCM), new Payload("Hello world!"));
+		jweObject.encrypt(encrypter);
+		jweObject.decrypt(new ECDHDecrypter(p384JWK));
+		assertEquals("Hello world!", jweObject.getPayload().toString());
+	}
+	
+	
+	public void testX25519Cycle()
+		throws Exception {
+		
+		EphemeralKeyPool pool = new EphemeralKeyPool(Collections.singleton(Curve.X25519), 2, CALLER_RUNS);
+		
+		OctetKeyPair okp = new OctetKeyPairGenerator(Curve.X25519).generate();
+		X25519Encrypter encrypter = new X25519Encrypter(okp.toPublicJWK());
+		encrypter.setEphemeralKeyPool(pool);
+		assertEquals(pool, encrypter.getEphemeralKeyPool());
+		
+		Set<Base64URL> epks = new HashSet<>();
+		for (int i=0; i < 5; i++) {
+			JWEObject jweObject = new JWEObject(new JWEHeader(JWEAlgorithm.ECDH_ES, EncryptionMethod.A256GCM), new Payload("Hello world!"));
+			jweObject.encrypt(encrypter);
+			OctetKeyPair epk = (OctetKeyPair) jweObject.getHeader().getEphemeralPublicKey();
+			assertFalse(epk.isPrivate());
+			assertTrue(epks.add(epk.getX()));
+			
+			jweObject = JWEObject.parse(jweObject.serialize());
+			jweObject.decrypt(new X25519Decrypter(okp));
+			assertEquals("Hello world!", jweObject.getPayload().toString());
+		}
+	}
+	
+	
+	public void testECDH1PUCycle()
+		throws Exception {
+		
+		EphemeralKeyPool pool = new EphemeralKeyPool(new HashSet<>(Arrays.asList(Curve.P_256, Curve.X25519)), 2, CALLER_RUNS);
+		
+		JWEHeader header = new JWEHeader(JWEAlgorithm.ECDH_1PU_A128KW, EncryptionMethod.A128CBC_HS256);
+		
+		ECKey aliceKey = new ECKeyGenerator(Curve.P_256).generate();
+		ECKey bobKey = new ECKeyGenerator(Curve.P_256).generate();
+		
+		ECDH1PUEncrypter ecEncrypter = new ECDH1PUEncrypter(aliceKey.toECPrivateKey(), bobKey.toECPublicKey());
+		ecEncrypter.setEphemeralKeyPool(pool);
+		assertEquals(pool, ecEncrypter.getEphemeralKeyPool());
+		
+		JWEObject jweObject = new JWEObject(header, new Payload("Hello world!"));
+		jweObject.encrypt(ecEncrypter);
+		jweObject = JWEObject.parse(jweObject.serialize());
+		jweObject.decrypt(new ECDH1PUDecrypter(bobKey.toECPrivateKey(), aliceKey.toECPublicKey()));
+		assertEquals("Hello world!", jweObject.getPayload().toString());
+		
+		OctetKeyPair aliceOKP = new OctetKeyPairGenerator(Curve.X25519).generate();
+		OctetKeyPair bobOKP = new OctetKeyPairGenerator(Curve.X25519).generate();
+		
+		ECDH1PUX25519Encrypter okpEncrypter = new ECDH1PUX25519Encrypter(aliceOKP, bobOKP.toPublicJWK());
+		okpEncrypter.setEphemeralKeyPool(pool);
+		assertEquals(pool, okpEncrypter.getEphemeralKeyPool());
+		
+		jweObject = new JWEObject(header, new Payload("Hello world!"));
+		jweObject.encrypt(okpEncrypter);
+		jweObject = JWEObject.parse(jweObject.serialize());
+		jweObject.decrypt(new ECDH1PUX25519Decrypter(bobOKP, aliceOKP.toPublicJWK()));
+		assertEquals("Hello world!", jweObject.getPayload().toString());
+	}
+}
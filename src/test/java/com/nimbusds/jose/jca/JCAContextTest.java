@@ -38,6 +38,7 @@ public class JCAContextTest extends TestCase {
 		JCAContext context = new JCAContext();
 		assertNull(context.getProvider());
 		assertNotNull(context.getSecureRandom());
+		assertTrue(context.isEngineReuseEnabled());
 	}
 
 
@@ -64,5 +65,8 @@ public class JCAContextTest extends TestCase {
 		SecureRandom sr = new SecureRandom();
 		context.setSecureRandom(sr);
 		assertEquals(sr, context.getSecureRandom());
+		
+		context.setEngineReuseEnabled(false);
+		assertFalse(context.isEngineReuseEnabled());
 	}
 }
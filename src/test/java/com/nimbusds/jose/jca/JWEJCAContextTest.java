@@ -20,15 +20,21 @@ package com.nimbusds.jose.jca;
 
 import java.security.Provider;
 import java.security.SecureRandom;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
 
 import junit.framework.TestCase;
 
+import com.nimbusds.jose.crypto.impl.AESGCM;
+import com.nimbusds.jose.crypto.impl.CounterAESGCMIVGenerator;
+
 
 /**
  * Tests the JWE JCA context.
  *
  * @author Vladimir Dzhuvinov
- * @version 2015-06-08
+ * @version 2022-06-01
  */
 public class JWEJCAContextTest extends TestCase {
 
@@ -114,4 +120,26 @@ public class JWEJCAContextTest extends TestCase {
 		assertEquals(provider, ctx.getContentEncryptionProvider());
 		assertEquals(provider, ctx.getMACProvider());
 	}
+
+
+	public void testAESGCMIVGenerator()
+		throws Exception {
+
+		JWEJCAContext ctx = new JWEJCAContext();
+
+		assertNull(ctx.getAESGCMIVGenerator());
+
+		// Random
+		byte[] iv = AESGCM.generateIV(ctx);
+		assertEquals(12, iv.length);
+		assertFalse(Arrays.equals(iv, AESGCM.generateIV(ctx)));
+
+		CounterAESGCMIVGenerator gen = new CounterAESGCMIVGenerator(new byte[]{0, 0, 0, 1});
+		ctx.setAESGCMIVGenerator(gen);
+		assertEquals(gen, ctx.getAESGCMIVGenerator());
+		assertArrayEquals(new byte[]{0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0}, AESGCM.generateIV(ctx));
+
+		ctx.setAESGCMIVGenerator(null);
+		assertNull(ctx.getAESGCMIVGenerator());
+	}
 }
@@ -350,4 +350,80 @@ public class JWKSelectorTest extends TestCase {
 
 		assertEquals(1, matches.size());
 	}
+
+
+	private static List<JWK> scan(final JWKMatcher matcher, final JWKSet jwkSet) {
+
+		List<JWK> matches = new LinkedList<>();
+		for (JWK jwk: jwkSet.getKeys()) {
+			if (matcher.matches(jwk)) {
+				matches.add(jwk);
+			}
+		}
+		return matches;
+	}
+
+
+	public void testSelectFromIndexedJWKSet()
+		throws Exception {
+
+		List<JWK> keys = new ArrayList<>();
+		for (int i=0; i < 200; i++) {
+			KeyUse use = i % 3 == 0 ? KeyUse.SIGNATURE : i % 3 == 1 ? KeyUse.ENCRYPTION : null;
+			JWSAlgorithm alg = i % 2 == 0 ? JWSAlgorithm.HS256 : JWSAlgorithm.HS512;
+			keys.add(new OctetSequenceKey.Builder(new Base64URL("c2VjcmV0" + i))
+				.keyID(i % 10 == 0 ? null : "k" + (i % 100))
+				.keyUse(use)
+				.algorithm(i % 5 == 0 ? null : alg)
+				.x509CertSHA256Thumbprint(i % 7 == 0 ? new Base64URL("dGh1bWI" + i) : null)
+				.build());
+		}
+		keys.add(new ECKey.Builder(Curve.P_256, EC_P256_X, EC_P256_Y).keyID("k1").keyUse(KeyUse.SIGNATURE).build());
+
+		JWKSet jwkSet = new JWKSet(keys);
+		assertNotNull(jwkSet.getIndex());
+
+		List<JWKMatcher> matchers = Arrays.asList(
+			new JWKMatcher.Builder().keyID("k1").build(),
+			new JWKMatcher.Builder().keyIDs("k1", "k2", "none").build(),
+			new JWKMatcher.Builder().keyIDs(new HashSet<>(Arrays.asList("k3", null))).build(),
+			new JWKMatcher.Builder().keyID("none").build(),
+			new JWKMatcher.Builder().keyType(KeyType.EC).build(),
+			new JWKMatcher.Builder().keyType(KeyType.OCT).keyUse(KeyUse.ENCRYPTION).build(),
+			new JWKMatcher.Builder().keyUses(KeyUse.SIGNATURE, null).algorithm(JWSAlgorithm.HS512).build(),
+			new JWKMatcher.Builder().algorithms(JWSAlgorithm.HS256, null).keyID("k20").build(),
+			new JWKMatcher.Builder().x509CertSHA256Thumbprint(new Base64URL("dGh1bWI14")).build(),
+			new JWKMatcher.Builder().x509CertSHA256Thumbprints(new Base64URL("dGh1bWI14"), new Base64URL("dGh1bWI21")).hasKeyID(true).build(),
+			JWKMatcher.forJWSHeader(new com.nimbusds.jose.JWSHeader.Builder(JWSAlgorithm.HS256).keyID("k2").build()),
+			new JWKMatcher.Builder().hasKeyUse(true).build(),
+			new JWKMatcher.Builder().build()
+		);
+
+		for (JWKMatcher matcher: matchers) {
+			List<JWK> expected = scan(matcher, jwkSet);
+			assertEquals(matcher.toString(), expected, new JWKSelector(matcher).select(jwkSet));
+		}
+
+		// Matcher without indexed fields
+		assertNull(jwkSet.getIndex().getCandidates(new JWKMatcher.Builder().hasKeyUse(true).build()));
+
+		// Smallest candidate set
+		assertEquals(3, jwkSet.getIndex().getCandidates(new JWKMatcher.Builder().keyID("k1").keyType(KeyType.OCT).build()).size());
+		assertEquals(1, jwkSet.getIndex().getCandidates(new JWKMatcher.Builder().keyID("k1").keyType(KeyType.EC).build()).size());
+	}
+
+
+	public void testSmallJWKSetNotIndexed() {
+
+		List<JWK> keys = new ArrayList<>();
+		for (int i=0; i < JWKSetIndex.MIN_SIZE - 1; i++) {
+			keys.add(new OctetSequenceKey.Builder(new Base64URL("c2VjcmV0" + i)).keyID("k" + i).build());
+		}
+
+		JWKSet jwkSet = new JWKSet(keys);
+		assertNull(jwkSet.getIndex());
+
+		List<JWK> matches = new JWKSelector(new JWKMatcher.Builder().keyID("k3").build()).select(jwkSet);
+		assertEquals(Collections.singletonList(keys.get(3)), matches);
+	}
 }
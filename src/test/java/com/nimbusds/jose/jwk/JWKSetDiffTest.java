@@ -0,0 +1,133 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk;
+
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+
+
+public class JWKSetDiffTest extends TestCase {
+
+
+	public void testNoPrevious()
+		throws Exception {
+
+		JWKSet jwkSet = new JWKSet(new ECKeyGenerator(Curve.P_256).keyID("1").generate());
+
+		JWKSetDiff diff = JWKSetDiff.compute(null, jwkSet);
+
+		assertSame(jwkSet, diff.getJWKSet());
+		assertEquals(jwkSet.getKeys(), diff.getAddedKeys());
+		assertTrue(diff.getRemovedKeys().isEmpty());
+		assertEquals(0, diff.getRetainedKeyCount());
+		assertTrue(diff.hasChanges());
+	}
+
+
+	public void testUnchanged()
+		throws Exception {
+
+		JWK ecJWK = new ECKeyGenerator(Curve.P_256).keyID("1").generate().toPublicJWK();
+		JWK noKidJWK = new RSAKeyGenerator(2048).generate().toPublicJWK();
+
+		JWKSet previous = new JWKSet(Arrays.asList(ecJWK, noKidJWK));
+		JWKSet updated = JWKSet.parse(previous.toString());
+
+		assertNotSame(ecJWK, updated.getKeys().get(0));
+
+		JWKSetDiff diff = JWKSetDiff.compute(previous, updated);
+
+		assertSame(previous, diff.getJWKSet());
+		assertTrue(diff.getAddedKeys().isEmpty());
+		assertTrue(diff.getRemovedKeys().isEmpty());
+		assertEquals(2, diff.getRetainedKeyCount());
+		assertFalse(diff.hasChanges());
+	}
+
+
+	public void testKeyRotation()
+		throws Exception {
+
+		JWK key1 = new ECKeyGenerator(Curve.P_256).keyID("1").generate().toPublicJWK();
+		JWK key2 = new ECKeyGenerator(Curve.P_256).keyID("2").generate().toPublicJWK();
+		JWK key3 = new ECKeyGenerator(Curve.P_256).keyID("3").generate().toPublicJWK();
+
+		JWKSet previous = new JWKSet(Arrays.asList(key1, key2));
+		JWKSet updated = JWKSet.parse(new JWKSet(Arrays.asList(key3, key1)).toString());
+
+		JWKSetDiff diff = JWKSetDiff.compute(previous, updated);
+
+		assertEquals(2, diff.getJWKSet().getKeys().size());
+		assertEquals(key3, diff.getJWKSet().getKeys().get(0));
+		assertSame(key1, diff.getJWKSet().getKeys().get(1));
+
+		assertEquals(Collections.singletonList(key3), diff.getAddedKeys());
+		assertSame(updated.getKeys().get(0), diff.getAddedKeys().get(0));
+		assertEquals(Collections.singletonList(key2), diff.getRemovedKeys());
+		assertSame(key2, diff.getRemovedKeys().get(0));
+		assertEquals(1, diff.getRetainedKeyCount());
+		assertTrue(diff.hasChanges());
+	}
+
+
+	public void testChangedParametersSameKeyID()
+		throws Exception {
+
+		ECKey key = new ECKeyGenerator(Curve.P_256).keyID("1").generate().toPublicJWK();
+		ECKey changed = new ECKey.Builder(key).algorithm(JWSAlgorithm.ES256).build();
+
+		JWKSetDiff diff = JWKSetDiff.compute(new JWKSet(key), new JWKSet(changed));
+
+		assertSame(changed, diff.getJWKSet().getKeys().get(0));
+		assertEquals(Collections.singletonList((JWK) changed), diff.getAddedKeys());
+		assertEquals(Collections.singletonList((JWK) key), diff.getRemovedKeys());
+		assertEquals(0, diff.getRetainedKeyCount());
+	}
+
+
+	public void testReorderedAndChangedMembers()
+		throws Exception {
+
+		JWK key1 = new ECKeyGenerator(Curve.P_256).keyID("1").generate().toPublicJWK();
+		JWK key2 = new ECKeyGenerator(Curve.P_256).keyID("2").generate().toPublicJWK();
+
+		JWKSet previous = new JWKSet(Arrays.asList(key1, key2));
+
+		JWKSetDiff diff = JWKSetDiff.compute(previous, new JWKSet(Arrays.asList(key2, key1)));
+		assertFalse(diff.hasChanges());
+		assertNotSame(previous, diff.getJWKSet());
+		assertSame(key2, diff.getJWKSet().getKeys().get(0));
+		assertSame(key1, diff.getJWKSet().getKeys().get(1));
+
+		Map<String, Object> members = new HashMap<>();
+		members.put("custom", "value");
+		diff = JWKSetDiff.compute(previous, new JWKSet(Arrays.asList(key1, key2), members));
+		assertFalse(diff.hasChanges());
+		assertEquals(members, diff.getJWKSet().getAdditionalMembers());
+		assertSame(key1, diff.getJWKSet().getKeys().get(0));
+	}
+}
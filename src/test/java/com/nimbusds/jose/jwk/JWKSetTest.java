@@ -1177,4 +1177,47 @@ public class JWKSetTest extends TestCase {
 			assertTrue(jwk.isPrivate());
 		}
 	}
+
+
+	public void testIndexedLookups()
+		throws Exception {
+
+		List<JWK> keys = new ArrayList<>();
+		for (int i=0; i < 100; i++) {
+			keys.add(new OctetSequenceKeyGenerator(256).keyID("k" + (i % 50)).generate());
+		}
+
+		JWKSet jwkSet = new JWKSet(keys);
+		assertNotNull(jwkSet.getIndex());
+
+		assertSame(keys.get(3), jwkSet.getKeyByKeyId("k3"));
+		assertSame(keys.get(49), jwkSet.getKeyByKeyId("k49"));
+		assertNull(jwkSet.getKeyByKeyId("k50"));
+		assertNull(jwkSet.getKeyByKeyId(null));
+
+		for (int i=0; i < keys.size(); i++) {
+			assertSame(keys.get(i), jwkSet.getKeyByThumbprint(keys.get(i).computeThumbprint()));
+			assertTrue(jwkSet.containsJWK(keys.get(i)));
+		}
+
+		assertNull(jwkSet.getKeyByThumbprint(new Base64URL("abc")));
+		assertFalse(jwkSet.containsJWK(new OctetSequenceKeyGenerator(256).generate()));
+
+		// Key list copied, the index remains valid
+		keys.clear();
+		assertEquals(100, jwkSet.getKeys().size());
+		assertEquals("k3", jwkSet.getKeyByKeyId("k3").getKeyID());
+	}
+
+
+	public void testGetKeyByThumbprint_small()
+		throws Exception {
+
+		JWK jwk = new OctetSequenceKeyGenerator(256).generate();
+		JWKSet jwkSet = new JWKSet(jwk);
+		assertNull(jwkSet.getIndex());
+
+		assertSame(jwk, jwkSet.getKeyByThumbprint(jwk.computeThumbprint()));
+		assertNull(jwkSet.getKeyByThumbprint(new Base64URL("abc")));
+	}
 }
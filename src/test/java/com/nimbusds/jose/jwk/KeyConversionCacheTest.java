@@ -0,0 +1,148 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk;
+
+
+import java.security.Key;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.List;
+import javax.crypto.SecretKey;
+
+import junit.framework.TestCase;
+
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+
+
+public class KeyConversionCacheTest extends TestCase {
+
+
+	public void testDefaultConstructor() {
+
+		KeyConversionCache cache = new KeyConversionCache();
+		assertEquals(100, KeyConversionCache.DEFAULT_MAX_SIZE);
+		assertEquals(KeyConversionCache.DEFAULT_MAX_SIZE, cache.getMaxSize());
+		assertEquals(0, cache.size());
+	}
+
+
+	public void testIllegalMaxSize() {
+
+		try {
+			new KeyConversionCache(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The maximum size must be positive", e.getMessage());
+		}
+	}
+
+
+	public void testConvertAndMemoise()
+		throws Exception {
+
+		RSAKey rsaJWK = new RSAKeyGenerator(2048).generate().toPublicJWK();
+		ECKey ecJWK = new ECKeyGenerator(Curve.P_256).generate().toPublicJWK();
+		OctetSequenceKey octJWK = new OctetSequenceKeyGenerator(256).generate();
+
+		KeyConversionCache cache = new KeyConversionCache();
+
+		List<Key> keys = cache.toJavaKeys(Arrays.asList(rsaJWK, ecJWK, octJWK));
+		assertEquals(3, keys.size());
+		assertTrue(keys.get(0) instanceof RSAPublicKey);
+		assertTrue(keys.get(1) instanceof ECPublicKey);
+		assertTrue(keys.get(2) instanceof SecretKey);
+		assertEquals(3, cache.size());
+
+		// Same instances returned
+		List<Key> rsaKeys = cache.toJavaKeys(rsaJWK);
+		assertEquals(1, rsaKeys.size());
+		assertSame(keys.get(0), rsaKeys.get(0));
+		assertSame(rsaKeys, cache.toJavaKeys(Arrays.asList((JWK) rsaJWK)));
+		assertSame(keys.get(1), cache.toJavaKeys(ecJWK).get(0));
+		assertSame(keys.get(2), cache.toJavaKeys(octJWK).get(0));
+		assertEquals(3, cache.size());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+
+	public void testPrivateKeyPair()
+		throws Exception {
+
+		RSAKey rsaJWK = new RSAKeyGenerator(2048).generate();
+
+		List<Key> keys = new KeyConversionCache().toJavaKeys(rsaJWK);
+		assertEquals(KeyConverter.toJavaKeys(Arrays.asList((JWK) rsaJWK)), keys);
+		assertEquals(2, keys.size());
+	}
+
+
+	public void testEvictOldestWhenFull()
+		throws Exception {
+
+		KeyConversionCache cache = new KeyConversionCache(2);
+
+		OctetSequenceKey k1 = new OctetSequenceKeyGenerator(256).generate();
+		OctetSequenceKey k2 = new OctetSequenceKeyGenerator(256).generate();
+		OctetSequenceKey k3 = new OctetSequenceKeyGenerator(256).generate();
+
+		List<Key> k1Keys = cache.toJavaKeys(k1);
+		List<Key> k2Keys = cache.toJavaKeys(k2);
+		assertEquals(2, cache.size());
+
+		List<Key> k3Keys = cache.toJavaKeys(k3);
+		assertEquals(2, cache.size());
+
+		assertSame(k2Keys, cache.toJavaKeys(k2));
+		assertSame(k3Keys, cache.toJavaKeys(k3));
+
+		assertNotSame(k1Keys, cache.toJavaKeys(k1));
+		assertEquals(k1Keys, cache.toJavaKeys(k1));
+		assertEquals(2, cache.size());
+	}
+
+
+	public void testHitForEqualJWKInstance()
+		throws Exception {
+
+		KeyConversionCache cache = new KeyConversionCache();
+
+		RSAKey rsaJWK = new RSAKeyGenerator(2048).keyID("1").generate().toPublicJWK();
+		List<Key> keys = cache.toJavaKeys(rsaJWK);
+
+		// JWK source returning a new instance on each call
+		for (int i=0; i < 10; i++) {
+			RSAKey copy = RSAKey.parse(rsaJWK.toJSONString());
+			assertNotSame(rsaJWK, copy);
+			assertSame(keys, cache.toJavaKeys(copy));
+		}
+		assertEquals(1, cache.size());
+	}
+
+
+	public void testNullAndEmpty() {
+
+		KeyConversionCache cache = new KeyConversionCache();
+		assertTrue(cache.toJavaKeys((List<JWK>) null).isEmpty());
+		assertTrue(cache.toJavaKeys(Arrays.<JWK>asList()).isEmpty());
+	}
+}
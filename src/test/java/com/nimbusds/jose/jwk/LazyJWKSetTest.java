@@ -0,0 +1,221 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk;
+
+
+import java.io.*;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.util.JSONObjectUtils;
+
+
+public class LazyJWKSetTest extends TestCase {
+
+
+	private static JWKSet createJWKSet(final int numKeys)
+		throws Exception {
+
+		List<JWK> keys = new ArrayList<>();
+		keys.add(new RSAKeyGenerator(2048).keyID("rsa").keyUse(KeyUse.SIGNATURE).algorithm(JWSAlgorithm.RS256).generate());
+		keys.add(new ECKeyGenerator(Curve.P_256).keyID("ec").keyUse(KeyUse.ENCRYPTION).generate());
+		for (int i=0; i < numKeys - 2; i++) {
+			keys.add(new OctetSequenceKeyGenerator(256).keyID("oct-" + i).algorithm(JWSAlgorithm.HS256).generate());
+		}
+		return new JWKSet(keys);
+	}
+
+
+	public void testParseLazily()
+		throws Exception {
+
+		JWKSet jwkSet = createJWKSet(50);
+
+		Map<String, Object> jsonObject = jwkSet.toJSONObject(false);
+		jsonObject.put("custom", "value");
+		String json = JSONObjectUtils.toJSONString(jsonObject);
+
+		LazyJWKSet lazyJWKSet = LazyJWKSet.parse(json);
+
+		assertEquals(50, lazyJWKSet.getKeys().size());
+		assertEquals(0, lazyJWKSet.getParsedKeyCount());
+		assertEquals("value", lazyJWKSet.getAdditionalMembers().get("custom"));
+		assertEquals(1, lazyJWKSet.getAdditionalMembers().size());
+
+		// Lookup by kid parses the matching key only
+		JWK rsaJWK = lazyJWKSet.getKeyByKeyId("rsa");
+		assertEquals(jwkSet.getKeyByKeyId("rsa"), rsaJWK);
+		assertEquals(1, lazyJWKSet.getParsedKeyCount());
+		assertSame(rsaJWK, lazyJWKSet.getKeyByKeyId("rsa"));
+		assertNull(lazyJWKSet.getKeyByKeyId("no-such-kid"));
+		assertEquals(1, lazyJWKSet.getParsedKeyCount());
+
+		// Selection by kty parses the candidates only
+		List<JWK> matches = new JWKSelector(new JWKMatcher.Builder().keyType(KeyType.EC).build()).select(lazyJWKSet);
+		assertEquals(1, matches.size());
+		assertEquals(jwkSet.getKeyByKeyId("ec"), matches.get(0));
+		assertEquals(2, lazyJWKSet.getParsedKeyCount());
+
+		matches = new JWKSelector(new JWKMatcher.Builder().keyUse(KeyUse.SIGNATURE).algorithm(JWSAlgorithm.RS256).build()).select(lazyJWKSet);
+		assertEquals(1, matches.size());
+		assertSame(rsaJWK, matches.get(0));
+		assertEquals(2, lazyJWKSet.getParsedKeyCount());
+
+		// Full materialisation
+		assertEquals(jwkSet.getKeys(), lazyJWKSet.getKeys());
+		assertEquals(50, lazyJWKSet.getParsedKeyCount());
+		lazyJWKSet.validate();
+
+		assertEquals(JSONObjectUtils.toJSONString(jwkSet.toJSONObject(false)), JSONObjectUtils.toJSONString(LazyJWKSet.parse(jwkSet.toString(false)).toJSONObject(false)));
+	}
+
+
+	public void testLoad()
+		throws Exception {
+
+		JWKSet jwkSet = createJWKSet(3);
+
+		File file = File.createTempFile("jwks", ".json");
+		file.deleteOnExit();
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+			writer.write(jwkSet.toString(false));
+		}
+
+		LazyJWKSet lazyJWKSet = LazyJWKSet.load(file);
+		assertEquals(jwkSet.getKeys(), lazyJWKSet.getKeys());
+		assertTrue(lazyJWKSet.getAdditionalMembers().isEmpty());
+
+		lazyJWKSet = LazyJWKSet.load(new ByteArrayInputStream(jwkSet.toString(false).getBytes("UTF-8")));
+		assertEquals(jwkSet.getKeys(), lazyJWKSet.getKeys());
+	}
+
+
+	public void testFormatting()
+		throws Exception {
+
+		String json = "{\n" +
+			"  \"custom\" : { \"nested\" : [ 1, 2.5, true, null, \"s\\\"}\" ] },\n" +
+			"  \"keys\" : [\n" +
+			"    { \"kty\" : \"oct\", \"k\" : \"c2VjcmV0\", \"kid\" : \"\\u0031\", \"x\" : {\"a\":[{}]} },\n" +
+			"    { \"kty\" : \"unknown\", \"kid\" : \"2\" },\n" +
+			"    { \"kid\" : null, \"alg\" : null, \"k\" : \"c2VjcmV0\", \"kty\" : \"oct\" }\n" +
+			"  ],\n" +
+			"  \"number\" : -1.5e3\n" +
+			"}\n";
+
+		LazyJWKSet lazyJWKSet = LazyJWKSet.parse(json);
+
+		assertEquals(2, lazyJWKSet.getKeys().size());
+		assertEquals("1", lazyJWKSet.getKeys().get(0).getKeyID());
+		assertNull(lazyJWKSet.getKeys().get(1).getKeyID());
+		assertEquals(JWKSet.parse(json).getKeys(), lazyJWKSet.getKeys());
+		assertEquals(JWKSet.parse(json).getAdditionalMembers(), lazyJWKSet.getAdditionalMembers());
+	}
+
+
+	public void testEmptyKeys()
+		throws Exception {
+
+		LazyJWKSet lazyJWKSet = LazyJWKSet.parse("{\"keys\":[]}");
+		assertTrue(lazyJWKSet.getKeys().isEmpty());
+
+		lazyJWKSet = LazyJWKSet.parse("{\"keys\":[{\"kty\":\"unknown\"}]}");
+		assertTrue(lazyJWKSet.getKeys().isEmpty());
+	}
+
+
+	public void testInvalidKeyDeferred()
+		throws Exception {
+
+		LazyJWKSet lazyJWKSet = LazyJWKSet.parse("{\"keys\":[{\"kty\":\"RSA\",\"kid\":\"1\"}]}");
+		assertEquals(1, lazyJWKSet.getKeys().size());
+
+		try {
+			lazyJWKSet.getKeys().get(0);
+			fail();
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().startsWith("Invalid JWK at position 0: "));
+		}
+
+		try {
+			lazyJWKSet.validate();
+			fail();
+		} catch (ParseException e) {
+			assertTrue(e.getMessage().startsWith("Invalid JWK at position 0: "));
+		}
+	}
+
+
+	public void testParseExceptions() {
+
+		String[] invalid = {
+			"",
+			"[]",
+			"{}",
+			"{\"keys\":{}}",
+			"{\"keys\":[1]}",
+			"{\"keys\":[{\"kid\":\"1\"}]}",
+			"{\"keys\":[{\"kty\":1}]}",
+			"{\"keys\":[{\"kty\":\"oct\",\"use\":\" \"}]}",
+			"{\"keys\":[{\"kty\":\"oct\"}",
+			"{\"keys\":[{\"kty\":\"oct\" \"k\":\"abc\"}]}",
+			"{\"keys\":[]} x",
+			"{\"keys\":[],\"custom\":[}",
+			"{\"keys\":[{\"kty\":\"oct\",\"k\":\"ab\\x\"}]}",
+		};
+
+		for (String json: invalid) {
+			try {
+				LazyJWKSet.parse(json);
+				fail(json);
+			} catch (ParseException e) {
+				assertNotNull(e.getMessage());
+			}
+		}
+	}
+
+
+	public void testSerialization()
+		throws Exception {
+
+		LazyJWKSet lazyJWKSet = LazyJWKSet.parse(createJWKSet(20).toString(false));
+		lazyJWKSet.getKeyByKeyId("rsa");
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+			out.writeObject(lazyJWKSet);
+		}
+
+		LazyJWKSet copy;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+			copy = (LazyJWKSet) in.readObject();
+		}
+
+		assertEquals(0, copy.getParsedKeyCount());
+		assertEquals(lazyJWKSet.getKeyByKeyId("ec"), copy.getKeyByKeyId("ec"));
+		assertEquals(lazyJWKSet.getKeys(), copy.getKeys());
+	}
+}
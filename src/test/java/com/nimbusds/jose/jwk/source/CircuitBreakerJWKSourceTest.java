@@ -0,0 +1,305 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk.source;
+
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.RemoteKeySourceException;
+import com.nimbusds.jose.jwk.*;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.JSONObjectUtils;
+import com.nimbusds.jose.util.Resource;
+import com.nimbusds.jose.util.ResourceRetriever;
+
+
+public class CircuitBreakerJWKSourceTest {
+	
+	
+	private static final JWKSelector SELECTOR = new JWKSelector(new JWKMatcher.Builder().keyID("1").build());
+	
+	
+	private static class StubJWKSource implements JWKSource<SecurityContext> {
+		
+		final JWKSet jwkSet;
+		
+		final AtomicBoolean fail = new AtomicBoolean();
+		
+		final AtomicInteger calls = new AtomicInteger();
+		
+		
+		StubJWKSource(final JWKSet jwkSet) {
+			this.jwkSet = jwkSet;
+		}
+		
+		
+		@Override
+		public List<JWK> get(JWKSelector jwkSelector, SecurityContext context)
+			throws KeySourceException {
+			
+			calls.incrementAndGet();
+			if (fail.get()) {
+				throw new RemoteKeySourceException("Couldn't retrieve remote JWK set: Read timed out", null);
+			}
+			return jwkSelector.select(jwkSet);
+		}
+	}
+	
+	
+	private static JWKSet createJWKSet()
+		throws Exception {
+		
+		return new JWKSet(new RSAKeyGenerator(2048).keyID("1").generate().toPublicJWK());
+	}
+	
+	
+	@Test
+	public void testDefaultConstructor()
+		throws Exception {
+		
+		StubJWKSource stub = new StubJWKSource(createJWKSet());
+		CircuitBreakerJWKSource<SecurityContext> source = new CircuitBreakerJWKSource<>(stub);
+		
+		assertEquals(stub, source.getJWKSource());
+		assertNull(source.getFailoverJWKSource());
+		assertEquals(CircuitBreakerJWKSource.DEFAULT_FAILURE_THRESHOLD, source.getFailureThreshold());
+		assertEquals(CircuitBreakerJWKSource.DEFAULT_COOL_DOWN_TIME, source.getCoolDownTime(TimeUnit.MILLISECONDS));
+		assertEquals(CircuitBreakerJWKSource.State.CLOSED, source.getState());
+		assertEquals(0, source.getConsecutiveFailures());
+	}
+	
+	
+	@Test
+	public void testIllegalArguments()
+		throws Exception {
+		
+		StubJWKSource stub = new StubJWKSource(createJWKSet());
+		
+		try {
+			new CircuitBreakerJWKSource<>(null, 1, 1L, TimeUnit.SECONDS);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The JWK source must not be null", e.getMessage());
+		}
+		
+		try {
+			new CircuitBreakerJWKSource<>(stub, 0, 1L, TimeUnit.SECONDS);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The failure threshold must be positive", e.getMessage());
+		}
+		
+		try {
+			new CircuitBreakerJWKSource<>(stub, 1, -1L, TimeUnit.SECONDS);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The cool-down time must not be negative", e.getMessage());
+		}
+	}
+	
+	
+	@Test
+	public void testOpenHalfOpenClose()
+		throws Exception {
+		
+		StubJWKSource stub = new StubJWKSource(createJWKSet());
+		CircuitBreakerJWKSource<SecurityContext> source = new CircuitBreakerJWKSource<>(stub, 2, 200L, TimeUnit.MILLISECONDS);
+		
+		assertEquals(1, source.get(SELECTOR, null).size());
+		
+		stub.fail.set(true);
+		
+		for (int i=1; i <= 2; i++) {
+			try {
+				source.get(SELECTOR, null);
+				fail();
+			} catch (RemoteKeySourceException e) {
+				assertEquals("Couldn't retrieve remote JWK set: Read timed out", e.getMessage());
+			}
+			assertEquals(i, source.getConsecutiveFailures());
+		}
+		
+		assertEquals(CircuitBreakerJWKSource.State.OPEN, source.getState());
+		assertEquals(3, stub.calls.get());
+		
+		// Fails fast
+		try {
+			source.get(SELECTOR, null);
+			fail();
+		} catch (RemoteKeySourceException e) {
+			assertEquals("JWK source circuit breaker is open", e.getMessage());
+		}
+		assertEquals(3, stub.calls.get());
+		
+		// Trial request fails, open again
+		Thread.sleep(250L);
+		try {
+			source.get(SELECTOR, null);
+			fail();
+		} catch (RemoteKeySourceException e) {
+			assertEquals("Couldn't retrieve remote JWK set: Read timed out", e.getMessage());
+		}
+		assertEquals(4, stub.calls.get());
+		assertEquals(CircuitBreakerJWKSource.State.OPEN, source.getState());
+		
+		try {
+			source.get(SELECTOR, null);
+			fail();
+		} catch (RemoteKeySourceException e) {
+			assertEquals("JWK source circuit breaker is open", e.getMessage());
+		}
+		assertEquals(4, stub.calls.get());
+		
+		// Trial request succeeds, closed
+		Thread.sleep(250L);
+		stub.fail.set(false);
+		assertEquals(1, source.get(SELECTOR, null).size());
+		assertEquals(5, stub.calls.get());
+		assertEquals(CircuitBreakerJWKSource.State.CLOSED, source.getState());
+		assertEquals(0, source.getConsecutiveFailures());
+	}
+	
+	
+	@Test
+	public void testSuccessResetsFailureCount()
+		throws Exception {
+		
+		StubJWKSource stub = new StubJWKSource(createJWKSet());
+		CircuitBreakerJWKSource<SecurityContext> source = new CircuitBreakerJWKSource<>(stub, 2, 1L, TimeUnit.MINUTES);
+		
+		stub.fail.set(true);
+		try {
+			source.get(SELECTOR, null);
+			fail();
+		} catch (KeySourceException e) {
+			assertEquals(1, source.getConsecutiveFailures());
+		}
+		
+		stub.fail.set(false);
+		assertEquals(1, source.get(SELECTOR, null).size());
+		assertEquals(0, source.getConsecutiveFailures());
+		
+		stub.fail.set(true);
+		try {
+			source.get(SELECTOR, null);
+			fail();
+		} catch (KeySourceException e) {
+			assertEquals(1, source.getConsecutiveFailures());
+		}
+		assertEquals(CircuitBreakerJWKSource.State.CLOSED, source.getState());
+	}
+	
+	
+	@Test
+	public void testFailover()
+		throws Exception {
+		
+		StubJWKSource stub = new StubJWKSource(createJWKSet());
+		JWKSet failoverJWKSet = createJWKSet();
+		CircuitBreakerJWKSource<SecurityContext> source = new CircuitBreakerJWKSource<>(
+			stub, new ImmutableJWKSet<SecurityContext>(failoverJWKSet), 1, 1L, TimeUnit.MINUTES);
+		
+		assertNotNull(source.getFailoverJWKSource());
+		
+		stub.fail.set(true);
+		
+		// Failure, opens
+		assertEquals(failoverJWKSet.getKeys(), source.get(SELECTOR, null));
+		assertEquals(CircuitBreakerJWKSource.State.OPEN, source.getState());
+		
+		// Open, fails fast to failover
+		assertEquals(failoverJWKSet.getKeys(), source.get(SELECTOR, null));
+		assertEquals(1, stub.calls.get());
+	}
+	
+	
+	@Test
+	public void testRemoteJWKSet_serveCachedJWKSetWhenOpen()
+		throws Exception {
+		
+		final JWKSet jwkSet = createJWKSet();
+		final AtomicInteger retrievals = new AtomicInteger();
+		final AtomicBoolean fail = new AtomicBoolean();
+		
+		RemoteJWKSet<SecurityContext> remoteJWKSet = new RemoteJWKSet.Builder<>(new URL("http://localhost/jwks.json"))
+			.resourceRetriever(new ResourceRetriever() {
+				@Override
+				public Resource retrieveResource(URL url)
+					throws IOException {
+					retrievals.incrementAndGet();
+					if (fail.get()) {
+						throw new IOException("Read timed out");
+					}
+					return new Resource(JSONObjectUtils.toJSONString(jwkSet.toJSONObject()), "application/json");
+				}
+			})
+			.retryBackoff(0L, 0L, TimeUnit.MILLISECONDS)
+			.build();
+		
+		CircuitBreakerJWKSource<SecurityContext> source = new CircuitBreakerJWKSource<>(remoteJWKSet, 1, 1L, TimeUnit.MINUTES);
+		
+		assertEquals(1, source.get(SELECTOR, null).size());
+		assertEquals(1, retrievals.get());
+		
+		// Unknown kid triggers failed re-fetch, opens
+		fail.set(true);
+		JWKSelector unknown = new JWKSelector(new JWKMatcher.Builder().keyID("2").build());
+		try {
+			source.get(unknown, null);
+			fail();
+		} catch (RemoteKeySourceException e) {
+			assertTrue(e.getMessage().startsWith("Couldn't retrieve remote JWK set"));
+		}
+		assertEquals(2, retrievals.get());
+		assertEquals(CircuitBreakerJWKSource.State.OPEN, source.getState());
+		
+		// Open, served from the cache without re-fetch
+		assertEquals(1, source.get(SELECTOR, null).size());
+		assertTrue(source.get(unknown, null).isEmpty());
+		assertEquals(2, retrievals.get());
+	}
+	
+	
+	@Test
+	public void testClose()
+		throws Exception {
+		
+		final AtomicBoolean closed = new AtomicBoolean();
+		
+		RemoteJWKSet<SecurityContext> remoteJWKSet = new RemoteJWKSet<SecurityContext>(new URL("http://localhost/jwks.json")) {
+			@Override
+			public void close() {
+				closed.set(true);
+			}
+		};
+		
+		new CircuitBreakerJWKSource<>(remoteJWKSet).close();
+		assertTrue(closed.get());
+	}
+}
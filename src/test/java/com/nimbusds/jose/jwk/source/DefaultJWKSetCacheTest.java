@@ -18,7 +18,10 @@
 package com.nimbusds.jose.jwk.source;
 
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import junit.framework.TestCase;
@@ -205,4 +208,183 @@ public class DefaultJWKSetCacheTest extends TestCase {
 		first.join();
 		second.join();
 	}
+	
+	
+	public void testPutWithMaxAge() {
+		
+		DefaultJWKSetCache cache = new DefaultJWKSetCache(1L, 0L, TimeUnit.MILLISECONDS);
+		
+		JWKSet jwkSet = new JWKSet();
+		
+		cache.put(jwkSet, 1L, TimeUnit.HOURS);
+		assertEquals(1L, cache.getMaxAge(TimeUnit.HOURS));
+		
+		// Refresh time and lifespan overridden by the longer max-age
+		long deadline = System.currentTimeMillis() + 10L;
+		while (System.currentTimeMillis() <= deadline) {
+			Thread.yield();
+		}
+		assertFalse(cache.requiresRefresh());
+		assertFalse(cache.isExpired());
+		assertEquals(jwkSet, cache.get());
+		
+		// Configured refresh time and lifespan apply again
+		cache.put(jwkSet);
+		assertEquals(-1L, cache.getMaxAge(TimeUnit.HOURS));
+		deadline = System.currentTimeMillis() + 10L;
+		while (System.currentTimeMillis() <= deadline) {
+			Thread.yield();
+		}
+		assertTrue(cache.requiresRefresh());
+		assertTrue(cache.isExpired());
+		assertNull(cache.get());
+	}
+	
+	
+	public void testPutWithMaxAge_shorterThanLifespan() {
+		
+		DefaultJWKSetCache cache = new DefaultJWKSetCache(1L, 1L, TimeUnit.HOURS);
+		
+		cache.put(new JWKSet(), 1L, TimeUnit.MILLISECONDS);
+		
+		long deadline = System.currentTimeMillis() + 10L;
+		while (System.currentTimeMillis() <= deadline) {
+			Thread.yield();
+		}
+		assertTrue(cache.requiresRefresh());
+		assertFalse(cache.isExpired());
+	}
+	
+	
+	public void testPutWithMaxAge_notSpecified() {
+		
+		DefaultJWKSetCache cache = new DefaultJWKSetCache();
+		
+		cache.put(new JWKSet(), 0L, TimeUnit.SECONDS);
+		assertEquals(-1L, cache.getMaxAge(TimeUnit.SECONDS));
+		
+		cache.put(new JWKSet(), -1L, TimeUnit.SECONDS);
+		assertEquals(-1L, cache.getMaxAge(TimeUnit.SECONDS));
+		
+		assertFalse(cache.requiresRefresh());
+	}
+	
+	
+	public void testStaleIfError() throws InterruptedException {
+		
+		DefaultJWKSetCache cache = new DefaultJWKSetCache(1L, 0L, 1L, TimeUnit.HOURS);
+		assertEquals(1L, cache.getStaleIfErrorTime(TimeUnit.HOURS));
+		
+		assertNull(cache.getStale());
+		
+		JWKSet jwkSet = new JWKSet();
+		cache.put(jwkSet);
+		assertEquals(jwkSet, cache.get());
+		assertEquals(jwkSet, cache.getStale());
+		assertEquals(1L, cache.getHitCount());
+		assertEquals(0L, cache.getStaleCount());
+		
+		// Expired, within stale-if-error time
+		cache = new DefaultJWKSetCache(1L, 0L, 1L, TimeUnit.SECONDS);
+		cache.put(jwkSet);
+		Thread.sleep(1100L);
+		assertTrue(cache.isExpired());
+		assertNull(cache.get());
+		assertEquals(jwkSet, cache.getStale());
+		assertEquals(0L, cache.getHitCount());
+		assertEquals(1L, cache.getStaleCount());
+		
+		// Beyond stale-if-error time
+		Thread.sleep(1000L);
+		assertNull(cache.getStale());
+		assertEquals(1L, cache.getStaleCount());
+	}
+	
+	
+	public void testEventListener() throws InterruptedException {
+		
+		final List<String> events = new ArrayList<>();
+		
+		JWKSourceEventListener listener = new NoOpJWKSourceEventListener() {
+			@Override
+			public void cacheHit() {
+				events.add("hit");
+			}
+			
+			
+			@Override
+			public void cacheMiss() {
+				events.add("miss");
+			}
+			
+			
+			@Override
+			public void staleJWKSetServed() {
+				events.add("stale");
+			}
+		};
+		
+		DefaultJWKSetCache cache = new DefaultJWKSetCache(1L, 0L, 1L, TimeUnit.SECONDS, listener);
+		assertEquals(listener, cache.getEventListener());
+		
+		assertNull(cache.get());
+		
+		JWKSet jwkSet = new JWKSet();
+		cache.put(jwkSet);
+		assertEquals(jwkSet, cache.get());
+		assertEquals(jwkSet, cache.getStale());
+		
+		// Not counted
+		assertEquals(jwkSet, cache.peek());
+		
+		Thread.sleep(1100L);
+		assertNull(cache.peek());
+		assertNull(cache.get());
+		assertEquals(jwkSet, cache.getStale());
+		
+		assertEquals(Arrays.asList("miss", "hit", "miss", "stale"), events);
+		assertEquals(1L, cache.getHitCount());
+		assertEquals(1L, cache.getStaleCount());
+	}
+	
+	
+	public void testNoOpEventListenerDefault() {
+		
+		assertTrue(new DefaultJWKSetCache().getEventListener() instanceof NoOpJWKSourceEventListener);
+		assertTrue(new DefaultJWKSetCache(1L, 0L, 1L, TimeUnit.SECONDS, null).getEventListener() instanceof NoOpJWKSourceEventListener);
+	}
+	
+	
+	public void testStaleIfErrorNotSpecified() throws InterruptedException {
+		
+		DefaultJWKSetCache cache = new DefaultJWKSetCache(1L, 0L, TimeUnit.MILLISECONDS);
+		assertEquals(-1L, cache.getStaleIfErrorTime(TimeUnit.SECONDS));
+		
+		cache.put(new JWKSet());
+		Thread.sleep(5L);
+		assertNull(cache.get());
+		assertNull(cache.getStale());
+		assertEquals(0L, cache.getStaleCount());
+	}
+	
+	
+	public void testErrorCount() {
+		
+		DefaultJWKSetCache cache = new DefaultJWKSetCache();
+		assertEquals(0L, cache.getErrorCount());
+		cache.recordError();
+		cache.recordError();
+		assertEquals(2L, cache.getErrorCount());
+	}
+	
+	
+	public void testStaleIfErrorRequiresTimeUnit() {
+		
+		try {
+			new DefaultJWKSetCache(-1L, -1L, 1L, null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("A time unit must be specified for non-negative lifespans or refresh times", e.getMessage());
+		}
+	}
 }
@@ -0,0 +1,352 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk.source;
+
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.nimbusds.jose.jwk.*;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.*;
+
+
+public class FileJWKSetCacheTest {
+	
+	
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+	
+	
+	private static JWKSet createJWKSet()
+		throws Exception {
+		
+		return new JWKSet(new RSAKeyGenerator(2048).keyID("1").generate());
+	}
+	
+	
+	private static void putAndFlush(final FileJWKSetCache cache, final JWKSet jwkSet) {
+		
+		cache.put(jwkSet);
+		cache.flush();
+	}
+	
+	
+	private static void writeFile(final File file, final String content)
+		throws IOException {
+		
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(content.getBytes(StandardCharset.UTF_8));
+		}
+	}
+	
+	
+	@Test
+	public void testDefaults() {
+		
+		File file = new File(tmpFolder.getRoot(), "jwks.json");
+		
+		FileJWKSetCache cache = new FileJWKSetCache(file);
+		
+		assertEquals(file, cache.getFile());
+		assertEquals(DefaultJWKSetCache.DEFAULT_LIFESPAN_MINUTES, cache.getLifespan(TimeUnit.MINUTES));
+		assertEquals(DefaultJWKSetCache.DEFAULT_REFRESH_TIME_MINUTES, cache.getRefreshTime(TimeUnit.MINUTES));
+		assertEquals(FileJWKSetCache.DEFAULT_MAX_SNAPSHOT_AGE_HOURS, cache.getMaxSnapshotAge(TimeUnit.HOURS));
+		
+		assertNull(cache.get());
+		assertFalse(cache.requiresRefresh());
+		assertEquals(-1L, cache.getSnapshotTimestamp());
+		assertFalse(file.exists());
+	}
+	
+	
+	@Test
+	public void testRejectNullFile() {
+		
+		try {
+			new FileJWKSetCache(null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The snapshot file must not be null", e.getMessage());
+		}
+	}
+	
+	
+	@Test
+	public void testWriteAndLoadSnapshot()
+		throws Exception {
+		
+		File file = new File(tmpFolder.getRoot(), "jwks.json");
+		
+		JWKSet jwkSet = createJWKSet();
+		
+		FileJWKSetCache cache = new FileJWKSetCache(file);
+		cache.put(jwkSet);
+		assertSame(jwkSet, cache.get());
+		cache.flush();
+		assertTrue(file.isFile());
+		
+		// Public keys only, no leftover temporary files
+		Map<String, Object> jsonObject = JSONObjectUtils.parse(IOUtils.readFileToString(file, StandardCharset.UTF_8));
+		assertEquals(cache.getPutTimestamp(), JSONObjectUtils.getLong(jsonObject, "timestamp"));
+		JWKSet persisted = JWKSet.parse(JSONObjectUtils.getJSONObject(jsonObject, "jwk_set"));
+		assertFalse(persisted.getKeyByKeyId("1").isPrivate());
+		assertEquals(1, tmpFolder.getRoot().listFiles().length);
+		
+		// Warm start
+		FileJWKSetCache restarted = new FileJWKSetCache(file);
+		assertEquals(cache.getPutTimestamp(), restarted.getSnapshotTimestamp());
+		assertEquals(-1L, restarted.getPutTimestamp());
+		assertEquals(jwkSet.getKeyByKeyId("1").toPublicJWK(), restarted.get().getKeyByKeyId("1"));
+		assertTrue(restarted.requiresRefresh());
+		
+		// Fresh JWK set replaces the snapshot
+		JWKSet freshJWKSet = createJWKSet();
+		restarted.put(freshJWKSet);
+		assertEquals(-1L, restarted.getSnapshotTimestamp());
+		assertSame(freshJWKSet, restarted.get());
+		assertFalse(restarted.requiresRefresh());
+		
+		// Clear
+		restarted.put(null);
+		assertNull(restarted.get());
+		assertFalse(restarted.requiresRefresh());
+	}
+	
+	
+	@Test
+	public void testSnapshotExceedsMaxAge()
+		throws Exception {
+		
+		File file = new File(tmpFolder.getRoot(), "jwks.json");
+		
+		putAndFlush(new FileJWKSetCache(file), createJWKSet());
+		Thread.sleep(5L);
+		
+		FileJWKSetCache cache = new FileJWKSetCache(file, 15L, 5L, 1L, TimeUnit.MILLISECONDS);
+		assertEquals(-1L, cache.getSnapshotTimestamp());
+		assertNull(cache.get());
+		assertFalse(cache.requiresRefresh());
+		
+		// No max age
+		cache = new FileJWKSetCache(file, 15L, 5L, -1L, TimeUnit.MILLISECONDS);
+		assertEquals(-1L, cache.getMaxSnapshotAge(TimeUnit.MILLISECONDS));
+		assertNotNull(cache.get());
+		assertTrue(cache.requiresRefresh());
+	}
+	
+	
+	@Test
+	public void testIgnoreCorruptedSnapshot()
+		throws Exception {
+		
+		File file = new File(tmpFolder.getRoot(), "jwks.json");
+		
+		writeFile(file, "{\"timestamp\":");
+		assertNull(new FileJWKSetCache(file).get());
+		
+		writeFile(file, "{\"jwk_set\":{\"keys\":[]}}");
+		assertNull(new FileJWKSetCache(file).get());
+		
+		writeFile(file, "{\"timestamp\":" + System.currentTimeMillis() + "}");
+		assertNull(new FileJWKSetCache(file).get());
+	}
+	
+	
+	@Test
+	public void testIgnoreWriteFailure()
+		throws Exception {
+		
+		File file = new File(new File(tmpFolder.getRoot(), "no-such-dir"), "jwks.json");
+		
+		FileJWKSetCache cache = new FileJWKSetCache(file);
+		
+		JWKSet jwkSet = createJWKSet();
+		cache.put(jwkSet);
+		assertSame(jwkSet, cache.get());
+		cache.flush();
+		assertFalse(file.exists());
+	}
+	
+	
+	@Test
+	public void testRemoteJWKSet_serveSnapshotOnRetrievalFailure()
+		throws Exception {
+		
+		File file = new File(tmpFolder.getRoot(), "jwks.json");
+		
+		putAndFlush(new FileJWKSetCache(file), createJWKSet());
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(new URL("http://localhost/jwks.json"))
+			.resourceRetriever(new ResourceRetriever() {
+				@Override
+				public Resource retrieveResource(URL url) throws IOException {
+					throw new IOException("Unreachable");
+				}
+			})
+			.jwkSetCache(new FileJWKSetCache(file))
+			.build();
+		
+		List<JWK> matches = jwkSetSource.get(new JWKSelector(new JWKMatcher.Builder().keyID("1").build()), null);
+		assertEquals(1, matches.size());
+		assertEquals("1", matches.get(0).getKeyID());
+	}
+	
+	
+	@Test
+	public void testRemoteJWKSet_refreshSnapshot()
+		throws Exception {
+		
+		File file = new File(tmpFolder.getRoot(), "jwks.json");
+		
+		putAndFlush(new FileJWKSetCache(file), createJWKSet());
+		
+		final JWKSet jwkSet = new JWKSet(Collections.singletonList((JWK) new RSAKeyGenerator(2048).keyID("2").generate()));
+		
+		FileJWKSetCache cache = new FileJWKSetCache(file);
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(new URL("http://localhost/jwks.json"))
+			.resourceRetriever(new ResourceRetriever() {
+				@Override
+				public Resource retrieveResource(URL url) {
+					return new Resource(JSONObjectUtils.toJSONString(jwkSet.toJSONObject(true)), "application/json");
+				}
+			})
+			.jwkSetCache(cache)
+			.build();
+		
+		assertEquals(1, jwkSetSource.get(new JWKSelector(new JWKMatcher.Builder().keyID("2").build()), null).size());
+		assertEquals(-1L, cache.getSnapshotTimestamp());
+		
+		// Snapshot updated
+		cache.flush();
+		assertNotNull(new FileJWKSetCache(file).get().getKeyByKeyId("2"));
+	}
+	
+	
+	@Test
+	public void testWriteAsync_skipUnchanged()
+		throws Exception {
+		
+		File file = new File(tmpFolder.getRoot(), "jwks.json");
+		
+		final List<Runnable> tasks = new ArrayList<>();
+		Executor executor = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		};
+		
+		FileJWKSetCache cache = new FileJWKSetCache(file, 15L, 5L, 24L, TimeUnit.HOURS, executor);
+		
+		JWKSet jwkSet = createJWKSet();
+		cache.put(jwkSet);
+		assertSame(jwkSet, cache.get());
+		
+		// Not written in the calling thread
+		assertFalse(file.exists());
+		assertEquals(1, tasks.size());
+		
+		// Pending writes are coalesced
+		JWKSet updatedJWKSet = createJWKSet();
+		cache.put(updatedJWKSet);
+		assertEquals(1, tasks.size());
+		
+		tasks.get(0).run();
+		assertEquals("timestamp", cache.getPutTimestamp(), JSONObjectUtils.getLong(JSONObjectUtils.parse(IOUtils.readFileToString(file, StandardCharset.UTF_8)), "timestamp"));
+		assertEquals(updatedJWKSet.getKeyByKeyId("1").toPublicJWK(), new FileJWKSetCache(file).get().getKeyByKeyId("1"));
+		
+		// Same instance put again, e.g. on HTTP 304, not written
+		Thread.sleep(5L);
+		cache.put(updatedJWKSet);
+		cache.put(updatedJWKSet);
+		assertEquals(1, tasks.size());
+		
+		// Changed
+		cache.put(jwkSet);
+		assertEquals(2, tasks.size());
+		tasks.get(1).run();
+		assertEquals(jwkSet.getKeyByKeyId("1").toPublicJWK(), new FileJWKSetCache(file).get().getKeyByKeyId("1"));
+	}
+	
+	
+	@Test
+	public void testRewriteUnchangedAfterHalfMaxSnapshotAge()
+		throws Exception {
+		
+		File file = new File(tmpFolder.getRoot(), "jwks.json");
+		
+		final List<Runnable> tasks = new ArrayList<>();
+		Executor executor = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		};
+		
+		FileJWKSetCache cache = new FileJWKSetCache(file, 1L, 1L, 20L, TimeUnit.MILLISECONDS, executor);
+		
+		JWKSet jwkSet = createJWKSet();
+		cache.put(jwkSet);
+		assertEquals(1, tasks.size());
+		tasks.get(0).run();
+		
+		Thread.sleep(15L);
+		
+		// Timestamp of the snapshot renewed
+		cache.put(jwkSet);
+		assertEquals(2, tasks.size());
+		tasks.get(1).run();
+		assertEquals(cache.getPutTimestamp(), JSONObjectUtils.getLong(JSONObjectUtils.parse(IOUtils.readFileToString(file, StandardCharset.UTF_8)), "timestamp"));
+	}
+	
+	
+	@Test
+	public void testWriteInDefaultExecutor()
+		throws Exception {
+		
+		File file = new File(tmpFolder.getRoot(), "jwks.json");
+		
+		FileJWKSetCache cache = new FileJWKSetCache(file);
+		cache.put(createJWKSet());
+		
+		long deadline = System.currentTimeMillis() + 10000L;
+		while (! file.exists() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10L);
+		}
+		cache.flush();
+		assertEquals(cache.getPutTimestamp(), new FileJWKSetCache(file).getSnapshotTimestamp());
+	}
+}
@@ -0,0 +1,373 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk.source;
+
+
+import java.io.Closeable;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.RemoteKeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.proc.SecurityContext;
+
+
+public class IssuerJWKSourceRegistryTest {
+
+
+	private static class CloseableJWKSource implements JWKSource<SecurityContext>, Closeable {
+
+
+		final URL jwkSetURL;
+
+
+		boolean closed = false;
+
+
+		CloseableJWKSource(final URL jwkSetURL) {
+			this.jwkSetURL = jwkSetURL;
+		}
+
+
+		@Override
+		public List<JWK> get(final JWKSelector jwkSelector, final SecurityContext context) {
+			return Collections.emptyList();
+		}
+
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+
+
+	private static class CountingResolver implements JWKSetURLResolver {
+
+
+		final AtomicInteger count = new AtomicInteger();
+
+
+		@Override
+		public URL resolveJWKSetURL(final String issuer)
+			throws KeySourceException {
+
+			count.incrementAndGet();
+
+			if (issuer.contains("fail")) {
+				throw new RemoteKeySourceException("Resolution failed", null);
+			}
+
+			if (! issuer.startsWith("https://")) {
+				return null;
+			}
+
+			try {
+				return new URL(issuer + "/jwks.json");
+			} catch (Exception e) {
+				throw new KeySourceException(e.getMessage(), e);
+			}
+		}
+	}
+
+
+	private static final IssuerJWKSourceRegistry.JWKSourceFactory<SecurityContext> FACTORY =
+		new IssuerJWKSourceRegistry.JWKSourceFactory<SecurityContext>() {
+			@Override
+			public JWKSource<SecurityContext> createJWKSource(final String issuer, final URL jwkSetURL) {
+				return new CloseableJWKSource(jwkSetURL);
+			}
+		};
+
+
+	@Test
+	public void testDefaults()
+		throws Exception {
+
+		Map<String, URL> urls = new HashMap<>();
+		urls.put("https://c2id.com", new URL("https://c2id.com/jwks.json"));
+
+		StaticJWKSetURLResolver resolver = new StaticJWKSetURLResolver(urls);
+
+		IssuerJWKSourceRegistry<SecurityContext> registry = new IssuerJWKSourceRegistry<>(resolver);
+
+		assertEquals(resolver, registry.getJWKSetURLResolver());
+		assertEquals(IssuerJWKSourceRegistry.DEFAULT_MAX_ISSUERS, registry.getMaxIssuers());
+		assertEquals(0L, registry.getIdleTime(TimeUnit.MILLISECONDS));
+		assertEquals(0, registry.size());
+
+		JWKSource<SecurityContext> jwkSource = registry.getJWKSource("https://c2id.com");
+		assertTrue(jwkSource instanceof RemoteJWKSet);
+		assertEquals("https://c2id.com/jwks.json", ((RemoteJWKSet<SecurityContext>) jwkSource).getJWKSetURL().toString());
+		assertSame(jwkSource, registry.getJWKSource("https://c2id.com"));
+		assertEquals(1, registry.size());
+
+		assertNull(registry.getJWKSource("https://other.com"));
+		assertEquals(1, registry.size());
+
+		registry.close();
+		assertEquals(0, registry.size());
+	}
+
+
+	@Test
+	public void testConstructorArgs() {
+
+		try {
+			new IssuerJWKSourceRegistry<>(null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The JWK set URL resolver must not be null", e.getMessage());
+		}
+
+		try {
+			new IssuerJWKSourceRegistry<>(new CountingResolver(), FACTORY, 0, 0L, TimeUnit.SECONDS);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The maximum number of issuers must be positive", e.getMessage());
+		}
+
+		try {
+			new IssuerJWKSourceRegistry<>(new CountingResolver(), FACTORY, 10, -1L, TimeUnit.SECONDS);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The idle time must not be negative", e.getMessage());
+		}
+	}
+
+
+	@Test
+	public void testNotAcceptedIssuerNotCached()
+		throws Exception {
+
+		CountingResolver resolver = new CountingResolver();
+		IssuerJWKSourceRegistry<SecurityContext> registry = new IssuerJWKSourceRegistry<>(resolver, FACTORY, 10, 0L, TimeUnit.SECONDS);
+
+		assertNull(registry.getJWKSource("http://insecure.com"));
+		assertNull(registry.getJWKSource("http://insecure.com"));
+		assertEquals(2, resolver.count.get());
+		assertEquals(0, registry.size());
+	}
+
+
+	@Test
+	public void testFailedResolutionRetried()
+		throws Exception {
+
+		CountingResolver resolver = new CountingResolver();
+		IssuerJWKSourceRegistry<SecurityContext> registry = new IssuerJWKSourceRegistry<>(resolver, FACTORY, 10, 0L, TimeUnit.SECONDS);
+
+		for (int i=1; i <= 2; i++) {
+			try {
+				registry.getJWKSource("https://fail.com");
+				fail();
+			} catch (RemoteKeySourceException e) {
+				assertEquals("Resolution failed", e.getMessage());
+			}
+			assertEquals(i, resolver.count.get());
+			assertEquals(0, registry.size());
+		}
+	}
+
+
+	@Test
+	public void testSingleFlight()
+		throws Exception {
+
+		final CountDownLatch resolving = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger count = new AtomicInteger();
+
+		JWKSetURLResolver slowResolver = new JWKSetURLResolver() {
+			@Override
+			public URL resolveJWKSetURL(final String issuer)
+				throws KeySourceException {
+				count.incrementAndGet();
+				resolving.countDown();
+				try {
+					release.await();
+					return new URL(issuer + "/jwks.json");
+				} catch (Exception e) {
+					throw new KeySourceException(e.getMessage(), e);
+				}
+			}
+		};
+
+		final IssuerJWKSourceRegistry<SecurityContext> registry = new IssuerJWKSourceRegistry<>(slowResolver, FACTORY, 10, 0L, TimeUnit.SECONDS);
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<JWKSource<SecurityContext>>> futures = new ArrayList<>();
+			for (int i=0; i < 8; i++) {
+				futures.add(executor.submit(new Callable<JWKSource<SecurityContext>>() {
+					@Override
+					public JWKSource<SecurityContext> call() throws Exception {
+						return registry.getJWKSource("https://c2id.com");
+					}
+				}));
+			}
+
+			assertTrue(resolving.await(5, TimeUnit.SECONDS));
+			Thread.sleep(100);
+			release.countDown();
+
+			JWKSource<SecurityContext> first = futures.get(0).get(5, TimeUnit.SECONDS);
+			assertNotNull(first);
+			for (Future<JWKSource<SecurityContext>> f: futures) {
+				assertSame(first, f.get(5, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(1, count.get());
+		assertEquals(1, registry.size());
+	}
+
+
+	@Test
+	public void testLeastRecentlyUsedEviction()
+		throws Exception {
+
+		CountingResolver resolver = new CountingResolver();
+		IssuerJWKSourceRegistry<SecurityContext> registry = new IssuerJWKSourceRegistry<>(resolver, FACTORY, 2, 0L, TimeUnit.SECONDS);
+
+		CloseableJWKSource a = (CloseableJWKSource) registry.getJWKSource("https://a.com");
+		Thread.sleep(5);
+		CloseableJWKSource b = (CloseableJWKSource) registry.getJWKSource("https://b.com");
+		Thread.sleep(5);
+		assertSame(a, registry.getJWKSource("https://a.com"));
+		Thread.sleep(5);
+
+		CloseableJWKSource c = (CloseableJWKSource) registry.getJWKSource("https://c.com");
+		assertEquals(2, registry.size());
+
+		assertTrue(b.closed);
+		assertFalse(a.closed);
+		assertFalse(c.closed);
+
+		assertSame(a, registry.getJWKSource("https://a.com"));
+		assertSame(c, registry.getJWKSource("https://c.com"));
+		assertEquals(3, resolver.count.get());
+
+		registry.close();
+		assertTrue(a.closed);
+		assertTrue(c.closed);
+	}
+
+
+	@Test
+	public void testUnacceptedIssuersDontEvict()
+		throws Exception {
+
+		CountingResolver resolver = new CountingResolver();
+		IssuerJWKSourceRegistry<SecurityContext> registry = new IssuerJWKSourceRegistry<>(resolver, FACTORY, 2, 0L, TimeUnit.SECONDS);
+
+		CloseableJWKSource a = (CloseableJWKSource) registry.getJWKSource("https://a.com");
+		CloseableJWKSource b = (CloseableJWKSource) registry.getJWKSource("https://b.com");
+
+		for (int i=0; i < 10; i++) {
+			assertNull(registry.getJWKSource("http://unknown-" + i + ".com"));
+			try {
+				registry.getJWKSource("https://fail-" + i + ".com");
+				fail();
+			} catch (RemoteKeySourceException e) {
+				assertEquals("Resolution failed", e.getMessage());
+			}
+		}
+
+		assertEquals(2, registry.size());
+		assertFalse(a.closed);
+		assertFalse(b.closed);
+
+		assertSame(a, registry.getJWKSource("https://a.com"));
+		assertSame(b, registry.getJWKSource("https://b.com"));
+		assertEquals(22, resolver.count.get());
+
+		registry.close();
+	}
+
+
+	@Test
+	public void testIdleEviction()
+		throws Exception {
+
+		CountingResolver resolver = new CountingResolver();
+		IssuerJWKSourceRegistry<SecurityContext> registry = new IssuerJWKSourceRegistry<>(resolver, FACTORY, 10, 50L, TimeUnit.MILLISECONDS);
+
+		assertEquals(50L, registry.getIdleTime(TimeUnit.MILLISECONDS));
+
+		CloseableJWKSource a = (CloseableJWKSource) registry.getJWKSource("https://a.com");
+		assertSame(a, registry.getJWKSource("https://a.com"));
+
+		Thread.sleep(100);
+
+		CloseableJWKSource a2 = (CloseableJWKSource) registry.getJWKSource("https://a.com");
+		assertNotSame(a, a2);
+		assertTrue(a.closed);
+		assertFalse(a2.closed);
+		assertEquals(2, resolver.count.get());
+		assertEquals(1, registry.size());
+	}
+
+
+	@Test
+	public void testStaticResolver()
+		throws Exception {
+
+		Map<String, URL> urls = new HashMap<>();
+		urls.put("https://c2id.com", new URL("https://c2id.com/jwks.json"));
+
+		StaticJWKSetURLResolver resolver = new StaticJWKSetURLResolver(urls);
+		assertEquals(urls.keySet(), resolver.getJWKSetURLs().keySet());
+
+		assertEquals("https://c2id.com/jwks.json", resolver.resolveJWKSetURL("https://c2id.com").toString());
+		assertNull(resolver.resolveJWKSetURL("https://other.com"));
+
+		try {
+			resolver.getJWKSetURLs().clear();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// ok
+		}
+
+		try {
+			new StaticJWKSetURLResolver(null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The JWK set URLs must not be null", e.getMessage());
+		}
+	}
+}
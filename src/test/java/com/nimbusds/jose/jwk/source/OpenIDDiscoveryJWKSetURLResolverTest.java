@@ -0,0 +1,189 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk.source;
+
+
+import java.util.Collections;
+import java.util.Map;
+
+import static net.jadler.Jadler.*;
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nimbusds.jose.RemoteKeySourceException;
+import com.nimbusds.jose.util.DefaultResourceRetriever;
+import com.nimbusds.jose.util.JSONObjectUtils;
+
+
+public class OpenIDDiscoveryJWKSetURLResolverTest {
+
+
+	@Before
+	public void setUp() {
+		initJadler();
+	}
+
+
+	@After
+	public void tearDown() {
+		closeJadler();
+	}
+
+
+	private String issuer() {
+		return "http://localhost:" + port();
+	}
+
+
+	private void stubMetadata(final String issuer, final String jwksURI) {
+
+		Map<String, Object> metadata = JSONObjectUtils.newJSONObject();
+		metadata.put("issuer", issuer);
+		if (jwksURI != null) {
+			metadata.put("jwks_uri", jwksURI);
+		}
+
+		onRequest()
+			.havingMethodEqualTo("GET")
+			.havingPathEqualTo(OpenIDDiscoveryJWKSetURLResolver.WELL_KNOWN_PATH)
+			.respond()
+			.withStatus(200)
+			.withHeader("Content-Type", "application/json")
+			.withBody(JSONObjectUtils.toJSONString(metadata));
+	}
+
+
+	@Test
+	public void testMetadataURL()
+		throws Exception {
+
+		assertEquals("https://c2id.com/.well-known/openid-configuration",
+			OpenIDDiscoveryJWKSetURLResolver.getMetadataURL("https://c2id.com").toString());
+		assertEquals("https://c2id.com/.well-known/openid-configuration",
+			OpenIDDiscoveryJWKSetURLResolver.getMetadataURL("https://c2id.com/").toString());
+		assertEquals("https://c2id.com/tenant-1/.well-known/openid-configuration",
+			OpenIDDiscoveryJWKSetURLResolver.getMetadataURL("https://c2id.com/tenant-1").toString());
+	}
+
+
+	@Test
+	public void testResolve()
+		throws Exception {
+
+		stubMetadata(issuer(), issuer() + "/jwks.json");
+
+		OpenIDDiscoveryJWKSetURLResolver resolver = new OpenIDDiscoveryJWKSetURLResolver(
+			Collections.singleton(issuer()), new DefaultResourceRetriever());
+
+		assertEquals(Collections.singleton(issuer()), resolver.getIssuers());
+		assertTrue(resolver.getResourceRetriever() instanceof DefaultResourceRetriever);
+
+		assertEquals(issuer() + "/jwks.json", resolver.resolveJWKSetURL(issuer()).toString());
+	}
+
+
+	@Test
+	public void testIssuerNotAccepted()
+		throws Exception {
+
+		OpenIDDiscoveryJWKSetURLResolver resolver = new OpenIDDiscoveryJWKSetURLResolver(
+			Collections.<String>emptySet(), new DefaultResourceRetriever());
+
+		assertNull(resolver.resolveJWKSetURL(issuer()));
+
+		verifyThatRequest().receivedNever();
+	}
+
+
+	@Test
+	public void testIssuerMismatch()
+		throws Exception {
+
+		stubMetadata("https://evil.com", issuer() + "/jwks.json");
+
+		OpenIDDiscoveryJWKSetURLResolver resolver = new OpenIDDiscoveryJWKSetURLResolver(
+			Collections.singleton(issuer()), new DefaultResourceRetriever());
+
+		try {
+			resolver.resolveJWKSetURL(issuer());
+			fail();
+		} catch (RemoteKeySourceException e) {
+			assertEquals("Invalid OpenID provider metadata for issuer " + issuer() + ": The issuer in the metadata doesn't match " + issuer(), e.getMessage());
+		}
+	}
+
+
+	@Test
+	public void testMissingJWKSetURI()
+		throws Exception {
+
+		stubMetadata(issuer(), null);
+
+		OpenIDDiscoveryJWKSetURLResolver resolver = new OpenIDDiscoveryJWKSetURLResolver(
+			Collections.singleton(issuer()), new DefaultResourceRetriever());
+
+		try {
+			resolver.resolveJWKSetURL(issuer());
+			fail();
+		} catch (RemoteKeySourceException e) {
+			assertEquals("Invalid OpenID provider metadata for issuer " + issuer() + ": Missing jwks_uri", e.getMessage());
+		}
+	}
+
+
+	@Test
+	public void testRetrievalError()
+		throws Exception {
+
+		onRequest()
+			.respond()
+			.withStatus(404);
+
+		OpenIDDiscoveryJWKSetURLResolver resolver = new OpenIDDiscoveryJWKSetURLResolver(
+			Collections.singleton(issuer()), new DefaultResourceRetriever());
+
+		try {
+			resolver.resolveJWKSetURL(issuer());
+			fail();
+		} catch (RemoteKeySourceException e) {
+			assertTrue(e.getMessage().startsWith("Couldn't retrieve OpenID provider metadata for issuer " + issuer() + ": "));
+		}
+	}
+
+
+	@Test
+	public void testConstructorArgs() {
+
+		try {
+			new OpenIDDiscoveryJWKSetURLResolver(null, new DefaultResourceRetriever());
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The issuers must not be null", e.getMessage());
+		}
+
+		try {
+			new OpenIDDiscoveryJWKSetURLResolver(Collections.<String>emptySet(), null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The resource retriever must not be null", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd and contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.jwk.source;
+
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+
+public class RateLimiterTest extends TestCase {
+
+
+	public void testLimit()
+		throws InterruptedException {
+
+		RateLimiter rateLimiter = new RateLimiter(2, 100, TimeUnit.MILLISECONDS);
+
+		assertEquals(2, rateLimiter.getMaxEvents());
+		assertEquals(100L, rateLimiter.getInterval(TimeUnit.MILLISECONDS));
+
+		assertTrue(rateLimiter.tryAcquire());
+		assertTrue(rateLimiter.tryAcquire());
+		assertFalse(rateLimiter.tryAcquire());
+
+		Thread.sleep(150);
+
+		assertTrue(rateLimiter.tryAcquire());
+	}
+
+
+	public void testIllegalArguments() {
+
+		try {
+			new RateLimiter(0, 1, TimeUnit.SECONDS);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The maximum number of events must be positive", e.getMessage());
+		}
+
+		try {
+			new RateLimiter(1, 0, TimeUnit.SECONDS);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The interval must be positive", e.getMessage());
+		}
+	}
+}
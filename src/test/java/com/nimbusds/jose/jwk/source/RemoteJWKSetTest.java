@@ -28,6 +28,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static net.jadler.Jadler.*;
 import static org.junit.Assert.*;
@@ -715,4 +716,1041 @@ public class RemoteJWKSetTest {
 		
 		assertEquals("Retriever must be called exactly once", 1, invocationCounter.intValue());
 	}
+	
+	
+	@Test
+	public void testUnknownKeyIDRefetchSharedWithUnchangedJWKSet()
+		throws Exception {
+		
+		final RSAKey rsaJWK = new RSAKeyGenerator(2048)
+			.keyID("1")
+			.generate();
+		
+		final String content = JSONObjectUtils.toJSONString(new JWKSet(rsaJWK).toJSONObject(true));
+		
+		final AtomicInteger invocationCounter = new AtomicInteger(0);
+		
+		ResourceRetriever retriever = new ResourceRetriever() {
+			
+			@Override
+			public Resource retrieveResource(URL url) throws IOException {
+				invocationCounter.incrementAndGet();
+				try {
+					Thread.sleep(50L);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return new Resource(content, "application/json");
+			}
+		};
+		
+		final RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet<>(new URL("http://localhost/jwks.json"), retriever);
+		
+		assertEquals(1, jwkSetSource.get(new JWKSelector(new JWKMatcher.Builder().keyID("1").build()), null).size());
+		assertEquals(1, invocationCounter.get());
+		
+		// The re-fetched JWK set is unchanged, its instance is retained
+		int numberOfThreads = 8;
+		final CountDownLatch latch = new CountDownLatch(numberOfThreads);
+		ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+		List<Future<List<JWK>>> futures = new ArrayList<>();
+		
+		for (int i = 0; i < numberOfThreads; i++) {
+			futures.add(executorService.submit(new Callable<List<JWK>>() {
+				@Override
+				public List<JWK> call() throws Exception {
+					latch.countDown();
+					latch.await(1, TimeUnit.MINUTES);
+					return jwkSetSource.get(new JWKSelector(new JWKMatcher.Builder().keyID("2").build()), null);
+				}
+			}));
+		}
+		
+		for (Future<List<JWK>> future : futures) {
+			assertTrue(future.get(1, TimeUnit.MINUTES).isEmpty());
+		}
+		
+		executorService.shutdown();
+		executorService.awaitTermination(1, TimeUnit.SECONDS);
+		
+		assertEquals("Retriever must be called once for the unknown key ID", 2, invocationCounter.intValue());
+	}
+	
+	
+	@Test
+	public void testBuilder_defaults()
+		throws Exception {
+		
+		URL jwkSetURL = new URL("http://localhost/jwks.json");
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(jwkSetURL).build();
+		
+		assertEquals(jwkSetURL, jwkSetSource.getJWKSetURL());
+		assertNull(jwkSetSource.getFailoverJWKSource());
+		assertTrue(jwkSetSource.getResourceRetriever() instanceof DefaultResourceRetriever);
+		assertTrue(jwkSetSource.getJWKSetCache() instanceof DefaultJWKSetCache);
+		assertNull(jwkSetSource.getRefreshAheadScheduler());
+		assertEquals(RemoteJWKSet.DEFAULT_REFRESH_AHEAD_TIME, jwkSetSource.getRefreshAheadTime(TimeUnit.MILLISECONDS));
+		assertNull(jwkSetSource.getUnknownKeyIDRefetchLimiter());
+		assertEquals(0L, jwkSetSource.getUnknownKeyIDCacheTime(TimeUnit.MILLISECONDS));
+		assertEquals(30, jwkSetSource.getRefreshAheadTime(TimeUnit.SECONDS));
+		assertFalse(jwkSetSource.usesCacheControlMaxAge());
+		assertNull(jwkSetSource.getAsyncResourceRetriever());
+		assertEquals(RemoteJWKSet.DEFAULT_RETRY_BACKOFF_INITIAL, jwkSetSource.getRetryBackoffInitial(TimeUnit.MILLISECONDS));
+		assertEquals(RemoteJWKSet.DEFAULT_RETRY_BACKOFF_MAX, jwkSetSource.getRetryBackoffMax(TimeUnit.MILLISECONDS));
+		assertEquals(1L, jwkSetSource.getRetryBackoffInitial(TimeUnit.SECONDS));
+		assertEquals(1L, jwkSetSource.getRetryBackoffMax(TimeUnit.MINUTES));
+	}
+	
+	
+	@Test
+	public void testBuilder_nullURL() {
+		
+		try {
+			new RemoteJWKSet.Builder<>(null).build();
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The JWK set URL must not be null", e.getMessage());
+		}
+	}
+	
+	
+	@Test
+	public void testRefreshAhead_serveCachedWhileRefreshingInBackground()
+		throws Exception {
+		
+		final JWKSet jwkSetOld = new JWKSet(Collections.singletonList((JWK) RSA_JWK_1));
+		final JWKSet jwkSetNew = new JWKSet(Arrays.asList((JWK) RSA_JWK_1, RSA_JWK_2));
+		
+		// Refresh required immediately after put
+		DefaultJWKSetCache cache = new DefaultJWKSetCache(1, 0, TimeUnit.HOURS);
+		cache.put(jwkSetOld);
+		Thread.sleep(5);
+		assertTrue(cache.requiresRefresh());
+		
+		final CountDownLatch retrievalStarted = new CountDownLatch(1);
+		final CountDownLatch releaseRetrieval = new CountDownLatch(1);
+		final AtomicInteger invocationCounter = new AtomicInteger(0);
+		ResourceRetriever retriever = new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) throws IOException {
+				invocationCounter.incrementAndGet();
+				retrievalStarted.countDown();
+				try {
+					releaseRetrieval.await(1, TimeUnit.MINUTES);
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+				return new Resource(JSONObjectUtils.toJSONString(jwkSetNew.toJSONObject(true)), "application/json");
+			}
+		};
+		
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(new URL("http://localhost/jwks.json"))
+			.resourceRetriever(retriever)
+			.jwkSetCache(cache)
+			.refreshAhead(scheduler)
+			.build();
+		
+		assertEquals(scheduler, jwkSetSource.getRefreshAheadScheduler());
+		
+		// Served from the cache while the retrieval blocks
+		for (int i=0; i < 10; i++) {
+			List<JWK> matches = jwkSetSource.get(new JWKSelector(new JWKMatcher.Builder().build()), null);
+			assertEquals(1, matches.size());
+			assertEquals("1", matches.get(0).getKeyID());
+		}
+		
+		assertTrue(retrievalStarted.await(1, TimeUnit.MINUTES));
+		releaseRetrieval.countDown();
+		
+		// Wait for the background refresh to complete
+		for (int i=0; i < 100 && jwkSetSource.getCachedJWKSet() == jwkSetOld; i++) {
+			Thread.sleep(10);
+		}
+		
+		assertEquals(2, jwkSetSource.getCachedJWKSet().getKeys().size());
+		assertEquals("Background refresh must be coalesced", 1, invocationCounter.get());
+		
+		jwkSetSource.close();
+		scheduler.shutdownNow();
+	}
+	
+	
+	@Test
+	public void testRefreshAhead_scheduledBeforeRefreshTime()
+		throws Exception {
+		
+		final JWKSet jwkSet = new JWKSet(Collections.singletonList((JWK) RSA_JWK_1));
+		
+		DefaultJWKSetCache cache = new DefaultJWKSetCache(60000, 300, TimeUnit.MILLISECONDS);
+		
+		final AtomicInteger invocationCounter = new AtomicInteger(0);
+		ResourceRetriever retriever = new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) {
+				invocationCounter.incrementAndGet();
+				return new Resource(JSONObjectUtils.toJSONString(jwkSet.toJSONObject(true)), "application/json");
+			}
+		};
+		
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(new URL("http://localhost/jwks.json"))
+			.resourceRetriever(retriever)
+			.jwkSetCache(cache)
+			.refreshAhead(scheduler, 200, TimeUnit.MILLISECONDS)
+			.build();
+		
+		assertEquals(200L, jwkSetSource.getRefreshAheadTime(TimeUnit.MILLISECONDS));
+		
+		// Initial blocking retrieval
+		assertEquals(1, jwkSetSource.get(new JWKSelector(new JWKMatcher.Builder().build()), null).size());
+		assertEquals(1, invocationCounter.get());
+		
+		// Refresh-ahead expected after 100 ms, before the refresh time is due
+		for (int i=0; i < 100 && invocationCounter.get() < 2; i++) {
+			Thread.sleep(10);
+		}
+		assertTrue(invocationCounter.get() >= 2);
+		
+		jwkSetSource.close();
+		int count = invocationCounter.get();
+		Thread.sleep(300);
+		assertTrue(invocationCounter.get() <= count + 1);
+		
+		scheduler.shutdownNow();
+	}
+	
+	
+	@Test
+	public void testUnknownKeyIDRefetchLimit()
+		throws Exception {
+		
+		final JWKSet jwkSet = new JWKSet(Collections.singletonList((JWK) RSA_JWK_1));
+		
+		final AtomicInteger invocationCounter = new AtomicInteger(0);
+		ResourceRetriever retriever = new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) {
+				invocationCounter.incrementAndGet();
+				return new Resource(JSONObjectUtils.toJSONString(jwkSet.toJSONObject(true)), "application/json");
+			}
+		};
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(new URL("http://localhost/jwks.json"))
+			.resourceRetriever(retriever)
+			.unknownKeyIDRefetchLimit(2, 1, TimeUnit.HOURS)
+			.build();
+		
+		assertEquals(2, jwkSetSource.getUnknownKeyIDRefetchLimiter().getMaxEvents());
+		assertEquals(1L, jwkSetSource.getUnknownKeyIDRefetchLimiter().getInterval(TimeUnit.HOURS));
+		
+		// Initial fetch
+		assertEquals(1, jwkSetSource.get(new JWKSelector(new JWKMatcher.Builder().keyID("1").build()), null).size());
+		assertEquals(1, invocationCounter.get());
+		
+		// Unknown kids, 2 re-fetches permitted
+		for (int i=0; i < 10; i++) {
+			assertTrue(jwkSetSource.get(new JWKSelector(new JWKMatcher.Builder().keyID("unknown-" + i).build()), null).isEmpty());
+		}
+		assertEquals(3, invocationCounter.get());
+		
+		// Known kid still served from cache
+		assertEquals(1, jwkSetSource.get(new JWKSelector(new JWKMatcher.Builder().keyID("1").build()), null).size());
+		assertEquals(3, invocationCounter.get());
+	}
+	
+	
+	@Test
+	public void testUnknownKeyIDCache()
+		throws Exception {
+		
+		final JWKSet jwkSet = new JWKSet(Collections.singletonList((JWK) RSA_JWK_1));
+		
+		final AtomicInteger invocationCounter = new AtomicInteger(0);
+		ResourceRetriever retriever = new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) {
+				invocationCounter.incrementAndGet();
+				return new Resource(JSONObjectUtils.toJSONString(jwkSet.toJSONObject(true)), "application/json");
+			}
+		};
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(new URL("http://localhost/jwks.json"))
+			.resourceRetriever(retriever)
+			.unknownKeyIDCache(200, TimeUnit.MILLISECONDS)
+			.build();
+		
+		assertEquals(200L, jwkSetSource.getUnknownKeyIDCacheTime(TimeUnit.MILLISECONDS));
+		
+		JWKSelector selector = new JWKSelector(new JWKMatcher.Builder().keyID("unknown").build());
+		
+		// Initial fetch + re-fetch
+		assertTrue(jwkSetSource.get(selector, null).isEmpty());
+		assertEquals(2, invocationCounter.get());
+		assertTrue(jwkSetSource.isKnownUnknownKeyID("unknown"));
+		
+		// Remembered as unknown
+		for (int i=0; i < 10; i++) {
+			assertTrue(jwkSetSource.get(selector, null).isEmpty());
+		}
+		assertEquals(2, invocationCounter.get());
+		
+		Thread.sleep(300);
+		assertFalse(jwkSetSource.isKnownUnknownKeyID("unknown"));
+		
+		assertTrue(jwkSetSource.get(selector, null).isEmpty());
+		assertEquals(3, invocationCounter.get());
+	}
+	
+	
+	@Test
+	public void testUnknownKeyIDCache_sizeLimit()
+		throws Exception {
+		
+		final JWKSet jwkSet = new JWKSet(Collections.singletonList((JWK) RSA_JWK_1));
+		
+		ResourceRetriever retriever = new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) {
+				return new Resource(JSONObjectUtils.toJSONString(jwkSet.toJSONObject(true)), "application/json");
+			}
+		};
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(new URL("http://localhost/jwks.json"))
+			.resourceRetriever(retriever)
+			.unknownKeyIDCache(1, TimeUnit.HOURS, 2)
+			.build();
+		
+		for (String kid: Arrays.asList("a", "b", "c")) {
+			assertTrue(jwkSetSource.get(new JWKSelector(new JWKMatcher.Builder().keyID(kid).build()), null).isEmpty());
+		}
+		
+		assertFalse(jwkSetSource.isKnownUnknownKeyID("a"));
+		assertFalse(jwkSetSource.isKnownUnknownKeyID("b"));
+		assertTrue(jwkSetSource.isKnownUnknownKeyID("c"));
+	}
+	
+	
+	@Test
+	public void testConditionalRefresh_notModified()
+		throws Exception {
+		
+		final JWKSet jwkSet = new JWKSet(Collections.singletonList((JWK) RSA_JWK_1));
+		
+		final List<Resource> previousResources = Collections.synchronizedList(new ArrayList<Resource>());
+		final AtomicInteger invocationCounter = new AtomicInteger(0);
+		
+		ConditionalResourceRetriever retriever = new ConditionalResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) {
+				return retrieveResource(url, null);
+			}
+			
+			@Override
+			public Resource retrieveResource(URL url, Resource previousResource) {
+				invocationCounter.incrementAndGet();
+				previousResources.add(previousResource);
+				if (previousResource != null && "\"v1\"".equals(previousResource.getETag())) {
+					return new Resource("", null, "\"v1\"", null, 3600L, true);
+				}
+				return new Resource(JSONObjectUtils.toJSONString(jwkSet.toJSONObject(true)), "application/json", "\"v1\"", null, -1L, false);
+			}
+		};
+		
+		// Refresh required immediately after put
+		DefaultJWKSetCache cache = new DefaultJWKSetCache(1, 0, TimeUnit.HOURS);
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(new URL("http://localhost/jwks.json"))
+			.resourceRetriever(retriever)
+			.jwkSetCache(cache)
+			.build();
+		
+		JWKSelector selector = new JWKSelector(new JWKMatcher.Builder().keyID("1").build());
+		
+		assertEquals(1, jwkSetSource.get(selector, null).size());
+		assertEquals(1, invocationCounter.get());
+		assertNull(previousResources.get(0));
+		JWKSet cached = cache.get();
+		
+		Thread.sleep(5L);
+		
+		// Not modified, same JWK set instance put again
+		long putTimestamp = cache.getPutTimestamp();
+		assertEquals(1, jwkSetSource.get(selector, null).size());
+		assertEquals(2, invocationCounter.get());
+		assertEquals("\"v1\"", previousResources.get(1).getETag());
+		assertSame(cached, cache.get());
+		assertTrue(cache.getPutTimestamp() > putTimestamp);
+		
+		// Max-age not used
+		assertEquals(-1L, cache.getMaxAge(TimeUnit.SECONDS));
+	}
+	
+	
+	@Test
+	public void testConditionalRefresh_retrieverOverrideNotBypassed()
+		throws Exception {
+		
+		final JWKSet jwkSet = new JWKSet(Collections.singletonList((JWK) RSA_JWK_1));
+		
+		onRequest()
+			.havingMethodEqualTo("GET")
+			.havingPathEqualTo("/jwks.json")
+			.havingHeaderEqualTo("Authorization", "Bearer secret")
+			.respond()
+			.withStatus(200)
+			.withHeader("Content-Type", "application/json")
+			.withHeader("ETag", "\"v1\"")
+			.withBody(JSONObjectUtils.toJSONString(jwkSet.toJSONObject(true)));
+		
+		final AtomicInteger invocationCounter = new AtomicInteger(0);
+		
+		// Subclass adding a header in the single-argument method
+		DefaultResourceRetriever retriever = new DefaultResourceRetriever() {
+			@Override
+			public Resource retrieveResource(final URL url) throws IOException {
+				invocationCounter.incrementAndGet();
+				setHeaders(Collections.singletonMap("Authorization", Collections.singletonList("Bearer secret")));
+				return super.retrieveResource(url);
+			}
+		};
+		
+		// Refresh required immediately after put
+		DefaultJWKSetCache cache = new DefaultJWKSetCache(1, 0, TimeUnit.HOURS);
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(new URL("http://localhost:" + port() + "/jwks.json"))
+			.resourceRetriever(retriever)
+			.jwkSetCache(cache)
+			.build();
+		
+		JWKSelector selector = new JWKSelector(new JWKMatcher.Builder().keyID("1").build());
+		
+		for (int i=1; i <= 3; i++) {
+			assertEquals(1, jwkSetSource.get(selector, null).size());
+			assertEquals(i, invocationCounter.get());
+			Thread.sleep(5L);
+		}
+		
+		verifyThatRequest().havingHeaderEqualTo("Authorization", "Bearer secret").receivedTimes(3);
+	}
+	
+	
+	@Test
+	public void testCacheControlMaxAge()
+		throws Exception {
+		
+		final JWKSet jwkSet = new JWKSet(Collections.singletonList((JWK) RSA_JWK_1));
+		
+		onRequest()
+			.havingMethodEqualTo("GET")
+			.havingPathEqualTo("/jwks.json")
+			.respond()
+			.withStatus(200)
+			.withHeader("Content-Type", "application/json")
+			.withHeader("ETag", "\"v1\"")
+			.withHeader("Cache-Control", "max-age=3600")
+			.withBody(JSONObjectUtils.toJSONString(jwkSet.toJSONObject(true)));
+		
+		// Refresh required immediately after put, unless max-age
+		DefaultJWKSetCache cache = new DefaultJWKSetCache(1, 0, TimeUnit.MINUTES);
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(new URL("http://localhost:" + port() + "/jwks.json"))
+			.jwkSetCache(cache)
+			.cacheControlMaxAge(true)
+			.build();
+		
+		assertTrue(jwkSetSource.usesCacheControlMaxAge());
+		
+		JWKSelector selector = new JWKSelector(new JWKMatcher.Builder().keyID("1").build());
+		
+		assertEquals(1, jwkSetSource.get(selector, null).size());
+		assertEquals(3600L, cache.getMaxAge(TimeUnit.SECONDS));
+		
+		Thread.sleep(5L);
+		
+		assertFalse(cache.requiresRefresh());
+		assertEquals(1, jwkSetSource.get(selector, null).size());
+		
+		verifyThatRequest().receivedOnce();
+	}
+	
+	
+	@Test
+	public void testBuilder_invalidRetryBackoff()
+		throws Exception {
+		
+		URL jwkSetURL = new URL("http://localhost/jwks.json");
+		
+		try {
+			new RemoteJWKSet.Builder<>(jwkSetURL).retryBackoff(-1L, 10L, TimeUnit.SECONDS).build();
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The initial retry backoff must not be negative", e.getMessage());
+		}
+		
+		try {
+			new RemoteJWKSet.Builder<>(jwkSetURL).retryBackoff(10L, 1L, TimeUnit.SECONDS).build();
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The maximum retry backoff must not be shorter than the initial retry backoff", e.getMessage());
+		}
+	}
+	
+	
+	@Test
+	public void testComputeRetryBackoff()
+		throws Exception {
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(new URL("http://localhost/jwks.json"))
+			.retryBackoff(1L, 10L, TimeUnit.SECONDS)
+			.build();
+		
+		for (int i=0; i < 100; i++) {
+			long backoff = jwkSetSource.computeRetryBackoff(1);
+			assertTrue(backoff >= 500L && backoff <= 1000L);
+			backoff = jwkSetSource.computeRetryBackoff(3);
+			assertTrue(backoff >= 2000L && backoff <= 4000L);
+			backoff = jwkSetSource.computeRetryBackoff(100);
+			assertTrue(backoff >= 5000L && backoff <= 10000L);
+		}
+	}
+	
+	
+	@Test
+	public void testRetryBackoff_serveStaleDuringOutage()
+		throws Exception {
+		
+		final JWKSet jwkSet = new JWKSet(Collections.singletonList((JWK) RSA_JWK_1));
+		
+		final AtomicInteger invocationCounter = new AtomicInteger(0);
+		ResourceRetriever retriever = new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) throws IOException {
+				if (invocationCounter.incrementAndGet() > 1) {
+					throw new IOException("Unavailable");
+				}
+				return new Resource(JSONObjectUtils.toJSONString(jwkSet.toJSONObject(true)), "application/json");
+			}
+		};
+		
+		// Expires immediately, stale for up to 1 hour
+		DefaultJWKSetCache cache = new DefaultJWKSetCache(0L, 0L, 60L, TimeUnit.MINUTES);
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(new URL("http://localhost/jwks.json"))
+			.resourceRetriever(retriever)
+			.jwkSetCache(cache)
+			.retryBackoff(1L, 1L, TimeUnit.HOURS)
+			.build();
+		
+		JWKSelector selector = new JWKSelector(new JWKMatcher.Builder().keyID("1").build());
+		
+		assertEquals(1, jwkSetSource.get(selector, null).size());
+		assertEquals(1, invocationCounter.get());
+		
+		Thread.sleep(5L);
+		assertNull(cache.get());
+		
+		// Retrieval fails, stale JWK set served
+		assertEquals(1, jwkSetSource.get(selector, null).size());
+		assertEquals(2, invocationCounter.get());
+		assertEquals(1L, cache.getErrorCount());
+		assertEquals(1L, cache.getStaleCount());
+		
+		// No retrieval during the backoff
+		for (int i=0; i < 10; i++) {
+			assertEquals(1, jwkSetSource.get(selector, null).size());
+		}
+		assertEquals(2, invocationCounter.get());
+		assertEquals(1L, cache.getErrorCount());
+		assertEquals(11L, cache.getStaleCount());
+	}
+	
+	
+	@Test
+	public void testRetryBackoff_concurrentRequestsDuringOutage()
+		throws Exception {
+		
+		final JWKSet jwkSet = new JWKSet(Collections.singletonList((JWK) RSA_JWK_1));
+		
+		final AtomicInteger invocationCounter = new AtomicInteger(0);
+		ResourceRetriever retriever = new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) throws IOException {
+				if (invocationCounter.incrementAndGet() > 1) {
+					try {
+						// Slow failure
+						Thread.sleep(200L);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					throw new IOException("Unavailable");
+				}
+				return new Resource(JSONObjectUtils.toJSONString(jwkSet.toJSONObject(true)), "application/json");
+			}
+		};
+		
+		// Expires immediately, stale for up to 1 hour
+		DefaultJWKSetCache cache = new DefaultJWKSetCache(0L, 0L, 60L, TimeUnit.MINUTES);
+		
+		final RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(new URL("http://localhost/jwks.json"))
+			.resourceRetriever(retriever)
+			.jwkSetCache(cache)
+			.retryBackoff(1L, 1L, TimeUnit.HOURS)
+			.build();
+		
+		final JWKSelector selector = new JWKSelector(new JWKMatcher.Builder().keyID("1").build());
+		
+		assertEquals(1, jwkSetSource.get(selector, null).size());
+		assertEquals(1, invocationCounter.get());
+		
+		Thread.sleep(5L);
+		assertNull(cache.get());
+		
+		int numberOfThreads = 8;
+		final CountDownLatch latch = new CountDownLatch(numberOfThreads);
+		ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+		List<Future<List<JWK>>> futures = new ArrayList<>();
+		
+		for (int i = 0; i < numberOfThreads; i++) {
+			futures.add(executorService.submit(new Callable<List<JWK>>() {
+				@Override
+				public List<JWK> call() throws Exception {
+					latch.countDown();
+					latch.await(1, TimeUnit.MINUTES);
+					return jwkSetSource.get(selector, null);
+				}
+			}));
+		}
+		
+		for (Future<List<JWK>> future : futures) {
+			assertEquals(1, future.get(1, TimeUnit.MINUTES).size());
+		}
+		
+		executorService.shutdown();
+		
+		// One failed retrieval, the stale JWK set served to all
+		assertEquals(2, invocationCounter.get());
+		assertEquals(1L, cache.getErrorCount());
+	}
+	
+	
+	@Test
+	public void testRetryBackoff_notDeferredWithConstructors()
+		throws Exception {
+		
+		URL jwkSetURL = new URL("http://localhost/jwks.json");
+		
+		assertEquals(0L, new RemoteJWKSet<>(jwkSetURL).getRetryBackoffInitial(TimeUnit.MILLISECONDS));
+		assertEquals(0L, new RemoteJWKSet<>(jwkSetURL, new DefaultResourceRetriever(), new DefaultJWKSetCache()).getRetryBackoffMax(TimeUnit.MILLISECONDS));
+	}
+	
+	
+	@Test
+	public void testRetryBackoff_noStaleIfError()
+		throws Exception {
+		
+		final JWKSet jwkSet = new JWKSet(Collections.singletonList((JWK) RSA_JWK_1));
+		
+		final AtomicInteger invocationCounter = new AtomicInteger(0);
+		ResourceRetriever retriever = new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) throws IOException {
+				if (invocationCounter.incrementAndGet() > 1) {
+					throw new IOException("Unavailable");
+				}
+				return new Resource(JSONObjectUtils.toJSONString(jwkSet.toJSONObject(true)), "application/json");
+			}
+		};
+		
+		DefaultJWKSetCache cache = new DefaultJWKSetCache(0L, 0L, TimeUnit.MINUTES);
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(new URL("http://localhost/jwks.json"))
+			.resourceRetriever(retriever)
+			.jwkSetCache(cache)
+			.build();
+		
+		JWKSelector selector = new JWKSelector(new JWKMatcher.Builder().keyID("1").build());
+		
+		assertEquals(1, jwkSetSource.get(selector, null).size());
+		
+		Thread.sleep(5L);
+		
+		// Expired and no stale-if-error, the retrieval is attempted
+		for (int i=0; i < 3; i++) {
+			try {
+				jwkSetSource.get(selector, null);
+				fail();
+			} catch (RemoteKeySourceException e) {
+				assertEquals("Couldn't retrieve remote JWK set: Unavailable", e.getMessage());
+			}
+		}
+		assertEquals(4, invocationCounter.get());
+		assertEquals(3L, cache.getErrorCount());
+	}
+	
+	
+	@Test
+	public void testRetryBackoff_refreshAheadRetriesInBackground()
+		throws Exception {
+		
+		final JWKSet jwkSet = new JWKSet(Collections.singletonList((JWK) RSA_JWK_1));
+		
+		final AtomicInteger invocationCounter = new AtomicInteger(0);
+		ResourceRetriever retriever = new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) throws IOException {
+				int n = invocationCounter.incrementAndGet();
+				if (n == 2 || n == 3) {
+					throw new IOException("Unavailable");
+				}
+				return new Resource(JSONObjectUtils.toJSONString(jwkSet.toJSONObject(true)), "application/json");
+			}
+		};
+		
+		// Refresh required immediately after put
+		DefaultJWKSetCache cache = new DefaultJWKSetCache(1L, 0L, TimeUnit.HOURS);
+		
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(new URL("http://localhost/jwks.json"))
+			.resourceRetriever(retriever)
+			.jwkSetCache(cache)
+			.refreshAhead(scheduler, 0L, TimeUnit.MILLISECONDS)
+			.retryBackoff(10L, 20L, TimeUnit.MILLISECONDS)
+			.build();
+		
+		JWKSelector selector = new JWKSelector(new JWKMatcher.Builder().keyID("1").build());
+		
+		assertEquals(1, jwkSetSource.get(selector, null).size());
+		Thread.sleep(5L);
+		
+		// Triggers background refresh, failures retried in the background
+		assertEquals(1, jwkSetSource.get(selector, null).size());
+		
+		for (int i=0; i < 200 && invocationCounter.get() < 4; i++) {
+			Thread.sleep(10L);
+		}
+		
+		assertTrue(invocationCounter.get() >= 4);
+		assertEquals(2L, cache.getErrorCount());
+		
+		jwkSetSource.close();
+		scheduler.shutdownNow();
+	}
+	
+	
+	@Test
+	public void testAsyncRefresh_callerNotBlocked()
+		throws Exception {
+		
+		final JWKSet jwkSetOld = new JWKSet(Collections.singletonList((JWK) RSA_JWK_1));
+		final JWKSet jwkSetNew = new JWKSet(Arrays.asList((JWK) RSA_JWK_1, RSA_JWK_2));
+		
+		// Refresh required immediately after put
+		DefaultJWKSetCache cache = new DefaultJWKSetCache(1, 0, TimeUnit.HOURS);
+		cache.put(jwkSetOld);
+		Thread.sleep(5);
+		assertTrue(cache.requiresRefresh());
+		
+		final CountDownLatch releaseRetrieval = new CountDownLatch(1);
+		final AtomicInteger invocationCounter = new AtomicInteger(0);
+		ResourceRetriever blockingRetriever = new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) throws IOException {
+				invocationCounter.incrementAndGet();
+				try {
+					releaseRetrieval.await(1, TimeUnit.MINUTES);
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+				return new Resource(JSONObjectUtils.toJSONString(jwkSetNew.toJSONObject(true)), "application/json");
+			}
+		};
+		
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		AsyncResourceRetriever asyncRetriever = new DefaultAsyncResourceRetriever(blockingRetriever, executorService);
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(new URL("http://localhost/jwks.json"))
+			.resourceRetriever(new ResourceRetriever() {
+				@Override
+				public Resource retrieveResource(URL url) {
+					throw new AssertionError("Blocking retrieval");
+				}
+			})
+			.asyncResourceRetriever(asyncRetriever)
+			.jwkSetCache(cache)
+			.build();
+		
+		assertEquals(asyncRetriever, jwkSetSource.getAsyncResourceRetriever());
+		
+		// Served from the cache while the async retrieval is pending
+		for (int i=0; i < 10; i++) {
+			List<JWK> matches = jwkSetSource.get(new JWKSelector(new JWKMatcher.Builder().keyID("1").build()), null);
+			assertEquals(1, matches.size());
+		}
+		
+		releaseRetrieval.countDown();
+		
+		for (int i=0; i < 100 && jwkSetSource.getCachedJWKSet() == jwkSetOld; i++) {
+			Thread.sleep(10);
+		}
+		
+		assertEquals(2, jwkSetSource.getCachedJWKSet().getKeys().size());
+		assertEquals("Async refresh must be coalesced", 1, invocationCounter.get());
+		
+		executorService.shutdownNow();
+	}
+	
+	
+	@Test
+	public void testAsyncRefresh_failure()
+		throws Exception {
+		
+		final JWKSet jwkSet = new JWKSet(Collections.singletonList((JWK) RSA_JWK_1));
+		
+		DefaultJWKSetCache cache = new DefaultJWKSetCache(1, 0, TimeUnit.HOURS);
+		cache.put(jwkSet);
+		Thread.sleep(5);
+		
+		final AtomicInteger invocationCounter = new AtomicInteger(0);
+		ResourceRetriever failingRetriever = new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) throws IOException {
+				invocationCounter.incrementAndGet();
+				throw new IOException("Unavailable");
+			}
+		};
+		
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(new URL("http://localhost/jwks.json"))
+			.asyncResourceRetriever(new DefaultAsyncResourceRetriever(failingRetriever, executorService))
+			.jwkSetCache(cache)
+			.retryBackoff(1L, 1L, TimeUnit.HOURS)
+			.build();
+		
+		JWKSelector selector = new JWKSelector(new JWKMatcher.Builder().keyID("1").build());
+		
+		assertEquals(1, jwkSetSource.get(selector, null).size());
+		
+		for (int i=0; i < 100 && cache.getErrorCount() == 0; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(1L, cache.getErrorCount());
+		
+		// Retry deferred by the backoff
+		for (int i=0; i < 10; i++) {
+			assertEquals(1, jwkSetSource.get(selector, null).size());
+		}
+		Thread.sleep(50);
+		assertEquals(1, invocationCounter.get());
+		
+		executorService.shutdownNow();
+	}
+	
+	
+	@Test
+	public void testRefreshRetainsUnchangedKeys()
+		throws Exception {
+		
+		final AtomicReference<JWKSet> jwkSet = new AtomicReference<>(new JWKSet(Arrays.asList((JWK) RSA_JWK_1, RSA_JWK_2)));
+		
+		ResourceRetriever retriever = new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) {
+				return new Resource(JSONObjectUtils.toJSONString(jwkSet.get().toJSONObject(true)), "application/json");
+			}
+		};
+		
+		final List<JWKSetDiff> diffs = new ArrayList<>();
+		
+		final URL jwkSetURL = new URL("http://localhost/jwks.json");
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(jwkSetURL)
+			.resourceRetriever(retriever)
+			.jwkSetUpdateListener(new JWKSetUpdateListener() {
+				@Override
+				public void jwkSetUpdated(URL url, JWKSetDiff diff) {
+					assertEquals(jwkSetURL, url);
+					diffs.add(diff);
+				}
+			})
+			.build();
+		
+		assertNotNull(jwkSetSource.getJWKSetUpdateListener());
+		
+		JWK key1 = jwkSetSource.get(new JWKSelector(new JWKMatcher.Builder().keyID("1").build()), null).get(0);
+		
+		assertEquals(1, diffs.size());
+		assertEquals(2, diffs.get(0).getAddedKeys().size());
+		assertTrue(diffs.get(0).getRemovedKeys().isEmpty());
+		
+		// Rotate key 2 -> 3, the refresh is triggered by the unknown kid
+		jwkSet.set(new JWKSet(Arrays.asList((JWK) RSA_JWK_1, RSA_JWK_3)));
+		
+		List<JWK> matches = jwkSetSource.get(new JWKSelector(new JWKMatcher.Builder().keyID("3").build()), null);
+		assertEquals("3", matches.get(0).getKeyID());
+		
+		assertEquals(2, diffs.size());
+		assertEquals(Collections.singletonList(RSA_JWK_3.toPublicJWK()), diffs.get(1).getAddedKeys());
+		assertEquals(Collections.singletonList(RSA_JWK_2.toPublicJWK()), diffs.get(1).getRemovedKeys());
+		assertEquals(1, diffs.get(1).getRetainedKeyCount());
+		
+		// Same instance of the unchanged key
+		assertSame(key1, jwkSetSource.getCachedJWKSet().getKeyByKeyId("1"));
+		assertSame(key1, jwkSetSource.get(new JWKSelector(new JWKMatcher.Builder().keyID("1").build()), null).get(0));
+		
+		// Unchanged JWK set, no notification, same JWK set instance
+		JWKSet cached = jwkSetSource.getCachedJWKSet();
+		assertTrue(jwkSetSource.get(new JWKSelector(new JWKMatcher.Builder().keyID("unknown").build()), null).isEmpty());
+		assertEquals(2, diffs.size());
+		assertSame(cached, jwkSetSource.getCachedJWKSet());
+	}
+	
+	
+	private static class RecordingEventListener implements JWKSourceEventListener {
+		
+		final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+		
+		volatile long lastByteSize = -1L;
+		
+		
+		@Override
+		public void cacheHit() {
+			events.add("hit");
+		}
+		
+		
+		@Override
+		public void cacheMiss() {
+			events.add("miss");
+		}
+		
+		
+		@Override
+		public void staleJWKSetServed() {
+			events.add("stale");
+		}
+		
+		
+		@Override
+		public void refreshStarted() {
+			events.add("refreshStarted");
+		}
+		
+		
+		@Override
+		public void refreshCompleted(long durationMillis, long byteSize) {
+			assertTrue(durationMillis >= 0L);
+			lastByteSize = byteSize;
+			events.add("refreshCompleted");
+		}
+		
+		
+		@Override
+		public void refreshFailed(long durationMillis, Exception exception) {
+			assertTrue(durationMillis >= 0L);
+			assertNotNull(exception);
+			events.add("refreshFailed");
+		}
+		
+		
+		@Override
+		public void failoverUsed(Exception cause) {
+			assertNotNull(cause);
+			events.add("failoverUsed");
+		}
+		
+		
+		@Override
+		public void unknownKeyIDRefetch(String keyID) {
+			events.add("unknownKeyIDRefetch:" + keyID);
+		}
+	}
+	
+	
+	@Test
+	public void testEventListener()
+		throws Exception {
+		
+		final String content = JSONObjectUtils.toJSONString(new JWKSet(RSA_JWK_1).toJSONObject(true));
+		
+		ResourceRetriever retriever = new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) {
+				return new Resource(content, "application/json");
+			}
+		};
+		
+		RecordingEventListener listener = new RecordingEventListener();
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(new URL("http://localhost/jwks.json"))
+			.resourceRetriever(retriever)
+			.eventListener(listener)
+			.build();
+		
+		assertEquals(listener, jwkSetSource.getEventListener());
+		assertEquals(listener, ((DefaultJWKSetCache) jwkSetSource.getJWKSetCache()).getEventListener());
+		
+		assertEquals(1, jwkSetSource.get(new JWKSelector(new JWKMatcher.Builder().keyID("1").build()), null).size());
+		assertEquals(Arrays.asList("miss", "refreshStarted", "refreshCompleted"), listener.events);
+		assertEquals(content.length(), listener.lastByteSize);
+		
+		listener.events.clear();
+		assertEquals(1, jwkSetSource.get(new JWKSelector(new JWKMatcher.Builder().keyID("1").build()), null).size());
+		assertEquals(Collections.singletonList("hit"), listener.events);
+		
+		listener.events.clear();
+		assertTrue(jwkSetSource.get(new JWKSelector(new JWKMatcher.Builder().keyID("2").build()), null).isEmpty());
+		assertEquals(Arrays.asList("hit", "unknownKeyIDRefetch:2", "refreshStarted", "refreshCompleted"), listener.events);
+	}
+	
+	
+	@Test
+	public void testEventListener_failover()
+		throws Exception {
+		
+		ResourceRetriever retriever = new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url)
+				throws IOException {
+				throw new SocketTimeoutException("Read timed out");
+			}
+		};
+		
+		RecordingEventListener listener = new RecordingEventListener();
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet.Builder<>(new URL("http://localhost/jwks.json"))
+			.resourceRetriever(retriever)
+			.failoverJWKSource(new ImmutableJWKSet<>(new JWKSet(RSA_JWK_1)))
+			.eventListener(listener)
+			.build();
+		
+		assertEquals(1, jwkSetSource.get(new JWKSelector(new JWKMatcher.Builder().keyID("1").build()), null).size());
+		assertEquals(Arrays.asList("miss", "refreshStarted", "refreshFailed", "failoverUsed"), listener.events);
+	}
+	
+	
+	@Test
+	public void testNoOpEventListenerDefault()
+		throws Exception {
+		
+		RemoteJWKSet<SecurityContext> jwkSetSource = new RemoteJWKSet<>(new URL("http://localhost/jwks.json"));
+		assertTrue(jwkSetSource.getEventListener() instanceof NoOpJWKSourceEventListener);
+	}
+	
+	
+	@Test
+	public void testUTF8Length() {
+		
+		assertEquals(0L, RemoteJWKSet.utf8Length(null));
+		assertEquals(0L, RemoteJWKSet.utf8Length(""));
+		
+		for (String s: Arrays.asList("abc", "\u00e9t\u00e9", "\u20ac1", "\ud83d\ude00")) {
+			assertEquals(s.getBytes(StandardCharset.UTF_8).length, RemoteJWKSet.utf8Length(s));
+		}
+	}
 }
@@ -209,6 +209,39 @@ public class JWSVerificationKeySelectorTest extends TestCase {
 		candidates = keySelector.selectJWSKeys(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("1").build(), null);
 		assertTrue(candidates.isEmpty());
 	}
+	
+	
+	public void testKeyConversionCached()
+		throws Exception {
+		
+		KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
+		keyGen.initialize(2048);
+		KeyPair keyPair = keyGen.generateKeyPair();
+		
+		RSAKey rsaJWK = new RSAKey.Builder((RSAPublicKey)keyPair.getPublic())
+			.privateKey((RSAPrivateKey)keyPair.getPrivate())
+			.keyID("1")
+			.build();
+		
+		JWSVerificationKeySelector<SecurityContext> keySelector = new JWSVerificationKeySelector<>(
+			JWSAlgorithm.RS256,
+			new ImmutableJWKSet<>(new JWKSet(rsaJWK)));
+		
+		assertEquals(0, keySelector.getKeyConversionCache().size());
+		
+		JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("1").build();
+		
+		List<Key> candidates = keySelector.selectJWSKeys(header, null);
+		assertEquals(1, candidates.size());
+		assertEquals(keyPair.getPublic(), candidates.get(0));
+		assertEquals(1, keySelector.getKeyConversionCache().size());
+		
+		// Private key skipped, public key converted only once
+		List<Key> repeated = keySelector.selectJWSKeys(header, null);
+		assertEquals(1, repeated.size());
+		assertSame(candidates.get(0), repeated.get(0));
+		assertEquals(1, keySelector.getKeyConversionCache().size());
+	}
 
 	public void testForUnsupported()
 			throws Exception {
@@ -133,5 +133,27 @@ public class Base64URLTest extends TestCase {
 		assertNotSame(new Base64URL("abc"), new Base64URL("def"));
 		assertNotSame(new Base64URL("abc").hashCode(), new Base64URL("def").hashCode());
 	}
+	
+	
+	public void testDecodeRange() {
+		
+		String s = "xx" + Base64URL.encode("Hello, world!") + "yy";
+		
+		assertEquals("Hello, world!", new String(Base64URL.decode(s, 2, s.length() - 2), StandardCharset.UTF_8));
+		
+		byte[] buf = new byte[Base64URL.computeMaxDecodedLength(s.length() - 4)];
+		assertEquals(13, buf.length);
+		assertEquals(13, Base64URL.decode(s, 2, s.length() - 2, buf, 0));
+		assertEquals("Hello, world!", new String(buf, StandardCharset.UTF_8));
+		
+		assertEquals(0, Base64URL.decode(s, 2, 2).length);
+	}
+	
+	
+	public void testDecodeRange_ignoreIllegalChars() {
+		
+		String s = Base64URL.encode("Hello, world!") + "==\u00e9\n";
+		
+		assertEquals("Hello, world!", new String(Base64URL.decode(s, 0, s.length()), StandardCharset.UTF_8));
+	}
 }
-
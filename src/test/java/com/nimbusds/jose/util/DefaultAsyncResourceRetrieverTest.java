@@ -0,0 +1,186 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.util;
+
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static net.jadler.Jadler.*;
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class DefaultAsyncResourceRetrieverTest {
+	
+	
+	private ExecutorService executorService;
+	
+	
+	@Before
+	public void setUp() {
+		initJadler();
+		executorService = Executors.newSingleThreadExecutor();
+	}
+	
+	
+	@After
+	public void tearDown() {
+		closeJadler();
+		executorService.shutdownNow();
+	}
+	
+	
+	@Test
+	public void testConstructor() {
+		
+		ResourceRetriever retriever = new DefaultResourceRetriever();
+		DefaultAsyncResourceRetriever asyncRetriever = new DefaultAsyncResourceRetriever(retriever, executorService);
+		assertEquals(retriever, asyncRetriever.getResourceRetriever());
+		assertEquals(executorService, asyncRetriever.getExecutorService());
+	}
+	
+	
+	@Test
+	public void testRejectNullArgs() {
+		
+		try {
+			new DefaultAsyncResourceRetriever(null, executorService);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The resource retriever must not be null", e.getMessage());
+		}
+		
+		try {
+			new DefaultAsyncResourceRetriever(new DefaultResourceRetriever(), null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The executor service must not be null", e.getMessage());
+		}
+	}
+	
+	
+	@Test
+	public void testRetrieveOK()
+		throws Exception {
+		
+		onRequest()
+			.havingMethodEqualTo("GET")
+			.havingPathEqualTo("/c2id/jwks.json")
+			.respond()
+			.withStatus(200)
+			.withHeader("Content-Type", "application/json")
+			.withBody("{}");
+		
+		final AtomicReference<Resource> completed = new AtomicReference<>();
+		final CountDownLatch latch = new CountDownLatch(1);
+		
+		AsyncResourceRetriever asyncRetriever = new DefaultAsyncResourceRetriever(new DefaultResourceRetriever(), executorService);
+		
+		Future<Resource> future = asyncRetriever.retrieveResourceAsync(
+			new URL("http://localhost:" + port() + "/c2id/jwks.json"),
+			null,
+			new AsyncResourceRetriever.Callback() {
+				@Override
+				public void completed(Resource resource) {
+					completed.set(resource);
+					latch.countDown();
+				}
+				
+				
+				@Override
+				public void failed(Exception exception) {
+					fail();
+				}
+			});
+		
+		Resource resource = future.get(1, TimeUnit.MINUTES);
+		assertEquals("{}", resource.getContent());
+		assertEquals("application/json", resource.getContentType());
+		
+		assertTrue(latch.await(1, TimeUnit.MINUTES));
+		assertSame(resource, completed.get());
+	}
+	
+	
+	@Test
+	public void testRetrieveConditional()
+		throws Exception {
+		
+		onRequest()
+			.havingMethodEqualTo("GET")
+			.havingPathEqualTo("/c2id/jwks.json")
+			.havingHeaderEqualTo("If-None-Match", "\"v1\"")
+			.respond()
+			.withStatus(304);
+		
+		Resource previous = new Resource("{}", "application/json", "\"v1\"", null, -1L, false);
+		
+		AsyncResourceRetriever asyncRetriever = new DefaultAsyncResourceRetriever(new DefaultResourceRetriever(), executorService);
+		
+		Resource resource = asyncRetriever.retrieveResourceAsync(new URL("http://localhost:" + port() + "/c2id/jwks.json"), previous, null)
+			.get(1, TimeUnit.MINUTES);
+		assertTrue(resource.isNotModified());
+		assertEquals("{}", resource.getContent());
+	}
+	
+	
+	@Test
+	public void testRetrieveFailed()
+		throws Exception {
+		
+		onRequest()
+			.havingMethodEqualTo("GET")
+			.havingPathEqualTo("/c2id/jwks.json")
+			.respond()
+			.withStatus(404);
+		
+		final AtomicReference<Exception> failed = new AtomicReference<>();
+		
+		AsyncResourceRetriever asyncRetriever = new DefaultAsyncResourceRetriever(new DefaultResourceRetriever(), executorService);
+		
+		Future<Resource> future = asyncRetriever.retrieveResourceAsync(
+			new URL("http://localhost:" + port() + "/c2id/jwks.json"),
+			null,
+			new AsyncResourceRetriever.Callback() {
+				@Override
+				public void completed(Resource resource) {
+					fail();
+				}
+				
+				
+				@Override
+				public void failed(Exception exception) {
+					failed.set(exception);
+				}
+			});
+		
+		try {
+			future.get(1, TimeUnit.MINUTES);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+			assertSame(e.getCause(), failed.get());
+		}
+	}
+}
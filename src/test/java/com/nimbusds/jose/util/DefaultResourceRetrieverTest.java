@@ -31,6 +31,7 @@ import java.util.concurrent.TimeUnit;
 
 import static net.jadler.Jadler.*;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.*;
 
 import org.junit.After;
@@ -427,4 +428,117 @@ public class DefaultResourceRetrieverTest {
 			.havingHeader("MultipleValues", equalTo(multipleValueHeader))
 			.receivedOnce();
 	}
+
+
+	@Test
+	public void testRetrieveCacheHeaders()
+		throws Exception {
+
+		onRequest()
+			.havingMethodEqualTo("GET")
+			.havingPathEqualTo("/c2id/jwks.json")
+			.respond()
+			.withStatus(200)
+			.withHeader("Content-Type", "application/json")
+			.withHeader("ETag", "\"v1\"")
+			.withHeader("Last-Modified", "Wed, 01 Jun 2022 10:00:00 GMT")
+			.withHeader("Cache-Control", "public, max-age=600")
+			.withBody("{}");
+
+		Resource resource = new DefaultResourceRetriever().retrieveResource(new URL("http://localhost:" + port() + "/c2id/jwks.json"));
+		assertEquals("{}", resource.getContent());
+		assertEquals("\"v1\"", resource.getETag());
+		assertEquals("Wed, 01 Jun 2022 10:00:00 GMT", resource.getLastModified());
+		assertEquals(600L, resource.getMaxAge());
+		assertFalse(resource.isNotModified());
+	}
+
+
+	@Test
+	public void testConditionalRetrieve_notModified()
+		throws Exception {
+
+		onRequest()
+			.havingMethodEqualTo("GET")
+			.havingPathEqualTo("/c2id/jwks.json")
+			.havingHeaderEqualTo("If-None-Match", "\"v1\"")
+			.havingHeaderEqualTo("If-Modified-Since", "Wed, 01 Jun 2022 10:00:00 GMT")
+			.respond()
+			.withStatus(304)
+			.withHeader("Cache-Control", "max-age=300");
+
+		Resource previous = new Resource("{}", "application/json", "\"v1\"", "Wed, 01 Jun 2022 10:00:00 GMT", 600L, false);
+
+		Resource resource = new DefaultResourceRetriever().retrieveResource(new URL("http://localhost:" + port() + "/c2id/jwks.json"), previous);
+		assertTrue(resource.isNotModified());
+		assertEquals("{}", resource.getContent());
+		assertEquals("application/json", resource.getContentType());
+		assertEquals("\"v1\"", resource.getETag());
+		assertEquals("Wed, 01 Jun 2022 10:00:00 GMT", resource.getLastModified());
+		assertEquals(300L, resource.getMaxAge());
+	}
+
+
+	@Test
+	public void testConditionalRetrieve_modified()
+		throws Exception {
+
+		onRequest()
+			.havingMethodEqualTo("GET")
+			.havingPathEqualTo("/c2id/jwks.json")
+			.respond()
+			.withStatus(200)
+			.withHeader("Content-Type", "application/json")
+			.withHeader("ETag", "\"v2\"")
+			.withBody("{\"keys\":[]}");
+
+		Resource previous = new Resource("{}", "application/json", "\"v1\"", null, -1L, false);
+
+		Resource resource = new DefaultResourceRetriever().retrieveResource(new URL("http://localhost:" + port() + "/c2id/jwks.json"), previous);
+		assertFalse(resource.isNotModified());
+		assertEquals("{\"keys\":[]}", resource.getContent());
+		assertEquals("\"v2\"", resource.getETag());
+		assertNull(resource.getLastModified());
+		assertEquals(-1L, resource.getMaxAge());
+
+		verifyThatRequest()
+			.havingHeaderEqualTo("If-None-Match", "\"v1\"")
+			.havingHeader("If-Modified-Since", nullValue())
+			.receivedOnce();
+	}
+
+
+	@Test
+	public void testNotModifiedWithoutPreviousResource()
+		throws Exception {
+
+		onRequest()
+			.havingMethodEqualTo("GET")
+			.havingPathEqualTo("/c2id/jwks.json")
+			.respond()
+			.withStatus(304);
+
+		try {
+			new DefaultResourceRetriever().retrieveResource(new URL("http://localhost:" + port() + "/c2id/jwks.json"));
+			fail();
+		} catch (IOException e) {
+			assertEquals("HTTP 304: Not Modified", e.getMessage());
+		}
+	}
+
+
+	@Test
+	public void testParseMaxAge() {
+
+		assertEquals(-1L, DefaultResourceRetriever.parseMaxAge(null));
+		assertEquals(-1L, DefaultResourceRetriever.parseMaxAge(""));
+		assertEquals(-1L, DefaultResourceRetriever.parseMaxAge("no-cache"));
+		assertEquals(60L, DefaultResourceRetriever.parseMaxAge("max-age=60"));
+		assertEquals(60L, DefaultResourceRetriever.parseMaxAge("public, Max-Age = 60, must-revalidate"));
+		assertEquals(60L, DefaultResourceRetriever.parseMaxAge("max-age=\"60\""));
+		assertEquals(0L, DefaultResourceRetriever.parseMaxAge("max-age=0"));
+		assertEquals(-1L, DefaultResourceRetriever.parseMaxAge("s-maxage=60"));
+		assertEquals(-1L, DefaultResourceRetriever.parseMaxAge("max-age=abc"));
+		assertEquals(-1L, DefaultResourceRetriever.parseMaxAge("max-age=-10"));
+	}
 }
@@ -18,7 +18,11 @@
 package com.nimbusds.jose.util;
 
 
+import java.io.EOFException;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
 
 import com.nimbusds.jose.util.DeflateUtils;
 import junit.framework.TestCase;
@@ -27,7 +31,7 @@ import junit.framework.TestCase;
 /**
  * Tests DEFLATE compression.
  *
- * @version 2013-03-26
+ * @version 2022-06-01
  */
 public class DeflateUtilsTest extends TestCase  {
 
@@ -49,4 +53,143 @@ public class DeflateUtilsTest extends TestCase  {
 
 		assertEquals("text comparison", text, textDecompressed);
 	}
+
+
+	public void testDefaultMaxInflatedSize() {
+
+		assertEquals(10 * 1024 * 1024, DeflateUtils.DEFAULT_MAX_INFLATED_SIZE);
+		assertEquals(DeflateUtils.DEFAULT_MAX_INFLATED_SIZE, DeflateUtils.getMaxInflatedSize());
+	}
+
+
+	public void testRoundTripSizes()
+		throws Exception {
+
+		SecureRandom random = new SecureRandom();
+
+		for (int size: new int[]{0, 1, 255, 256, 257, 1000, 100_000}) {
+
+			// Random (incompressible) and repetitive (compressible)
+			byte[] randomBytes = new byte[size];
+			random.nextBytes(randomBytes);
+			byte[] zeroBytes = new byte[size];
+
+			for (byte[] bytes: new byte[][]{randomBytes, zeroBytes}) {
+				byte[] compressed = DeflateUtils.compress(bytes);
+				assertTrue(Arrays.equals(bytes, DeflateUtils.decompress(compressed)));
+				assertTrue(Arrays.equals(bytes, DeflateUtils.decompress(compressed, Math.max(1, size))));
+			}
+		}
+	}
+
+
+	public void testMaxInflatedSizeExceeded()
+		throws Exception {
+
+		byte[] compressed = DeflateUtils.compress(new byte[1_000_000]);
+		assertTrue(compressed.length < 2000);
+
+		assertEquals(1_000_000, DeflateUtils.decompress(compressed, 1_000_000).length);
+
+		try {
+			DeflateUtils.decompress(compressed, 999_999);
+			fail();
+		} catch (IOException e) {
+			assertEquals("The inflated size exceeds the maximum of 999999 bytes", e.getMessage());
+		}
+	}
+
+
+	public void testSetMaxInflatedSize()
+		throws Exception {
+
+		byte[] compressed = DeflateUtils.compress(new byte[1000]);
+
+		DeflateUtils.setMaxInflatedSize(100);
+		try {
+			assertEquals(100, DeflateUtils.getMaxInflatedSize());
+			DeflateUtils.decompress(compressed);
+			fail();
+		} catch (IOException e) {
+			assertEquals("The inflated size exceeds the maximum of 100 bytes", e.getMessage());
+		} finally {
+			DeflateUtils.setMaxInflatedSize(DeflateUtils.DEFAULT_MAX_INFLATED_SIZE);
+		}
+
+		assertEquals(1000, DeflateUtils.decompress(compressed).length);
+	}
+
+
+	public void testSetMaxInflatedSizeInvalid() {
+
+		try {
+			DeflateUtils.setMaxInflatedSize(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The maximum inflated size must be positive", e.getMessage());
+		}
+	}
+
+
+	public void testDecompressIntoBuffer()
+		throws Exception {
+
+		byte[] text = "Hello world!".getBytes(StandardCharsets.UTF_8);
+		byte[] compressed = DeflateUtils.compress(text);
+
+		byte[] buf = new byte[20];
+		int len = DeflateUtils.decompress(compressed, buf, 5);
+		assertEquals(text.length, len);
+		assertTrue(Arrays.equals(text, Arrays.copyOfRange(buf, 5, 5 + len)));
+
+		// Exact fit
+		buf = new byte[text.length];
+		assertEquals(text.length, DeflateUtils.decompress(compressed, buf, 0));
+		assertTrue(Arrays.equals(text, buf));
+
+		// Too small
+		try {
+			DeflateUtils.decompress(compressed, new byte[text.length + 1], 2);
+			fail();
+		} catch (IOException e) {
+			assertEquals("The inflated size exceeds the maximum of " + (text.length - 1) + " bytes", e.getMessage());
+		}
+	}
+
+
+	public void testTruncatedInput()
+		throws Exception {
+
+		byte[] compressed = DeflateUtils.compress(new byte[10_000]);
+
+		try {
+			DeflateUtils.decompress(Arrays.copyOf(compressed, compressed.length / 2));
+			fail();
+		} catch (EOFException e) {
+			assertEquals("Unexpected end of ZLIB input stream", e.getMessage());
+		}
+
+		try {
+			DeflateUtils.decompress(new byte[0]);
+			fail();
+		} catch (EOFException e) {
+			assertEquals("Unexpected end of ZLIB input stream", e.getMessage());
+		}
+	}
+
+
+	public void testInvalidInput()
+		throws Exception {
+
+		try {
+			DeflateUtils.decompress(new byte[]{(byte) 0xff, (byte) 0xff, (byte) 0xff});
+			fail();
+		} catch (IOException e) {
+			assertNotNull(e.getMessage());
+		}
+
+		// Pooled inflater reusable after error
+		byte[] text = "Hello world!".getBytes(StandardCharsets.UTF_8);
+		assertTrue(Arrays.equals(text, DeflateUtils.decompress(DeflateUtils.compress(text))));
+	}
 }
@@ -0,0 +1,123 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.nimbusds.jose.util;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import junit.framework.TestCase;
+
+
+public class FileClearTextSinkTest extends TestCase {
+
+
+	public void testCommit()
+		throws Exception {
+
+		File stagingFile = File.createTempFile("jwe", ".staging");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		FileClearTextSink sink = new FileClearTextSink(stagingFile, out);
+		assertEquals(stagingFile, sink.getStagingFile());
+
+		sink.getOutputStream().write(new byte[]{1, 2, 3});
+		assertEquals(0, out.size());
+
+		sink.commit();
+		assertArrayEquals(new byte[]{1, 2, 3}, out.toByteArray());
+		assertFalse(stagingFile.exists());
+	}
+
+
+	public void testDiscard()
+		throws Exception {
+
+		File stagingFile = File.createTempFile("jwe", ".staging");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		FileClearTextSink sink = new FileClearTextSink(stagingFile, out);
+		sink.getOutputStream().write(new byte[]{1, 2, 3});
+		sink.discard();
+
+		assertEquals(0, out.size());
+		assertFalse(stagingFile.exists());
+	}
+
+
+	public void testOwnerOnlyPermissions()
+		throws Exception {
+
+		File stagingFile = File.createTempFile("jwe", ".staging");
+
+		FileClearTextSink sink = new FileClearTextSink(stagingFile, new ByteArrayOutputStream());
+		sink.getOutputStream();
+
+		if (stagingFile.toPath().getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(stagingFile.toPath()));
+		}
+
+		sink.discard();
+	}
+
+
+	public void testCommitDoesntThrowIfDeleteFails()
+		throws Exception {
+
+		final File tempFile = File.createTempFile("jwe", ".staging");
+
+		File stagingFile = new File(tempFile.getPath()) {
+			@Override
+			public boolean delete() {
+				return false;
+			}
+		};
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		FileClearTextSink sink = new FileClearTextSink(stagingFile, out);
+		sink.getOutputStream().write(new byte[]{1, 2, 3});
+
+		sink.commit();
+		assertArrayEquals(new byte[]{1, 2, 3}, out.toByteArray());
+
+		assertTrue(tempFile.delete());
+	}
+
+
+	public void testRejectNullArgs() {
+
+		try {
+			new FileClearTextSink(null, new ByteArrayOutputStream());
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The staging file must not be null", e.getMessage());
+		}
+
+		try {
+			new FileClearTextSink(new File("staging"), null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The output stream must not be null", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jose.util;
+
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+
+public class ResourceRetrieverUtilsTest extends TestCase {
+
+
+	private static class CustomHeaderRetriever extends DefaultResourceRetriever {
+
+		final AtomicInteger calls = new AtomicInteger();
+
+		@Override
+		public Resource retrieveResource(final URL url) throws IOException {
+			calls.incrementAndGet();
+			return new Resource("{}", "application/json");
+		}
+	}
+
+
+	private static class CustomConditionalRetriever extends DefaultResourceRetriever {
+
+		@Override
+		public Resource retrieveResource(final URL url, final Resource previousResource) throws IOException {
+			return new Resource("{}", "application/json", null, null, -1L, previousResource != null);
+		}
+	}
+
+
+	public void testSupportsConditionalRetrieval() {
+
+		assertTrue(ResourceRetrieverUtils.supportsConditionalRetrieval(new DefaultResourceRetriever()));
+		assertTrue(ResourceRetrieverUtils.supportsConditionalRetrieval(new CustomConditionalRetriever()));
+
+		// Override would be bypassed
+		assertFalse(ResourceRetrieverUtils.supportsConditionalRetrieval(new CustomHeaderRetriever()));
+
+		assertFalse(ResourceRetrieverUtils.supportsConditionalRetrieval(new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) {
+				return null;
+			}
+		}));
+	}
+
+
+	public void testRetrieveResource_overrideNotBypassed()
+		throws Exception {
+
+		CustomHeaderRetriever retriever = new CustomHeaderRetriever();
+		URL url = new URL("http://localhost/jwks.json");
+		Resource previous = new Resource("{}", "application/json", "\"v1\"", null, -1L, false);
+
+		assertFalse(ResourceRetrieverUtils.retrieveResource(retriever, url, previous).isNotModified());
+		assertEquals(1, retriever.calls.get());
+
+		assertFalse(ResourceRetrieverUtils.retrieveResource(retriever, url, null).isNotModified());
+		assertEquals(2, retriever.calls.get());
+	}
+
+
+	public void testRetrieveResource_conditional()
+		throws Exception {
+
+		CustomConditionalRetriever retriever = new CustomConditionalRetriever();
+		URL url = new URL("http://localhost/jwks.json");
+		Resource previous = new Resource("{}", "application/json", "\"v1\"", null, -1L, false);
+
+		assertTrue(ResourceRetrieverUtils.retrieveResource(retriever, url, previous).isNotModified());
+		assertFalse(ResourceRetrieverUtils.retrieveResource(retriever, url, null).isNotModified());
+	}
+}
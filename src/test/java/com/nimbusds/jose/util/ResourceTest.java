@@ -33,6 +33,28 @@ public class ResourceTest extends TestCase {
 	}
 
 
+	public void testDefaultCacheValidators() {
+
+		Resource resource = new Resource("content", "text/plain");
+		assertNull(resource.getETag());
+		assertNull(resource.getLastModified());
+		assertEquals(-1L, resource.getMaxAge());
+		assertFalse(resource.isNotModified());
+	}
+
+
+	public void testWithCacheValidators() {
+
+		Resource resource = new Resource("content", "text/plain", "\"abc\"", "Wed, 01 Jun 2022 10:00:00 GMT", 600L, true);
+		assertEquals("content", resource.getContent());
+		assertEquals("text/plain", resource.getContentType());
+		assertEquals("\"abc\"", resource.getETag());
+		assertEquals("Wed, 01 Jun 2022 10:00:00 GMT", resource.getLastModified());
+		assertEquals(600L, resource.getMaxAge());
+		assertTrue(resource.isNotModified());
+	}
+
+
 	public void testUnspecifiedContentType() {
 
 		Resource resource = new Resource("content", null);
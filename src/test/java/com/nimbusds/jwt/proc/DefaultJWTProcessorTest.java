@@ -24,6 +24,12 @@ import java.security.interfaces.RSAPublicKey;
 import java.security.spec.KeySpec;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
@@ -40,6 +46,7 @@ import com.nimbusds.jose.crypto.RSAEncrypter;
 import com.nimbusds.jose.crypto.bc.BouncyCastleProviderSingleton;
 import com.nimbusds.jose.crypto.factories.DefaultJWEDecrypterFactory;
 import com.nimbusds.jose.crypto.factories.DefaultJWSVerifierFactory;
+import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKSet;
 import com.nimbusds.jose.jwk.OctetSequenceKey;
 import com.nimbusds.jose.jwk.RSAKey;
@@ -56,7 +63,7 @@ import com.nimbusds.jwt.*;
 /**
  * Tests the default JWT processor.
  *
- * @version 2021-06-05
+ * @version 2022-06-01
  */
 public class DefaultJWTProcessorTest extends TestCase {
 
@@ -1374,4 +1381,291 @@ public class DefaultJWTProcessorTest extends TestCase {
 			assertEquals("Plain JWT rejected: No JWS header typ (type) verifier is configured", e.getMessage());
 		}
 	}
+	
+	
+	private static List<String> createBatch(final OctetSequenceKey key1, final OctetSequenceKey key2, final int size)
+		throws JOSEException {
+		
+		List<String> batch = new ArrayList<>();
+		for (int i=0; i < size; i++) {
+			OctetSequenceKey key = i % 2 == 0 ? key1 : key2;
+			SignedJWT jwt = new SignedJWT(
+				new JWSHeader.Builder(JWSAlgorithm.HS256).keyID(key.getKeyID()).build(),
+				new JWTClaimsSet.Builder().subject("user-" + i).build());
+			jwt.sign(new MACSigner(key));
+			batch.add(jwt.serialize());
+		}
+		return batch;
+	}
+	
+	
+	public void testProcessAll()
+		throws Exception {
+		
+		OctetSequenceKey key1 = new OctetSequenceKeyGenerator(256).keyID("1").generate();
+		OctetSequenceKey key2 = new OctetSequenceKeyGenerator(256).keyID("2").generate();
+		OctetSequenceKey unknownKey = new OctetSequenceKeyGenerator(256).keyID("3").generate();
+		
+		final JWKSource<SecurityContext> jwkSource = new ImmutableJWKSet<>(new JWKSet(Arrays.<JWK>asList(key1, key2)));
+		final AtomicInteger keySelections = new AtomicInteger();
+		
+		DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+		processor.setJWSKeySelector(new JWSKeySelector<SecurityContext>() {
+			private final JWSKeySelector<SecurityContext> selector = new JWSVerificationKeySelector<>(JWSAlgorithm.HS256, jwkSource);
+			@Override
+			public List<? extends Key> selectJWSKeys(JWSHeader header, SecurityContext context) throws KeySourceException {
+				keySelections.incrementAndGet();
+				return selector.selectJWSKeys(header, context);
+			}
+		});
+		
+		List<String> batch = createBatch(key1, key2, 100);
+		
+		// Invalid signature
+		SignedJWT badSig = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.HS256).keyID("1").build(), new JWTClaimsSet.Builder().subject("mallory").build());
+		badSig.sign(new MACSigner(unknownKey.toByteArray()));
+		batch.add(badSig.serialize());
+		
+		// Unknown key
+		SignedJWT unknownKID = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.HS256).keyID("3").build(), new JWTClaimsSet.Builder().subject("mallory").build());
+		unknownKID.sign(new MACSigner(unknownKey));
+		batch.add(unknownKID.serialize());
+		
+		// Expired
+		SignedJWT expired = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.HS256).keyID("1").build(), new JWTClaimsSet.Builder().subject("mallory").expirationTime(new Date(0L)).build());
+		expired.sign(new MACSigner(key1));
+		batch.add(expired.serialize());
+		
+		// Not a JWT
+		batch.add("invalid");
+		
+		List<JWTProcessingResult> results = processor.processAll(batch, null);
+		
+		assertEquals(batch.size(), results.size());
+		
+		for (int i=0; i < 100; i++) {
+			assertEquals(batch.get(i), results.get(i).getJWTString());
+			assertTrue(results.get(i).indicatesSuccess());
+			assertEquals("user-" + i, results.get(i).getJWTClaimsSet().getSubject());
+			assertNull(results.get(i).getException());
+		}
+		
+		assertFalse(results.get(100).indicatesSuccess());
+		assertNull(results.get(100).getJWTClaimsSet());
+		assertTrue(results.get(100).getException() instanceof BadJWSException);
+		assertEquals("Signed JWT rejected: Invalid signature", results.get(100).getException().getMessage());
+		
+		assertEquals("Signed JWT rejected: Another algorithm expected, or no matching key(s) found", results.get(101).getException().getMessage());
+		
+		assertEquals("Expired JWT", results.get(102).getException().getMessage());
+		
+		assertTrue(results.get(103).getException() instanceof ParseException);
+		
+		// Once per kid
+		assertEquals(3, keySelections.get());
+	}
+	
+	
+	public void testProcessAll_customExecutor()
+		throws Exception {
+		
+		OctetSequenceKey key1 = new OctetSequenceKeyGenerator(256).keyID("1").generate();
+		OctetSequenceKey key2 = new OctetSequenceKeyGenerator(256).keyID("2").generate();
+		
+		DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+		processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.HS256, new ImmutableJWKSet<>(new JWKSet(Arrays.<JWK>asList(key1, key2)))));
+		
+		List<String> batch = createBatch(key1, key2, 10);
+		
+		// Encrypted JWT, processed individually
+		processor.setJWEKeySelector(new JWEDecryptionKeySelector<>(JWEAlgorithm.DIR, EncryptionMethod.A128GCM, new ImmutableSecret<>(new byte[16])));
+		EncryptedJWT encryptedJWT = new EncryptedJWT(new JWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A128GCM), new JWTClaimsSet.Builder().subject("bob").build());
+		encryptedJWT.encrypt(new DirectEncrypter(new byte[16]));
+		batch.add(encryptedJWT.serialize());
+		
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			List<JWTProcessingResult> results = processor.processAll(batch, null, executor);
+			for (int i=0; i < 10; i++) {
+				assertEquals("user-" + i, results.get(i).getJWTClaimsSet().getSubject());
+			}
+			assertEquals("bob", results.get(10).getJWTClaimsSet().getSubject());
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	
+	public void testProcessAll_interruptedResultsNotOverwritten()
+		throws Exception {
+		
+		OctetSequenceKey key = new OctetSequenceKeyGenerator(256).keyID("1").generate();
+		
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch exited = new CountDownLatch(1);
+		
+		final DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+		processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.HS256, new ImmutableJWKSet<>(new JWKSet(key))));
+		processor.setJWTClaimsSetVerifier(new JWTClaimsSetVerifier<SecurityContext>() {
+			@Override
+			public void verify(JWTClaimsSet claimsSet, SecurityContext context) {
+				entered.countDown();
+				// Keep running after the cancellation
+				while (true) {
+					try {
+						release.await();
+						break;
+					} catch (InterruptedException e) {
+						// Ignore
+					}
+				}
+				exited.countDown();
+			}
+		});
+		
+		final List<String> batch = createBatch(key, key, 1);
+		
+		final ExecutorService executor = Executors.newFixedThreadPool(1);
+		final List<List<JWTProcessingResult>> resultsHolder = new ArrayList<>();
+		
+		Thread caller = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				resultsHolder.add(processor.processAll(batch, null, executor));
+			}
+		});
+		caller.start();
+		
+		assertTrue(entered.await(10, TimeUnit.SECONDS));
+		caller.interrupt();
+		caller.join(10_000L);
+		assertFalse(caller.isAlive());
+		
+		List<JWTProcessingResult> results = resultsHolder.get(0);
+		assertEquals("JWT processing interrupted", results.get(0).getException().getMessage());
+		
+		// The task still running completes after the interrupt
+		release.countDown();
+		assertTrue(exited.await(10, TimeUnit.SECONDS));
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		
+		assertFalse(results.get(0).indicatesSuccess());
+		assertEquals("JWT processing interrupted", results.get(0).getException().getMessage());
+	}
+	
+	
+	public void testProcessAll_empty() {
+		
+		assertTrue(new DefaultJWTProcessor<SecurityContext>().processAll(Collections.<String>emptyList(), null).isEmpty());
+	}
+	
+	
+	public void testProcessAll_noJWSKeySelector()
+		throws Exception {
+		
+		OctetSequenceKey key = new OctetSequenceKeyGenerator(256).keyID("1").generate();
+		
+		List<JWTProcessingResult> results = new DefaultJWTProcessor<SecurityContext>().processAll(createBatch(key, key, 3), null);
+		
+		for (JWTProcessingResult result: results) {
+			assertEquals("Signed JWT rejected: No JWS key selector is configured", result.getException().getMessage());
+		}
+	}
+	
+	
+	public void testProcessAll_nullExecutor() {
+		
+		try {
+			new DefaultJWTProcessor<SecurityContext>().processAll(Collections.<String>emptyList(), null, null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The executor must not be null", e.getMessage());
+		}
+	}
+	
+	
+	public void testVerifiedJWTCache()
+		throws Exception {
+		
+		OctetSequenceKey key1 = new OctetSequenceKeyGenerator(256).keyID("1").generate();
+		OctetSequenceKey key2 = new OctetSequenceKeyGenerator(256).keyID("2").generate();
+		
+		final AtomicInteger verifierCount = new AtomicInteger();
+		final AtomicBoolean rejectClaims = new AtomicBoolean();
+		
+		DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+		assertNull(processor.getVerifiedJWTCache());
+		
+		VerifiedJWTCache cache = new VerifiedJWTCache(5, TimeUnit.MINUTES);
+		processor.setVerifiedJWTCache(cache);
+		assertEquals(cache, processor.getVerifiedJWTCache());
+		
+		ImmutableJWKSet<SecurityContext> jwkSource = new ImmutableJWKSet<>(new JWKSet(Arrays.<JWK>asList(key1, key2)));
+		final JWSVerificationKeySelector<SecurityContext> keySelector = new JWSVerificationKeySelector<>(JWSAlgorithm.HS256, jwkSource);
+		processor.setJWSKeySelector(keySelector);
+		processor.setJWSVerifierFactory(new DefaultJWSVerifierFactory() {
+			@Override
+			public JWSVerifier createJWSVerifier(JWSHeader header, Key key) throws JOSEException {
+				verifierCount.incrementAndGet();
+				return super.createJWSVerifier(header, key);
+			}
+		});
+		processor.setJWTClaimsSetVerifier(new DefaultJWTClaimsVerifier<SecurityContext>(null, null) {
+			@Override
+			public void verify(JWTClaimsSet claimsSet, SecurityContext context) throws BadJWTException {
+				super.verify(claimsSet, context);
+				if (rejectClaims.get()) {
+					throw new BadJWTException("Rejected");
+				}
+			}
+		});
+		
+		SignedJWT jwt = new SignedJWT(
+			new JWSHeader.Builder(JWSAlgorithm.HS256).keyID("1").build(),
+			new JWTClaimsSet.Builder().subject("alice").expirationTime(new Date(new Date().getTime() + 60_000L)).build());
+		jwt.sign(new MACSigner(key1));
+		String jwtString = jwt.serialize();
+		
+		assertEquals("alice", processor.process(jwtString, null).getSubject());
+		assertEquals(1, verifierCount.get());
+		assertEquals(1, cache.size());
+		
+		// Cache hits
+		for (int i=0; i < 10; i++) {
+			assertEquals("alice", processor.process(jwtString, null).getSubject());
+			assertEquals("alice", processor.process(jwt, null).getSubject());
+		}
+		assertEquals(1, verifierCount.get());
+		
+		// Claims still checked on hit
+		rejectClaims.set(true);
+		try {
+			processor.process(jwtString, null);
+			fail();
+		} catch (BadJWTException e) {
+			assertEquals("Rejected", e.getMessage());
+		}
+		rejectClaims.set(false);
+		
+		// Tampered JWT not found in cache
+		String tampered = jwtString.substring(0, jwtString.length() - 2) + (jwtString.endsWith("AA") ? "BB" : "AA");
+		try {
+			processor.process(tampered, null);
+			fail();
+		} catch (BadJWSException e) {
+			assertEquals("Signed JWT rejected: Invalid signature", e.getMessage());
+		}
+		assertEquals(2, verifierCount.get());
+		
+		// Key rotated out of the JWK source
+		processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.HS256, new ImmutableJWKSet<SecurityContext>(new JWKSet(key2))));
+		try {
+			processor.process(jwtString, null);
+			fail();
+		} catch (BadJOSEException e) {
+			assertEquals("Signed JWT rejected: Another algorithm expected, or no matching key(s) found", e.getMessage());
+		}
+	}
 }
@@ -0,0 +1,169 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jwt.proc;
+
+
+import java.net.URL;
+import java.security.Key;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.IssuerJWKSourceRegistry;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.StaticJWKSetURLResolver;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+
+public class MultiIssuerJWSKeySelectorTest extends TestCase {
+
+
+	private static final String ISSUER_A = "https://a.c2id.com";
+
+
+	private static final String ISSUER_B = "https://b.c2id.com";
+
+
+	private RSAKey rsaJWKA;
+
+
+	private RSAKey rsaJWKB;
+
+
+	private IssuerJWKSourceRegistry<SecurityContext> registry;
+
+
+	@Override
+	public void setUp()
+		throws Exception {
+
+		rsaJWKA = new RSAKeyGenerator(2048).keyID("a").generate();
+		rsaJWKB = new RSAKeyGenerator(2048).keyID("b").generate();
+
+		Map<String, URL> urls = new HashMap<>();
+		urls.put(ISSUER_A, new URL(ISSUER_A + "/jwks.json"));
+		urls.put(ISSUER_B, new URL(ISSUER_B + "/jwks.json"));
+
+		final Map<String, JWKSet> jwkSets = new HashMap<>();
+		jwkSets.put(ISSUER_A, new JWKSet(rsaJWKA));
+		jwkSets.put(ISSUER_B, new JWKSet(rsaJWKB));
+
+		registry = new IssuerJWKSourceRegistry<>(
+			new StaticJWKSetURLResolver(urls),
+			new IssuerJWKSourceRegistry.JWKSourceFactory<SecurityContext>() {
+				@Override
+				public JWKSource<SecurityContext> createJWKSource(final String issuer, final URL jwkSetURL) {
+					return new ImmutableJWKSet<>(jwkSets.get(issuer));
+				}
+			},
+			10,
+			0L,
+			TimeUnit.SECONDS);
+	}
+
+
+	public void testSelectKeysByIssuer()
+		throws Exception {
+
+		MultiIssuerJWSKeySelector<SecurityContext> selector = new MultiIssuerJWSKeySelector<>(
+			Collections.singleton(JWSAlgorithm.RS256), registry);
+
+		assertEquals(Collections.singleton(JWSAlgorithm.RS256), selector.getJWSAlgorithms());
+		assertEquals(registry, selector.getIssuerJWKSourceRegistry());
+
+		JWSHeader headerA = new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("a").build();
+		JWSHeader headerB = new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("b").build();
+
+		JWTClaimsSet claimsA = new JWTClaimsSet.Builder().issuer(ISSUER_A).build();
+		JWTClaimsSet claimsB = new JWTClaimsSet.Builder().issuer(ISSUER_B).build();
+
+		List<? extends Key> keys = selector.selectKeys(headerA, claimsA, null);
+		assertEquals(1, keys.size());
+		assertEquals(rsaJWKA.toRSAPublicKey(), keys.get(0));
+
+		keys = selector.selectKeys(headerB, claimsB, null);
+		assertEquals(1, keys.size());
+		assertEquals(rsaJWKB.toRSAPublicKey(), keys.get(0));
+
+		// Key of other issuer
+		assertTrue(selector.selectKeys(headerB, claimsA, null).isEmpty());
+
+		// Unknown issuer
+		assertTrue(selector.selectKeys(headerA, new JWTClaimsSet.Builder().issuer("https://other.com").build(), null).isEmpty());
+
+		// No issuer
+		assertTrue(selector.selectKeys(headerA, new JWTClaimsSet.Builder().build(), null).isEmpty());
+
+		// Unexpected alg
+		assertTrue(selector.selectKeys(new JWSHeader.Builder(JWSAlgorithm.RS512).keyID("a").build(), claimsA, null).isEmpty());
+
+		assertEquals(2, registry.size());
+	}
+
+
+	public void testWithJWTProcessor()
+		throws Exception {
+
+		DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+		jwtProcessor.setJWTClaimsSetAwareJWSKeySelector(new MultiIssuerJWSKeySelector<>(
+			Collections.singleton(JWSAlgorithm.RS256), registry));
+
+		JWTClaimsSet claimsSet = new JWTClaimsSet.Builder()
+			.issuer(ISSUER_B)
+			.subject("alice")
+			.expirationTime(new Date(new Date().getTime() + 60_000L))
+			.build();
+
+		SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("b").build(), claimsSet);
+		jwt.sign(new RSASSASigner(rsaJWKB));
+
+		assertEquals("alice", jwtProcessor.process(jwt.serialize(), null).getSubject());
+	}
+
+
+	public void testConstructorArgs() {
+
+		try {
+			new MultiIssuerJWSKeySelector<>(Collections.<JWSAlgorithm>emptySet(), registry);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The JWS algorithms must not be null or empty", e.getMessage());
+		}
+
+		try {
+			new MultiIssuerJWSKeySelector<SecurityContext>(Collections.singleton(JWSAlgorithm.RS256), null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The issuer JWK source registry must not be null", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * nimbus-jose-jwt
+ *
+ * Copyright 2012-2022, Connect2id Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.nimbusds.jwt.proc;
+
+
+import java.security.Key;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.spec.SecretKeySpec;
+
+import junit.framework.TestCase;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+
+
+public class VerifiedJWTCacheTest extends TestCase {
+
+
+	private static final Key KEY = new SecretKeySpec(new byte[32], "HMACSHA256");
+
+
+	public void testDefaultMaxSize() {
+
+		VerifiedJWTCache cache = new VerifiedJWTCache(5, TimeUnit.MINUTES);
+		assertEquals(VerifiedJWTCache.DEFAULT_MAX_SIZE, cache.getMaxSize());
+		assertEquals(5L, cache.getTimeToLive(TimeUnit.MINUTES));
+		assertEquals(0, cache.size());
+	}
+
+
+	public void testRejectInvalidArgs() {
+
+		try {
+			new VerifiedJWTCache(0, TimeUnit.MINUTES);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The time-to-live must be positive", e.getMessage());
+		}
+
+		try {
+			new VerifiedJWTCache(1, TimeUnit.MINUTES, 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The maximum size must be positive", e.getMessage());
+		}
+	}
+
+
+	public void testPutAndGet() {
+
+		VerifiedJWTCache cache = new VerifiedJWTCache(5, TimeUnit.MINUTES);
+
+		JWTClaimsSet claimsSet = new JWTClaimsSet.Builder().subject("alice").build();
+
+		assertNull(cache.get("a.b.c"));
+
+		cache.put("a.b.c", claimsSet, KEY);
+		assertEquals(1, cache.size());
+
+		VerifiedJWTCache.Entry entry = cache.get("a.b.c");
+		assertEquals(claimsSet, entry.claimsSet);
+		assertEquals(KEY, entry.key);
+		assertTrue(entry.expirationTime > System.currentTimeMillis());
+
+		assertNull(cache.get("a.b.d"));
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertNull(cache.get("a.b.c"));
+	}
+
+
+	public void testExpirationTimeLimitsEntryLifetime() {
+
+		VerifiedJWTCache cache = new VerifiedJWTCache(5, TimeUnit.MINUTES);
+
+		Date exp = new Date(System.currentTimeMillis() + 60_000L);
+		cache.put("a.b.c", new JWTClaimsSet.Builder().expirationTime(exp).build(), KEY);
+		assertEquals(exp.getTime(), cache.get("a.b.c").expirationTime);
+	}
+
+
+	public void testExpiredNotCached() {
+
+		VerifiedJWTCache cache = new VerifiedJWTCache(5, TimeUnit.MINUTES);
+
+		cache.put("a.b.c", new JWTClaimsSet.Builder().expirationTime(new Date(0L)).build(), KEY);
+		assertEquals(0, cache.size());
+		assertNull(cache.get("a.b.c"));
+	}
+
+
+	public void testTimeToLive()
+		throws InterruptedException {
+
+		VerifiedJWTCache cache = new VerifiedJWTCache(100, TimeUnit.MILLISECONDS);
+
+		cache.put("a.b.c", new JWTClaimsSet.Builder().build(), KEY);
+		assertNotNull(cache.get("a.b.c"));
+
+		Thread.sleep(150L);
+
+		assertNull(cache.get("a.b.c"));
+		assertEquals(0, cache.size());
+	}
+
+
+	public void testMaxSize() {
+
+		VerifiedJWTCache cache = new VerifiedJWTCache(5, TimeUnit.MINUTES, 10);
+
+		for (int i=0; i < 100; i++) {
+			cache.put("a.b." + i, new JWTClaimsSet.Builder().build(), KEY);
+			assertTrue(cache.size() <= 10);
+		}
+
+		assertNotNull(cache.get("a.b.99"));
+	}
+
+
+	public void testEvictOldest() {
+
+		VerifiedJWTCache cache = new VerifiedJWTCache(5, TimeUnit.MINUTES, 3);
+
+		for (int i=0; i < 3; i++) {
+			cache.put("a.b." + i, new JWTClaimsSet.Builder().build(), KEY);
+		}
+
+		// Replaced entry keeps its position
+		cache.put("a.b.0", new JWTClaimsSet.Builder().subject("alice").build(), KEY);
+		assertEquals(3, cache.size());
+
+		cache.put("a.b.3", new JWTClaimsSet.Builder().build(), KEY);
+		assertEquals(3, cache.size());
+		assertNull(cache.get("a.b.0"));
+		assertNotNull(cache.get("a.b.1"));
+		assertNotNull(cache.get("a.b.2"));
+		assertNotNull(cache.get("a.b.3"));
+
+		cache.put("a.b.4", new JWTClaimsSet.Builder().build(), KEY);
+		assertNull(cache.get("a.b.1"));
+		assertNotNull(cache.get("a.b.4"));
+
+		cache.clear();
+		cache.put("a.b.5", new JWTClaimsSet.Builder().build(), KEY);
+		assertEquals(1, cache.size());
+		assertNotNull(cache.get("a.b.5"));
+	}
+}